@@ -1,7 +1,8 @@
 package hr.fer.bioinformatika.projekt;
 
 import hr.fer.bioinformatika.projekt.bloomfilter.BloomFilter;
-import hr.fer.bioinformatika.projekt.bloomfilter.ScalableBloomFilter;
+import hr.fer.bioinformatika.projekt.bloomfilter.BloomFilterSnapshot;
+import hr.fer.bioinformatika.projekt.bloomfilter.ParallelBloomFilterBuilder;
 import hr.fer.bioinformatika.projekt.util.Utilities;
 
 import java.io.BufferedReader;
@@ -9,6 +10,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Collection;
+import java.util.function.Supplier;
 
 /**
  * {@code Main} contains the main function that starts a simple interactive
@@ -18,6 +20,11 @@ import java.util.Collection;
  * 
  */
 public class Main {
+	/** suffix of the filter snapshot saved next to the dictionary */
+	public static final String SNAPSHOT_SUFFIX = ".bfs";
+
+	/** suffix of the snapshot of a dictionary read in FASTA format */
+	public static final String FASTA_SNAPSHOT_SUFFIX = ".fasta.bfs";
 
 	/**
 	 * Simple argument parser.
@@ -58,6 +65,70 @@ public class Main {
 		}
 	}
 
+	/**
+	 * Loads the dictionary from the specified location and builds a bloom
+	 * filter which contains it.
+	 * 
+	 * @param path
+	 *            file path
+	 * @param isFasta
+	 *            1 if the data is stored in FASTA format
+	 * @return filter with the dictionary
+	 */
+	public static BloomFilter<String> buildFilter(String path, String isFasta) {
+		Collection<String> words = getData(path, isFasta);
+		// the number of keys is known, so a fixed-size filter is built on all
+		// cores and the partial filters are merged
+		final long estimatedNumOfItems = Math.max(words.size(), 1);
+		return new ParallelBloomFilterBuilder<String, BloomFilter<String>>(
+				new Supplier<BloomFilter<String>>() {
+					@Override
+					public BloomFilter<String> get() {
+						return new BloomFilter<String>(estimatedNumOfItems,
+								0.001);
+					}
+				}).build(words);
+	}
+
+	/**
+	 * Returns the bloom filter of the dictionary.<br>
+	 * The filter is restored from the snapshot next to the dictionary
+	 * ("file path" + {@value #SNAPSHOT_SUFFIX}, or
+	 * {@value #FASTA_SNAPSHOT_SUFFIX} if the data is stored in FASTA format)
+	 * if the snapshot is newer than the dictionary. Otherwise the filter is
+	 * built and the snapshot is saved for the next launch. The two formats
+	 * produce different items from the same file, so each one has its own
+	 * snapshot.
+	 * 
+	 * @param path
+	 *            file path
+	 * @param isFasta
+	 *            1 if the data is stored in FASTA format
+	 * @return filter with the dictionary
+	 */
+	public static BloomFilter<String> getFilter(String path, String isFasta) {
+		File snapshot = new File(path
+				+ (isFasta.startsWith("1") ? FASTA_SNAPSHOT_SUFFIX
+						: SNAPSHOT_SUFFIX));
+		if (snapshot.isFile()
+				&& snapshot.lastModified() >= new File(path).lastModified()) {
+			try {
+				return BloomFilterSnapshot.load(snapshot);
+			} catch (IOException e) {
+				System.err.println("Invalid snapshot, rebuilding the filter: "
+						+ e.getMessage());
+			}
+		}
+		BloomFilter<String> filter = buildFilter(path, isFasta);
+		try {
+			BloomFilterSnapshot.save(filter, snapshot);
+		} catch (IOException e) {
+			System.err.println("The snapshot could not be saved: "
+					+ e.getMessage());
+		}
+		return filter;
+	}
+
 	/**
 	 * Loads the dictionary from the specified location and adds it to a bloom
 	 * filter.<br>
@@ -76,10 +147,7 @@ public class Main {
 	public static void main(String[] args) {
 		long startTime = System.currentTimeMillis();
 		args = parseArgs(args);
-		Collection<String> words = getData(args[0], args[1]);
-		BloomFilter<String> filter = new ScalableBloomFilter<String>(50000,
-				0.001);
-		filter.addAll(words);
+		BloomFilter<String> filter = getFilter(args[0], args[1]);
 		double loadTime = (System.currentTimeMillis() - startTime) / 1000.;
 		System.out.println("Key List loaded in: " + loadTime + " seconds.");
 		try {
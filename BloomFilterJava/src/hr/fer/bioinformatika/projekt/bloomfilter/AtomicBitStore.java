@@ -0,0 +1,120 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe {@code BitStore} backed by an {@code AtomicLongArray}.
+ * <p>
+ * Bits are set with a compare-and-set loop on the word that holds them, so
+ * concurrent writers never overwrite each other's bits. The CAS is skipped
+ * if the bit is already set. Reading a bit is a single volatile load and
+ * never waits for the writers.
+ * </p>
+ * 
+ * @see BitStore
+ * @see ConcurrentBloomFilter
+ * 
+ */
+public class AtomicBitStore extends BitStore {
+	/** packed bits */
+	protected AtomicLongArray words;
+
+	/**
+	 * Constructs an {@code AtomicBitStore} with the specified number of bits.
+	 * All bits are cleared.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the size is less or equal zero or greater than
+	 *             {@link LongArrayBitStore#MAX_SIZE}.
+	 * @param size
+	 *            number of bits.
+	 */
+	public AtomicBitStore(long size) {
+		super(size);
+		if (size > LongArrayBitStore.MAX_SIZE) {
+			throw new IllegalArgumentException("Invalid bit store size: "
+					+ size);
+		}
+		this.words = new AtomicLongArray((int) wordCount(size));
+	}
+
+	@Override
+	public boolean get(long index) {
+		return (words.get((int) (index >>> ADDRESS_BITS)) & (1L << index)) != 0;
+	}
+
+	@Override
+	public void set(long index) {
+		int wordIndex = (int) (index >>> ADDRESS_BITS);
+		long mask = 1L << index;
+		long word = words.get(wordIndex);
+		while ((word & mask) == 0) {
+			if (words.compareAndSet(wordIndex, word, word | mask)) {
+				return;
+			}
+			word = words.get(wordIndex);
+		}
+	}
+
+	@Override
+	public long getWord(long wordIndex) {
+		return words.get((int) wordIndex);
+	}
+
+	@Override
+	public void setWord(long wordIndex, long word) {
+		words.set((int) wordIndex, word);
+	}
+
+	@Override
+	public boolean compareAndSetWord(long wordIndex, long expect, long update) {
+		return words.compareAndSet((int) wordIndex, expect, update);
+	}
+
+	/**
+	 * Sets the bits of the other store with a compare-and-set loop on every
+	 * word, so the bits set concurrently by the writers are not lost.
+	 */
+	@Override
+	public void or(BitStore other) {
+		checkSize(other);
+		for (int i = 0; i < words.length(); i++) {
+			long bits = other.getWord(i);
+			long word = words.get(i);
+			while ((word | bits) != word
+					&& !words.compareAndSet(i, word, word | bits)) {
+				word = words.get(i);
+			}
+		}
+	}
+
+	/**
+	 * Clears the bits that are not set in the other store with a
+	 * compare-and-set loop on every word, so the bits set concurrently by the
+	 * writers are not lost unless they are cleared by the mask.
+	 */
+	@Override
+	public void and(BitStore other) {
+		checkSize(other);
+		for (int i = 0; i < words.length(); i++) {
+			long bits = other.getWord(i);
+			long word = words.get(i);
+			while ((word & bits) != word
+					&& !words.compareAndSet(i, word, word & bits)) {
+				word = words.get(i);
+			}
+		}
+	}
+
+	/**
+	 * Returns a thread-safe copy of the store.
+	 */
+	@Override
+	public BitStore copy() {
+		AtomicBitStore copy = new AtomicBitStore(size);
+		for (int i = 0; i < words.length(); i++) {
+			copy.words.set(i, words.get(i));
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,644 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.HashFunction;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash128;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Implementation of an immutable binary fuse filter.
+ * <p>
+ * The filter is an array of 8-bit or 16-bit fingerprints built once from a
+ * fixed set of items. Every item is mapped to three positions of the array
+ * and the array is filled so that the XOR of the three fingerprints equals
+ * the fingerprint of the item. A query reads exactly three fingerprints.
+ * </p>
+ * <p>
+ * The array is divided into segments and the three positions of an item lie
+ * in three consecutive segments, which lets the filter be built with about
+ * 1.13 fingerprints per item (about 9 bits per item with 8-bit
+ * fingerprints, at a false positive probability of 2<sup>-8</sup> &asymp;
+ * 0.4%, and about 18 bits with 16-bit fingerprints at 2<sup>-16</sup>).
+ * Items can't be added or removed after the filter has been built.
+ * </p>
+ * <p>
+ * The items are hashed like in the {@link BloomFilter}; the two hashes are
+ * combined into one 64-bit key which is mixed with a seed chosen during the
+ * construction.
+ * </p>
+ * 
+ * @see <a href="https://arxiv.org/abs/2201.01174">Binary Fuse Filters: Fast
+ *      and Smaller Than Xor Filters</a>
+ * 
+ */
+public class BinaryFuseFilter<T> {
+	/** number of positions of an item */
+	protected static final int ARITY = 3;
+
+	/** maximum length of a segment */
+	protected static final int MAX_SEGMENT_LENGTH = 1 << 18;
+
+	/** maximum number of construction attempts with different seeds */
+	protected static final int MAX_ATTEMPTS = 100;
+
+	/** 8-bit fingerprints, {@code null} if the fingerprints have 16 bits */
+	protected byte[] fingerprints8;
+
+	/** 16-bit fingerprints, {@code null} if the fingerprints have 8 bits */
+	protected short[] fingerprints16;
+
+	/** number of bits of a fingerprint */
+	protected int fingerprintBits;
+
+	/** seed mixed into the keys */
+	protected long seed;
+
+	/** length of a segment, a power of two */
+	protected int segmentLength;
+
+	/** mask of an index inside of a segment */
+	protected int segmentLengthMask;
+
+	/** number of segments where the first position of an item can be */
+	protected int segmentCount;
+
+	/** number of positions where the first position of an item can be */
+	protected int segmentCountLength;
+
+	/** length of the fingerprint array */
+	protected int arrayLength;
+
+	/** number of distinct items */
+	protected int size;
+
+	/** functions that produce the two hashes of an item */
+	protected HashFunction[] hashFunctions;
+
+	/** single-pass 128-bit hash function, {@code null} if not used */
+	protected MurmurHash128 hash128;
+
+	/**
+	 * Builds a {@code BinaryFuseFilter} with 8-bit fingerprints from the
+	 * specified items.
+	 * 
+	 * @throws NullPointerException
+	 *             if the items or one of them are {@code null}.
+	 * @param items
+	 *            items of the filter.
+	 */
+	public BinaryFuseFilter(Iterable<? extends T> items) {
+		this(items, 8);
+	}
+
+	/**
+	 * Builds a {@code BinaryFuseFilter} with fingerprints of the specified
+	 * size from the specified items.
+	 * 
+	 * @throws NullPointerException
+	 *             if the items or one of them are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the fingerprint size is not 8 or 16.
+	 * @param items
+	 *            items of the filter.
+	 * @param fingerprintBits
+	 *            size of a fingerprint in bits (8 or 16).
+	 */
+	public BinaryFuseFilter(Iterable<? extends T> items, int fingerprintBits) {
+		this(items, fingerprintBits, HashFunctionFactory.getBloomFilterHashes());
+	}
+
+	/**
+	 * Builds a {@code BinaryFuseFilter} with fingerprints of the specified
+	 * size and the hash functions that produce the two hashes of an item. The
+	 * items are read once, so any {@code Iterable} (a collection, a stream
+	 * through {@code stream::iterator}...) can be used.
+	 * 
+	 * @see BloomFilter#BloomFilter(long, int, HashFunction[])
+	 * @throws NullPointerException
+	 *             if the items, one of them or the hash functions are
+	 *             {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the fingerprint size is not 8 or 16, if there are not
+	 *             enough hash functions or too many items.
+	 * @param items
+	 *            items of the filter.
+	 * @param fingerprintBits
+	 *            size of a fingerprint in bits (8 or 16).
+	 * @param hashFunctions
+	 *            hash functions.
+	 */
+	public BinaryFuseFilter(Iterable<? extends T> items, int fingerprintBits,
+			HashFunction[] hashFunctions) {
+		if (items == null) {
+			throw new NullPointerException("Invalid items: " + items);
+		}
+		checkFingerprintBits(fingerprintBits);
+		setHashFunctions(hashFunctions);
+		this.fingerprintBits = fingerprintBits;
+		long[] keys = new long[items instanceof Collection ? Math.max(
+				((Collection<?>) items).size(), 1) : 1024];
+		int count = 0;
+		for (T item : items) {
+			if (count == keys.length) {
+				if (keys.length > Integer.MAX_VALUE / 2) {
+					throw new IllegalArgumentException("Too many items.");
+				}
+				keys = Arrays.copyOf(keys, keys.length << 1);
+			}
+			keys[count++] = key(item);
+		}
+		build(keys, count);
+	}
+
+	/**
+	 * Constructs an empty {@code BinaryFuseFilter} with the specified layout,
+	 * used to restore a filter whose fingerprints are read afterwards.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the layout is not valid.
+	 * @param hashFunctions
+	 *            hash functions.
+	 * @param fingerprintBits
+	 *            size of a fingerprint in bits (8 or 16).
+	 * @param seed
+	 *            seed mixed into the keys.
+	 * @param segmentLength
+	 *            length of a segment.
+	 * @param segmentCount
+	 *            number of segments.
+	 * @param size
+	 *            number of items.
+	 */
+	protected BinaryFuseFilter(HashFunction[] hashFunctions,
+			int fingerprintBits, long seed, int segmentLength,
+			int segmentCount, int size) {
+		checkFingerprintBits(fingerprintBits);
+		if (segmentLength <= 0 || segmentLength > MAX_SEGMENT_LENGTH
+				|| Integer.bitCount(segmentLength) != 1 || segmentCount <= 0
+				|| size < 0
+				|| (long) (segmentCount + ARITY - 1) * segmentLength > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid layout: segment length="
+					+ segmentLength + ", segments=" + segmentCount);
+		}
+		setHashFunctions(hashFunctions);
+		this.fingerprintBits = fingerprintBits;
+		this.seed = seed;
+		this.size = size;
+		setLayout(segmentLength, segmentCount);
+	}
+
+	/**
+	 * Returns {@code true} if the specified item is in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             it the input item is {@code null}.
+	 * @param item
+	 *            input item.
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(T item) {
+		return queryKey(key(item));
+	}
+
+	/**
+	 * Returns {@code true} if the item stored in {@code len} bytes of the
+	 * input array starting at {@code offset} is in the filter, {@code false}
+	 * otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(byte[] data, int offset, int len) {
+		return queryKey(key(data, offset, len));
+	}
+
+	/**
+	 * Queries an array of items. {@code out[i]} is set to {@code true} if the
+	 * item {@code items[i]} is probably in the filter, {@code false}
+	 * otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arrays or one of the items is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the output array is shorter than the input array.
+	 * @param items
+	 *            input items.
+	 * @param out
+	 *            output array.
+	 */
+	public void queryAll(T[] items, boolean[] out) {
+		if (items == null || out == null) {
+			throw new NullPointerException("Invalid item or output array.");
+		}
+		if (out.length < items.length) {
+			throw new IllegalArgumentException("Invalid output array length: "
+					+ out.length);
+		}
+		for (int i = 0; i < items.length; i++) {
+			out[i] = query(items[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of distinct items in the filter.
+	 * 
+	 * @return number of items.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the size of a fingerprint in bits.
+	 * 
+	 * @return size of a fingerprint.
+	 */
+	public int getFingerprintBits() {
+		return fingerprintBits;
+	}
+
+	/**
+	 * Returns the number of fingerprints in the array.
+	 * 
+	 * @return length of the fingerprint array.
+	 */
+	public int getArrayLength() {
+		return arrayLength;
+	}
+
+	/**
+	 * Returns the number of bits of the fingerprint array per item.
+	 * 
+	 * @return bits per item, 0 if the filter is empty.
+	 */
+	public double getBitsPerItem() {
+		return size == 0 ? 0 : (double) arrayLength * fingerprintBits / size;
+	}
+
+	/**
+	 * Returns {@code true} if the item with the specified key is in the
+	 * filter.
+	 * 
+	 * @param key
+	 *            64-bit key of the item.
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	protected boolean queryKey(long key) {
+		long hash = MurmurHash.fmix64(key + seed);
+		int h0 = (int) IndexStrategy.multiplyHighUnsigned(hash,
+				segmentCountLength);
+		int h1 = h0 + segmentLength;
+		int h2 = h1 + segmentLength;
+		h1 ^= (int) (hash >>> 18) & segmentLengthMask;
+		h2 ^= (int) hash & segmentLengthMask;
+		int fingerprint = fingerprint(hash);
+		return fingerprint == (getFingerprint(h0) ^ getFingerprint(h1) ^ getFingerprint(h2));
+	}
+
+	/**
+	 * Returns the 64-bit key of an item, made of its two hashes.
+	 * 
+	 * @throws NullPointerException
+	 *             if the item is {@code null}.
+	 * @param item
+	 *            input item.
+	 * @return key of the item.
+	 */
+	protected long key(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		byte[] itemBytes = getBytes(item);
+		return key(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Returns the 64-bit key of the item stored in {@code len} bytes of the
+	 * input array starting at {@code offset}.
+	 * 
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return key of the item.
+	 */
+	protected long key(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			return (hashes[0] << 32) ^ hashes[1];
+		}
+		return (hashFunctions[0].getHash(data, offset, len) << 32)
+				^ hashFunctions[1].getHash(data, offset, len);
+	}
+
+	/**
+	 * Returns the fingerprint at the specified position.
+	 * 
+	 * @param index
+	 *            position in the array.
+	 * @return fingerprint.
+	 */
+	protected int getFingerprint(int index) {
+		return fingerprints8 != null ? fingerprints8[index] & 0xff
+				: fingerprints16[index] & 0xffff;
+	}
+
+	/**
+	 * Returns the 8-bit fingerprints.
+	 * 
+	 * @return fingerprints, {@code null} if they have 16 bits.
+	 */
+	protected byte[] getFingerprints8() {
+		return fingerprints8;
+	}
+
+	/**
+	 * Returns the 16-bit fingerprints.
+	 * 
+	 * @return fingerprints, {@code null} if they have 8 bits.
+	 */
+	protected short[] getFingerprints16() {
+		return fingerprints16;
+	}
+
+	/**
+	 * Returns the functions that produce the two hashes of an item.
+	 * 
+	 * @return hash functions.
+	 */
+	protected HashFunction[] getHashFunctions() {
+		return hashFunctions;
+	}
+
+	/**
+	 * Returns the bytes of an item that are hashed.
+	 * 
+	 * @param item
+	 *            input item.
+	 * @return UTF-8 encoded string representation of the item.
+	 */
+	protected byte[] getBytes(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		String s = item.toString();
+		byte[] itemBytes = null;
+		try {
+			itemBytes = s.getBytes("UTF-8");
+		} catch (Exception e) {
+			itemBytes = s.getBytes();
+		}
+		return itemBytes;
+	}
+
+	/**
+	 * Sets the functions that produce the two hashes of an item.
+	 * 
+	 * @throws NullPointerException
+	 *             if the hash functions are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if there are less than two hash functions and the first one
+	 *             is not a {@link MurmurHash128}.
+	 * @param hashFunctions
+	 *            hash functions.
+	 */
+	protected void setHashFunctions(HashFunction[] hashFunctions) {
+		if (hashFunctions == null) {
+			throw new NullPointerException("Invalid hash functions: "
+					+ hashFunctions);
+		}
+		if (hashFunctions.length == 0
+				|| (hashFunctions.length < 2 && !(hashFunctions[0] instanceof MurmurHash128))) {
+			throw new IllegalArgumentException("Invalid hash functions size: "
+					+ hashFunctions.length);
+		}
+		this.hashFunctions = hashFunctions;
+		if (hashFunctions[0] instanceof MurmurHash128) {
+			this.hash128 = (MurmurHash128) hashFunctions[0];
+		} else {
+			this.hash128 = null;
+		}
+	}
+
+	/**
+	 * Builds the fingerprint array from the keys: the duplicate keys are
+	 * removed, the keys are mapped to their positions, the positions used by a
+	 * single key are peeled off one after another and the fingerprints are
+	 * assigned in the reverse order. If the peeling fails, it is repeated with
+	 * another seed.
+	 */
+	private void build(long[] keys, int count) {
+		// a duplicate key could never be peeled
+		Arrays.sort(keys, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0 || keys[i] != keys[distinct - 1]) {
+				keys[distinct++] = keys[i];
+			}
+		}
+		count = distinct;
+		int length = count == 0 ? 4 : Math.min(MAX_SEGMENT_LENGTH,
+				1 << (int) Math.floor(Math.log(count) / Math.log(3.33) + 2.25));
+		double sizeFactor = count <= 1 ? 0 : Math.max(1.125, 0.875 + 0.25
+				* Math.log(1000000.) / Math.log(count));
+		long capacity = Math.round(count * sizeFactor);
+		long initSegmentCount = (capacity + length - 1) / length
+				- (ARITY - 1);
+		long initLength = (initSegmentCount + ARITY - 1) * length;
+		long segments = (initLength + length - 1) / length;
+		segments = segments <= ARITY - 1 ? 1 : segments - (ARITY - 1);
+		if ((segments + ARITY - 1) * length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many items: " + count);
+		}
+		setLayout(length, (int) segments);
+
+		long[] reverseOrder = new long[count + 1];
+		byte[] reverseH = new byte[count];
+		byte[] t2count = new byte[arrayLength];
+		long[] t2hash = new long[arrayLength];
+		int[] alone = new int[arrayLength];
+		int[] h012 = new int[5];
+		int blockBits = 1;
+		while ((1 << blockBits) < segmentCount) {
+			blockBits++;
+		}
+		int block = 1 << blockBits;
+		long[] startPos = new long[block];
+		long random = 0x726b2b9d438b9d4dL;
+		for (int attempt = 0;; attempt++) {
+			if (attempt == MAX_ATTEMPTS) {
+				throw new IllegalStateException(
+						"Could not build the filter, too many attempts.");
+			}
+			random += 0x9e3779b97f4a7c15L;
+			seed = MurmurHash.fmix64(random);
+			Arrays.fill(reverseOrder, 0);
+			Arrays.fill(t2count, (byte) 0);
+			Arrays.fill(t2hash, 0);
+			reverseOrder[count] = 1;
+			// sort the hashes by segment, so the counts are updated in order
+			for (int i = 0; i < block; i++) {
+				startPos[i] = ((long) i * count) >>> blockBits;
+			}
+			for (int i = 0; i < count; i++) {
+				long hash = MurmurHash.fmix64(keys[i] + seed);
+				int segmentIndex = (int) (hash >>> (64 - blockBits));
+				while (reverseOrder[(int) startPos[segmentIndex]] != 0) {
+					segmentIndex = (segmentIndex + 1) & (block - 1);
+				}
+				reverseOrder[(int) startPos[segmentIndex]] = hash;
+				startPos[segmentIndex]++;
+			}
+			boolean error = false;
+			for (int i = 0; i < count; i++) {
+				long hash = reverseOrder[i];
+				positions(hash, h012);
+				int h0 = h012[0];
+				int h1 = h012[1];
+				int h2 = h012[2];
+				t2count[h0] += 4;
+				t2hash[h0] ^= hash;
+				t2count[h1] += 4;
+				t2count[h1] ^= 1;
+				t2hash[h1] ^= hash;
+				t2count[h2] += 4;
+				t2count[h2] ^= 2;
+				t2hash[h2] ^= hash;
+				// a count that overflowed the byte
+				error |= (t2count[h0] & 0xff) < 4 || (t2count[h1] & 0xff) < 4
+						|| (t2count[h2] & 0xff) < 4;
+			}
+			if (error) {
+				continue;
+			}
+			int queueSize = 0;
+			for (int i = 0; i < arrayLength; i++) {
+				alone[queueSize] = i;
+				if (((t2count[i] & 0xff) >>> 2) == 1) {
+					queueSize++;
+				}
+			}
+			int stackSize = 0;
+			while (queueSize > 0) {
+				int index = alone[--queueSize];
+				if (((t2count[index] & 0xff) >>> 2) == 1) {
+					long hash = t2hash[index];
+					int found = t2count[index] & 3;
+					reverseH[stackSize] = (byte) found;
+					reverseOrder[stackSize] = hash;
+					stackSize++;
+					positions(hash, h012);
+					int other1 = h012[found + 1];
+					alone[queueSize] = other1;
+					if (((t2count[other1] & 0xff) >>> 2) == 2) {
+						queueSize++;
+					}
+					t2count[other1] -= 4;
+					t2count[other1] ^= mod3(found + 1);
+					t2hash[other1] ^= hash;
+					int other2 = h012[found + 2];
+					alone[queueSize] = other2;
+					if (((t2count[other2] & 0xff) >>> 2) == 2) {
+						queueSize++;
+					}
+					t2count[other2] -= 4;
+					t2count[other2] ^= mod3(found + 2);
+					t2hash[other2] ^= hash;
+				}
+			}
+			if (stackSize == count) {
+				break;
+			}
+		}
+		size = count;
+		for (int i = size - 1; i >= 0; i--) {
+			long hash = reverseOrder[i];
+			positions(hash, h012);
+			int found = reverseH[i];
+			int value = fingerprint(hash) ^ getFingerprint(h012[found + 1])
+					^ getFingerprint(h012[found + 2]);
+			if (fingerprints8 != null) {
+				fingerprints8[h012[found]] = (byte) value;
+			} else {
+				fingerprints16[h012[found]] = (short) value;
+			}
+		}
+	}
+
+	/**
+	 * Sets the segment layout and allocates the fingerprint array.
+	 */
+	private void setLayout(int segmentLength, int segmentCount) {
+		this.segmentLength = segmentLength;
+		this.segmentLengthMask = segmentLength - 1;
+		this.segmentCount = segmentCount;
+		this.segmentCountLength = segmentCount * segmentLength;
+		this.arrayLength = (segmentCount + ARITY - 1) * segmentLength;
+		if (fingerprintBits == 8) {
+			fingerprints8 = new byte[arrayLength];
+		} else {
+			fingerprints16 = new short[arrayLength];
+		}
+	}
+
+	/**
+	 * Stores the three positions of a mixed hash to {@code h012[0..2]} and
+	 * repeats the first two in {@code h012[3..4]}.
+	 */
+	private void positions(long hash, int[] h012) {
+		int h0 = (int) IndexStrategy.multiplyHighUnsigned(hash,
+				segmentCountLength);
+		int h1 = h0 + segmentLength;
+		int h2 = h1 + segmentLength;
+		h1 ^= (int) (hash >>> 18) & segmentLengthMask;
+		h2 ^= (int) hash & segmentLengthMask;
+		h012[0] = h0;
+		h012[1] = h1;
+		h012[2] = h2;
+		h012[3] = h0;
+		h012[4] = h1;
+	}
+
+	/**
+	 * Returns the fingerprint of a mixed hash.
+	 */
+	private int fingerprint(long hash) {
+		return (int) (hash ^ (hash >>> 32)) & ((1 << fingerprintBits) - 1);
+	}
+
+	/**
+	 * Returns {@code x mod 3} for {@code x < 6}.
+	 */
+	private static int mod3(int x) {
+		return x > 2 ? x - 3 : x;
+	}
+
+	/**
+	 * Checks if the fingerprint size is supported.
+	 */
+	private static void checkFingerprintBits(int fingerprintBits) {
+		if (fingerprintBits != 8 && fingerprintBits != 16) {
+			throw new IllegalArgumentException("Invalid fingerprint size: "
+					+ fingerprintBits);
+		}
+	}
+}
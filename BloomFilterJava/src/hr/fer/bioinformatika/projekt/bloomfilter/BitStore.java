@@ -0,0 +1,371 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import java.nio.LongBuffer;
+
+/**
+ * Storage for the <em>m</em>-bit array of a Bloom Filter.
+ * <p>
+ * Bits are packed into 64-bit words. The bit with the index <em>i</em> is
+ * stored in the word {@code i >>> 6} under the mask {@code 1L << i}, so
+ * every word holds 64 consecutive bits of the array.
+ * </p>
+ * <p>
+ * Implementations decide where the words are kept (heap, file...) while the
+ * filters only use the bit and word level operations declared here.
+ * </p>
+ * 
+ * @see LongArrayBitStore
+ * @see BloomFilter
+ * 
+ */
+public abstract class BitStore {
+	/** number of bits in a word */
+	public static final int WORD_SIZE = 64;
+
+	/** number of bits used to address a bit inside of a word */
+	public static final int ADDRESS_BITS = 6;
+
+	/** number of bits in the store */
+	protected long size;
+
+	/**
+	 * Constructs a {@code BitStore} with the specified number of bits.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the size is less or equal zero.
+	 * @param size
+	 *            number of bits.
+	 */
+	protected BitStore(long size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Invalid bit store size: "
+					+ size);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Returns the number of bits in the store.
+	 * 
+	 * @return number of bits.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of 64-bit words used for storing the bits.
+	 * 
+	 * @return number of words.
+	 */
+	public long wordCount() {
+		return wordCount(size);
+	}
+
+	/**
+	 * Returns {@code true} if the bit with the specified index is set.
+	 * 
+	 * @param index
+	 *            bit index.
+	 * @return {@code true} if the bit is set, {@code false} otherwise.
+	 */
+	public abstract boolean get(long index);
+
+	/**
+	 * Sets the bit with the specified index.
+	 * 
+	 * @param index
+	 *            bit index.
+	 */
+	public abstract void set(long index);
+
+	/**
+	 * Returns the word with the specified index.
+	 * 
+	 * @param wordIndex
+	 *            word index.
+	 * @return 64 packed bits.
+	 */
+	public abstract long getWord(long wordIndex);
+
+	/**
+	 * Replaces the word with the specified index.
+	 * 
+	 * @param wordIndex
+	 *            word index.
+	 * @param word
+	 *            64 packed bits.
+	 */
+	public abstract void setWord(long wordIndex, long word);
+
+	/**
+	 * Replaces the word with the specified index if it equals the expected
+	 * word.<br>
+	 * This implementation is not atomic, thread-safe stores override it.
+	 * 
+	 * @param wordIndex
+	 *            word index.
+	 * @param expect
+	 *            expected 64 packed bits.
+	 * @param update
+	 *            new 64 packed bits.
+	 * @return {@code true} if the word was replaced.
+	 */
+	public boolean compareAndSetWord(long wordIndex, long expect, long update) {
+		if (getWord(wordIndex) != expect) {
+			return false;
+		}
+		setWord(wordIndex, update);
+		return true;
+	}
+
+	/**
+	 * Returns the number of set bits.
+	 * 
+	 * @return number of set bits.
+	 */
+	public long cardinality() {
+		long count = 0;
+		long words = wordCount();
+		for (long i = 0; i < words; i++) {
+			count += Long.bitCount(getWord(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of set bits in the range
+	 * <code>[fromIndex, toIndex)</code>.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the store.
+	 * @param fromIndex
+	 *            index of the first bit in the range.
+	 * @param toIndex
+	 *            index after the last bit in the range.
+	 * @return number of set bits in the range.
+	 */
+	public long cardinality(long fromIndex, long toIndex) {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("Invalid bit range: ["
+					+ fromIndex + ", " + toIndex + ")");
+		}
+		if (fromIndex == toIndex) {
+			return 0;
+		}
+		long firstWord = wordIndex(fromIndex);
+		long lastWord = wordIndex(toIndex - 1);
+		long firstMask = -1L << fromIndex;
+		long lastMask = -1L >>> -toIndex;
+		if (firstWord == lastWord) {
+			return Long.bitCount(getWord(firstWord) & firstMask & lastMask);
+		}
+		long count = Long.bitCount(getWord(firstWord) & firstMask);
+		for (long i = firstWord + 1; i < lastWord; i++) {
+			count += Long.bitCount(getWord(i));
+		}
+		count += Long.bitCount(getWord(lastWord) & lastMask);
+		return count;
+	}
+
+	/**
+	 * Sets every bit that is set in the other store (word-wise OR). The other
+	 * store isn't changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other store is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the stores aren't of the same size.
+	 * @param other
+	 *            other store.
+	 */
+	public void or(BitStore other) {
+		checkSize(other);
+		long words = wordCount();
+		for (long i = 0; i < words; i++) {
+			setWord(i, getWord(i) | other.getWord(i));
+		}
+	}
+
+	/**
+	 * Clears every bit that is not set in the other store (word-wise AND). The
+	 * other store isn't changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other store is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the stores aren't of the same size.
+	 * @param other
+	 *            other store.
+	 */
+	public void and(BitStore other) {
+		checkSize(other);
+		long words = wordCount();
+		for (long i = 0; i < words; i++) {
+			setWord(i, getWord(i) & other.getWord(i));
+		}
+	}
+
+	/**
+	 * Returns the number of bits set in this or in the other store, neither
+	 * store is changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other store is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the stores aren't of the same size.
+	 * @param other
+	 *            other store.
+	 * @return number of set bits of the union.
+	 */
+	public long orCardinality(BitStore other) {
+		checkSize(other);
+		long count = 0;
+		long words = wordCount();
+		for (long i = 0; i < words; i++) {
+			count += Long.bitCount(getWord(i) | other.getWord(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of bits set in both stores, neither store is
+	 * changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other store is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the stores aren't of the same size.
+	 * @param other
+	 *            other store.
+	 * @return number of set bits of the intersection.
+	 */
+	public long andCardinality(BitStore other) {
+		checkSize(other);
+		long count = 0;
+		long words = wordCount();
+		for (long i = 0; i < words; i++) {
+			count += Long.bitCount(getWord(i) & other.getWord(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Copies the words of the buffer to the store, starting with the word
+	 * {@code wordIndex}. All remaining words of the buffer are copied.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if the words don't fit into the store.
+	 * @param wordIndex
+	 *            index of the first word.
+	 * @param source
+	 *            buffer with the words.
+	 */
+	public void readWords(long wordIndex, LongBuffer source) {
+		checkWordRange(wordIndex, source.remaining());
+		while (source.hasRemaining()) {
+			setWord(wordIndex++, source.get());
+		}
+	}
+
+	/**
+	 * Copies the words of the store to the buffer, starting with the word
+	 * {@code wordIndex}, until the buffer is full.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if there are not enough words in the store.
+	 * @param wordIndex
+	 *            index of the first word.
+	 * @param target
+	 *            buffer for the words.
+	 */
+	public void writeWords(long wordIndex, LongBuffer target) {
+		checkWordRange(wordIndex, target.remaining());
+		while (target.hasRemaining()) {
+			target.put(getWord(wordIndex++));
+		}
+	}
+
+	/**
+	 * Checks that the range of words is inside of the store.
+	 */
+	protected void checkWordRange(long wordIndex, int count) {
+		if (wordIndex < 0 || wordIndex + count > wordCount()) {
+			throw new IndexOutOfBoundsException("Invalid word range: ["
+					+ wordIndex + ", " + (wordIndex + count) + ")");
+		}
+	}
+
+	/**
+	 * Returns a copy of the store on the heap. Changes of the copy don't
+	 * affect this store.
+	 * 
+	 * @return copy of the store.
+	 */
+	public BitStore copy() {
+		BitStore copy;
+		if (size > LongArrayBitStore.MAX_SIZE) {
+			copy = new PagedBitStore(size);
+		} else {
+			copy = new LongArrayBitStore(size);
+		}
+		long words = wordCount();
+		for (long i = 0; i < words; i++) {
+			copy.setWord(i, getWord(i));
+		}
+		return copy;
+	}
+
+	/**
+	 * Checks that the other store has the same number of bits as this one.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other store is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the stores aren't of the same size.
+	 * @param other
+	 *            other store.
+	 */
+	protected void checkSize(BitStore other) {
+		if (other == null) {
+			throw new NullPointerException("Invalid bit store: " + other);
+		}
+		if (other.size != size) {
+			throw new IllegalArgumentException("Invalid bit store size: "
+					+ other.size + ", expected " + size);
+		}
+	}
+
+	/**
+	 * Clears all bits in the store.
+	 */
+	public void clear() {
+		long words = wordCount();
+		for (long i = 0; i < words; i++) {
+			setWord(i, 0L);
+		}
+	}
+
+	/**
+	 * Returns the index of the word that holds the specified bit.
+	 * 
+	 * @param index
+	 *            bit index.
+	 * @return word index.
+	 */
+	public static long wordIndex(long index) {
+		return index >>> ADDRESS_BITS;
+	}
+
+	/**
+	 * Returns the number of words needed for storing the specified number of
+	 * bits.
+	 * 
+	 * @param size
+	 *            number of bits.
+	 * @return number of words.
+	 */
+	public static long wordCount(long size) {
+		return (size + WORD_SIZE - 1) >>> ADDRESS_BITS;
+	}
+}
@@ -0,0 +1,307 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+/**
+ * Blocked Bloom Filter implementation.
+ * <p>
+ * The <em>m</em>-bit array is divided into blocks of 512 bits (8 words, the
+ * size of a typical cache line). The first hash of an item selects a block
+ * and all <em>k</em> bits of the item are set inside of that block, so adding
+ * or querying an item touches a single cache line (and a single page) instead
+ * of <em>k</em> random positions of the array.
+ * </p>
+ * <p>
+ * The positions inside of the block are calculated from the second hash:<br>
+ * p(i) = (a + i * b) mod 512<br>
+ * where <em>a</em> are the low 9 bits of the hash and <em>b</em> (odd) the
+ * remaining bits, so the <em>k</em> positions are always distinct.
+ * </p>
+ * <p>
+ * The number of items per block varies (it is Poisson distributed), which
+ * makes a blocked filter slightly less accurate than a regular one of the same
+ * size. The constructor that takes the estimated number of items enlarges the
+ * array until the corrected false positive probability reaches the requested
+ * value, see {@link #estimateFalsePositiveProbability(long, long, int)}.
+ * </p>
+ * 
+ * @see BloomFilter
+ * @see <a href="http://algo2.iti.kit.edu/documents/cacheefficientbloomfilters-jea.pdf"
+ *      >Cache-, Hash- and Space-Efficient Bloom Filters</a>
+ * 
+ */
+public class BlockedBloomFilter<T> extends BloomFilter<T> {
+	/** number of bits used to address a bit inside of a block */
+	public static final int BLOCK_ADDRESS_BITS = 9;
+
+	/** number of bits in a block */
+	public static final int BLOCK_SIZE = 1 << BLOCK_ADDRESS_BITS;
+
+	/** mask for the bit index inside of a block */
+	protected static final long BLOCK_MASK = BLOCK_SIZE - 1;
+
+	/** number of blocks */
+	protected long blocks;
+
+	/**
+	 * Returns a {@code BlockedBloomFilter} object with the specified array
+	 * size and number of hash functions used. The array size is rounded up to
+	 * a multiple of the block size.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public BlockedBloomFilter(int m, int k) {
+		this((long) m, k);
+	}
+
+	/**
+	 * Returns a {@code BlockedBloomFilter} object with the specified array
+	 * size and number of hash functions used. The array size is rounded up to
+	 * a multiple of the block size.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public BlockedBloomFilter(long m, int k) {
+		super(m, k);
+		blocks = array.size() >>> BLOCK_ADDRESS_BITS;
+	}
+
+	/**
+	 * Constructs a {@code BlockedBloomFilter} where the array size and number
+	 * of hash functions are determined by the estimated number of items that
+	 * will be added to the filter and the acceptable false positive
+	 * probability.
+	 * <p>
+	 * The array is larger than the array of a regular {@code BloomFilter}
+	 * with the same parameters, it is enlarged until the false positive
+	 * probability of the blocked layout reaches the requested value.
+	 * </p>
+	 * 
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be added to the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public BlockedBloomFilter(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		this(optimalSize(estimatedNumOfItems, falsePositiveProbability),
+				optimalK(falsePositiveProbability));
+	}
+
+	/**
+	 * Constructs a {@code BlockedBloomFilter} with the specified array size
+	 * and where the number of hash functions is determined by the acceptable
+	 * false positive probability. The array size is rounded up to a multiple
+	 * of the block size.
+	 * 
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param m
+	 *            array size.
+	 */
+	public BlockedBloomFilter(double falsePositiveProbability, long m) {
+		this(m, optimalK(falsePositiveProbability));
+	}
+
+	@Override
+	protected void addHashes(long h1, long h2) {
+		long offset = blockOffset(h1, h2);
+		long b = (h2 >>> BLOCK_ADDRESS_BITS) | 1;
+		for (int i = 0; i < k; i++) {
+			array.set(offset + ((h2 + i * b) & BLOCK_MASK));
+		}
+	}
+
+	@Override
+	protected boolean queryHashes(long h1, long h2) {
+		long offset = blockOffset(h1, h2);
+		long b = (h2 >>> BLOCK_ADDRESS_BITS) | 1;
+		for (int i = 0; i < k; i++) {
+			if (!array.get(offset + ((h2 + i * b) & BLOCK_MASK))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected void addHashes(long[] hashes, int offset, int count) {
+		addHashesEach(hashes, offset, count);
+	}
+
+	@Override
+	protected void queryHashes(long[] hashes, int offset, int count,
+			boolean[] out, int outOffset) {
+		// every item touches a single block, the accesses of different items
+		// are independent and overlap without probing in rounds
+		queryHashesEach(hashes, offset, count, out, outOffset);
+	}
+
+	/**
+	 * Returns the index of the first bit of the block selected by the hashes.
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 * @return index of the first bit of the block.
+	 */
+	protected long blockOffset(long h1, long h2) {
+		if (hash128 == null && blocks > HASH_RANGE) {
+			// a 32-bit hash can't reach every block, widen it to 64 bits
+			h1 = (h1 << 32) | h2;
+		}
+		return reduce(h1, blocks) << BLOCK_ADDRESS_BITS;
+	}
+
+	/**
+	 * Creates the <em>m</em>-bit array rounded up to a multiple of the block
+	 * size.
+	 */
+	@Override
+	protected BitStore createArray(long m) {
+		return super.createArray((m + BLOCK_MASK) & ~BLOCK_MASK);
+	}
+
+	/**
+	 * Returns the false positive probability of a blocked filter with the
+	 * specified array size, number of items and number of hash functions.
+	 * <p>
+	 * The number of items in a block is Poisson distributed with the mean
+	 * <code>&lambda; = n * 512 / m</code>, the probability is the sum of the
+	 * false positive probabilities of a 512-bit filter with <em>j</em> items
+	 * weighted by the probability that a block holds <em>j</em> items.
+	 * </p>
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the array size or the number of hash functions is less
+	 *             or equal zero, or if the number of items is negative.
+	 * @param m
+	 *            array size.
+	 * @param n
+	 *            number of items in the filter.
+	 * @param k
+	 *            number of hash functions.
+	 * @return false positive probability.
+	 */
+	public static double estimateFalsePositiveProbability(long m, long n, int k) {
+		if (m <= 0 || k <= 0 || n < 0) {
+			throw new IllegalArgumentException("Invalid filter parameters: m="
+					+ m + ", n=" + n + ", k=" + k);
+		}
+		double lambda = (double) n * BLOCK_SIZE
+				/ ((m + BLOCK_MASK) & ~BLOCK_MASK);
+		return estimateFalsePositiveProbability(lambda, BLOCK_SIZE, k, k);
+	}
+
+	/**
+	 * Returns the false positive probability of a blocked filter where a block
+	 * holds <em>&lambda;</em> items on average.
+	 * <p>
+	 * A block can be split into parts of {@code partBits} bits, each item sets
+	 * {@code probesPerPart} bits in every part and <em>k</em> bits in total.
+	 * The number of items in a block is Poisson distributed.
+	 * </p>
+	 * 
+	 * @param lambda
+	 *            average number of items in a block.
+	 * @param partBits
+	 *            number of bits in a part of the block.
+	 * @param probesPerPart
+	 *            number of bits an item sets in every part.
+	 * @param k
+	 *            number of bits an item sets in the block.
+	 * @return false positive probability.
+	 */
+	protected static double estimateFalsePositiveProbability(double lambda,
+			int partBits, int probesPerPart, int k) {
+		if (lambda == 0) {
+			return 0;
+		}
+		// start at the mode of the distribution and sum in both directions
+		// until the terms are negligible, so the terms never underflow
+		long mode = (long) lambda;
+		double logPmf = -lambda + mode * Math.log(lambda);
+		for (long j = 2; j <= mode; j++) {
+			logPmf -= Math.log(j);
+		}
+		double modePmf = Math.exp(logPmf);
+		double fpp = modePmf
+				* blockFalsePositiveProbability(mode, partBits, probesPerPart, k);
+
+		double pmf = modePmf;
+		for (long j = mode + 1; pmf > 1e-15 * modePmf; j++) {
+			pmf *= lambda / j;
+			fpp += pmf
+					* blockFalsePositiveProbability(j, partBits, probesPerPart,
+							k);
+		}
+		pmf = modePmf;
+		for (long j = mode; j > 0 && pmf > 1e-15 * modePmf; j--) {
+			pmf *= j / lambda;
+			fpp += pmf
+					* blockFalsePositiveProbability(j - 1, partBits,
+							probesPerPart, k);
+		}
+		return Math.min(fpp, 1);
+	}
+
+	/**
+	 * Returns the false positive probability of a single block which holds
+	 * the specified number of items.
+	 */
+	private static double blockFalsePositiveProbability(long items,
+			int partBits, int probesPerPart, int k) {
+		double zeroBit = Math.pow(1 - 1. / partBits, (double) probesPerPart
+				* items);
+		return Math.pow(1 - zeroBit, k);
+	}
+
+	/**
+	 * Returns the number of hash functions for the acceptable false positive
+	 * probability.
+	 */
+	private static int optimalK(double falsePositiveProbability) {
+		return (int) Math.ceil(Math.log(1. / falsePositiveProbability)
+				/ Math.log(2.));
+	}
+
+	/**
+	 * Returns the smallest array size (a multiple of the block size) for
+	 * which the blocked filter reaches the acceptable false positive
+	 * probability.
+	 */
+	private static long optimalSize(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+			throw new IllegalArgumentException(
+					"False-positive probability must be between 0 and 1.");
+		}
+		int k = optimalK(falsePositiveProbability);
+		long m = (long) (estimatedNumOfItems
+				* Math.abs(Math.log(falsePositiveProbability)) / Math.pow(
+				Math.log(2), 2));
+		m = Math.max((m + BLOCK_MASK) & ~BLOCK_MASK, BLOCK_SIZE);
+		if (estimatedNumOfItems <= 0) {
+			return m;
+		}
+		// grow by ~1.5% until the corrected probability is low enough
+		while (estimateFalsePositiveProbability(m, estimatedNumOfItems, k) > falsePositiveProbability) {
+			m += Math.max(BLOCK_SIZE, ((m >>> 6) + BLOCK_MASK) & ~BLOCK_MASK);
+		}
+		return m;
+	}
+
+	/**
+	 * Returns the number of blocks.
+	 * 
+	 * @return number of blocks.
+	 */
+	protected long getBlocks() {
+		return blocks;
+	}
+}
@@ -2,7 +2,11 @@ package hr.fer.bioinformatika.projekt.bloomfilter;
 
 import hr.fer.bioinformatika.projekt.hash.HashFunction;
 import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash128;
+import hr.fer.bioinformatika.projekt.hash.NtHash;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
 /**
@@ -16,6 +20,34 @@ import java.util.Collection;
  * using the expression:<br>
  * h(i) = h(1) + i * (h2)
  * </p>
+ * <p>
+ * The <em>m</em>-bit array is kept in a {@link BitStore} which packs the bits
+ * into 64-bit words, so every bit of the filter takes one bit of memory.
+ * </p>
+ * <p>
+ * By default the two hashes are 32-bit FNV-1a and MurmurHash3 values, so an
+ * item is read twice. A filter constructed with
+ * {@link HashFunctionFactory#getSinglePassBloomFilterHashes()} takes the
+ * hashes from the two 64-bit halves of a single {@link MurmurHash128} pass.
+ * </p>
+ * <p>
+ * The hashes are mapped to indexes of the array by an {@link IndexStrategy}.
+ * The default strategy uses a modulo, a filter can be constructed with a
+ * strategy that needs no division.
+ * </p>
+ * <p>
+ * The batch methods ({@code addAll}, {@code queryAll}) hash a batch of items
+ * first and then probe the bits of all items round by round, so the memory
+ * accesses of different items are independent and many cache misses can be
+ * outstanding at the same time.
+ * </p>
+ * <p>
+ * Filters of the same geometry (array size, number of hash functions, hash
+ * family and index strategy) can be combined word by word with
+ * {@link #union(BloomFilter)}, {@link #intersect(BloomFilter)},
+ * {@link #orInto(BloomFilter)} and {@link #andInto(BloomFilter)}, and their
+ * similarity can be estimated from the numbers of set bits.
+ * </p>
  * 
  * @see <a href=
  *      "http://citeseer.ist.psu.edu/viewdoc/download;jsessionid=4060353E67A356EF9528D2C57C064F5A?doi=10.1.1.152.579&rep=rep1&type=pdf"
@@ -25,16 +57,40 @@ import java.util.Collection;
  * @author Ivan Kraljević
  * 
  */
-public class BloomFilter<T> {
+public class BloomFilter<T> implements Cloneable {
+	/**
+	 * number of distinct values of a 32-bit hash; larger arrays are indexed
+	 * with hashes widened to 64 bits
+	 */
+	protected static final long HASH_RANGE = 1L << 32;
+
+	/**
+	 * largest array which is stored in a single {@code long} array, larger
+	 * arrays are paged
+	 */
+	protected static final long MAX_UNPAGED_SIZE = 1L << 32;
+
+	/** number of items hashed before their bits are probed in a batch */
+	protected static final int BATCH_SIZE = 256;
+
 	/** m-bit array */
-	protected boolean[] array;
+	protected BitStore array;
 
 	/** hash functions used for index calculation */
 	protected HashFunction[] hashFunctions;
 
+	/**
+	 * 128-bit hash function which produces both hashes in a single pass, or
+	 * {@code null} if the two 32-bit hash functions are used
+	 */
+	protected MurmurHash128 hash128;
+
 	/** number of used hash functions */
 	protected int k;
 
+	/** strategy which maps the hashes to the indexes of the array */
+	protected IndexStrategy indexStrategy = IndexStrategy.MODULO;
+
 	/**
 	 * Default constructor.<br>
 	 * Bloom filters that don't use the m-bit array but a different data
@@ -56,9 +112,81 @@ public class BloomFilter<T> {
 	 *            number of hash functions.
 	 */
 	public BloomFilter(int m, int k) {
-		setArray(new boolean[m]);
-		setHashFunctions(HashFunctionFactory.getBloomFilterHashes());
+		this((long) m, k);
+	}
+
+	/**
+	 * Returns a {@code BloomFilter} object with the specified array size and
+	 * number of hash functions used.
+	 * <p>
+	 * The array can be larger than 2^31 bits, arrays larger than 2^32 bits
+	 * are stored in pages.
+	 * </p>
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public BloomFilter(long m, int k) {
+		this(m, k, HashFunctionFactory.getBloomFilterHashes());
+	}
+
+	/**
+	 * Returns a {@code BloomFilter} object with the specified array size,
+	 * number of hash functions used and the hash functions that produce the
+	 * two hashes of an item.
+	 * 
+	 * @see HashFunctionFactory#getBloomFilterHashes()
+	 * @see HashFunctionFactory#getSinglePassBloomFilterHashes()
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 * @param hashFunctions
+	 *            hash functions.
+	 */
+	public BloomFilter(long m, int k, HashFunction[] hashFunctions) {
+		this(m, k, hashFunctions, IndexStrategy.MODULO);
+	}
+
+	/**
+	 * Returns a {@code BloomFilter} object with the specified array size,
+	 * number of hash functions used and the strategy which maps the hashes to
+	 * the indexes of the array. The strategy may enlarge the array.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 * @param indexStrategy
+	 *            index strategy.
+	 */
+	public BloomFilter(long m, int k, IndexStrategy indexStrategy) {
+		this(m, k, HashFunctionFactory.getBloomFilterHashes(), indexStrategy);
+	}
+
+	/**
+	 * Returns a {@code BloomFilter} object with the specified array size,
+	 * number of hash functions used, the hash functions that produce the two
+	 * hashes of an item and the strategy which maps the hashes to the indexes
+	 * of the array. The strategy may enlarge the array.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 * @param hashFunctions
+	 *            hash functions.
+	 * @param indexStrategy
+	 *            index strategy.
+	 */
+	public BloomFilter(long m, int k, HashFunction[] hashFunctions,
+			IndexStrategy indexStrategy) {
+		setIndexStrategy(indexStrategy);
+		setHashFunctions(hashFunctions);
 		setK(k);
+		setArray(createArray(arraySize(m)));
 	}
 
 	/**
@@ -71,8 +199,8 @@ public class BloomFilter<T> {
 	 * @param falsePositiveProbability
 	 *            acceptable false positive probability.
 	 */
-	public BloomFilter(int estimatedNumOfItems, double falsePositiveProbability) {
-		this(falsePositiveProbability, (int) (estimatedNumOfItems
+	public BloomFilter(long estimatedNumOfItems, double falsePositiveProbability) {
+		this(falsePositiveProbability, (long) (estimatedNumOfItems
 				* Math.abs(Math.log(falsePositiveProbability)) / Math.pow(
 				Math.log(2), 2)));
 	}
@@ -87,7 +215,7 @@ public class BloomFilter<T> {
 	 * @param m
 	 *            array size.
 	 */
-	public BloomFilter(double falsePositiveProbability, int m) {
+	public BloomFilter(double falsePositiveProbability, long m) {
 		this(m, (int) Math.ceil(Math.log(1. / falsePositiveProbability)
 				/ Math.log(2.)));
 	}
@@ -103,27 +231,62 @@ public class BloomFilter<T> {
 			throw new NullPointerException("Invalid input item: " + item);
 		}
 		byte[] itemBytes = getBytes(item);
-		long h1 = hashFunctions[0].getHash(itemBytes);
-		long h2 = hashFunctions[1].getHash(itemBytes);
-		// calculate the first two indexes and set their array values to true
-		int h1Index = (int) (h1 % array.length);
-		int h2Index = (int) (h2 % array.length);
-		array[h1Index] = true;
-		array[h2Index] = true;
-		
-		// calculate the remaining indexes and set their array values to true
-		for (int i = 2; i < k; i++) {
-			int index = (int) ((h1 + i * h2) % array.length);
-			// if the previous statement caused an overflow the index will be <0
-			if (index < 0) {
-				index += array.length;
-			}
-			array[index] = true;
+		add(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Adds the item stored in {@code len} bytes of the input array starting
+	 * at {@code offset} to the filter.<br>
+	 * The bytes are hashed in place, so a key can be added straight from a
+	 * larger buffer without copying it.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 */
+	public void add(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			addHashes(hashes[0], hashes[1]);
+			return;
+		}
+		addHashes(hashFunctions[0].getHash(data, offset, len),
+				hashFunctions[1].getHash(data, offset, len));
+	}
+
+	/**
+	 * Adds the item stored in the remaining bytes of the input buffer to the
+	 * filter.<br>
+	 * The bytes are hashed in place and the position of the buffer is not
+	 * changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input buffer is {@code null}.
+	 * @param data
+	 *            input buffer (heap or direct).
+	 */
+	public void add(ByteBuffer data) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, hashes);
+			addHashes(hashes[0], hashes[1]);
+			return;
 		}
+		addHashes(hashFunctions[0].getHash(data),
+				hashFunctions[1].getHash(data));
 	}
 
 	/**
-	 * Adds a collections of items to the filer.
+	 * Adds a collections of items to the filer.<br>
+	 * The items are hashed and added in batches.
 	 * 
 	 * @throws NullPointerException
 	 *             if the input collection is {@code null}.
@@ -135,9 +298,139 @@ public class BloomFilter<T> {
 			throw new NullPointerException("Invalid item collection: "
 					+ itemCollection);
 		}
+		long[] hashes = new long[2 * BATCH_SIZE];
+		int count = 0;
 		for (T item : itemCollection) {
-			add(item);
+			hash(item, hashes, 2 * count);
+			if (++count == BATCH_SIZE) {
+				addHashes(hashes, 0, count);
+				count = 0;
+			}
+		}
+		if (count > 0) {
+			addHashes(hashes, 0, count);
+		}
+	}
+
+	/**
+	 * Adds an array of items to the filter.<br>
+	 * The items are hashed and added in batches.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array or one of the items is {@code null}.
+	 * @param items
+	 *            items to add.
+	 */
+	public void addAll(final T[] items) {
+		if (items == null) {
+			throw new NullPointerException("Invalid item array: " + items);
+		}
+		addBatches(items.length, new HashFill() {
+			@Override
+			public void fill(int index, long[] hashes, int offset) {
+				hash(items[index], hashes, offset);
+			}
+		});
+	}
+
+	/**
+	 * Adds the items whose hashes are stored in the input array to the
+	 * filter. The array holds pairs of hashes, the first and the second hash
+	 * of every item.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the length of the array is odd.
+	 * @param hashes
+	 *            pairs of hashes.
+	 */
+	public void addAllHashes(long[] hashes) {
+		checkHashes(hashes);
+		int items = hashes.length / 2;
+		for (int start = 0; start < items; start += BATCH_SIZE) {
+			addHashes(hashes, 2 * start, Math.min(BATCH_SIZE, items - start));
+		}
+	}
+
+	/**
+	 * Adds every k-mer of the nucleotide sequence to the filter. A k-mer and
+	 * its reverse complement are the same item.
+	 * 
+	 * @throws NullPointerException
+	 *             if the sequence is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if <em>k</em> is less or equal zero.
+	 * @param sequence
+	 *            nucleotide sequence.
+	 * @param k
+	 *            length of the k-mers.
+	 * @return number of added k-mers.
+	 * @see #addKmers(byte[], int, int, int, boolean)
+	 */
+	public long addKmers(byte[] sequence, int k) {
+		if (sequence == null) {
+			throw new NullPointerException("Invalid sequence: " + sequence);
+		}
+		return addKmers(sequence, 0, sequence.length, k, true);
+	}
+
+	/**
+	 * Adds every k-mer of {@code len} bytes of the nucleotide sequence
+	 * starting at {@code offset} to the filter.
+	 * <p>
+	 * The k-mers are hashed with a rolling {@link NtHash}, which updates the
+	 * hashes in constant time per position, and added in batches without
+	 * creating an object per k-mer. The k-mers which contain a byte other than
+	 * A, C, G or T (in any case) are skipped.
+	 * </p>
+	 * <p>
+	 * The k-mers aren't hashed like byte arrays or strings, so they must be
+	 * queried with {@link #queryKmer(byte[], int, int, boolean)} using the
+	 * same <em>k</em> and strand mode.
+	 * </p>
+	 * 
+	 * @throws NullPointerException
+	 *             if the sequence is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the sequence.
+	 * @throws IllegalArgumentException
+	 *             if <em>k</em> is less or equal zero.
+	 * @param sequence
+	 *            nucleotide sequence.
+	 * @param offset
+	 *            index of the first nucleotide.
+	 * @param len
+	 *            number of nucleotides.
+	 * @param k
+	 *            length of the k-mers.
+	 * @param canonical
+	 *            {@code true} if a k-mer and its reverse complement are the
+	 *            same item.
+	 * @return number of added k-mers.
+	 */
+	public long addKmers(byte[] sequence, int offset, int len, int k,
+			boolean canonical) {
+		NtHash ntHash = new NtHash(k, canonical);
+		ntHash.reset(sequence, offset, len);
+		long[] hashes = new long[2 * BATCH_SIZE];
+		long total = 0;
+		int count = 0;
+		while (ntHash.next()) {
+			long hash = ntHash.getHash();
+			hashes[2 * count] = kmerHash(hash);
+			hashes[2 * count + 1] = kmerSecondHash(hash, k);
+			if (++count == BATCH_SIZE) {
+				addHashes(hashes, 0, count);
+				total += count;
+				count = 0;
+			}
+		}
+		if (count > 0) {
+			addHashes(hashes, 0, count);
+			total += count;
 		}
+		return total;
 	}
 
 	/**
@@ -156,26 +449,938 @@ public class BloomFilter<T> {
 			throw new NullPointerException("Invalid input item: " + item);
 		}
 		byte[] itemBytes = getBytes(item);
-		long h1 = hashFunctions[0].getHash(itemBytes);
-		long h2 = hashFunctions[1].getHash(itemBytes);
-		int h1Index = (int) (h1 % array.length);
-		int h2Index = (int) (h2 % array.length);
+		return query(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Returns {@code true} if the item stored in {@code len} bytes of the
+	 * input array starting at {@code offset} is in the filter, {@code false}
+	 * otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			return queryHashes(hashes[0], hashes[1]);
+		}
+		return queryHashes(hashFunctions[0].getHash(data, offset, len),
+				hashFunctions[1].getHash(data, offset, len));
+	}
+
+	/**
+	 * Returns {@code true} if the item stored in the remaining bytes of the
+	 * input buffer is in the filter, {@code false} otherwise.<br>
+	 * The position of the buffer is not changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input buffer is {@code null}.
+	 * @param data
+	 *            input buffer (heap or direct).
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(ByteBuffer data) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, hashes);
+			return queryHashes(hashes[0], hashes[1]);
+		}
+		return queryHashes(hashFunctions[0].getHash(data),
+				hashFunctions[1].getHash(data));
+	}
+
+	/**
+	 * Queries an array of items. {@code out[i]} is set to {@code true} if the
+	 * item {@code items[i]} is probably in the filter, {@code false}
+	 * otherwise.<br>
+	 * The items are hashed and queried in batches.
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arrays or one of the items is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the output array is shorter than the input array.
+	 * @param items
+	 *            input items.
+	 * @param out
+	 *            output array.
+	 */
+	public void queryAll(final T[] items, boolean[] out) {
+		if (items == null || out == null) {
+			throw new NullPointerException("Invalid item or output array.");
+		}
+		if (out.length < items.length) {
+			throw new IllegalArgumentException("Invalid output array length: "
+					+ out.length);
+		}
+		queryBatches(items.length, new HashFill() {
+			@Override
+			public void fill(int index, long[] hashes, int offset) {
+				hash(items[index], hashes, offset);
+			}
+		}, out);
+	}
+
+	/**
+	 * Queries the items whose hashes are stored in the input array. The array
+	 * holds pairs of hashes, the first and the second hash of every item.
+	 * {@code out[i]} is set to {@code true} if the item with the hashes
+	 * {@code hashes[2*i]} and {@code hashes[2*i+1]} is probably in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arrays is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the length of the input array is odd or if the output
+	 *             array is too short.
+	 * @param hashes
+	 *            pairs of hashes.
+	 * @param out
+	 *            output array.
+	 */
+	public void queryAllHashes(long[] hashes, boolean[] out) {
+		checkHashes(hashes);
+		if (out == null) {
+			throw new NullPointerException("Invalid output array: " + out);
+		}
+		int items = hashes.length / 2;
+		if (out.length < items) {
+			throw new IllegalArgumentException("Invalid output array length: "
+					+ out.length);
+		}
+		for (int start = 0; start < items; start += BATCH_SIZE) {
+			queryHashes(hashes, 2 * start, Math.min(BATCH_SIZE, items - start),
+					out, start);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the k-mer starting at {@code offset} is in the
+	 * filter, {@code false} otherwise. A k-mer and its reverse complement are
+	 * the same item.
+	 * 
+	 * @throws NullPointerException
+	 *             if the sequence is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the k-mer is not inside of the sequence.
+	 * @throws IllegalArgumentException
+	 *             if <em>k</em> is less or equal zero or if the k-mer contains
+	 *             a byte which is not a nucleotide.
+	 * @param sequence
+	 *            nucleotide sequence.
+	 * @param offset
+	 *            index of the first nucleotide of the k-mer.
+	 * @param k
+	 *            length of the k-mer.
+	 * @return {@code true}if the k-mer is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean queryKmer(byte[] sequence, int offset, int k) {
+		return queryKmer(sequence, offset, k, true);
+	}
+
+	/**
+	 * Returns {@code true} if the k-mer starting at {@code offset} is in the
+	 * filter, {@code false} otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if the sequence is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the k-mer is not inside of the sequence.
+	 * @throws IllegalArgumentException
+	 *             if <em>k</em> is less or equal zero or if the k-mer contains
+	 *             a byte which is not a nucleotide.
+	 * @param sequence
+	 *            nucleotide sequence.
+	 * @param offset
+	 *            index of the first nucleotide of the k-mer.
+	 * @param k
+	 *            length of the k-mer.
+	 * @param canonical
+	 *            {@code true} if a k-mer and its reverse complement are the
+	 *            same item.
+	 * @return {@code true}if the k-mer is probably in the set, {@code false}
+	 *         otherwise.
+	 * @see #addKmers(byte[], int, int, int, boolean)
+	 */
+	public boolean queryKmer(byte[] sequence, int offset, int k,
+			boolean canonical) {
+		long hash = NtHash.hash(sequence, offset, k, canonical);
+		return queryHashes(kmerHash(hash), kmerSecondHash(hash, k));
+	}
+
+	/**
+	 * Screens a read against the filter with canonical k-mers.
+	 * 
+	 * @throws NullPointerException
+	 *             if the read is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if <em>k</em> is less or equal zero.
+	 * @param read
+	 *            nucleotide sequence of the read.
+	 * @param k
+	 *            length of the k-mers.
+	 * @param threshold
+	 *            number of k-mers that must be in the filter.
+	 * @return number of k-mers found before the decision, not less than the
+	 *         threshold if the read passed the screen.
+	 * @see #screen(NtHash, byte[], int, int, int)
+	 */
+	public int screen(byte[] read, int k, int threshold) {
+		if (read == null) {
+			throw new NullPointerException("Invalid read: " + read);
+		}
+		return screen(new NtHash(k, true), read, 0, read.length, threshold);
+	}
+
+	/**
+	 * Screens {@code len} bytes of a read starting at {@code offset} against
+	 * the filter: the hash is rolled across the read and the k-mers which are
+	 * in the filter are counted.
+	 * <p>
+	 * The screen stops as soon as {@code threshold} k-mers are found, or as
+	 * soon as the remaining k-mers can't reach the threshold any more, so the
+	 * returned score is not less than the threshold if and only if the read
+	 * passed. A threshold less or equal zero is always reached. The rolling
+	 * hash is provided by the caller, which makes the screen free of
+	 * allocations; it must not be shared between threads.
+	 * </p>
+	 * <p>
+	 * The k-mers must have been added with
+	 * {@link #addKmers(byte[], int, int, int, boolean)} using the same
+	 * <em>k</em> and strand mode as the rolling hash.
+	 * </p>
+	 * 
+	 * @throws NullPointerException
+	 *             if the rolling hash or the read is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the read.
+	 * @param ntHash
+	 *            reusable rolling hash which defines <em>k</em> and the strand
+	 *            mode.
+	 * @param read
+	 *            nucleotide sequence of the read.
+	 * @param offset
+	 *            index of the first nucleotide.
+	 * @param len
+	 *            number of nucleotides.
+	 * @param threshold
+	 *            number of k-mers that must be in the filter.
+	 * @return number of k-mers found before the decision, not less than the
+	 *         threshold if the read passed the screen.
+	 */
+	public int screen(NtHash ntHash, byte[] read, int offset, int len,
+			int threshold) {
+		return countKmers(ntHash, read, offset, len, threshold, true);
+	}
+
+	/**
+	 * Returns the number of k-mers of {@code len} bytes of a read starting at
+	 * {@code offset} that are in the filter. Unlike
+	 * {@link #screen(NtHash, byte[], int, int, int)} every k-mer is queried.
+	 * 
+	 * @throws NullPointerException
+	 *             if the rolling hash or the read is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the read.
+	 * @param ntHash
+	 *            reusable rolling hash which defines <em>k</em> and the strand
+	 *            mode.
+	 * @param read
+	 *            nucleotide sequence of the read.
+	 * @param offset
+	 *            index of the first nucleotide.
+	 * @param len
+	 *            number of nucleotides.
+	 * @return number of k-mers in the filter.
+	 */
+	public int countKmers(NtHash ntHash, byte[] read, int offset, int len) {
+		return countKmers(ntHash, read, offset, len, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Returns a new filter which contains the items of this and of the other
+	 * filter. Neither filter is changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs.
+	 * @param other
+	 *            other filter.
+	 * @return union of the filters.
+	 */
+	public BloomFilter<T> union(BloomFilter<T> other) {
+		checkCompatible(other);
+		BloomFilter<T> result = copy();
+		result.array.or(other.array);
+		return result;
+	}
+
+	/**
+	 * Returns a new filter which contains the items of both filters. Neither
+	 * filter is changed.
+	 * <p>
+	 * The intersection of the arrays can have more bits set than a filter
+	 * built from the common items only, so its false positive probability
+	 * can be higher.
+	 * </p>
+	 * 
+	 * @throws NullPointerException
+	 *             if the other filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs.
+	 * @param other
+	 *            other filter.
+	 * @return intersection of the filters.
+	 */
+	public BloomFilter<T> intersect(BloomFilter<T> other) {
+		checkCompatible(other);
+		BloomFilter<T> result = copy();
+		result.array.and(other.array);
+		return result;
+	}
+
+	/**
+	 * Adds the items of this filter to the target filter (word-wise OR of the
+	 * arrays). This filter isn't changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the target filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs.
+	 * @param target
+	 *            filter that receives the items.
+	 */
+	public void orInto(BloomFilter<T> target) {
+		checkCompatible(target);
+		target.array.or(array);
+	}
+
+	/**
+	 * Removes the items which are not in this filter from the target filter
+	 * (word-wise AND of the arrays). This filter isn't changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the target filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs.
+	 * @param target
+	 *            filter whose items are intersected.
+	 */
+	public void andInto(BloomFilter<T> target) {
+		checkCompatible(target);
+		target.array.and(array);
+	}
+
+	/**
+	 * Returns the estimated number of distinct items in the filter,
+	 * calculated from the number of set bits.
+	 * 
+	 * @return estimated number of items, infinity if all bits are set.
+	 */
+	public double estimateSize() {
+		return estimateSize(setBits());
+	}
+
+	/**
+	 * Returns the estimated number of distinct items in the union of this
+	 * and the other filter. The union isn't created, the set bits are counted
+	 * word by word.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs.
+	 * @param other
+	 *            other filter.
+	 * @return estimated number of items in the union.
+	 */
+	public double estimateUnionSize(BloomFilter<T> other) {
+		checkCompatible(other);
+		return estimateSize(unionSetBits(other));
+	}
+
+	/**
+	 * Returns the estimated number of distinct items which are in both
+	 * filters: <code>n(A) + n(B) - n(A &cup; B)</code>.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs.
+	 * @param other
+	 *            other filter.
+	 * @return estimated number of items in the intersection.
+	 */
+	public double estimateIntersectionSize(BloomFilter<T> other) {
+		checkCompatible(other);
+		double intersection = estimateSize(setBits())
+				+ estimateSize(other.setBits())
+				- estimateSize(unionSetBits(other));
+		return Math.max(intersection, 0);
+	}
+
+	/**
+	 * Returns the estimated Jaccard similarity of the sets stored in this and
+	 * in the other filter, the size of the intersection divided by the size
+	 * of the union.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs.
+	 * @param other
+	 *            other filter.
+	 * @return estimated similarity between 0 and 1, 0 if both filters are
+	 *         empty.
+	 */
+	public double estimateJaccardSimilarity(BloomFilter<T> other) {
+		checkCompatible(other);
+		double sizeA = estimateSize(setBits());
+		double sizeB = estimateSize(other.setBits());
+		double union = estimateSize(unionSetBits(other));
+		if (union == 0) {
+			return 0;
+		}
+		double intersection = Math.max(sizeA + sizeB - union, 0);
+		return Math.min(intersection / union, 1);
+	}
+
+	/**
+	 * Returns the estimated number of distinct items in a filter with the
+	 * specified number of set bits:
+	 * <code>n = ln(1 - X/m) / (k * ln(1 - 1/m))</code>.
+	 * 
+	 * @param setBits
+	 *            number of set bits.
+	 * @return estimated number of items, infinity if all bits are set.
+	 */
+	protected double estimateSize(long setBits) {
+		long m = array.size();
+		if (setBits >= m) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.log1p(-(double) setBits / m)
+				/ (k * Math.log1p(-1. / m));
+	}
+
+	/**
+	 * Returns the number of set bits used by the estimates.
+	 * 
+	 * @return number of set bits.
+	 */
+	protected long setBits() {
+		return array.cardinality();
+	}
+
+	/**
+	 * Returns the number of bits set in this or in the other filter, used by
+	 * the estimates.
+	 * 
+	 * @param other
+	 *            other filter of the same geometry.
+	 * @return number of bits set in the union.
+	 */
+	protected long unionSetBits(BloomFilter<T> other) {
+		return array.orCardinality(other.array);
+	}
+
+	/**
+	 * Returns a copy of the filter with a copy of the array, the filters
+	 * don't share any bits.
+	 * 
+	 * @return copy of the filter.
+	 */
+	@SuppressWarnings("unchecked")
+	protected BloomFilter<T> copy() {
+		BloomFilter<T> copy;
+		try {
+			copy = (BloomFilter<T>) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.array = array.copy();
+		return copy;
+	}
+
+	/**
+	 * Sets the bits of an item whose hashes are {@code h1} and {@code h2}.
+	 * <p>
+	 * The hashes are 32-bit values, unless the filter uses a single-pass
+	 * 128-bit hash function.
+	 * </p>
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 */
+	protected void addHashes(long h1, long h2) {
+		if (requiresWideHashes()) {
+			// the strategy needs 64-bit hashes, widen the 32-bit ones
+			long wide = (h1 << 32) | h2;
+			h2 = (h2 << 32) | h1;
+			h1 = wide;
+		}
+		for (int i = 0; i < k; i++) {
+			array.set(index(h1, h2, i));
+		}
+	}
+
+	/**
+	 * Returns {@code true} if all bits of an item whose hashes are {@code h1}
+	 * and {@code h2} are set.
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	protected boolean queryHashes(long h1, long h2) {
+		if (requiresWideHashes()) {
+			long wide = (h1 << 32) | h2;
+			h2 = (h2 << 32) | h1;
+			h1 = wide;
+		}
+		for (int i = 0; i < k; i++) {
+			if (!array.get(index(h1, h2, i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the bits of {@code count} items whose hashes are stored in pairs
+	 * starting at {@code hashes[offset]}.
+	 * <p>
+	 * The first bit of every item is set, then the second bit of every item
+	 * and so on. Filters that override {@link #addHashes(long, long)} with a
+	 * different layout must override this method as well.
+	 * </p>
+	 * 
+	 * @param hashes
+	 *            pairs of hashes.
+	 * @param offset
+	 *            index of the first hash in the array.
+	 * @param count
+	 *            number of items.
+	 */
+	protected void addHashes(long[] hashes, int offset, int count) {
+		long[] h1 = new long[count];
+		long[] h2 = new long[count];
+		prepareHashes(hashes, offset, count, h1, h2);
+		for (int i = 0; i < k; i++) {
+			for (int j = 0; j < count; j++) {
+				array.set(index(h1[j], h2[j], i));
+			}
+		}
+	}
+
+	/**
+	 * Queries {@code count} items whose hashes are stored in pairs starting at
+	 * {@code hashes[offset]} and stores the results to the output array
+	 * starting at {@code out[outOffset]}.
+	 * <p>
+	 * The first bit of every item is tested, then the second bit of every item
+	 * that is still a candidate and so on. Filters that override
+	 * {@link #queryHashes(long, long)} with a different layout must override
+	 * this method as well.
+	 * </p>
+	 * 
+	 * @param hashes
+	 *            pairs of hashes.
+	 * @param offset
+	 *            index of the first hash in the array.
+	 * @param count
+	 *            number of items.
+	 * @param out
+	 *            output array.
+	 * @param outOffset
+	 *            index of the first result in the output array.
+	 */
+	protected void queryHashes(long[] hashes, int offset, int count,
+			boolean[] out, int outOffset) {
+		long[] h1 = new long[count];
+		long[] h2 = new long[count];
+		prepareHashes(hashes, offset, count, h1, h2);
+		for (int j = 0; j < count; j++) {
+			out[outOffset + j] = true;
+		}
+		for (int i = 0; i < k; i++) {
+			for (int j = 0; j < count; j++) {
+				if (out[outOffset + j] && !array.get(index(h1[j], h2[j], i))) {
+					out[outOffset + j] = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds {@code count} items in batches of {@value #BATCH_SIZE}. The hashes
+	 * of a batch are stored by the callback and the bits of the batch are set
+	 * together.
+	 * 
+	 * @param count
+	 *            number of items.
+	 * @param fill
+	 *            stores the hashes of an item.
+	 */
+	final void addBatches(int count, HashFill fill) {
+		long[] hashes = new long[2 * BATCH_SIZE];
+		for (int start = 0; start < count; start += BATCH_SIZE) {
+			int batch = Math.min(BATCH_SIZE, count - start);
+			for (int j = 0; j < batch; j++) {
+				fill.fill(start + j, hashes, 2 * j);
+			}
+			addHashes(hashes, 0, batch);
+		}
+	}
+
+	/**
+	 * Queries {@code count} items in batches of {@value #BATCH_SIZE}. The
+	 * hashes of a batch are stored by the callback and the bits of the batch
+	 * are probed together; {@code out[i]} receives the result of the item
+	 * {@code i}.
+	 * 
+	 * @param count
+	 *            number of items.
+	 * @param fill
+	 *            stores the hashes of an item.
+	 * @param out
+	 *            output array.
+	 */
+	final void queryBatches(int count, HashFill fill, boolean[] out) {
+		long[] hashes = new long[2 * BATCH_SIZE];
+		for (int start = 0; start < count; start += BATCH_SIZE) {
+			int batch = Math.min(BATCH_SIZE, count - start);
+			for (int j = 0; j < batch; j++) {
+				fill.fill(start + j, hashes, 2 * j);
+			}
+			queryHashes(hashes, 0, batch, out, start);
+		}
+	}
+
+	/**
+	 * Sets the bits of {@code count} items one item after another.<br>
+	 * Used by filters whose layout doesn't map every bit through
+	 * {@link #index(long, long, int)}.
+	 * 
+	 * @param hashes
+	 *            pairs of hashes.
+	 * @param offset
+	 *            index of the first hash in the array.
+	 * @param count
+	 *            number of items.
+	 */
+	protected final void addHashesEach(long[] hashes, int offset, int count) {
+		for (int j = 0; j < count; j++) {
+			addHashes(hashes[offset + 2 * j], hashes[offset + 2 * j + 1]);
+		}
+	}
+
+	/**
+	 * Queries {@code count} items one item after another.<br>
+	 * Used by filters whose layout doesn't map every bit through
+	 * {@link #index(long, long, int)}.
+	 * 
+	 * @param hashes
+	 *            pairs of hashes.
+	 * @param offset
+	 *            index of the first hash in the array.
+	 * @param count
+	 *            number of items.
+	 * @param out
+	 *            output array.
+	 * @param outOffset
+	 *            index of the first result in the output array.
+	 */
+	protected final void queryHashesEach(long[] hashes, int offset,
+			int count, boolean[] out, int outOffset) {
+		for (int j = 0; j < count; j++) {
+			out[outOffset + j] = queryHashes(hashes[offset + 2 * j],
+					hashes[offset + 2 * j + 1]);
+		}
+	}
+
+	/**
+	 * Copies the pairs of hashes to the two arrays and widens them if the
+	 * index strategy needs 64-bit hashes.
+	 */
+	private void prepareHashes(long[] hashes, int offset, int count,
+			long[] h1, long[] h2) {
+		boolean wide = requiresWideHashes();
+		for (int j = 0; j < count; j++) {
+			long first = hashes[offset + 2 * j];
+			long second = hashes[offset + 2 * j + 1];
+			if (wide) {
+				h1[j] = (first << 32) | second;
+				h2[j] = (second << 32) | first;
+			} else {
+				h1[j] = first;
+				h2[j] = second;
+			}
+		}
+	}
+
+	/**
+	 * Counts the k-mers of a read that are in the filter and stops when the
+	 * threshold is reached or, if requested, when it can't be reached.
+	 */
+	private int countKmers(NtHash ntHash, byte[] read, int offset, int len,
+			int threshold, boolean stopIfUnreachable) {
+		if (ntHash == null) {
+			throw new NullPointerException("Invalid rolling hash: " + ntHash);
+		}
+		ntHash.reset(read, offset, len);
+		int k = ntHash.getK();
+		// index of the last k-mer of the read
+		int last = offset + len - k;
+		if (threshold <= 0
+				|| (stopIfUnreachable && last - offset + 1 < threshold)) {
+			return 0;
+		}
+		int hits = 0;
+		while (ntHash.next()) {
+			long hash = ntHash.getHash();
+			if (queryHashes(kmerHash(hash), kmerSecondHash(hash, k))) {
+				if (++hits >= threshold) {
+					return hits;
+				}
+			} else if (stopIfUnreachable
+					&& hits + last - ntHash.getPosition() < threshold) {
+				return hits;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Returns the first hash of a k-mer with the specified {@link NtHash}.<br>
+	 * Filters without a 128-bit hash function expect 32-bit hashes, so the
+	 * high bits of the 64-bit hash are used.
+	 * 
+	 * @param hash
+	 *            hash of the k-mer.
+	 * @return first hash passed to the probe loop.
+	 */
+	protected long kmerHash(long hash) {
+		return hash128 != null ? hash : hash >>> 32;
+	}
+
+	/**
+	 * Returns the second hash of a k-mer with the specified {@link NtHash}.
+	 * 
+	 * @param hash
+	 *            hash of the k-mer.
+	 * @param k
+	 *            length of the k-mer.
+	 * @return second hash passed to the probe loop.
+	 */
+	protected long kmerSecondHash(long hash, int k) {
+		long h2 = NtHash.secondHash(hash, k);
+		return hash128 != null ? h2 : h2 >>> 32;
+	}
+
+	/**
+	 * Returns {@code true} if the 32-bit hashes must be widened to 64 bits
+	 * before the indexes are calculated.
+	 * 
+	 * @return {@code true} if the hashes must be widened.
+	 */
+	protected boolean requiresWideHashes() {
+		return hash128 == null
+				&& indexStrategy.requiresWideHashes(array.size());
+	}
+
+	/**
+	 * Returns the index of the <em>i</em>-th bit of an item.
+	 * 
+	 * @param h1
+	 *            first hash of the item (widened if needed).
+	 * @param h2
+	 *            second hash of the item (widened if needed).
+	 * @param i
+	 *            probe number.
+	 * @return index in the <em>m</em>-bit array.
+	 */
+	protected long index(long h1, long h2, int i) {
+		return indexStrategy.index(h1, h2, i, array.size());
+	}
+
+	/**
+	 * Stores the two hashes of the item to {@code hashes[offset]} and
+	 * {@code hashes[offset + 1]}.
+	 * 
+	 * @throws NullPointerException
+	 *             if the item is {@code null}.
+	 * @param item
+	 *            input item.
+	 * @param hashes
+	 *            output array.
+	 * @param offset
+	 *            index of the first hash in the output array.
+	 */
+	protected void hash(T item, long[] hashes, int offset) {
+		byte[] itemBytes = getBytes(item);
+		if (hash128 != null) {
+			hash128.getHash(itemBytes, 0, itemBytes.length, hashes, offset);
+		} else {
+			hashes[offset] = hashFunctions[0].getHash(itemBytes);
+			hashes[offset + 1] = hashFunctions[1].getHash(itemBytes);
+		}
+	}
+
+	/**
+	 * Checks the array of hash pairs passed to a batch method.
+	 */
+	private static void checkHashes(long[] hashes) {
+		if (hashes == null) {
+			throw new NullPointerException("Invalid hash array: " + hashes);
+		}
+		if ((hashes.length & 1) != 0) {
+			throw new IllegalArgumentException("Invalid hash array length: "
+					+ hashes.length);
+		}
+	}
 
-		if (!array[h1Index] || !array[h2Index]) {
+	/**
+	 * Returns the class which decides how the bits of an item are chosen.
+	 * Filters that only store the array differently return the class of the
+	 * filter whose layout they use, so they can be combined with it.
+	 * 
+	 * @return class of the bit layout, the class of the filter by default.
+	 */
+	protected Class<?> getLayoutClass() {
+		return getClass();
+	}
+
+	/**
+	 * Checks that the other filter has the same geometry as this one: the
+	 * same bit layout, array size, number of hash functions, hash family and
+	 * index strategy. Only such filters set the same bits for an item, so
+	 * their arrays can be combined word by word.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs or if a filter has no
+	 *             array of its own.
+	 * @param other
+	 *            other filter.
+	 */
+	protected void checkCompatible(BloomFilter<?> other) {
+		if (other == null) {
+			throw new NullPointerException("Invalid filter: " + other);
+		}
+		if (array == null || other.array == null) {
+			throw new IllegalArgumentException(
+					"Filters without an array can't be combined.");
+		}
+		if (other.getLayoutClass() != getLayoutClass() || other.k != k
+				|| other.array.size() != array.size()
+				|| other.indexStrategy != indexStrategy
+				|| !sameHashFamily(other)) {
+			throw new IllegalArgumentException("Incompatible filters: m="
+					+ array.size() + ", k=" + k + " and m="
+					+ other.array.size() + ", k=" + other.k);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the other filter hashes the items with the same
+	 * hash functions.
+	 * 
+	 * @param other
+	 *            other filter.
+	 * @return {@code true} if the filters use the same hash functions.
+	 */
+	protected boolean sameHashFamily(BloomFilter<?> other) {
+		if (hashFunctions == null || other.hashFunctions == null) {
+			return hashFunctions == other.hashFunctions;
+		}
+		int used = hash128 != null ? 1 : 2;
+		if (other.hashFunctions.length < used
+				|| (other.hash128 != null) != (hash128 != null)) {
 			return false;
 		}
-		boolean isInFilter = true;
-		for (int i = 2; i < k; i++) {
-			int index = (int) ((h1 + i * h2) % array.length);
-			if (index < 0) {
-				index += array.length;
+		for (int i = 0; i < used; i++) {
+			if (hashFunctions[i].getClass() != other.hashFunctions[i]
+					.getClass()) {
+				return false;
 			}
-			if (!array[index % array.length]) {
-				isInFilter = false;
-				break;
+			if (hashFunctions[i] instanceof MurmurHash
+					&& ((MurmurHash) hashFunctions[i]).getSeed() != ((MurmurHash) other.hashFunctions[i])
+							.getSeed()) {
+				return false;
 			}
 		}
-		return isInFilter;
+		return hash128 == null || hash128.getSeed() == other.hash128.getSeed();
+	}
+
+	/**
+	 * Returns the index in the range <code>[0, length)</code> that belongs to
+	 * the specified hash value.
+	 * 
+	 * @param hash
+	 *            hash value, may be negative if the calculation of the value
+	 *            caused an overflow.
+	 * @param length
+	 *            length of the range.
+	 * @return index in the range.
+	 */
+	protected static long reduce(long hash, long length) {
+		long index = hash % length;
+		// if the hash calculation caused an overflow the index will be <0
+		if (index < 0) {
+			index += length;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the size of the array for the requested size, adjusted to the
+	 * needs of the index strategy.
+	 * 
+	 * @param m
+	 *            requested array size.
+	 * @return adjusted array size.
+	 */
+	protected long arraySize(long m) {
+		return indexStrategy.size(m);
+	}
+
+	/**
+	 * Creates the <em>m</em>-bit array used by the filter.
+	 * <p>
+	 * Arrays up to 2^32 bits are stored in a single {@code long} array, larger
+	 * ones are split into pages.
+	 * </p>
+	 * 
+	 * @param m
+	 *            array size.
+	 * @return <em>m</em>-bit array.
+	 */
+	protected BitStore createArray(long m) {
+		if (m > MAX_UNPAGED_SIZE) {
+			return new PagedBitStore(m);
+		}
+		return new LongArrayBitStore(m);
 	}
 
 	/**
@@ -206,7 +1411,7 @@ public class BloomFilter<T> {
 	 * 
 	 * @return <em>m</em>-bit array.
 	 */
-	protected boolean[] getArray() {
+	protected BitStore getArray() {
 		return array;
 	}
 
@@ -220,13 +1425,13 @@ public class BloomFilter<T> {
 	 * @param array
 	 *            <em>m</em>-bit array.
 	 */
-	protected void setArray(boolean[] array) {
+	protected void setArray(BitStore array) {
 		if (array == null) {
 			throw new NullPointerException("Invalid filter array: " + array);
 		}
-		if (array.length == 0) {
+		if (array.size() == 0) {
 			throw new IllegalArgumentException("Invalid filter array size: "
-					+ array.length);
+					+ array.size());
 		}
 		this.array = array;
 	}
@@ -241,12 +1446,16 @@ public class BloomFilter<T> {
 	}
 
 	/**
-	 * Sets the filters hash functions.
+	 * Sets the filters hash functions.<br>
+	 * If the first function is a {@code MurmurHash128} both hashes of an item
+	 * are taken from its two 64-bit halves and the array may contain only
+	 * that function.
 	 * 
 	 * @throws NullPointerException
 	 *             if the input array is {@code null}.
 	 * @throws IllegalArgumentException
-	 *             if the array size is less than 2.
+	 *             if the array size is less than 2 and the array doesn't
+	 *             contain a {@code MurmurHash128}.
 	 * @param hashFunctions
 	 *            hash functions.
 	 */
@@ -255,11 +1464,43 @@ public class BloomFilter<T> {
 			throw new NullPointerException("Invalid hash functions: "
 					+ hashFunctions);
 		}
-		if (hashFunctions.length < 2) {
+		if (hashFunctions.length == 0
+				|| (hashFunctions.length < 2 && !(hashFunctions[0] instanceof MurmurHash128))) {
 			throw new IllegalArgumentException("Invalid hash functions size: "
 					+ hashFunctions.length);
 		}
 		this.hashFunctions = hashFunctions;
+		if (hashFunctions[0] instanceof MurmurHash128) {
+			this.hash128 = (MurmurHash128) hashFunctions[0];
+		} else {
+			this.hash128 = null;
+		}
+	}
+
+	/**
+	 * Returns the strategy which maps the hashes to the indexes of the array.
+	 * 
+	 * @return index strategy.
+	 */
+	protected IndexStrategy getIndexStrategy() {
+		return indexStrategy;
+	}
+
+	/**
+	 * Sets the strategy which maps the hashes to the indexes of the array.<br>
+	 * To avoid unwanted behavior, use only in constructors.
+	 * 
+	 * @throws NullPointerException
+	 *             if the strategy is {@code null}.
+	 * @param indexStrategy
+	 *            index strategy.
+	 */
+	protected void setIndexStrategy(IndexStrategy indexStrategy) {
+		if (indexStrategy == null) {
+			throw new NullPointerException("Invalid index strategy: "
+					+ indexStrategy);
+		}
+		this.indexStrategy = indexStrategy;
 	}
 
 	/**
@@ -288,4 +1529,22 @@ public class BloomFilter<T> {
 		}
 		this.k = k;
 	}
+
+	/**
+	 * Callback of the batch methods which stores the hashes of an item.
+	 */
+	interface HashFill {
+		/**
+		 * Stores the first and the second hash of the item with the specified
+		 * index to the output array.
+		 * 
+		 * @param index
+		 *            index of the item.
+		 * @param hashes
+		 *            output array.
+		 * @param offset
+		 *            index of the first hash in the output array.
+		 */
+		void fill(int index, long[] hashes, int offset);
+	}
 }
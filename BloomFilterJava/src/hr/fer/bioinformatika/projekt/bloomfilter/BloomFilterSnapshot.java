@@ -0,0 +1,763 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.FNV1aHashFunction;
+import hr.fer.bioinformatika.projekt.hash.HashFunction;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash128;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshots of Bloom Filters.
+ * <p>
+ * A snapshot holds everything needed to restore a filter without re-adding
+ * its items: a header with the filter type, the hash family and seed, the
+ * index strategy, <em>m</em> and <em>k</em> (and the parameters and the
+ * slices of a {@link ScalableBloomFilter}), followed by the packed words of
+ * the <em>m</em>-bit arrays and a CRC32 checksum of all preceding bytes. All
+ * values are little endian.
+ * </p>
+ * 
+ * <pre>
+ * snapshot: int MAGIC, int VERSION, filter, long CRC32
+ * filter:   byte type, byte hash family, long seed, (array | scalable)
+ * array:    byte index strategy, int k, long m, long[(m + 63) / 64] words
+ * scalable: int fillRatioLimit, double p, double r, double s,
+ *           long itemsInCurrent, int slices, filter[slices]
+ * fuse:     byte type, byte hash family, long seed, byte fingerprint bits,
+ *           long filter seed, int segment length, int segments, int size,
+ *           (byte | short)[(segments + 2) * segment length] fingerprints
+ * </pre>
+ * <p>
+ * Version 1 snapshots, whose scalable filters have no growth factor and an
+ * {@code int itemsInCurrent}, are still read; their growth factor is 1.
+ * </p>
+ * <p>
+ * The snapshot is written and read through a small direct buffer, the words
+ * are copied in bulk between the buffer and the bit store, so restoring a
+ * filter takes about as long as reading its bytes.
+ * </p>
+ * <p>
+ * {@link BloomFilter}, {@link PartitionedBloomFilter} and
+ * {@link ScalableBloomFilter} are supported, with the default hash functions
+ * or with a {@link MurmurHash128}. A {@link BinaryFuseFilter} is saved and
+ * loaded through its own methods, its snapshot holds the fuse body in place
+ * of the filter.
+ * </p>
+ * 
+ * @see BitStore#readWords(long, LongBuffer)
+ * @see BitStore#writeWords(long, LongBuffer)
+ * 
+ */
+public class BloomFilterSnapshot {
+	/** magic number at the start of a snapshot */
+	protected static final int MAGIC = 0x424c4653;
+
+	/** version of the snapshot layout */
+	protected static final int VERSION = 2;
+
+	/** oldest version of the snapshot layout that can be read */
+	protected static final int MIN_VERSION = 1;
+
+	/** type of a {@link BloomFilter} */
+	protected static final byte TYPE_BLOOM = 1;
+
+	/** type of a {@link PartitionedBloomFilter} */
+	protected static final byte TYPE_PARTITIONED = 2;
+
+	/** type of a {@link ScalableBloomFilter} */
+	protected static final byte TYPE_SCALABLE = 3;
+
+	/** type of a {@link BinaryFuseFilter} */
+	protected static final byte TYPE_BINARY_FUSE = 4;
+
+	/** FNV-1a and MurmurHash3 32-bit hashes, the seed is the MurmurHash seed */
+	protected static final byte HASHES_DEFAULT = 1;
+
+	/** single-pass MurmurHash3 128-bit hashes */
+	protected static final byte HASHES_MURMUR128 = 2;
+
+	/** size of the I/O buffer in bytes */
+	protected static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Utility class, not instantiable.
+	 */
+	private BloomFilterSnapshot() {
+	}
+
+	/**
+	 * Writes the snapshot of the filter to a file. An existing file is
+	 * overwritten.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be written.
+	 * @throws NullPointerException
+	 *             if the filter or the file is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the filter type or its hash functions are not supported.
+	 * @param filter
+	 *            filter to save.
+	 * @param file
+	 *            snapshot file.
+	 */
+	public static void save(BloomFilter<?> filter, File file)
+			throws IOException {
+		if (file == null) {
+			throw new NullPointerException("Invalid snapshot file: " + file);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(filter, channel);
+		}
+	}
+
+	/**
+	 * Reads the filter from a snapshot file.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be read or is not a valid snapshot.
+	 * @throws NullPointerException
+	 *             if the file is {@code null}.
+	 * @param file
+	 *            snapshot file.
+	 * @return restored filter.
+	 */
+	public static <T> BloomFilter<T> load(File file) throws IOException {
+		if (file == null) {
+			throw new NullPointerException("Invalid snapshot file: " + file);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			return read(channel);
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the filter to the channel.
+	 * 
+	 * @throws IOException
+	 *             if the snapshot could not be written.
+	 * @throws NullPointerException
+	 *             if the filter or the channel is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the filter type or its hash functions are not supported.
+	 * @param filter
+	 *            filter to save.
+	 * @param channel
+	 *            output channel.
+	 */
+	public static void write(BloomFilter<?> filter, WritableByteChannel channel)
+			throws IOException {
+		if (filter == null || channel == null) {
+			throw new NullPointerException("Invalid filter or channel.");
+		}
+		type(filter);
+		Output out = new Output(channel);
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		writeFilter(filter, out);
+		out.finish();
+	}
+
+	/**
+	 * Reads a filter from the channel.
+	 * 
+	 * @throws IOException
+	 *             if the snapshot could not be read or is not valid.
+	 * @throws NullPointerException
+	 *             if the channel is {@code null}.
+	 * @param channel
+	 *            input channel.
+	 * @return restored filter.
+	 */
+	public static <T> BloomFilter<T> read(ReadableByteChannel channel)
+			throws IOException {
+		if (channel == null) {
+			throw new NullPointerException("Invalid channel: " + channel);
+		}
+		Input in = new Input(channel);
+		if (in.getInt() != MAGIC) {
+			throw new IOException("Invalid snapshot: wrong magic number");
+		}
+		int version = in.getInt();
+		if (version < MIN_VERSION || version > VERSION) {
+			throw new IOException("Unsupported snapshot version: " + version);
+		}
+		BloomFilter<T> filter = readFilter(in, version);
+		in.checkCrc();
+		return filter;
+	}
+
+	/**
+	 * Writes the snapshot of the binary fuse filter to a file. An existing
+	 * file is overwritten.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be written.
+	 * @throws NullPointerException
+	 *             if the filter or the file is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the hash functions of the filter are not supported.
+	 * @param filter
+	 *            filter to save.
+	 * @param file
+	 *            snapshot file.
+	 */
+	public static void save(BinaryFuseFilter<?> filter, File file)
+			throws IOException {
+		if (file == null) {
+			throw new NullPointerException("Invalid snapshot file: " + file);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(filter, channel);
+		}
+	}
+
+	/**
+	 * Reads the binary fuse filter from a snapshot file.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be read or is not a valid snapshot of
+	 *             a binary fuse filter.
+	 * @throws NullPointerException
+	 *             if the file is {@code null}.
+	 * @param file
+	 *            snapshot file.
+	 * @return restored filter.
+	 */
+	public static <T> BinaryFuseFilter<T> loadBinaryFuse(File file)
+			throws IOException {
+		if (file == null) {
+			throw new NullPointerException("Invalid snapshot file: " + file);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			return readBinaryFuse(channel);
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the binary fuse filter to the channel.
+	 * 
+	 * @throws IOException
+	 *             if the snapshot could not be written.
+	 * @throws NullPointerException
+	 *             if the filter or the channel is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the hash functions of the filter are not supported.
+	 * @param filter
+	 *            filter to save.
+	 * @param channel
+	 *            output channel.
+	 */
+	public static void write(BinaryFuseFilter<?> filter,
+			WritableByteChannel channel) throws IOException {
+		if (filter == null || channel == null) {
+			throw new NullPointerException("Invalid filter or channel.");
+		}
+		Output out = new Output(channel);
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		out.putByte(TYPE_BINARY_FUSE);
+		writeHashes(filter.getHashFunctions(), out);
+		out.putByte((byte) filter.getFingerprintBits());
+		out.putLong(filter.seed);
+		out.putInt(filter.segmentLength);
+		out.putInt(filter.segmentCount);
+		out.putInt(filter.size());
+		if (filter.getFingerprints8() != null) {
+			out.putBytes(filter.getFingerprints8());
+		} else {
+			out.putShorts(filter.getFingerprints16());
+		}
+		out.finish();
+	}
+
+	/**
+	 * Reads a binary fuse filter from the channel.
+	 * 
+	 * @throws IOException
+	 *             if the snapshot could not be read or is not a valid snapshot
+	 *             of a binary fuse filter.
+	 * @throws NullPointerException
+	 *             if the channel is {@code null}.
+	 * @param channel
+	 *            input channel.
+	 * @return restored filter.
+	 */
+	public static <T> BinaryFuseFilter<T> readBinaryFuse(
+			ReadableByteChannel channel) throws IOException {
+		if (channel == null) {
+			throw new NullPointerException("Invalid channel: " + channel);
+		}
+		Input in = new Input(channel);
+		if (in.getInt() != MAGIC) {
+			throw new IOException("Invalid snapshot: wrong magic number");
+		}
+		int version = in.getInt();
+		if (version < MIN_VERSION || version > VERSION) {
+			throw new IOException("Unsupported snapshot version: " + version);
+		}
+		byte type = in.getByte();
+		if (type != TYPE_BINARY_FUSE) {
+			throw new IOException("Unsupported filter type: " + type);
+		}
+		HashFunction[] hashFunctions = readHashes(in);
+		int fingerprintBits = in.getByte();
+		long seed = in.getLong();
+		int segmentLength = in.getInt();
+		int segmentCount = in.getInt();
+		int size = in.getInt();
+		long arrayBytes = (long) (segmentCount + BinaryFuseFilter.ARITY - 1)
+				* segmentLength * (fingerprintBits == 16 ? 2 : 1);
+		if (!in.hasRemaining(arrayBytes + 8)) {
+			throw new IOException("Invalid binary fuse filter parameters: "
+					+ segmentCount + " segments of " + segmentLength
+					+ " exceed the snapshot size");
+		}
+		BinaryFuseFilter<T> filter;
+		try {
+			filter = new BinaryFuseFilter<T>(hashFunctions, fingerprintBits,
+					seed, segmentLength, segmentCount, size);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid binary fuse filter parameters.", e);
+		}
+		if (filter.getFingerprints8() != null) {
+			in.getBytes(filter.getFingerprints8());
+		} else {
+			in.getShorts(filter.getFingerprints16());
+		}
+		in.checkCrc();
+		return filter;
+	}
+
+	/**
+	 * Writes the type, the hash functions and the body of a filter.
+	 */
+	private static void writeFilter(BloomFilter<?> filter, Output out)
+			throws IOException {
+		byte type = type(filter);
+		out.putByte(type);
+		writeHashes(filter.getHashFunctions(), out);
+		if (type == TYPE_SCALABLE) {
+			ScalableBloomFilter<?> scalable = (ScalableBloomFilter<?>) filter;
+			out.putInt(scalable.getFillRatioLimit());
+			out.putDouble(scalable.getFalsePositiveProbability());
+			out.putDouble(scalable.getR());
+			out.putDouble(scalable.getS());
+			out.putLong(scalable.getItemsInCurrent());
+			List<? extends BloomFilter<?>> slices = scalable.getFilters();
+			out.putInt(slices.size());
+			for (BloomFilter<?> slice : slices) {
+				writeFilter(slice, out);
+			}
+		} else {
+			out.putByte((byte) filter.getIndexStrategy().ordinal());
+			out.putInt(filter.getK());
+			out.putLong(filter.getArray().size());
+			out.putWords(filter.getArray());
+		}
+	}
+
+	/**
+	 * Reads a filter written by {@link #writeFilter(BloomFilter, Output)} in
+	 * the specified version of the layout.
+	 */
+	private static <T> BloomFilter<T> readFilter(Input in, int version)
+			throws IOException {
+		byte type = in.getByte();
+		HashFunction[] hashFunctions = readHashes(in);
+		if (type == TYPE_SCALABLE) {
+			int fillRatioLimit = in.getInt();
+			double p = in.getDouble();
+			double r = in.getDouble();
+			double s = version >= 2 ? in.getDouble() : 1;
+			long itemsInCurrent = version >= 2 ? in.getLong() : in.getInt();
+			int sliceCount = in.getInt();
+			if (fillRatioLimit <= 0 || itemsInCurrent < 0 || sliceCount <= 0) {
+				throw new IOException("Invalid scalable filter parameters.");
+			}
+			List<BloomFilter<T>> slices = new ArrayList<BloomFilter<T>>(
+					sliceCount);
+			for (int i = 0; i < sliceCount; i++) {
+				BloomFilter<T> slice = readFilter(in, version);
+				if (slice instanceof ScalableBloomFilter) {
+					throw new IOException("Invalid slice type.");
+				}
+				slices.add(slice);
+			}
+			ScalableBloomFilter<T> filter;
+			try {
+				filter = new ScalableBloomFilter<T>(fillRatioLimit, p, r, s);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid scalable filter parameters.", e);
+			}
+			filter.setHashFunctions(hashFunctions);
+			filter.setFilters(slices);
+			filter.setItemsInCurrent(itemsInCurrent);
+			return filter;
+		}
+		if (type != TYPE_BLOOM && type != TYPE_PARTITIONED) {
+			throw new IOException("Unsupported filter type: " + type);
+		}
+		int strategy = in.getByte();
+		int k = in.getInt();
+		long m = in.getLong();
+		if (strategy < 0 || strategy >= IndexStrategy.values().length) {
+			throw new IOException("Unsupported index strategy: " + strategy);
+		}
+		if (k <= 0 || m <= 0) {
+			throw new IOException("Invalid filter parameters: m=" + m
+					+ ", k=" + k);
+		}
+		// the words and the checksum must follow, before m is trusted
+		if (!in.hasRemaining((((m - 1) >>> 6) + 1) * 8 + 8)) {
+			throw new IOException("Invalid filter parameters: m=" + m
+					+ " exceeds the snapshot size");
+		}
+		IndexStrategy indexStrategy = IndexStrategy.values()[strategy];
+		BloomFilter<T> filter;
+		if (type == TYPE_PARTITIONED) {
+			filter = new PartitionedBloomFilter<T>(m, k, hashFunctions,
+					indexStrategy);
+		} else {
+			filter = new BloomFilter<T>(m, k, hashFunctions, indexStrategy);
+		}
+		if (filter.getArray().size() != m) {
+			throw new IOException("Invalid filter array size: " + m);
+		}
+		in.getWords(filter.getArray());
+		return filter;
+	}
+
+	/**
+	 * Returns the type of a supported filter.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the filter type is not supported.
+	 */
+	private static byte type(BloomFilter<?> filter) {
+		Class<?> type = filter.getClass();
+		if (type == BloomFilter.class) {
+			return TYPE_BLOOM;
+		} else if (type == PartitionedBloomFilter.class) {
+			return TYPE_PARTITIONED;
+		} else if (type == ScalableBloomFilter.class) {
+			return TYPE_SCALABLE;
+		}
+		throw new IllegalArgumentException("Unsupported filter type: "
+				+ type.getName());
+	}
+
+	/**
+	 * Writes the hash family and the seed of the hash functions.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the hash functions are not supported.
+	 */
+	private static void writeHashes(HashFunction[] hashFunctions, Output out)
+			throws IOException {
+		if (hashFunctions != null && hashFunctions.length > 0
+				&& hashFunctions[0] instanceof MurmurHash128) {
+			out.putByte(HASHES_MURMUR128);
+			out.putLong(((MurmurHash128) hashFunctions[0]).getSeed());
+		} else if (hashFunctions != null && hashFunctions.length == 2
+				&& hashFunctions[0].getClass() == FNV1aHashFunction.class
+				&& hashFunctions[1].getClass() == MurmurHash.class) {
+			out.putByte(HASHES_DEFAULT);
+			out.putLong(((MurmurHash) hashFunctions[1]).getSeed());
+		} else {
+			throw new IllegalArgumentException("Unsupported hash functions.");
+		}
+	}
+
+	/**
+	 * Reads the hash family and the seed and creates the hash functions.
+	 */
+	private static HashFunction[] readHashes(Input in) throws IOException {
+		byte family = in.getByte();
+		int seed = (int) in.getLong();
+		if (family == HASHES_MURMUR128) {
+			return new HashFunction[] { new MurmurHash128(seed) };
+		} else if (family == HASHES_DEFAULT) {
+			return new HashFunction[] { new FNV1aHashFunction(),
+					new MurmurHash(seed) };
+		}
+		throw new IOException("Unsupported hash family: " + family);
+	}
+
+	/**
+	 * Buffered little endian output which calculates the checksum of the
+	 * written bytes.
+	 */
+	private static class Output {
+		private final WritableByteChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(
+				BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private final CRC32 crc = new CRC32();
+
+		Output(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		void putByte(byte value) throws IOException {
+			ensure(1);
+			buffer.put(value);
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) throws IOException {
+			ensure(8);
+			buffer.putDouble(value);
+		}
+
+		/**
+		 * Writes all words of the store, copying as many words as fit into
+		 * the buffer at once.
+		 */
+		void putWords(BitStore store) throws IOException {
+			long words = store.wordCount();
+			long index = 0;
+			while (index < words) {
+				ensure(8);
+				int count = (int) Math.min(buffer.remaining() >>> 3, words
+						- index);
+				LongBuffer view = buffer.asLongBuffer();
+				view.limit(count);
+				store.writeWords(index, view);
+				buffer.position(buffer.position() + (count << 3));
+				index += count;
+			}
+		}
+
+		/**
+		 * Writes all bytes of the array.
+		 */
+		void putBytes(byte[] values) throws IOException {
+			int index = 0;
+			while (index < values.length) {
+				ensure(1);
+				int count = Math.min(buffer.remaining(), values.length - index);
+				buffer.put(values, index, count);
+				index += count;
+			}
+		}
+
+		/**
+		 * Writes all shorts of the array, copying as many shorts as fit into
+		 * the buffer at once.
+		 */
+		void putShorts(short[] values) throws IOException {
+			int index = 0;
+			while (index < values.length) {
+				ensure(2);
+				int count = Math.min(buffer.remaining() >>> 1, values.length
+						- index);
+				buffer.asShortBuffer().put(values, index, count);
+				buffer.position(buffer.position() + (count << 1));
+				index += count;
+			}
+		}
+
+		/**
+		 * Writes the buffered bytes and the checksum.
+		 */
+		void finish() throws IOException {
+			flush();
+			buffer.putLong(crc.getValue());
+			buffer.flip();
+			writeBuffer();
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			crc.update(buffer.duplicate());
+			writeBuffer();
+		}
+
+		private void writeBuffer() throws IOException {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Buffered little endian input which calculates the checksum of the read
+	 * bytes.
+	 */
+	private static class Input {
+		private final ReadableByteChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(
+				BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private final CRC32 crc = new CRC32();
+
+		/** position up to which the checksum has been updated */
+		private int checked;
+
+		Input(ReadableByteChannel channel) {
+			this.channel = channel;
+			buffer.limit(0);
+		}
+
+		byte getByte() throws IOException {
+			require(1);
+			return buffer.get();
+		}
+
+		int getInt() throws IOException {
+			require(4);
+			return buffer.getInt();
+		}
+
+		long getLong() throws IOException {
+			require(8);
+			return buffer.getLong();
+		}
+
+		double getDouble() throws IOException {
+			require(8);
+			return buffer.getDouble();
+		}
+
+		/**
+		 * Reads all words of the store, copying as many words as are in the
+		 * buffer at once.
+		 */
+		void getWords(BitStore store) throws IOException {
+			long words = store.wordCount();
+			long index = 0;
+			while (index < words) {
+				require(8);
+				int count = (int) Math.min(buffer.remaining() >>> 3, words
+						- index);
+				LongBuffer view = buffer.asLongBuffer();
+				view.limit(count);
+				store.readWords(index, view);
+				buffer.position(buffer.position() + (count << 3));
+				index += count;
+			}
+		}
+
+		/**
+		 * Fills the array with the next bytes.
+		 */
+		void getBytes(byte[] values) throws IOException {
+			int index = 0;
+			while (index < values.length) {
+				require(1);
+				int count = Math.min(buffer.remaining(), values.length - index);
+				buffer.get(values, index, count);
+				index += count;
+			}
+		}
+
+		/**
+		 * Fills the array with the next shorts, copying as many shorts as are
+		 * in the buffer at once.
+		 */
+		void getShorts(short[] values) throws IOException {
+			int index = 0;
+			while (index < values.length) {
+				require(2);
+				int count = Math.min(buffer.remaining() >>> 1, values.length
+						- index);
+				buffer.asShortBuffer().get(values, index, count);
+				buffer.position(buffer.position() + (count << 1));
+				index += count;
+			}
+		}
+
+		/**
+		 * Returns {@code false} if the channel is known to hold fewer unread
+		 * bytes than specified, so an array isn't allocated for a size read
+		 * from a corrupt header. Only a seekable channel (a file) knows its
+		 * size, a short stream is detected while reading.
+		 */
+		boolean hasRemaining(long bytes) throws IOException {
+			if (!(channel instanceof SeekableByteChannel)) {
+				return true;
+			}
+			SeekableByteChannel seekable = (SeekableByteChannel) channel;
+			return bytes <= buffer.remaining() + seekable.size()
+					- seekable.position();
+		}
+
+		/**
+		 * Reads the checksum and compares it with the checksum of the read
+		 * bytes.
+		 * 
+		 * @throws IOException
+		 *             if the checksums differ.
+		 */
+		void checkCrc() throws IOException {
+			updateCrc();
+			long expected = crc.getValue();
+			if (getLong() != expected) {
+				throw new IOException("Corrupted snapshot: checksum mismatch");
+			}
+		}
+
+		/**
+		 * Makes sure that the buffer holds at least the specified number of
+		 * unread bytes.
+		 */
+		private void require(int bytes) throws IOException {
+			if (buffer.remaining() >= bytes) {
+				return;
+			}
+			updateCrc();
+			buffer.compact();
+			while (buffer.position() < bytes) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("Truncated snapshot.");
+				}
+			}
+			buffer.flip();
+			checked = 0;
+		}
+
+		/**
+		 * Adds the bytes read since the last update to the checksum.
+		 */
+		private void updateCrc() {
+			ByteBuffer read = buffer.duplicate();
+			read.limit(buffer.position()).position(checked);
+			crc.update(read);
+			checked = buffer.position();
+		}
+	}
+}
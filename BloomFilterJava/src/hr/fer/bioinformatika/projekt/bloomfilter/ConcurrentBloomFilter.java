@@ -0,0 +1,88 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+/**
+ * Thread-safe variant of the basic Bloom Filter.
+ * <p>
+ * The <em>m</em>-bit array is an {@link AtomicBitStore}, so any number of
+ * threads can call {@code add}, {@code addAll} and {@code query} at the same
+ * time without locking. Bits are set with compare-and-set and are never
+ * lost, queries are plain volatile reads. An item is guaranteed to be in the
+ * filter once its {@code add} call has returned.
+ * </p>
+ * 
+ * @see BloomFilter
+ * @see AtomicBitStore
+ * 
+ */
+public class ConcurrentBloomFilter<T> extends BloomFilter<T> {
+
+	/**
+	 * Returns a {@code ConcurrentBloomFilter} object with the specified array
+	 * size and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public ConcurrentBloomFilter(int m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Returns a {@code ConcurrentBloomFilter} object with the specified array
+	 * size and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public ConcurrentBloomFilter(long m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code ConcurrentBloomFilter} where the array size and
+	 * number of hash functions are determined by the estimated number of items
+	 * that will be added to the filter and the acceptable false positive
+	 * probability.
+	 * 
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be added to the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public ConcurrentBloomFilter(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		super(estimatedNumOfItems, falsePositiveProbability);
+	}
+
+	/**
+	 * Constructs a {@code ConcurrentBloomFilter} with the specified array size
+	 * and where the number of hash functions is determined by the acceptable
+	 * false positive probability.
+	 * 
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param m
+	 *            array size.
+	 */
+	public ConcurrentBloomFilter(double falsePositiveProbability, long m) {
+		super(falsePositiveProbability, m);
+	}
+
+	/**
+	 * The bits are chosen like in the {@link BloomFilter}, only the array is
+	 * stored differently.
+	 */
+	@Override
+	protected Class<?> getLayoutClass() {
+		return BloomFilter.class;
+	}
+
+	@Override
+	protected BitStore createArray(long m) {
+		return new AtomicBitStore(m);
+	}
+}
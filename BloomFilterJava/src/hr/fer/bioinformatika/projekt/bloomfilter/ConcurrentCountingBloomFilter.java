@@ -0,0 +1,83 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+/**
+ * Thread-safe variant of the Counting Bloom Filter.
+ * <p>
+ * The counters are kept in an {@link AtomicBitStore} and every counter is
+ * updated with a compare-and-set on the word that holds it, so any number of
+ * threads can call {@code add}, {@code remove}, {@code query} and
+ * {@code count} at the same time without locking and no update is lost.
+ * </p>
+ * <p>
+ * An item is removed only if all of its counters are greater than zero when
+ * the removal starts, and a counter is never decremented below zero.
+ * </p>
+ * 
+ * @see CountingBloomFilter
+ * @see AtomicBitStore
+ * 
+ */
+public class ConcurrentCountingBloomFilter<T> extends CountingBloomFilter<T> {
+
+	/**
+	 * Constructs a {@code ConcurrentCountingBloomFilter} object with the
+	 * specified number of counters and number of hash functions used.
+	 * 
+	 * @param m
+	 *            number of counters.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public ConcurrentCountingBloomFilter(int m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code ConcurrentCountingBloomFilter} object with the
+	 * specified number of counters and number of hash functions used.
+	 * 
+	 * @param m
+	 *            number of counters.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public ConcurrentCountingBloomFilter(long m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code ConcurrentCountingBloomFilter} where the number of
+	 * counters and hash functions are determined by the estimated number of
+	 * items that will be in the filter and the acceptable false positive
+	 * probability.
+	 * 
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be in the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public ConcurrentCountingBloomFilter(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		super(estimatedNumOfItems, falsePositiveProbability);
+	}
+
+	/**
+	 * Constructs a {@code ConcurrentCountingBloomFilter} with the specified
+	 * number of counters and where the number of hash functions is determined
+	 * by the acceptable false positive probability.
+	 * 
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param m
+	 *            number of counters.
+	 */
+	public ConcurrentCountingBloomFilter(double falsePositiveProbability,
+			long m) {
+		super(falsePositiveProbability, m);
+	}
+
+	@Override
+	protected BitStore createArray(long m) {
+		return new AtomicBitStore(counterBits(m));
+	}
+}
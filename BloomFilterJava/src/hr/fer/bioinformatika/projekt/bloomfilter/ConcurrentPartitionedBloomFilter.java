@@ -0,0 +1,78 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+/**
+ * Thread-safe variant of the Partitioned Bloom Filter.
+ * <p>
+ * The <em>m</em>-bit array is an {@link AtomicBitStore}, so any number of
+ * threads can add and query items at the same time without locking.
+ * </p>
+ * 
+ * @see PartitionedBloomFilter
+ * @see ConcurrentBloomFilter
+ * 
+ */
+public class ConcurrentPartitionedBloomFilter<T> extends
+		PartitionedBloomFilter<T> {
+
+	/**
+	 * Constructs a {@code ConcurrentPartitionedBloomFilter} object with the
+	 * specified array size and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public ConcurrentPartitionedBloomFilter(int m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code ConcurrentPartitionedBloomFilter} object with the
+	 * specified array size and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public ConcurrentPartitionedBloomFilter(long m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code ConcurrentPartitionedBloomFilter} where the array
+	 * size and number of hash functions are determined by the estimated
+	 * number of items that will be added to the filter and the acceptable
+	 * false positive probability.
+	 * 
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be added to the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public ConcurrentPartitionedBloomFilter(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		super(estimatedNumOfItems, falsePositiveProbability);
+	}
+
+	/**
+	 * Constructs a {@code ConcurrentPartitionedBloomFilter} with the specified
+	 * array size and where the number of hash functions is determined by the
+	 * acceptable false positive probability.
+	 * 
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param m
+	 *            array size.
+	 */
+	public ConcurrentPartitionedBloomFilter(double falsePositiveProbability,
+			long m) {
+		super(falsePositiveProbability, m);
+	}
+
+	@Override
+	protected BitStore createArray(long m) {
+		return new AtomicBitStore(m);
+	}
+}
@@ -0,0 +1,366 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe variant of the Scalable Bloom Filter.
+ * <p>
+ * The slices are {@link ConcurrentPartitionedBloomFilter}s kept in an array
+ * which is never modified, a new slice is published by replacing the whole
+ * array (copy-on-write) with a compare-and-set. Readers always see a
+ * consistent list of slices and never take a lock.
+ * </p>
+ * <p>
+ * The items of a slice are counted with a {@code LongAdder}, so writers
+ * don't contend on a single counter. A writer doesn't read the sum of the
+ * counter on every add: it checks the fill of the slice again after at most
+ * {@value #CHECK_INTERVAL} of its own adds, and more often as the slice gets
+ * close to its capacity. The first writer that finds the last slice full
+ * claims the slice and is the only one that builds the next slice and
+ * publishes the grown array. No writer ever waits: the other writers keep
+ * adding to the full slice until the new one is visible. A slice can
+ * therefore take more items than its capacity: up to
+ * {@value #CHECK_INTERVAL} per concurrent writer, plus the items added while
+ * the next slice is being built. The slices are sized for the capacity, so
+ * these extra items raise the false positive probability of a slice
+ * slightly.
+ * </p>
+ * <p>
+ * The capacity of every slice is <em>s</em> times the capacity of the
+ * previous one, so with a growth factor <em>s</em> &gt; 1 the number of
+ * slices grows logarithmically with the number of items. The default growth
+ * factor is 1.
+ * </p>
+ * 
+ * @see ScalableBloomFilter
+ * @see ConcurrentPartitionedBloomFilter
+ * 
+ */
+public class ConcurrentScalableBloomFilter<T> extends BloomFilter<T> {
+
+	/** false positive probability of the first slice */
+	protected double falsePositiveProbability;
+
+	/** maximum number of items that can be added to the first slice */
+	protected int fillRatioLimit;
+
+	/** tightening ratio */
+	protected double r;
+
+	/** growth factor */
+	protected double s;
+
+	/** maximum number of adds of a writer between two checks of the fill */
+	protected static final int CHECK_INTERVAL = 64;
+
+	/** number of writers that are expected to add at the same time */
+	private static final int PARALLELISM = Runtime.getRuntime()
+			.availableProcessors();
+
+	/** published slices, the last one is the current slice */
+	protected final AtomicReference<Slice<T>[]> slices;
+
+	/** adds each writer can make before it checks the fill again */
+	private final ThreadLocal<Countdown> countdowns = new ThreadLocal<Countdown>() {
+		@Override
+		protected Countdown initialValue() {
+			return new Countdown();
+		}
+	};
+
+	/**
+	 * 
+	 * @param fillRatioLimit
+	 *            maximum number of items that can be added to a slice.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param r
+	 *            tightening ratio
+	 */
+	public ConcurrentScalableBloomFilter(int fillRatioLimit,
+			double falsePositiveProbability, double r) {
+		this(fillRatioLimit, falsePositiveProbability, r, 1);
+	}
+
+	/**
+	 * 
+	 * @param fillRatioLimit
+	 *            maximum number of items that can be added to the first
+	 *            slice.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param r
+	 *            tightening ratio
+	 * @param s
+	 *            growth factor, the capacity of a new slice is {@code s}
+	 *            times the capacity of the previous one.
+	 */
+	public ConcurrentScalableBloomFilter(int fillRatioLimit,
+			double falsePositiveProbability, double r, double s) {
+		if (fillRatioLimit <= 0) {
+			throw new IllegalArgumentException(
+					"Fill ratio limit must be greater than 0.");
+		}
+		if (falsePositiveProbability < 0 || falsePositiveProbability > 1) {
+			throw new IllegalArgumentException(
+					"False-positive probability must be between 0 and 1.");
+		}
+		if (r < 0 || r > 1) {
+			throw new IllegalArgumentException(
+					"The tightening ratio must be between 0 and 1");
+		}
+		if (!(s >= 1)) {
+			throw new IllegalArgumentException(
+					"The growth factor must be at least 1");
+		}
+		this.fillRatioLimit = fillRatioLimit;
+		this.s = s;
+		this.falsePositiveProbability = falsePositiveProbability;
+		this.r = r;
+		// the slices use the same hash functions, so an item is hashed once
+		// by the batch methods and the hashes are passed to the slices
+		setHashFunctions(HashFunctionFactory.getBloomFilterHashes());
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Slice<T>[] first = new Slice[] { new Slice<T>(fillRatioLimit,
+				falsePositiveProbability) };
+		this.slices = new AtomicReference<Slice<T>[]>(first);
+	}
+
+	/**
+	 * 
+	 * @param fillRatioLimit
+	 *            maximum number of items that can be added to a slice.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public ConcurrentScalableBloomFilter(int fillRatioLimit,
+			double falsePositiveProbability) {
+		this(fillRatioLimit, falsePositiveProbability, 0.9);
+	}
+
+	/**
+	 * Adds the item whose hashes are {@code h1} and {@code h2} to the current
+	 * slice. The items are hashed once by the inherited {@code add} methods,
+	 * the slices use the same hash functions.
+	 */
+	@Override
+	protected void addHashes(long h1, long h2) {
+		Slice<T>[] current = slices.get();
+		Slice<T> slice = current[current.length - 1];
+		slice.filter.addHashes(h1, h2);
+		itemAdded(current, slice);
+	}
+
+	/**
+	 * Probes the slices with the hashes of an item, the newest slice first.
+	 * The item is hashed once by the inherited {@code query} methods.
+	 */
+	@Override
+	protected boolean queryHashes(long h1, long h2) {
+		Slice<T>[] current = slices.get();
+		for (int i = current.length - 1; i >= 0; i--) {
+			if (current[i].filter.queryHashes(h1, h2)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the items one by one, so every item is counted and a new slice is
+	 * installed as soon as the current one is full.
+	 */
+	@Override
+	protected void addHashes(long[] hashes, int offset, int count) {
+		addHashesEach(hashes, offset, count);
+	}
+
+	/**
+	 * Queries the whole batch in every slice, the newest slice first, and
+	 * stops when every item of the batch has been found.
+	 */
+	@Override
+	protected void queryHashes(long[] hashes, int offset, int count,
+			boolean[] out, int outOffset) {
+		Slice<T>[] current = slices.get();
+		boolean[] found = new boolean[count];
+		for (int j = 0; j < count; j++) {
+			out[outOffset + j] = false;
+		}
+		int missing = count;
+		for (int i = current.length - 1; i >= 0 && missing > 0; i--) {
+			current[i].filter.queryHashes(hashes, offset, count, found, 0);
+			for (int j = 0; j < count; j++) {
+				if (found[j] && !out[outOffset + j]) {
+					out[outOffset + j] = true;
+					missing--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts an item added to the specified slice. From time to time the
+	 * writer checks if the slice is full and, if it is, tries to install the
+	 * next slice.
+	 * <p>
+	 * The writer skips the check for a number of adds which is at most
+	 * {@value #CHECK_INTERVAL} and at most half of the free capacity of the
+	 * slice divided among the expected writers, so a single writer fills a
+	 * slice exactly to its capacity.
+	 * </p>
+	 * 
+	 * @param current
+	 *            slices the item was added to.
+	 * @param slice
+	 *            the last of the slices.
+	 */
+	protected void itemAdded(Slice<T>[] current, Slice<T> slice) {
+		slice.items.increment();
+		Countdown countdown = countdowns.get();
+		if (countdown.slice == slice && --countdown.remaining > 0) {
+			return;
+		}
+		long free = slice.capacity - slice.items.sum();
+		if (free <= 0) {
+			addNewSlice(current);
+			// writers that didn't build the next slice keep adding to this one
+			// and check it again later, the next slice is used as soon as it
+			// is published
+			countdown.slice = slice;
+			countdown.remaining = CHECK_INTERVAL;
+			return;
+		}
+		countdown.slice = slice;
+		countdown.remaining = Math.min(CHECK_INTERVAL, free
+				/ (2 * PARALLELISM));
+	}
+
+	/**
+	 * Publishes a copy of the specified slices with a new slice appended.
+	 * <p>
+	 * Any writer that finds the last slice full can call this method, but
+	 * only the writer that claims the full slice builds the next one, so a
+	 * single new slice is allocated. The other writers return at once and
+	 * keep adding to the full slice. If building the new slice fails, the
+	 * claim is released and the next writer that checks the full slice tries
+	 * again. The false positive probability of the new slice is
+	 * <code>p(i)=p(i-1)*r</code> and its capacity is
+	 * <code>c(i)=&lceil;c(i-1)*s&rceil;</code>.
+	 * </p>
+	 * 
+	 * @param current
+	 *            slices whose last slice is full.
+	 */
+	protected void addNewSlice(Slice<T>[] current) {
+		Slice<T> last = current[current.length - 1];
+		if (slices.get() != current || !last.growing.compareAndSet(false, true)) {
+			// another writer installs or has installed the next slice
+			return;
+		}
+		boolean installed = false;
+		try {
+			Slice<T>[] grown = Arrays.copyOf(current, current.length + 1);
+			grown[current.length] = createSlice(
+					(long) Math.ceil(last.capacity * s),
+					last.falsePositiveProbability * r);
+			slices.set(grown);
+			installed = true;
+		} finally {
+			if (!installed) {
+				last.growing.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new slice, called only by the writer that installs it.
+	 * 
+	 * @param capacity
+	 *            maximum number of items that can be added to the slice.
+	 * @param falsePositiveProbability
+	 *            false positive probability of the slice.
+	 * @return new slice.
+	 */
+	protected Slice<T> createSlice(long capacity,
+			double falsePositiveProbability) {
+		return new Slice<T>(capacity, falsePositiveProbability);
+	}
+
+	/**
+	 * Returns the estimated number of distinct items in the filter, the sum of
+	 * the estimates of the published slices.
+	 * 
+	 * @return estimated number of items.
+	 */
+	@Override
+	public double estimateSize() {
+		double size = 0;
+		for (Slice<T> slice : slices.get()) {
+			size += slice.filter.estimateSize();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the currently published slices.
+	 * 
+	 * @return slices, the last one is the current slice.
+	 */
+	protected Slice<T>[] getSlices() {
+		return slices.get();
+	}
+
+	/**
+	 * A single slice of the filter.
+	 */
+	protected static class Slice<T> {
+		/** filter of the slice */
+		protected final BloomFilter<T> filter;
+
+		/** maximum number of items that can be added to the slice */
+		protected final long capacity;
+
+		/** false positive probability of the slice */
+		protected final double falsePositiveProbability;
+
+		/** number of items added to the slice */
+		protected final LongAdder items = new LongAdder();
+
+		/** set by the writer that builds the next slice */
+		protected final AtomicBoolean growing = new AtomicBoolean();
+
+		/**
+		 * Constructs a slice with the specified capacity and false positive
+		 * probability.
+		 * 
+		 * @param capacity
+		 *            maximum number of items that can be added to the slice.
+		 * @param falsePositiveProbability
+		 *            false positive probability of the slice.
+		 */
+		protected Slice(long capacity, double falsePositiveProbability) {
+			this.filter = new ConcurrentPartitionedBloomFilter<T>(capacity,
+					falsePositiveProbability);
+			this.capacity = capacity;
+			this.falsePositiveProbability = falsePositiveProbability;
+		}
+	}
+
+	/**
+	 * Number of adds a writer can make to a slice before it checks the fill of
+	 * the slice again.
+	 */
+	private static class Countdown {
+		/** slice the countdown belongs to */
+		Object slice;
+
+		/** remaining adds until the next check */
+		long remaining;
+	}
+}
@@ -0,0 +1,537 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.HashFunction;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash128;
+
+/**
+ * Counting Bloom Filter, a variant of the basic Bloom Filter which supports
+ * removal of items.
+ * <p>
+ * Every one of the <em>m</em> cells is a 4-bit counter instead of a bit.
+ * Adding an item increments its <em>k</em> counters, removing it decrements
+ * them, and an item is in the filter if all of its counters are greater than
+ * zero. The indexes are calculated from the two hashes like in the basic
+ * filter.
+ * </p>
+ * <p>
+ * Sixteen counters are packed into every 64-bit word of the
+ * {@link BitStore}, so the filter takes 4 bits per cell. Counters saturate at
+ * {@value #MAX_COUNT}: a saturated counter is never decremented again, which
+ * keeps the filter free of false negatives at the cost of a few cells that
+ * stay set. A counter is updated with
+ * {@link BitStore#compareAndSetWord(long, long, long)}, so the
+ * {@link ConcurrentCountingBloomFilter} shares the implementation.
+ * </p>
+ * <p>
+ * Only items that were added should be removed. Removing an item that
+ * wasn't added can remove other items; an item whose counters aren't all
+ * greater than zero is not removed.
+ * </p>
+ * 
+ * @see BloomFilter
+ * @see <a href="http://en.wikipedia.org/wiki/Bloom_filter#Counting_filters">
+ *      Counting filters on Wikipedia</a>
+ * 
+ */
+public class CountingBloomFilter<T> extends BloomFilter<T> {
+	/** number of bits of a counter */
+	public static final int COUNTER_BITS = 4;
+
+	/** maximum value of a counter */
+	public static final int MAX_COUNT = (1 << COUNTER_BITS) - 1;
+
+	/** log2 of the number of counters in a word */
+	protected static final int COUNTER_ADDRESS_BITS = BitStore.ADDRESS_BITS - 2;
+
+	/** mask of the lowest bit of every counter in a word */
+	protected static final long LOW_BITS = 0x1111111111111111L;
+
+	/**
+	 * Constructs a {@code CountingBloomFilter} object with the specified
+	 * number of counters and number of hash functions used.
+	 * 
+	 * @param m
+	 *            number of counters.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public CountingBloomFilter(int m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code CountingBloomFilter} object with the specified
+	 * number of counters and number of hash functions used.
+	 * 
+	 * @param m
+	 *            number of counters.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public CountingBloomFilter(long m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code CountingBloomFilter} object with the specified
+	 * number of counters, number of hash functions used and the hash
+	 * functions that produce the two hashes of an item.
+	 * 
+	 * @see BloomFilter#BloomFilter(long, int, HashFunction[])
+	 * @param m
+	 *            number of counters.
+	 * @param k
+	 *            number of hash functions.
+	 * @param hashFunctions
+	 *            hash functions.
+	 */
+	public CountingBloomFilter(long m, int k, HashFunction[] hashFunctions) {
+		super(m, k, hashFunctions);
+	}
+
+	/**
+	 * Constructs a {@code CountingBloomFilter} object with the specified
+	 * number of counters, number of hash functions used and the strategy
+	 * which maps the hashes to the counters.
+	 * 
+	 * @param m
+	 *            number of counters.
+	 * @param k
+	 *            number of hash functions.
+	 * @param indexStrategy
+	 *            index strategy.
+	 */
+	public CountingBloomFilter(long m, int k, IndexStrategy indexStrategy) {
+		super(m, k, HashFunctionFactory.getBloomFilterHashes(), indexStrategy);
+	}
+
+	/**
+	 * Constructs a {@code CountingBloomFilter} where the number of counters
+	 * and hash functions are determined by the estimated number of items that
+	 * will be in the filter and the acceptable false positive probability.
+	 * 
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be in the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public CountingBloomFilter(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		super(estimatedNumOfItems, falsePositiveProbability);
+	}
+
+	/**
+	 * Constructs a {@code CountingBloomFilter} with the specified number of
+	 * counters and where the number of hash functions is determined by the
+	 * acceptable false positive probability.
+	 * 
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param m
+	 *            number of counters.
+	 */
+	public CountingBloomFilter(double falsePositiveProbability, long m) {
+		super(falsePositiveProbability, m);
+	}
+
+	/**
+	 * Removes an item from the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the item is {@code null}.
+	 * @param item
+	 *            item to remove.
+	 * @return {@code true} if the item was removed, {@code false} if it
+	 *         wasn't in the filter.
+	 */
+	public boolean remove(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		byte[] itemBytes = getBytes(item);
+		return remove(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Removes the item stored in {@code len} bytes of the input array
+	 * starting at {@code offset} from the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return {@code true} if the item was removed, {@code false} if it
+	 *         wasn't in the filter.
+	 */
+	public boolean remove(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			return removeHashes(hashes[0], hashes[1]);
+		}
+		return removeHashes(hashFunctions[0].getHash(data, offset, len),
+				hashFunctions[1].getHash(data, offset, len));
+	}
+
+	/**
+	 * Returns the estimated number of times the item was added: the smallest
+	 * of its counters. The estimate is never less than the real count unless
+	 * a counter saturated at {@value #MAX_COUNT}.
+	 * 
+	 * @throws NullPointerException
+	 *             if the item is {@code null}.
+	 * @param item
+	 *            input item.
+	 * @return estimated count, 0 if the item is not in the filter.
+	 */
+	public int count(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		byte[] itemBytes = getBytes(item);
+		return count(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Returns the estimated number of times the item stored in {@code len}
+	 * bytes of the input array starting at {@code offset} was added.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return estimated count, 0 if the item is not in the filter.
+	 */
+	public int count(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			return countHashes(hashes[0], hashes[1]);
+		}
+		return countHashes(hashFunctions[0].getHash(data, offset, len),
+				hashFunctions[1].getHash(data, offset, len));
+	}
+
+	/**
+	 * Returns a new filter whose counters are the sums of the counters of
+	 * both filters, so the items of both filters can be removed from it.
+	 */
+	@Override
+	public BloomFilter<T> union(BloomFilter<T> other) {
+		checkCompatible(other);
+		BloomFilter<T> result = copy();
+		other.orInto(result);
+		return result;
+	}
+
+	/**
+	 * Returns a new filter whose counters are the smaller counters of the
+	 * two filters.
+	 */
+	@Override
+	public BloomFilter<T> intersect(BloomFilter<T> other) {
+		checkCompatible(other);
+		BloomFilter<T> result = copy();
+		other.andInto(result);
+		return result;
+	}
+
+	/**
+	 * Adds the counters of this filter to the counters of the target filter.
+	 * The sums saturate at {@value #MAX_COUNT}.
+	 */
+	@Override
+	public void orInto(BloomFilter<T> target) {
+		checkCompatible(target);
+		((CountingBloomFilter<T>) target).combine(array, true);
+	}
+
+	/**
+	 * Replaces every counter of the target filter with the smaller of the two
+	 * counters.
+	 */
+	@Override
+	public void andInto(BloomFilter<T> target) {
+		checkCompatible(target);
+		((CountingBloomFilter<T>) target).combine(array, false);
+	}
+
+	/**
+	 * Returns the number of counters.
+	 * 
+	 * @return number of counters (<em>m</em>).
+	 */
+	public long getM() {
+		return array.size() / COUNTER_BITS;
+	}
+
+	@Override
+	protected void addHashes(long h1, long h2) {
+		if (requiresWideHashes()) {
+			long wide = (h1 << 32) | h2;
+			h2 = (h2 << 32) | h1;
+			h1 = wide;
+		}
+		for (int i = 0; i < k; i++) {
+			increment(index(h1, h2, i));
+		}
+	}
+
+	@Override
+	protected boolean queryHashes(long h1, long h2) {
+		return countHashes(h1, h2) > 0;
+	}
+
+	/**
+	 * Decrements the counters of an item whose hashes are {@code h1} and
+	 * {@code h2} if all of them are greater than zero.
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 * @return {@code true} if the item was removed.
+	 */
+	protected boolean removeHashes(long h1, long h2) {
+		if (countHashes(h1, h2) == 0) {
+			return false;
+		}
+		if (requiresWideHashes()) {
+			long wide = (h1 << 32) | h2;
+			h2 = (h2 << 32) | h1;
+			h1 = wide;
+		}
+		for (int i = 0; i < k; i++) {
+			decrement(index(h1, h2, i));
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the smallest counter of an item whose hashes are {@code h1} and
+	 * {@code h2}.
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 * @return smallest counter, 0 if the item is not in the filter.
+	 */
+	protected int countHashes(long h1, long h2) {
+		if (requiresWideHashes()) {
+			long wide = (h1 << 32) | h2;
+			h2 = (h2 << 32) | h1;
+			h1 = wide;
+		}
+		int min = MAX_COUNT;
+		for (int i = 0; i < k && min > 0; i++) {
+			min = Math.min(min, getCounter(index(h1, h2, i)));
+		}
+		return min;
+	}
+
+	@Override
+	protected void addHashes(long[] hashes, int offset, int count) {
+		addHashesEach(hashes, offset, count);
+	}
+
+	@Override
+	protected void queryHashes(long[] hashes, int offset, int count,
+			boolean[] out, int outOffset) {
+		queryHashesEach(hashes, offset, count, out, outOffset);
+	}
+
+	/**
+	 * Returns the value of a counter.
+	 * 
+	 * @param counter
+	 *            index of the counter.
+	 * @return value of the counter.
+	 */
+	protected int getCounter(long counter) {
+		long word = array.getWord(counter >>> COUNTER_ADDRESS_BITS);
+		return (int) (word >>> shift(counter)) & MAX_COUNT;
+	}
+
+	/**
+	 * Increments a counter unless it is saturated.
+	 * 
+	 * @param counter
+	 *            index of the counter.
+	 */
+	protected void increment(long counter) {
+		long wordIndex = counter >>> COUNTER_ADDRESS_BITS;
+		int shift = shift(counter);
+		long word;
+		do {
+			word = array.getWord(wordIndex);
+			if (((word >>> shift) & MAX_COUNT) == MAX_COUNT) {
+				return;
+			}
+		} while (!array.compareAndSetWord(wordIndex, word, word + (1L << shift)));
+	}
+
+	/**
+	 * Decrements a counter unless it is zero or saturated.
+	 * 
+	 * @param counter
+	 *            index of the counter.
+	 */
+	protected void decrement(long counter) {
+		long wordIndex = counter >>> COUNTER_ADDRESS_BITS;
+		int shift = shift(counter);
+		long word;
+		do {
+			word = array.getWord(wordIndex);
+			long value = (word >>> shift) & MAX_COUNT;
+			if (value == 0 || value == MAX_COUNT) {
+				return;
+			}
+		} while (!array.compareAndSetWord(wordIndex, word, word - (1L << shift)));
+	}
+
+	/**
+	 * Returns the number of counters that are greater than zero, used by the
+	 * size estimates.
+	 */
+	@Override
+	protected long setBits() {
+		long count = 0;
+		for (long i = 0; i < array.wordCount(); i++) {
+			count += Long.bitCount(nonZeroCounters(array.getWord(i)));
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of counters that are greater than zero in this or in
+	 * the other filter.
+	 */
+	@Override
+	protected long unionSetBits(BloomFilter<T> other) {
+		long count = 0;
+		for (long i = 0; i < array.wordCount(); i++) {
+			count += Long.bitCount(nonZeroCounters(array.getWord(i)
+					| other.array.getWord(i)));
+		}
+		return count;
+	}
+
+	@Override
+	protected double estimateSize(long setBits) {
+		long m = getM();
+		if (setBits >= m) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.log1p(-(double) setBits / m) / (k * Math.log1p(-1. / m));
+	}
+
+	@Override
+	protected boolean requiresWideHashes() {
+		return hash128 == null && indexStrategy.requiresWideHashes(getM());
+	}
+
+	@Override
+	protected long index(long h1, long h2, int i) {
+		return indexStrategy.index(h1, h2, i, getM());
+	}
+
+	/**
+	 * Creates a store with {@value #COUNTER_BITS} bits per counter.
+	 */
+	@Override
+	protected BitStore createArray(long m) {
+		return super.createArray(counterBits(m));
+	}
+
+	/**
+	 * Returns the number of bits that hold {@code m} counters.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the counters don't fit in a store.
+	 * @param m
+	 *            number of counters.
+	 * @return number of bits.
+	 */
+	protected static long counterBits(long m) {
+		if (m > Long.MAX_VALUE / COUNTER_BITS) {
+			throw new IllegalArgumentException("Invalid number of counters: "
+					+ m);
+		}
+		return m * COUNTER_BITS;
+	}
+
+	/**
+	 * Combines the counters of the source store with the counters of this
+	 * filter, word by word with a compare-and-set.
+	 */
+	private void combine(BitStore source, boolean sum) {
+		for (long i = 0; i < array.wordCount(); i++) {
+			long counters = source.getWord(i);
+			if (sum && counters == 0) {
+				continue;
+			}
+			long word;
+			long combined;
+			do {
+				word = array.getWord(i);
+				combined = sum ? saturatedSum(word, counters) : minimum(word,
+						counters);
+			} while (combined != word
+					&& !array.compareAndSetWord(i, word, combined));
+		}
+	}
+
+	/**
+	 * Returns the position of a counter in its word.
+	 */
+	private static int shift(long counter) {
+		return (int) (counter & ((1 << COUNTER_ADDRESS_BITS) - 1)) * COUNTER_BITS;
+	}
+
+	/**
+	 * Returns a word with the lowest bit of every non-zero counter set.
+	 */
+	private static long nonZeroCounters(long word) {
+		word |= word >>> 1;
+		word |= word >>> 2;
+		return word & LOW_BITS;
+	}
+
+	/**
+	 * Adds the counters of two words, the sums saturate.
+	 */
+	private static long saturatedSum(long a, long b) {
+		long result = 0;
+		for (int shift = 0; shift < BitStore.WORD_SIZE; shift += COUNTER_BITS) {
+			long sum = ((a >>> shift) & MAX_COUNT) + ((b >>> shift) & MAX_COUNT);
+			result |= Math.min(sum, MAX_COUNT) << shift;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the smaller of every pair of counters of two words.
+	 */
+	private static long minimum(long a, long b) {
+		long result = 0;
+		for (int shift = 0; shift < BitStore.WORD_SIZE; shift += COUNTER_BITS) {
+			result |= Math.min((a >>> shift) & MAX_COUNT, (b >>> shift)
+					& MAX_COUNT) << shift;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,787 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.HashFunction;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash128;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Implementation of a Cuckoo Filter.
+ * <p>
+ * The filter is a table of buckets with {@value #SLOTS} slots, and every
+ * slot holds a short fingerprint of an item (8, 12 or 16 bits). An item can
+ * be stored in two buckets: the first one is chosen by the hash of the item
+ * and the second one is the first bucket XOR-ed with the hash of the
+ * fingerprint, so either bucket can be found from the other one and the
+ * fingerprint. A query reads at most two buckets.
+ * </p>
+ * <p>
+ * The buckets are packed one after another into an array of {@code long}s,
+ * bucket <em>b</em> starts at the bit <code>b * {@value #SLOTS} * f</code>,
+ * so a fingerprint takes exactly <em>f</em> bits. With 16-bit fingerprints a
+ * bucket is one word, with 8 and 12 bits a bucket can cross the boundary of
+ * two words.
+ * </p>
+ * <p>
+ * If both buckets are full, a random fingerprint of one of them is moved to
+ * its other bucket, which can move another fingerprint and so on, at most
+ * {@value #MAX_KICKS} times. If that fails, the last moved fingerprint is
+ * kept aside and the filter accepts no more items until one is removed.
+ * The table can be filled to about 95%.
+ * </p>
+ * <p>
+ * Unlike the Bloom Filter, items can be removed. The false positive
+ * probability is about <code>2 * 4 / 2<sup>f</sup></code> for
+ * <em>f</em>-bit fingerprints, so at low rates a cuckoo filter takes fewer
+ * bits per item than a Bloom Filter.
+ * </p>
+ * <p>
+ * The items are hashed like in the {@link BloomFilter}, the two hashes are
+ * mixed into the bucket index and the fingerprint.
+ * </p>
+ * 
+ * @see <a href="https://www.cs.cmu.edu/~dga/papers/cuckoo-conext2014.pdf">
+ *      Cuckoo Filter: Practically Better Than Bloom</a>
+ * 
+ */
+public class CuckooFilter<T> {
+	/** number of slots in a bucket */
+	public static final int SLOTS = 4;
+
+	/** maximum number of moved fingerprints when an item is added */
+	public static final int MAX_KICKS = 500;
+
+	/** expected load of the table when it is full */
+	protected static final double MAX_LOAD = 0.95;
+
+	/** maximum number of buckets */
+	protected static final int MAX_BUCKETS = 1 << 30;
+
+	/** packed buckets, every bucket holds {@value #SLOTS} fingerprints */
+	protected long[] buckets;
+
+	/** mask of a bucket index, the number of buckets is a power of two */
+	protected int bucketMask;
+
+	/** number of bits of a fingerprint */
+	protected int fingerprintBits;
+
+	/** mask of a fingerprint */
+	protected int fingerprintMask;
+
+	/** number of items in the filter */
+	protected long size;
+
+	/** fingerprint which didn't fit in the table, 0 if there is none */
+	protected int victimFingerprint;
+
+	/** bucket of the fingerprint which didn't fit in the table */
+	protected int victimBucket;
+
+	/** state of the generator which chooses the moved fingerprints */
+	protected int random = 0x2545f491;
+
+	/** functions that produce the two hashes of an item */
+	protected HashFunction[] hashFunctions;
+
+	/** single-pass 128-bit hash function, {@code null} if not used */
+	protected MurmurHash128 hash128;
+
+	/**
+	 * Constructs a {@code CuckooFilter} for the specified number of items
+	 * with fingerprints of the specified size.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the capacity is less or equal zero or too large, or if
+	 *             the fingerprint size is not 8, 12 or 16.
+	 * @param capacity
+	 *            number of items the filter must hold.
+	 * @param fingerprintBits
+	 *            size of a fingerprint in bits (8, 12 or 16).
+	 */
+	public CuckooFilter(long capacity, int fingerprintBits) {
+		this(capacity, fingerprintBits, HashFunctionFactory
+				.getBloomFilterHashes());
+	}
+
+	/**
+	 * Constructs a {@code CuckooFilter} for the specified number of items
+	 * where the size of a fingerprint is determined by the acceptable false
+	 * positive probability.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the capacity is invalid or if the probability needs
+	 *             fingerprints longer than 16 bits.
+	 * @param capacity
+	 *            number of items the filter must hold.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public CuckooFilter(long capacity, double falsePositiveProbability) {
+		this(capacity, fingerprintBits(falsePositiveProbability));
+	}
+
+	/**
+	 * Constructs a {@code CuckooFilter} for the specified number of items
+	 * with fingerprints of the specified size and the hash functions that
+	 * produce the two hashes of an item.
+	 * 
+	 * @see BloomFilter#BloomFilter(long, int, HashFunction[])
+	 * @throws NullPointerException
+	 *             if the hash functions are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the capacity is less or equal zero or too large, if the
+	 *             fingerprint size is not 8, 12 or 16 or if there are not
+	 *             enough hash functions.
+	 * @param capacity
+	 *            number of items the filter must hold.
+	 * @param fingerprintBits
+	 *            size of a fingerprint in bits (8, 12 or 16).
+	 * @param hashFunctions
+	 *            hash functions.
+	 */
+	public CuckooFilter(long capacity, int fingerprintBits,
+			HashFunction[] hashFunctions) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		if (fingerprintBits != 8 && fingerprintBits != 12
+				&& fingerprintBits != 16) {
+			throw new IllegalArgumentException("Invalid fingerprint size: "
+					+ fingerprintBits);
+		}
+		long minBuckets = (long) Math.ceil(capacity / (SLOTS * MAX_LOAD));
+		if (minBuckets > MAX_BUCKETS) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		// the alternate bucket is found with a XOR, so the number of buckets
+		// must be a power of two
+		int bucketCount = minBuckets <= 1 ? 1 : Integer
+				.highestOneBit((int) (minBuckets - 1)) << 1;
+		setHashFunctions(hashFunctions);
+		long bits = (long) bucketCount * SLOTS * fingerprintBits;
+		this.buckets = new long[(int) ((bits + Long.SIZE - 1) / Long.SIZE)];
+		this.bucketMask = bucketCount - 1;
+		this.fingerprintBits = fingerprintBits;
+		this.fingerprintMask = (1 << fingerprintBits) - 1;
+	}
+
+	/**
+	 * Adds an item to the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the item is {@code null}.
+	 * @param item
+	 *            item to add.
+	 * @return {@code true} if the item was added, {@code false} if the filter
+	 *         is full.
+	 */
+	public boolean add(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		byte[] itemBytes = getBytes(item);
+		return add(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Adds the item stored in {@code len} bytes of the input array starting
+	 * at {@code offset} to the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return {@code true} if the item was added, {@code false} if the filter
+	 *         is full.
+	 */
+	public boolean add(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			return addHashes(hashes[0], hashes[1]);
+		}
+		return addHashes(hashFunctions[0].getHash(data, offset, len),
+				hashFunctions[1].getHash(data, offset, len));
+	}
+
+	/**
+	 * Adds the item stored in the remaining bytes of the input buffer to the
+	 * filter. The position of the buffer is not changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input buffer is {@code null}.
+	 * @param data
+	 *            input buffer (heap or direct).
+	 * @return {@code true} if the item was added, {@code false} if the filter
+	 *         is full.
+	 */
+	public boolean add(ByteBuffer data) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, hashes);
+			return addHashes(hashes[0], hashes[1]);
+		}
+		return addHashes(hashFunctions[0].getHash(data),
+				hashFunctions[1].getHash(data));
+	}
+
+	/**
+	 * Adds a collection of items to the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input collection or one of the items is {@code null}.
+	 * @param itemCollection
+	 *            items to add.
+	 * @return {@code true} if all items were added, {@code false} if the
+	 *         filter became full.
+	 */
+	public boolean addAll(Collection<? extends T> itemCollection) {
+		if (itemCollection == null) {
+			throw new NullPointerException("Invalid item collection: "
+					+ itemCollection);
+		}
+		for (T item : itemCollection) {
+			if (!add(item)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds an array of items to the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array or one of the items is {@code null}.
+	 * @param items
+	 *            items to add.
+	 * @return {@code true} if all items were added, {@code false} if the
+	 *         filter became full.
+	 */
+	public boolean addAll(T[] items) {
+		if (items == null) {
+			throw new NullPointerException("Invalid item array: " + items);
+		}
+		for (T item : items) {
+			if (!add(item)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} if the specified item is in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             it the input item is {@code null}.
+	 * @param item
+	 *            input item.
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		byte[] itemBytes = getBytes(item);
+		return query(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Returns {@code true} if the item stored in {@code len} bytes of the
+	 * input array starting at {@code offset} is in the filter, {@code false}
+	 * otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			return queryHashes(hashes[0], hashes[1]);
+		}
+		return queryHashes(hashFunctions[0].getHash(data, offset, len),
+				hashFunctions[1].getHash(data, offset, len));
+	}
+
+	/**
+	 * Returns {@code true} if the item stored in the remaining bytes of the
+	 * input buffer is in the filter, {@code false} otherwise. The position of
+	 * the buffer is not changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input buffer is {@code null}.
+	 * @param data
+	 *            input buffer (heap or direct).
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(ByteBuffer data) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, hashes);
+			return queryHashes(hashes[0], hashes[1]);
+		}
+		return queryHashes(hashFunctions[0].getHash(data),
+				hashFunctions[1].getHash(data));
+	}
+
+	/**
+	 * Queries an array of items. {@code out[i]} is set to {@code true} if the
+	 * item {@code items[i]} is probably in the filter, {@code false}
+	 * otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arrays or one of the items is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the output array is shorter than the input array.
+	 * @param items
+	 *            input items.
+	 * @param out
+	 *            output array.
+	 */
+	public void queryAll(T[] items, boolean[] out) {
+		if (items == null || out == null) {
+			throw new NullPointerException("Invalid item or output array.");
+		}
+		if (out.length < items.length) {
+			throw new IllegalArgumentException("Invalid output array length: "
+					+ out.length);
+		}
+		for (int i = 0; i < items.length; i++) {
+			out[i] = query(items[i]);
+		}
+	}
+
+	/**
+	 * Removes an item from the filter. Only items that were added should be
+	 * removed, otherwise an item with the same fingerprint in the same bucket
+	 * can be removed instead.
+	 * 
+	 * @throws NullPointerException
+	 *             if the item is {@code null}.
+	 * @param item
+	 *            item to remove.
+	 * @return {@code true} if the item was removed, {@code false} if it
+	 *         wasn't in the filter.
+	 */
+	public boolean remove(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		byte[] itemBytes = getBytes(item);
+		return remove(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Removes the item stored in {@code len} bytes of the input array
+	 * starting at {@code offset} from the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return {@code true} if the item was removed, {@code false} if it
+	 *         wasn't in the filter.
+	 */
+	public boolean remove(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			return removeHashes(hashes[0], hashes[1]);
+		}
+		return removeHashes(hashFunctions[0].getHash(data, offset, len),
+				hashFunctions[1].getHash(data, offset, len));
+	}
+
+	/**
+	 * Returns the number of items in the filter.
+	 * 
+	 * @return number of items.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of slots of the table.
+	 * 
+	 * @return number of slots.
+	 */
+	public long getCapacity() {
+		return (bucketMask + 1L) * SLOTS;
+	}
+
+	/**
+	 * Returns the used fraction of the slots.
+	 * 
+	 * @return load factor between 0 and 1.
+	 */
+	public double getLoadFactor() {
+		return (double) size / getCapacity();
+	}
+
+	/**
+	 * Returns the size of a fingerprint in bits.
+	 * 
+	 * @return size of a fingerprint.
+	 */
+	public int getFingerprintBits() {
+		return fingerprintBits;
+	}
+
+	/**
+	 * Adds an item whose hashes are {@code h1} and {@code h2}.
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 * @return {@code true} if the item was added, {@code false} if the filter
+	 *         is full.
+	 */
+	protected boolean addHashes(long h1, long h2) {
+		if (victimFingerprint != 0) {
+			return false;
+		}
+		long hash = mix(h1, h2);
+		addFingerprint((int) hash & bucketMask, fingerprint(hash));
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} if an item whose hashes are {@code h1} and
+	 * {@code h2} is in the filter.
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 * @return {@code true}if the item is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	protected boolean queryHashes(long h1, long h2) {
+		long hash = mix(h1, h2);
+		int fingerprint = fingerprint(hash);
+		int bucket = (int) hash & bucketMask;
+		int alternate = alternateBucket(bucket, fingerprint);
+		return contains(bucket, fingerprint)
+				|| contains(alternate, fingerprint)
+				|| (victimFingerprint == fingerprint && (victimBucket == bucket || victimBucket == alternate));
+	}
+
+	/**
+	 * Removes an item whose hashes are {@code h1} and {@code h2}.
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 * @return {@code true} if the item was removed.
+	 */
+	protected boolean removeHashes(long h1, long h2) {
+		long hash = mix(h1, h2);
+		int fingerprint = fingerprint(hash);
+		int bucket = (int) hash & bucketMask;
+		int alternate = alternateBucket(bucket, fingerprint);
+		if (delete(bucket, fingerprint) || delete(alternate, fingerprint)) {
+			size--;
+			if (victimFingerprint != 0) {
+				// there is a free slot now, try to put the victim back
+				int victim = victimFingerprint;
+				victimFingerprint = 0;
+				size--;
+				addFingerprint(victimBucket, victim);
+			}
+			return true;
+		}
+		if (victimFingerprint == fingerprint
+				&& (victimBucket == bucket || victimBucket == alternate)) {
+			victimFingerprint = 0;
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the size of the table in bits.
+	 * 
+	 * @return number of bits used by the buckets.
+	 */
+	public long getBitSize() {
+		return (long) buckets.length * Long.SIZE;
+	}
+
+	/**
+	 * Returns the fingerprint in a slot of a bucket.
+	 * 
+	 * @param bucket
+	 *            index of the bucket.
+	 * @param slot
+	 *            index of the slot.
+	 * @return fingerprint, 0 if the slot is empty.
+	 */
+	protected int getFingerprint(int bucket, int slot) {
+		long bit = ((long) bucket * SLOTS + slot) * fingerprintBits;
+		int word = (int) (bit >>> 6);
+		int shift = (int) bit & 63;
+		long value = buckets[word] >>> shift;
+		if (shift + fingerprintBits > Long.SIZE) {
+			value |= buckets[word + 1] << (Long.SIZE - shift);
+		}
+		return (int) value & fingerprintMask;
+	}
+
+	/**
+	 * Stores a fingerprint to a slot of a bucket.
+	 * 
+	 * @param bucket
+	 *            index of the bucket.
+	 * @param slot
+	 *            index of the slot.
+	 * @param fingerprint
+	 *            fingerprint, 0 empties the slot.
+	 */
+	protected void setFingerprint(int bucket, int slot, int fingerprint) {
+		long bit = ((long) bucket * SLOTS + slot) * fingerprintBits;
+		int word = (int) (bit >>> 6);
+		int shift = (int) bit & 63;
+		buckets[word] = (buckets[word] & ~((long) fingerprintMask << shift))
+				| ((long) fingerprint << shift);
+		if (shift + fingerprintBits > Long.SIZE) {
+			// the rest of the fingerprint is in the low bits of the next word
+			int rest = Long.SIZE - shift;
+			buckets[word + 1] = (buckets[word + 1] & ~((long) fingerprintMask >>> rest))
+					| ((long) fingerprint >>> rest);
+		}
+	}
+
+	/**
+	 * Returns the other bucket of a fingerprint. The function is its own
+	 * inverse.
+	 * 
+	 * @param bucket
+	 *            index of one bucket.
+	 * @param fingerprint
+	 *            fingerprint.
+	 * @return index of the other bucket.
+	 */
+	protected int alternateBucket(int bucket, int fingerprint) {
+		return (bucket ^ (int) MurmurHash.fmix64(fingerprint)) & bucketMask;
+	}
+
+	/**
+	 * Returns the bytes of an item that are hashed.
+	 * 
+	 * @param item
+	 *            input item.
+	 * @return UTF-8 encoded string representation of the item.
+	 */
+	protected byte[] getBytes(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		String s = item.toString();
+		byte[] itemBytes = null;
+		try {
+			itemBytes = s.getBytes("UTF-8");
+		} catch (Exception e) {
+			itemBytes = s.getBytes();
+		}
+		return itemBytes;
+	}
+
+	/**
+	 * Sets the functions that produce the two hashes of an item.
+	 * 
+	 * @throws NullPointerException
+	 *             if the hash functions are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if there are less than two hash functions and the first one
+	 *             is not a {@link MurmurHash128}.
+	 * @param hashFunctions
+	 *            hash functions.
+	 */
+	protected void setHashFunctions(HashFunction[] hashFunctions) {
+		if (hashFunctions == null) {
+			throw new NullPointerException("Invalid hash functions: "
+					+ hashFunctions);
+		}
+		if (hashFunctions.length == 0
+				|| (hashFunctions.length < 2 && !(hashFunctions[0] instanceof MurmurHash128))) {
+			throw new IllegalArgumentException("Invalid hash functions size: "
+					+ hashFunctions.length);
+		}
+		this.hashFunctions = hashFunctions;
+		if (hashFunctions[0] instanceof MurmurHash128) {
+			this.hash128 = (MurmurHash128) hashFunctions[0];
+		} else {
+			this.hash128 = null;
+		}
+	}
+
+	/**
+	 * Returns the smallest fingerprint size whose false positive probability
+	 * is not greater than the specified one.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the probability needs fingerprints longer than 16 bits.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @return fingerprint size in bits.
+	 */
+	protected static int fingerprintBits(double falsePositiveProbability) {
+		for (int bits = 8; bits <= 16; bits += 4) {
+			if (2. * SLOTS / (1 << bits) <= falsePositiveProbability) {
+				return bits;
+			}
+		}
+		throw new IllegalArgumentException(
+				"Invalid false positive probability: "
+						+ falsePositiveProbability);
+	}
+
+	/**
+	 * Puts a fingerprint to one of its buckets, moving other fingerprints if
+	 * needed. If the moves fail the last moved fingerprint is kept aside.
+	 */
+	private void addFingerprint(int bucket, int fingerprint) {
+		size++;
+		int alternate = alternateBucket(bucket, fingerprint);
+		if (insert(bucket, fingerprint) || insert(alternate, fingerprint)) {
+			return;
+		}
+		if ((nextRandom() & 1) != 0) {
+			bucket = alternate;
+		}
+		for (int kick = 0; kick < MAX_KICKS; kick++) {
+			int slot = nextRandom() & (SLOTS - 1);
+			int moved = getFingerprint(bucket, slot);
+			setFingerprint(bucket, slot, fingerprint);
+			fingerprint = moved;
+			bucket = alternateBucket(bucket, fingerprint);
+			if (insert(bucket, fingerprint)) {
+				return;
+			}
+		}
+		victimFingerprint = fingerprint;
+		victimBucket = bucket;
+	}
+
+	/**
+	 * Stores the fingerprint to an empty slot of the bucket.
+	 * 
+	 * @return {@code false} if the bucket is full.
+	 */
+	private boolean insert(int bucket, int fingerprint) {
+		for (int slot = 0; slot < SLOTS; slot++) {
+			if (getFingerprint(bucket, slot) == 0) {
+				setFingerprint(bucket, slot, fingerprint);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns {@code true} if the bucket contains the fingerprint.
+	 */
+	private boolean contains(int bucket, int fingerprint) {
+		long word = readBucket(bucket);
+		for (int slot = 0; slot < SLOTS; slot++) {
+			if (((int) word & fingerprintMask) == fingerprint) {
+				return true;
+			}
+			word >>>= fingerprintBits;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns all fingerprints of a bucket in the low bits of a {@code long},
+	 * reading the next word too if the bucket crosses a word boundary.
+	 */
+	private long readBucket(int bucket) {
+		int bucketBits = SLOTS * fingerprintBits;
+		long bit = (long) bucket * bucketBits;
+		int word = (int) (bit >>> 6);
+		int shift = (int) bit & 63;
+		long value = buckets[word] >>> shift;
+		if (shift + bucketBits > Long.SIZE) {
+			value |= buckets[word + 1] << (Long.SIZE - shift);
+		}
+		return value;
+	}
+
+	/**
+	 * Removes one copy of the fingerprint from the bucket.
+	 * 
+	 * @return {@code false} if the bucket doesn't contain the fingerprint.
+	 */
+	private boolean delete(int bucket, int fingerprint) {
+		for (int slot = 0; slot < SLOTS; slot++) {
+			if (getFingerprint(bucket, slot) == fingerprint) {
+				setFingerprint(bucket, slot, 0);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Mixes the two hashes of an item into one 64-bit hash. The low bits
+	 * choose the bucket, the high bits the fingerprint.
+	 */
+	private static long mix(long h1, long h2) {
+		return MurmurHash.fmix64((h2 << 32) ^ h1);
+	}
+
+	/**
+	 * Returns the fingerprint of a mixed hash, never 0.
+	 */
+	private int fingerprint(long hash) {
+		return (int) ((hash >>> 32) % fingerprintMask) + 1;
+	}
+
+	/**
+	 * Returns the next value of a xorshift generator.
+	 */
+	private int nextRandom() {
+		int x = random;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		random = x;
+		return x;
+	}
+}
@@ -0,0 +1,936 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.HashFunction;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash128;
+
+import java.util.Arrays;
+
+/**
+ * Expandable quotient filter, an alternative to the
+ * {@link ScalableBloomFilter} for data of unknown size.
+ * <p>
+ * The two hashes of an item are mixed into a 64-bit value. Its first
+ * <em>q</em> bits (the quotient) choose the home slot of the item in an array
+ * of 2<sup><em>q</em></sup> slots, only the following bits (the remainder)
+ * are stored. The remainders with the same home slot form a run, the runs
+ * are stored in the order of their home slots, each one in its home slot or
+ * after the previous run. Two bits per slot tell which home slots have a run
+ * and where the runs end, so a query reads the cluster of slots around the
+ * home slot, one or two cache lines at a load of at most {@value #MAX_LOAD}.
+ * </p>
+ * <p>
+ * When the load is too high the number of home slots is doubled and the
+ * remainders are moved to their new home slots: the first bit of every
+ * remainder becomes the last bit of its quotient, so the items aren't hashed
+ * again and the lookup cost doesn't depend on how many times the filter has
+ * grown, unlike the scalable filter which queries all of its slices.
+ * </p>
+ * <p>
+ * Like in the InfiniFilter, the remainders have variable lengths. A remainder
+ * is stored with a unary length delimiter, so every remainder keeps the bits
+ * it had when it was added, less one for every expansion since. The new
+ * remainders are one bit longer after every second expansion, which keeps
+ * the false positive probability near the target while the filter grows. A
+ * remainder whose bits are all used up matches every item of its home slot
+ * and is copied to both new home slots when the filter grows. The filter has
+ * no size limit other than the largest array.
+ * </p>
+ * <p>
+ * Items can be removed and two filters which use the same hash functions
+ * can be merged. Every added copy of an item is stored, so an item stays in
+ * the filter until all of its copies are removed. The filter can be used
+ * wherever a {@link BloomFilter} is expected; the union is a merge, but the
+ * operations which combine the bit arrays of Bloom filters (the intersection
+ * and the estimates) are not supported.
+ * </p>
+ * <p>
+ * The items are hashed like in the {@link BloomFilter}, the two hashes are
+ * mixed into the quotient and the remainder.
+ * </p>
+ * 
+ * @see ScalableBloomFilter
+ * @see CuckooFilter
+ * @see <a href="https://en.wikipedia.org/wiki/Quotient_filter">Quotient
+ *      filter on Wikipedia</a>
+ * @see <a href="https://doi.org/10.1145/3589285">InfiniFilter: Expanding
+ *      Filters to Infinity and Beyond</a>
+ * 
+ */
+public class ExpandableQuotientFilter<T> extends BloomFilter<T> {
+	/** maximum ratio of stored items and home slots */
+	public static final double MAX_LOAD = 0.75;
+
+	/** minimum number of quotient bits */
+	protected static final int MIN_QUOTIENT_BITS = 6;
+
+	/** maximum number of quotient bits */
+	protected static final int MAX_QUOTIENT_BITS = 30;
+
+	/** maximum number of bits of a remainder */
+	protected static final int MAX_FINGERPRINT_BITS = 32;
+
+	/** number of slots after the last home slot for the runs that overflow */
+	protected static final int OVERFLOW_SLOTS = 64;
+
+	/** number of bits of an entry that hold the slot value */
+	private static final int VALUE_BITS = MAX_FINGERPRINT_BITS + 1;
+
+	/** mask of the slot value of an entry */
+	private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+	/** packed slot values, a remainder after a 1 bit, 0 is an empty slot */
+	protected long[] slots;
+
+	/** number of bits of a slot */
+	protected int slotBits;
+
+	/** bit <em>h</em> is set if the home slot <em>h</em> has a run */
+	protected long[] occupied;
+
+	/** bit <em>p</em> is set if the slot <em>p</em> ends a run */
+	protected long[] runEnds;
+
+	/** number of slots, including the overflow slots */
+	protected int slotCount;
+
+	/** number of bits of the mixed hash that choose the home slot */
+	protected int quotientBits;
+
+	/** number of bits of the remainders of new items */
+	protected int fingerprintBits;
+
+	/** number of stored items */
+	protected int size;
+
+	/** target false positive probability */
+	protected double falsePositiveProbability;
+
+	/** number of quotient bits of the empty filter */
+	private int initialQuotientBits;
+
+	/** number of remainder bits of the empty filter */
+	private int initialFingerprintBits;
+
+	/** entries of the decoded cluster: home slot and slot value */
+	private long[] entries = new long[64];
+
+	/**
+	 * Constructs an empty {@code ExpandableQuotientFilter} sized for the
+	 * specified number of items. The filter grows if more items are added.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the capacity is negative or too large, or if the
+	 *             probability is not in the range <code>(0, 1)</code> or too
+	 *             small for a remainder.
+	 * @param initialCapacity
+	 *            expected number of items.
+	 * @param falsePositiveProbability
+	 *            target false positive probability.
+	 */
+	public ExpandableQuotientFilter(long initialCapacity,
+			double falsePositiveProbability) {
+		this(initialCapacity, falsePositiveProbability, HashFunctionFactory
+				.getBloomFilterHashes());
+	}
+
+	/**
+	 * Constructs an empty {@code ExpandableQuotientFilter} sized for the
+	 * specified number of items, with the hash functions that produce the two
+	 * hashes of an item.
+	 * 
+	 * @see BloomFilter#BloomFilter(long, int, HashFunction[])
+	 * @throws NullPointerException
+	 *             if the hash functions are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the capacity is negative or too large, if the
+	 *             probability is not in the range <code>(0, 1)</code> or too
+	 *             small for a remainder, or if there are not enough hash
+	 *             functions.
+	 * @param initialCapacity
+	 *            expected number of items.
+	 * @param falsePositiveProbability
+	 *            target false positive probability.
+	 * @param hashFunctions
+	 *            hash functions.
+	 */
+	public ExpandableQuotientFilter(long initialCapacity,
+			double falsePositiveProbability, HashFunction[] hashFunctions) {
+		if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+			throw new IllegalArgumentException(
+					"Invalid false positive probability: "
+							+ falsePositiveProbability);
+		}
+		// a run has about MAX_LOAD remainders, each matches with 2^-f
+		int fingerprintBits = Math.max(1, (int) Math.ceil(Math.log(2
+				* MAX_LOAD / falsePositiveProbability)
+				/ Math.log(2)));
+		if (fingerprintBits > MAX_FINGERPRINT_BITS) {
+			throw new IllegalArgumentException(
+					"Invalid false positive probability: "
+							+ falsePositiveProbability);
+		}
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Invalid capacity: "
+					+ initialCapacity);
+		}
+		int bits = MIN_QUOTIENT_BITS;
+		while (initialCapacity > MAX_LOAD * (1L << bits)) {
+			if (bits == MAX_QUOTIENT_BITS) {
+				throw new IllegalArgumentException("Invalid capacity: "
+						+ initialCapacity);
+			}
+			bits++;
+		}
+		setHashFunctions(hashFunctions);
+		this.falsePositiveProbability = falsePositiveProbability;
+		this.initialQuotientBits = bits;
+		this.initialFingerprintBits = fingerprintBits;
+		rebuild(bits, null);
+	}
+
+	/**
+	 * Stores the remainder of the item whose hashes are {@code h1} and
+	 * {@code h2} and doubles the number of home slots if the load is too
+	 * high.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the filter can't grow any more.
+	 */
+	@Override
+	protected void addHashes(long h1, long h2) {
+		long hash = mix(h1, h2);
+		while (!insert(hash)) {
+			expand();
+		}
+		size++;
+		if (size > MAX_LOAD * (1L << quotientBits)
+				&& quotientBits < MAX_QUOTIENT_BITS) {
+			expand();
+		}
+	}
+
+	/**
+	 * Returns {@code true} if a remainder of the run of the home slot matches
+	 * the item whose hashes are {@code h1} and {@code h2}.
+	 */
+	@Override
+	protected boolean queryHashes(long h1, long h2) {
+		long hash = mix(h1, h2);
+		int home = home(hash);
+		if (!getBit(occupied, home)) {
+			return false;
+		}
+		int start = clusterStart(home);
+		// the runs of the occupied home slots before this one come first
+		int runs = 0;
+		for (int h = start; h < home; h++) {
+			if (getBit(occupied, h)) {
+				runs++;
+			}
+		}
+		int p = start;
+		while (runs > 0) {
+			if (getBit(runEnds, p++)) {
+				runs--;
+			}
+		}
+		do {
+			if (matches(getSlot(slots, slotBits, p), hash)) {
+				return true;
+			}
+		} while (!getBit(runEnds, p++));
+		return false;
+	}
+
+	/**
+	 * Adds the items one by one, so the filter grows as soon as the load is
+	 * too high.
+	 */
+	@Override
+	protected void addHashes(long[] hashes, int offset, int count) {
+		addHashesEach(hashes, offset, count);
+	}
+
+	/**
+	 * Queries the items one by one, the filter has no bit array to probe in
+	 * rounds.
+	 */
+	@Override
+	protected void queryHashes(long[] hashes, int offset, int count,
+			boolean[] out, int outOffset) {
+		queryHashesEach(hashes, offset, count, out, outOffset);
+	}
+
+	/**
+	 * Removes one copy of an item from the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the item is {@code null}.
+	 * @param item
+	 *            item to remove.
+	 * @return {@code true} if the item was removed, {@code false} if it
+	 *         wasn't in the filter.
+	 */
+	public boolean remove(T item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		byte[] itemBytes = getBytes(item);
+		return remove(itemBytes, 0, itemBytes.length);
+	}
+
+	/**
+	 * Removes one copy of the item stored in {@code len} bytes of the input
+	 * array starting at {@code offset} from the filter.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param data
+	 *            input array.
+	 * @param offset
+	 *            the offset of the item in the array.
+	 * @param len
+	 *            the number of bytes of the item.
+	 * @return {@code true} if the item was removed, {@code false} if it
+	 *         wasn't in the filter.
+	 */
+	public boolean remove(byte[] data, int offset, int len) {
+		if (hash128 != null) {
+			long[] hashes = MurmurHash128.scratch();
+			hash128.getHash(data, offset, len, hashes);
+			return removeHashes(hashes[0], hashes[1]);
+		}
+		return removeHashes(hashFunctions[0].getHash(data, offset, len),
+				hashFunctions[1].getHash(data, offset, len));
+	}
+
+	/**
+	 * Adds all items of the other filter to this filter. The remainders of
+	 * both filters are moved in one pass to an array large enough for all of
+	 * them; the other filter is not changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the filters use different hash functions.
+	 * @throws IllegalStateException
+	 *             if the merged filter would be too large.
+	 * @param other
+	 *            other filter.
+	 */
+	public void merge(ExpandableQuotientFilter<T> other) {
+		if (other == null) {
+			throw new NullPointerException("Invalid filter: " + other);
+		}
+		if (!sameHashFamily(other)) {
+			throw new IllegalArgumentException(
+					"Incompatible filters: different hash functions.");
+		}
+		long total = (long) size + other.size;
+		int bits = Math.max(quotientBits, other.quotientBits);
+		while (total > MAX_LOAD * (1L << bits)) {
+			if (bits == MAX_QUOTIENT_BITS) {
+				throw new IllegalStateException("The filter is full.");
+			}
+			bits++;
+		}
+		rebuild(bits, other);
+		size = (int) total;
+	}
+
+	/**
+	 * Returns a new filter which contains the items of this and of the other
+	 * quotient filter. Neither filter is changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the other filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the other filter is not an
+	 *             {@code ExpandableQuotientFilter} or uses different hash
+	 *             functions.
+	 * @param other
+	 *            other filter.
+	 * @return union of the filters.
+	 */
+	@Override
+	public BloomFilter<T> union(BloomFilter<T> other) {
+		ExpandableQuotientFilter<T> quotientFilter = quotientFilter(other);
+		ExpandableQuotientFilter<T> result = (ExpandableQuotientFilter<T>) copy();
+		result.merge(quotientFilter);
+		return result;
+	}
+
+	/**
+	 * Adds the items of this filter to the target quotient filter. This
+	 * filter isn't changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the target filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the target filter is not an
+	 *             {@code ExpandableQuotientFilter} or uses different hash
+	 *             functions.
+	 * @param target
+	 *            filter that receives the items.
+	 */
+	@Override
+	public void orInto(BloomFilter<T> target) {
+		quotientFilter(target).merge(this);
+	}
+
+	/**
+	 * Not supported, the remainders of two filters can't be intersected
+	 * without the items.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	public BloomFilter<T> intersect(BloomFilter<T> other) {
+		throw new UnsupportedOperationException(
+				"Quotient filters can't be intersected.");
+	}
+
+	/**
+	 * Not supported, the remainders of two filters can't be intersected
+	 * without the items.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	public void andInto(BloomFilter<T> target) {
+		throw new UnsupportedOperationException(
+				"Quotient filters can't be intersected.");
+	}
+
+	/**
+	 * Returns the number of stored items, every added copy of an item is
+	 * counted.
+	 * 
+	 * @return number of items.
+	 */
+	@Override
+	public double estimateSize() {
+		return size;
+	}
+
+	/**
+	 * Not supported, the estimate needs the bit arrays of two Bloom filters.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	public double estimateUnionSize(BloomFilter<T> other) {
+		throw new UnsupportedOperationException(
+				"Quotient filters have no bit array to estimate from.");
+	}
+
+	/**
+	 * Not supported, the estimate needs the bit arrays of two Bloom filters.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	public double estimateIntersectionSize(BloomFilter<T> other) {
+		throw new UnsupportedOperationException(
+				"Quotient filters have no bit array to estimate from.");
+	}
+
+	/**
+	 * Not supported, the estimate needs the bit arrays of two Bloom filters.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	public double estimateJaccardSimilarity(BloomFilter<T> other) {
+		throw new UnsupportedOperationException(
+				"Quotient filters have no bit array to estimate from.");
+	}
+
+	/**
+	 * Returns the number of items in the filter, every added copy of an item
+	 * is counted.
+	 * 
+	 * @return number of items.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of items that can be added before the filter grows.
+	 * 
+	 * @return capacity of the filter.
+	 */
+	public long getCapacity() {
+		return (long) (MAX_LOAD * (1L << quotientBits));
+	}
+
+	/**
+	 * Returns the target false positive probability.
+	 * 
+	 * @return target false positive probability.
+	 */
+	public double getFalsePositiveProbability() {
+		return falsePositiveProbability;
+	}
+
+	/**
+	 * Returns the number of bits of the slots and of the two bits per slot
+	 * which describe the runs.
+	 * 
+	 * @return size of the filter in bits.
+	 */
+	public long getBitSize() {
+		return (long) (slots.length + occupied.length + runEnds.length)
+				* Long.SIZE;
+	}
+
+	/**
+	 * Returns a copy of the filter with copies of the arrays.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected BloomFilter<T> copy() {
+		ExpandableQuotientFilter<T> copy;
+		try {
+			copy = (ExpandableQuotientFilter<T>) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.slots = slots.clone();
+		copy.occupied = occupied.clone();
+		copy.runEnds = runEnds.clone();
+		copy.entries = new long[64];
+		return copy;
+	}
+
+	/**
+	 * Removes the longest remainder which matches the item whose hashes are
+	 * {@code h1} and {@code h2}.
+	 * 
+	 * @param h1
+	 *            first hash.
+	 * @param h2
+	 *            second hash.
+	 * @return {@code true} if a remainder was removed, {@code false} if the
+	 *         item wasn't in the filter.
+	 */
+	protected boolean removeHashes(long h1, long h2) {
+		long hash = mix(h1, h2);
+		int home = home(hash);
+		if (!getBit(occupied, home)) {
+			return false;
+		}
+		int start = clusterStart(home);
+		int count = decode(start);
+		int found = -1;
+		int foundLength = -1;
+		boolean shared = false;
+		for (int i = 0; i < count; i++) {
+			if ((int) (entries[i] >>> VALUE_BITS) != home) {
+				continue;
+			}
+			long value = entries[i] & VALUE_MASK;
+			int length = length(value);
+			if (matches(value, hash) && length > foundLength) {
+				shared |= found >= 0;
+				found = i;
+				foundLength = length;
+			} else {
+				shared = true;
+			}
+		}
+		if (found < 0) {
+			return false;
+		}
+		clear(start, start + count);
+		System.arraycopy(entries, found + 1, entries, found, count - found - 1);
+		if (!shared) {
+			clearBit(occupied, home);
+		}
+		place(entries, count - 1, start, slots, slotBits, occupied, runEnds);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Returns the number of bits of the mixed hash that choose the home slot.
+	 * 
+	 * @return number of quotient bits.
+	 */
+	protected int getQuotientBits() {
+		return quotientBits;
+	}
+
+	/**
+	 * Returns the number of remainder bits of the items added now.
+	 * 
+	 * @return number of remainder bits.
+	 */
+	protected int getFingerprintBits() {
+		return fingerprintBits;
+	}
+
+	/**
+	 * Returns the filter as a quotient filter.
+	 */
+	private ExpandableQuotientFilter<T> quotientFilter(BloomFilter<T> other) {
+		if (other == null) {
+			throw new NullPointerException("Invalid filter: " + other);
+		}
+		if (!(other instanceof ExpandableQuotientFilter)) {
+			throw new IllegalArgumentException(
+					"Incompatible filters: only quotient filters can be merged.");
+		}
+		return (ExpandableQuotientFilter<T>) other;
+	}
+
+	/**
+	 * Inserts the remainder of an item at the end of its run, the following
+	 * runs of the cluster are moved one slot forward.
+	 * 
+	 * @return {@code false} if the cluster would reach the end of the array.
+	 */
+	private boolean insert(long hash) {
+		int home = home(hash);
+		int start = clusterStart(home);
+		int count = decode(start);
+		ensureEntries(count + 1);
+		int i = count;
+		while (i > 0 && (int) (entries[i - 1] >>> VALUE_BITS) > home) {
+			i--;
+		}
+		System.arraycopy(entries, i, entries, i + 1, count - i);
+		entries[i] = ((long) home << VALUE_BITS)
+				| (1L << fingerprintBits)
+				| ((hash << quotientBits) >>> (Long.SIZE - fingerprintBits));
+		// the last slot always stays empty and ends every scan
+		if (end(entries, count + 1, start) >= slotCount) {
+			return false;
+		}
+		clear(start, start + count);
+		place(entries, count + 1, start, slots, slotBits, occupied, runEnds);
+		return true;
+	}
+
+	/**
+	 * Doubles the number of home slots.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the filter can't grow any more.
+	 */
+	private void expand() {
+		if (quotientBits == MAX_QUOTIENT_BITS) {
+			throw new IllegalStateException("The filter is full.");
+		}
+		rebuild(quotientBits + 1, null);
+	}
+
+	/**
+	 * Moves the remainders of this and of the other filter, in the order of
+	 * their home slots, to new arrays with the specified number of quotient
+	 * bits. Every run goes to its home slot or to the slot after the previous
+	 * run.
+	 */
+	private void rebuild(int bits, ExpandableQuotientFilter<?> other) {
+		for (;; bits++) {
+			if (bits > MAX_QUOTIENT_BITS) {
+				throw new IllegalStateException("The filter is full.");
+			}
+			long[] moved = slots == null ? new long[0] : collect(bits);
+			if (other != null) {
+				moved = merge(moved, other.collect(bits));
+			}
+			int newFingerprintBits = Math.min(initialFingerprintBits
+					+ (bits - initialQuotientBits) / 2, MAX_FINGERPRINT_BITS);
+			int newSlotBits = newFingerprintBits + 1;
+			for (long entry : moved) {
+				newSlotBits = Math.max(newSlotBits,
+						length(entry & VALUE_MASK) + 1);
+			}
+			int newSlotCount = (1 << bits) + OVERFLOW_SLOTS;
+			if (end(moved, moved.length, 0) >= newSlotCount) {
+				continue;
+			}
+			long[] newSlots = new long[words((long) newSlotCount * newSlotBits)];
+			long[] newOccupied = new long[words(newSlotCount)];
+			long[] newRunEnds = new long[words(newSlotCount)];
+			place(moved, moved.length, 0, newSlots, newSlotBits, newOccupied,
+					newRunEnds);
+			slots = newSlots;
+			occupied = newOccupied;
+			runEnds = newRunEnds;
+			slotBits = newSlotBits;
+			slotCount = newSlotCount;
+			quotientBits = bits;
+			fingerprintBits = newFingerprintBits;
+			return;
+		}
+	}
+
+	/**
+	 * Returns the entries of the filter moved to the home slots of an array
+	 * with the specified number of quotient bits, in the order of the new
+	 * home slots. A remainder gives its first bits to the new quotient; a
+	 * remainder without enough bits is copied to every home slot it matches.
+	 */
+	private long[] collect(int bits) {
+		int shift = bits - quotientBits;
+		long[] moved = new long[size + 64];
+		int n = 0;
+		for (int p = 0; p < slotCount;) {
+			if (getSlot(slots, slotBits, p) == 0) {
+				p++;
+				continue;
+			}
+			int count = decode(p);
+			int first = n;
+			for (int i = 0; i < count; i++) {
+				long home = entries[i] >>> VALUE_BITS;
+				long value = entries[i] & VALUE_MASK;
+				int length = length(value);
+				long remainder = value ^ (1L << length);
+				if (length >= shift) {
+					int rest = length - shift;
+					if (n == moved.length) {
+						moved = Arrays.copyOf(moved, 2 * n);
+					}
+					moved[n++] = ((home << shift | remainder >>> rest) << VALUE_BITS)
+							| (1L << rest)
+							| (remainder & ((1L << rest) - 1));
+				} else {
+					int spread = shift - length;
+					long base = (home << length | remainder) << spread;
+					for (long s = 0; s < 1L << spread; s++) {
+						if (n == moved.length) {
+							moved = Arrays.copyOf(moved, 2 * n);
+						}
+						moved[n++] = ((base | s) << VALUE_BITS) | 1;
+					}
+				}
+			}
+			// a run can be split among several new home slots
+			Arrays.sort(moved, first, n);
+			p += count;
+		}
+		return Arrays.copyOf(moved, n);
+	}
+
+	/**
+	 * Decodes the cluster which starts at the specified slot into the
+	 * entries, every entry holds the home slot and the slot value.
+	 * 
+	 * @return number of entries.
+	 */
+	private int decode(int start) {
+		int count = 0;
+		int home = start - 1;
+		boolean runEnd = true;
+		for (int p = start;; p++) {
+			long value = getSlot(slots, slotBits, p);
+			if (value == 0) {
+				return count;
+			}
+			if (runEnd) {
+				home = nextSetBit(occupied, home + 1);
+			}
+			ensureEntries(count + 1);
+			entries[count++] = ((long) home << VALUE_BITS) | value;
+			runEnd = getBit(runEnds, p);
+		}
+	}
+
+	/**
+	 * Makes the entry buffer large enough for the specified number of
+	 * entries.
+	 */
+	private void ensureEntries(int count) {
+		if (count > entries.length) {
+			entries = Arrays.copyOf(entries, Math.max(count,
+					2 * entries.length));
+		}
+	}
+
+	/**
+	 * Returns the first slot of the cluster which contains the slot, a
+	 * cluster starts after an empty slot.
+	 */
+	private int clusterStart(int p) {
+		while (p > 0 && getSlot(slots, slotBits, p - 1) != 0) {
+			p--;
+		}
+		return p;
+	}
+
+	/**
+	 * Empties the slots in the range.
+	 */
+	private void clear(int from, int to) {
+		for (int p = from; p < to; p++) {
+			setSlot(slots, slotBits, p, 0);
+			clearBit(runEnds, p);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the slot value matches the mixed hash of an
+	 * item, a remainder matches if it is a prefix of the bits after the
+	 * quotient.
+	 */
+	private boolean matches(long value, long hash) {
+		int length = length(value);
+		return length == 0
+				|| (hash << quotientBits) >>> (Long.SIZE - length) == (value ^ (1L << length));
+	}
+
+	/**
+	 * Returns the home slot of a mixed hash.
+	 */
+	private int home(long hash) {
+		return (int) (hash >>> (Long.SIZE - quotientBits));
+	}
+
+	/**
+	 * Mixes the two hashes of an item into one 64-bit value.
+	 */
+	private static long mix(long h1, long h2) {
+		return MurmurHash.fmix64((h2 << 32) ^ h1);
+	}
+
+	/**
+	 * Returns the number of remainder bits of a slot value.
+	 */
+	private static int length(long value) {
+		return Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+	}
+
+	/**
+	 * Returns the slot after the last entry placed from the start slot.
+	 */
+	private static int end(long[] entries, int count, int start) {
+		int p = start;
+		for (int i = 0; i < count; i++) {
+			p = Math.max(p, (int) (entries[i] >>> VALUE_BITS)) + 1;
+		}
+		return p;
+	}
+
+	/**
+	 * Stores the entries, sorted by their home slots, from the start slot on.
+	 * Every entry goes to its home slot or to the slot after the previous
+	 * entry; the target slots must be empty.
+	 */
+	private static void place(long[] entries, int count, int start,
+			long[] slots, int slotBits, long[] occupied, long[] runEnds) {
+		int p = start;
+		for (int i = 0; i < count; i++) {
+			int home = (int) (entries[i] >>> VALUE_BITS);
+			p = Math.max(p, home);
+			setSlot(slots, slotBits, p, entries[i] & VALUE_MASK);
+			setBit(occupied, home);
+			if (i == count - 1 || (int) (entries[i + 1] >>> VALUE_BITS) != home) {
+				setBit(runEnds, p);
+			}
+			p++;
+		}
+	}
+
+	/**
+	 * Merges two arrays of entries sorted by their home slots.
+	 */
+	private static long[] merge(long[] first, long[] second) {
+		long[] merged = new long[first.length + second.length];
+		int i = 0;
+		int j = 0;
+		for (int n = 0; n < merged.length; n++) {
+			if (j == second.length
+					|| (i < first.length && first[i] <= second[j])) {
+				merged[n] = first[i++];
+			} else {
+				merged[n] = second[j++];
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Returns the value of a slot.
+	 */
+	private static long getSlot(long[] slots, int slotBits, int p) {
+		long bit = (long) p * slotBits;
+		int word = (int) (bit >>> 6);
+		int shift = (int) bit & 63;
+		long value = slots[word] >>> shift;
+		if (shift + slotBits > Long.SIZE) {
+			value |= slots[word + 1] << (Long.SIZE - shift);
+		}
+		return value & ((1L << slotBits) - 1);
+	}
+
+	/**
+	 * Stores a value to a slot, 0 empties the slot.
+	 */
+	private static void setSlot(long[] slots, int slotBits, int p, long value) {
+		long mask = (1L << slotBits) - 1;
+		long bit = (long) p * slotBits;
+		int word = (int) (bit >>> 6);
+		int shift = (int) bit & 63;
+		slots[word] = (slots[word] & ~(mask << shift)) | (value << shift);
+		if (shift + slotBits > Long.SIZE) {
+			// the rest of the value is in the low bits of the next word
+			int rest = Long.SIZE - shift;
+			slots[word + 1] = (slots[word + 1] & ~(mask >>> rest))
+					| (value >>> rest);
+		}
+	}
+
+	/**
+	 * Returns a bit of a bit set.
+	 */
+	private static boolean getBit(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets a bit of a bit set.
+	 */
+	private static void setBit(long[] bits, int index) {
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * Clears a bit of a bit set.
+	 */
+	private static void clearBit(long[] bits, int index) {
+		bits[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Returns the index of the first set bit from the specified index on.
+	 */
+	private static int nextSetBit(long[] bits, int from) {
+		int word = from >>> 6;
+		long w = bits[word] & (-1L << from);
+		while (w == 0) {
+			w = bits[++word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(w);
+	}
+
+	/**
+	 * Returns the number of words of an array with the specified number of
+	 * bits.
+	 */
+	private static int words(long bits) {
+		return (int) ((bits + Long.SIZE - 1) >>> 6);
+	}
+}
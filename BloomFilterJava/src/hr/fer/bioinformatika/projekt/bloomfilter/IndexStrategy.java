@@ -0,0 +1,184 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+/**
+ * Strategies that derive the <em>k</em> bit indexes of an item from its two
+ * hashes.
+ * <p>
+ * A filter chooses its strategy when it is constructed. The strategy may
+ * adjust the size of the array (or of a partition) with {@link #size(long)}
+ * and then maps the <em>i</em>-th probe to an index with
+ * {@link #index(long, long, int, long)}.
+ * </p>
+ * <ul>
+ * <li>{@link #MODULO} - the original scheme, <code>(h1 + i*h2) mod m</code>
+ * with a 64-bit division per probe. Default, the bit layout of existing
+ * filters doesn't change.</li>
+ * <li>{@link #POWER_OF_TWO} - the array size is rounded up to a power of two
+ * and the index is masked.</li>
+ * <li>{@link #MULTIPLY_SHIFT} - the high bits of the 64-bit probe hash are
+ * mapped to <code>[0, m)</code> with a multiplication (Lemire's fast range
+ * reduction), the array size is not changed.</li>
+ * <li>{@link #ENHANCED_DOUBLE_HASHING} - like {@code MULTIPLY_SHIFT}, but the
+ * probe hash is <code>h1 + i*h2 + (i^3-i)/6</code>, which removes the
+ * correlation of probes whose second hashes differ by a small multiple.</li>
+ * </ul>
+ * 
+ * @see BloomFilter
+ * @see PartitionedBloomFilter
+ * @see <a href="https://arxiv.org/abs/1805.10941">Fast Random Integer
+ *      Generation in an Interval</a>
+ * @see <a href="https://www.ccs.neu.edu/home/pete/pub/bloom-filters-verification.pdf"
+ *      >Bloom Filters in Probabilistic Verification</a>
+ * 
+ */
+public enum IndexStrategy {
+	/** <code>(h1 + i*h2) mod m</code> */
+	MODULO {
+		@Override
+		public long size(long m) {
+			return m;
+		}
+
+		@Override
+		public boolean requiresWideHashes(long m) {
+			return m > BloomFilter.HASH_RANGE;
+		}
+
+		@Override
+		public long index(long h1, long h2, int i, long length) {
+			// the second probe uses h2 alone, as the original filters did
+			return BloomFilter.reduce(i == 1 ? h2 : h1 + i * h2, length);
+		}
+	},
+
+	/** <code>(h1 + i*h2) &amp; (m-1)</code>, m is a power of two */
+	POWER_OF_TWO {
+		@Override
+		public long size(long m) {
+			if (m <= 1) {
+				return m;
+			}
+			return Long.highestOneBit(m - 1) << 1;
+		}
+
+		@Override
+		public boolean requiresWideHashes(long m) {
+			return m > BloomFilter.HASH_RANGE;
+		}
+
+		@Override
+		public long index(long h1, long h2, int i, long length) {
+			return (h1 + i * h2) & (length - 1);
+		}
+	},
+
+	/** <code>((h1 + i*h2) * m) &gt;&gt; 64</code> */
+	MULTIPLY_SHIFT {
+		@Override
+		public long size(long m) {
+			return m;
+		}
+
+		@Override
+		public boolean requiresWideHashes(long m) {
+			return true;
+		}
+
+		@Override
+		public long index(long h1, long h2, int i, long length) {
+			return reduceRange(h1 + i * h2, length);
+		}
+	},
+
+	/** <code>((h1 + i*h2 + (i^3-i)/6) * m) &gt;&gt; 64</code> */
+	ENHANCED_DOUBLE_HASHING {
+		@Override
+		public long size(long m) {
+			return m;
+		}
+
+		@Override
+		public boolean requiresWideHashes(long m) {
+			return true;
+		}
+
+		@Override
+		public long index(long h1, long h2, int i, long length) {
+			long tetrahedral = ((long) i * i * i - i) / 6;
+			return reduceRange(h1 + i * h2 + tetrahedral, length);
+		}
+	};
+
+	/**
+	 * Returns the size the array (or a partition of the array) must have so
+	 * that the strategy can produce indexes for the requested size.
+	 * 
+	 * @param m
+	 *            requested size.
+	 * @return adjusted size, not less than the requested size.
+	 */
+	public abstract long size(long m);
+
+	/**
+	 * Returns {@code true} if 32-bit hashes must be widened to 64 bits before
+	 * they are passed to {@link #index(long, long, int, long)}.
+	 * 
+	 * @param m
+	 *            size of the range.
+	 * @return {@code true} if the strategy needs 64-bit hashes.
+	 */
+	public abstract boolean requiresWideHashes(long m);
+
+	/**
+	 * Returns the index of the <em>i</em>-th probe in the range
+	 * <code>[0, length)</code>.
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @param h2
+	 *            second hash of the item.
+	 * @param i
+	 *            probe number.
+	 * @param length
+	 *            size of the range, adjusted with {@link #size(long)}.
+	 * @return index in the range.
+	 */
+	public abstract long index(long h1, long h2, int i, long length);
+
+	/**
+	 * Maps a 64-bit hash to the range <code>[0, length)</code> using the high
+	 * 64 bits of the unsigned 128-bit product <code>hash * length</code>.
+	 * 
+	 * @param hash
+	 *            64-bit hash.
+	 * @param length
+	 *            size of the range.
+	 * @return index in the range.
+	 */
+	protected static long reduceRange(long hash, long length) {
+		if (length <= BloomFilter.HASH_RANGE) {
+			return ((hash >>> 32) * length) >>> 32;
+		}
+		return multiplyHighUnsigned(hash, length);
+	}
+
+	/**
+	 * Returns the high 64 bits of the unsigned 128-bit product of the
+	 * arguments.
+	 * 
+	 * @param x
+	 *            first factor.
+	 * @param y
+	 *            second factor.
+	 * @return high 64 bits of the product.
+	 */
+	protected static long multiplyHighUnsigned(long x, long y) {
+		long x0 = x & 0xffffffffL;
+		long x1 = x >>> 32;
+		long y0 = y & 0xffffffffL;
+		long y1 = y >>> 32;
+		long t = x1 * y0 + ((x0 * y0) >>> 32);
+		long w1 = x0 * y1 + (t & 0xffffffffL);
+		return x1 * y1 + (t >>> 32) + (w1 >>> 32);
+	}
+}
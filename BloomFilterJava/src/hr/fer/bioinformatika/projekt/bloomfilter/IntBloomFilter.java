@@ -0,0 +1,171 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+/**
+ * Bloom Filter specialized for {@code int} keys.
+ * <p>
+ * The key is widened to a {@code long} and hashed the same way as in the
+ * {@link LongBloomFilter}, so adding or querying an {@code int} doesn't
+ * allocate.
+ * </p>
+ * 
+ * @see BloomFilter
+ * @see LongBloomFilter
+ * 
+ */
+public class IntBloomFilter extends BloomFilter<Integer> {
+
+	/**
+	 * Returns a {@code IntBloomFilter} object with the specified array size
+	 * and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public IntBloomFilter(int m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Returns a {@code IntBloomFilter} object with the specified array size
+	 * and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public IntBloomFilter(long m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code IntBloomFilter} where the array size and number of
+	 * hash functions are determined by the estimated number of items that will
+	 * be added to the filter and the acceptable false positive probability.
+	 * 
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be added to the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public IntBloomFilter(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		super(estimatedNumOfItems, falsePositiveProbability);
+	}
+
+	/**
+	 * Constructs a {@code IntBloomFilter} with the specified array size and
+	 * where the number of hash functions is determined by the acceptable false
+	 * positive probability.
+	 * 
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param m
+	 *            array size.
+	 */
+	public IntBloomFilter(double falsePositiveProbability, long m) {
+		super(falsePositiveProbability, m);
+	}
+
+	/**
+	 * Adds a key to the filter.
+	 * 
+	 * @param key
+	 *            key to add.
+	 */
+	public void add(int key) {
+		long hash = LongBloomFilter.hash(key);
+		addHashes(hash & 0xffffffffL, hash >>> 32);
+	}
+
+	/**
+	 * Adds all keys of the input array to the filter. The keys are hashed in
+	 * batches and the bits of a batch are set together.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @param keys
+	 *            keys to add.
+	 */
+	public void addAll(final int[] keys) {
+		if (keys == null) {
+			throw new NullPointerException("Invalid key array: " + keys);
+		}
+		addBatches(keys.length, new HashFill() {
+			@Override
+			public void fill(int index, long[] hashes, int offset) {
+				LongBloomFilter.hash(keys[index], hashes, offset);
+			}
+		});
+	}
+
+	/**
+	 * Returns {@code true} if the specified key is in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @param key
+	 *            input key.
+	 * @return {@code true}if the key is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(int key) {
+		long hash = LongBloomFilter.hash(key);
+		return queryHashes(hash & 0xffffffffL, hash >>> 32);
+	}
+
+	/**
+	 * Queries all keys of the input array. {@code out[i]} is set to
+	 * {@code true} if {@code keys[i]} is probably in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arrays is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the output array is shorter than the input array.
+	 * @param keys
+	 *            input keys.
+	 * @param out
+	 *            output array.
+	 */
+	public void queryAll(final int[] keys, boolean[] out) {
+		if (keys == null || out == null) {
+			throw new NullPointerException("Invalid key or output array.");
+		}
+		if (out.length < keys.length) {
+			throw new IllegalArgumentException("Invalid output array length: "
+					+ out.length);
+		}
+		queryBatches(keys.length, new HashFill() {
+			@Override
+			public void fill(int index, long[] hashes, int offset) {
+				LongBloomFilter.hash(keys[index], hashes, offset);
+			}
+		}, out);
+	}
+
+	@Override
+	public void add(Integer item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		add(item.intValue());
+	}
+
+	@Override
+	public boolean query(Integer item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		return query(item.intValue());
+	}
+
+	@Override
+	protected void hash(Integer item, long[] hashes, int offset) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		LongBloomFilter.hash(item.intValue(), hashes, offset);
+	}
+}
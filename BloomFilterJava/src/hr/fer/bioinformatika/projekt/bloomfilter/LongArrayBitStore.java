@@ -0,0 +1,150 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import java.nio.LongBuffer;
+
+/**
+ * {@code BitStore} backed by a {@code long} array on the heap.
+ * <p>
+ * Every bit of the <em>m</em>-bit array takes exactly one bit of memory, so
+ * the store is 8 times smaller than a {@code boolean} array of the same
+ * size.
+ * </p>
+ * 
+ * @see BitStore
+ * 
+ */
+public class LongArrayBitStore extends BitStore {
+	/** maximum number of bits that can be stored in a single array */
+	public static final long MAX_SIZE = (long) (Integer.MAX_VALUE - 8) << ADDRESS_BITS;
+
+	/** packed bits */
+	protected long[] words;
+
+	/**
+	 * Constructs a {@code LongArrayBitStore} with the specified number of
+	 * bits. All bits are cleared.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the size is less or equal zero or greater than
+	 *             {@link #MAX_SIZE}.
+	 * @param size
+	 *            number of bits.
+	 */
+	public LongArrayBitStore(long size) {
+		super(size);
+		if (size > MAX_SIZE) {
+			throw new IllegalArgumentException("Invalid bit store size: "
+					+ size);
+		}
+		this.words = new long[(int) wordCount(size)];
+	}
+
+	@Override
+	public boolean get(long index) {
+		return (words[(int) (index >>> ADDRESS_BITS)] & (1L << index)) != 0;
+	}
+
+	@Override
+	public void set(long index) {
+		words[(int) (index >>> ADDRESS_BITS)] |= 1L << index;
+	}
+
+	@Override
+	public long getWord(long wordIndex) {
+		return words[(int) wordIndex];
+	}
+
+	@Override
+	public void setWord(long wordIndex, long word) {
+		words[(int) wordIndex] = word;
+	}
+
+	@Override
+	public long cardinality() {
+		long count = 0;
+		for (int i = 0; i < words.length; i++) {
+			count += Long.bitCount(words[i]);
+		}
+		return count;
+	}
+
+	@Override
+	public void or(BitStore other) {
+		if (!(other instanceof LongArrayBitStore)) {
+			super.or(other);
+			return;
+		}
+		checkSize(other);
+		long[] otherWords = ((LongArrayBitStore) other).words;
+		for (int i = 0; i < words.length; i++) {
+			words[i] |= otherWords[i];
+		}
+	}
+
+	@Override
+	public void and(BitStore other) {
+		if (!(other instanceof LongArrayBitStore)) {
+			super.and(other);
+			return;
+		}
+		checkSize(other);
+		long[] otherWords = ((LongArrayBitStore) other).words;
+		for (int i = 0; i < words.length; i++) {
+			words[i] &= otherWords[i];
+		}
+	}
+
+	@Override
+	public long orCardinality(BitStore other) {
+		if (!(other instanceof LongArrayBitStore)) {
+			return super.orCardinality(other);
+		}
+		checkSize(other);
+		long[] otherWords = ((LongArrayBitStore) other).words;
+		long count = 0;
+		for (int i = 0; i < words.length; i++) {
+			count += Long.bitCount(words[i] | otherWords[i]);
+		}
+		return count;
+	}
+
+	@Override
+	public long andCardinality(BitStore other) {
+		if (!(other instanceof LongArrayBitStore)) {
+			return super.andCardinality(other);
+		}
+		checkSize(other);
+		long[] otherWords = ((LongArrayBitStore) other).words;
+		long count = 0;
+		for (int i = 0; i < words.length; i++) {
+			count += Long.bitCount(words[i] & otherWords[i]);
+		}
+		return count;
+	}
+
+	@Override
+	public void readWords(long wordIndex, LongBuffer source) {
+		checkWordRange(wordIndex, source.remaining());
+		source.get(words, (int) wordIndex, source.remaining());
+	}
+
+	@Override
+	public void writeWords(long wordIndex, LongBuffer target) {
+		checkWordRange(wordIndex, target.remaining());
+		target.put(words, (int) wordIndex, target.remaining());
+	}
+
+	@Override
+	public BitStore copy() {
+		LongArrayBitStore copy = new LongArrayBitStore(size);
+		System.arraycopy(words, 0, copy.words, 0, words.length);
+		return copy;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < words.length; i++) {
+			words[i] = 0L;
+		}
+	}
+}
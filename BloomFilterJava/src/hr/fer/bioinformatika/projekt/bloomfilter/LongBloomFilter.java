@@ -0,0 +1,211 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.MurmurHash;
+
+/**
+ * Bloom Filter specialized for {@code long} keys.
+ * <p>
+ * The generic filter converts an item to a string and encodes it before
+ * hashing. This filter mixes the bits of the key with the 64-bit MurmurHash3
+ * finalizer instead, the low and the high half of the mixed value are used as
+ * the two hashes. Adding or querying a {@code long} doesn't allocate.
+ * </p>
+ * <p>
+ * The boxed {@code add(Long)} and {@code query(Long)} methods use the same
+ * hashes, so both forms can be mixed freely.
+ * </p>
+ * 
+ * @see BloomFilter
+ * @see MurmurHash#fmix64(long)
+ * 
+ */
+public class LongBloomFilter extends BloomFilter<Long> {
+	/**
+	 * added to the key before mixing, so that small keys (and 0 in
+	 * particular) don't map to degenerate hashes
+	 */
+	protected static final long SEED = 0x9e3779b97f4a7c15L;
+
+	/**
+	 * Returns a {@code LongBloomFilter} object with the specified array size
+	 * and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public LongBloomFilter(int m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Returns a {@code LongBloomFilter} object with the specified array size
+	 * and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public LongBloomFilter(long m, int k) {
+		super(m, k);
+	}
+
+	/**
+	 * Constructs a {@code LongBloomFilter} where the array size and number of
+	 * hash functions are determined by the estimated number of items that will
+	 * be added to the filter and the acceptable false positive probability.
+	 * 
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be added to the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public LongBloomFilter(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		super(estimatedNumOfItems, falsePositiveProbability);
+	}
+
+	/**
+	 * Constructs a {@code LongBloomFilter} with the specified array size and
+	 * where the number of hash functions is determined by the acceptable false
+	 * positive probability.
+	 * 
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param m
+	 *            array size.
+	 */
+	public LongBloomFilter(double falsePositiveProbability, long m) {
+		super(falsePositiveProbability, m);
+	}
+
+	/**
+	 * Adds a key to the filter.
+	 * 
+	 * @param key
+	 *            key to add.
+	 */
+	public void add(long key) {
+		long hash = hash(key);
+		addHashes(hash & 0xffffffffL, hash >>> 32);
+	}
+
+	/**
+	 * Adds all keys of the input array to the filter. The keys are hashed in
+	 * batches and the bits of a batch are set together.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @param keys
+	 *            keys to add.
+	 */
+	public void addAll(final long[] keys) {
+		if (keys == null) {
+			throw new NullPointerException("Invalid key array: " + keys);
+		}
+		addBatches(keys.length, new HashFill() {
+			@Override
+			public void fill(int index, long[] hashes, int offset) {
+				hash(keys[index], hashes, offset);
+			}
+		});
+	}
+
+	/**
+	 * Returns {@code true} if the specified key is in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @param key
+	 *            input key.
+	 * @return {@code true}if the key is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(long key) {
+		long hash = hash(key);
+		return queryHashes(hash & 0xffffffffL, hash >>> 32);
+	}
+
+	/**
+	 * Queries all keys of the input array. {@code out[i]} is set to
+	 * {@code true} if {@code keys[i]} is probably in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arrays is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the output array is shorter than the input array.
+	 * @param keys
+	 *            input keys.
+	 * @param out
+	 *            output array.
+	 */
+	public void queryAll(final long[] keys, boolean[] out) {
+		if (keys == null || out == null) {
+			throw new NullPointerException("Invalid key or output array.");
+		}
+		if (out.length < keys.length) {
+			throw new IllegalArgumentException("Invalid output array length: "
+					+ out.length);
+		}
+		queryBatches(keys.length, new HashFill() {
+			@Override
+			public void fill(int index, long[] hashes, int offset) {
+				hash(keys[index], hashes, offset);
+			}
+		}, out);
+	}
+
+	@Override
+	public void add(Long item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		add(item.longValue());
+	}
+
+	@Override
+	public boolean query(Long item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		return query(item.longValue());
+	}
+
+	@Override
+	protected void hash(Long item, long[] hashes, int offset) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		hash(item.longValue(), hashes, offset);
+	}
+
+	/**
+	 * Returns the 64-bit hash of the key. The low 32 bits are used as the
+	 * first and the high 32 bits as the second hash of the key.
+	 * 
+	 * @param key
+	 *            input key.
+	 * @return hash of the key.
+	 */
+	protected static long hash(long key) {
+		return MurmurHash.fmix64(key + SEED);
+	}
+
+	/**
+	 * Stores the first and the second hash of the key to the output array.
+	 * 
+	 * @param key
+	 *            input key.
+	 * @param hashes
+	 *            output array.
+	 * @param offset
+	 *            index of the first hash in the output array.
+	 */
+	protected static void hash(long key, long[] hashes, int offset) {
+		long hash = hash(key);
+		hashes[offset] = hash & 0xffffffffL;
+		hashes[offset + 1] = hash >>> 32;
+	}
+}
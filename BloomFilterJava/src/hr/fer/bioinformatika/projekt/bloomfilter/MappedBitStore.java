@@ -0,0 +1,119 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * {@code BitStore} whose words are kept in a memory-mapped region of a file.
+ * <p>
+ * The store doesn't use the heap. The words are read and written through the
+ * OS page cache, so only the pages that are actually touched are loaded and
+ * the same file can be shared by several processes.
+ * </p>
+ * <p>
+ * A single {@code MappedByteBuffer} can't be larger than 2GB, so the region
+ * is mapped in 1GB chunks. The words are stored in little-endian byte order.
+ * </p>
+ * 
+ * @see BitStore
+ * @see MappedBloomFilter
+ * 
+ */
+public class MappedBitStore extends BitStore {
+	/** number of bits used to address a byte inside of a mapped chunk */
+	protected static final int CHUNK_BITS = 30;
+
+	/** mask for the byte offset inside of a mapped chunk */
+	protected static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	/** mapped chunks of the region */
+	protected MappedByteBuffer[] chunks;
+
+	/**
+	 * Maps the region of the file that starts at the specified position and
+	 * holds the specified number of bits.
+	 * <p>
+	 * If the file is smaller than the end of the region it is extended and the
+	 * new bits are cleared.
+	 * </p>
+	 * 
+	 * @throws NullPointerException
+	 *             if the channel or the mode is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the size is less or equal zero or if the position is
+	 *             negative or not a multiple of 8.
+	 * @throws IOException
+	 *             if the region could not be mapped.
+	 * @param channel
+	 *            file channel.
+	 * @param mode
+	 *            map mode ({@code READ_ONLY} or {@code READ_WRITE}).
+	 * @param position
+	 *            position of the first word in the file.
+	 * @param size
+	 *            number of bits.
+	 */
+	public MappedBitStore(FileChannel channel, MapMode mode, long position,
+			long size) throws IOException {
+		super(size);
+		if (channel == null || mode == null) {
+			throw new NullPointerException("Invalid file channel or map mode.");
+		}
+		if (position < 0 || (position & 7) != 0) {
+			throw new IllegalArgumentException("Invalid region position: "
+					+ position);
+		}
+		long bytes = wordCount(size) << 3;
+		int chunkCount = (int) ((bytes + CHUNK_MASK) >>> CHUNK_BITS);
+		chunks = new MappedByteBuffer[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			long offset = (long) i << CHUNK_BITS;
+			long length = Math.min(bytes - offset, 1L << CHUNK_BITS);
+			chunks[i] = channel.map(mode, position + offset, length);
+			chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	@Override
+	public boolean get(long index) {
+		return (getWord(index >>> ADDRESS_BITS) & (1L << index)) != 0;
+	}
+
+	@Override
+	public void set(long index) {
+		long wordIndex = index >>> ADDRESS_BITS;
+		long mask = 1L << index;
+		long word = getWord(wordIndex);
+		if ((word & mask) == 0) {
+			setWord(wordIndex, word | mask);
+		}
+	}
+
+	@Override
+	public long getWord(long wordIndex) {
+		long offset = wordIndex << 3;
+		return chunks[(int) (offset >>> CHUNK_BITS)]
+				.getLong((int) (offset & CHUNK_MASK));
+	}
+
+	@Override
+	public void setWord(long wordIndex, long word) {
+		long offset = wordIndex << 3;
+		chunks[(int) (offset >>> CHUNK_BITS)].putLong(
+				(int) (offset & CHUNK_MASK), word);
+	}
+
+	/**
+	 * Writes the changes of the mapped region to the file.
+	 */
+	public void force() {
+		for (MappedByteBuffer chunk : chunks) {
+			if (!chunk.isReadOnly()) {
+				chunk.force();
+			}
+		}
+	}
+}
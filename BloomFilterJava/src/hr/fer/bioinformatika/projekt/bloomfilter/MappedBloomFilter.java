@@ -0,0 +1,207 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bloom Filter whose <em>m</em>-bit array is stored in a memory-mapped file.
+ * <p>
+ * A filter that is built once survives restarts of the application: opening
+ * the file only maps it, so the filter is ready without re-reading and
+ * re-hashing the dictionary. The bits are served by the OS page cache which
+ * can be shared by several processes and the filter doesn't need any heap
+ * space.
+ * </p>
+ * <p>
+ * The file starts with a {@value #HEADER_SIZE} byte header which holds the
+ * array size and the number of hash functions, followed by the packed words
+ * of the <em>m</em>-bit array.
+ * </p>
+ * 
+ * @see BloomFilter
+ * @see MappedBitStore
+ * 
+ */
+public class MappedBloomFilter<T> extends BloomFilter<T> implements Closeable {
+	/** magic number at the start of the file */
+	protected static final int MAGIC = 0x424c4d46;
+
+	/** version of the file layout */
+	protected static final int VERSION = 1;
+
+	/** size of the file header in bytes */
+	public static final int HEADER_SIZE = 64;
+
+	/** channel of the mapped file */
+	protected FileChannel channel;
+
+	/**
+	 * Creates a new file at the specified location and maps a filter with the
+	 * specified array size and number of hash functions. An existing file is
+	 * overwritten.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be created or mapped.
+	 * @param file
+	 *            filter file.
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public MappedBloomFilter(File file, long m, int k) throws IOException {
+		if (file == null) {
+			throw new NullPointerException("Invalid filter file: " + file);
+		}
+		setHashFunctions(HashFunctionFactory.getBloomFilterHashes());
+		setK(k);
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			channel.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+					ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putLong(m).putInt(k);
+			header.clear();
+			channel.write(header, 0);
+			setArray(new MappedBitStore(channel, MapMode.READ_WRITE,
+					HEADER_SIZE, m));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a new file at the specified location and maps a filter where the
+	 * array size and number of hash functions are determined by the estimated
+	 * number of items that will be added to the filter and the acceptable
+	 * false positive probability. An existing file is overwritten.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be created or mapped.
+	 * @param file
+	 *            filter file.
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be added to the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public MappedBloomFilter(File file, long estimatedNumOfItems,
+			double falsePositiveProbability) throws IOException {
+		this(file, (long) (estimatedNumOfItems
+				* Math.abs(Math.log(falsePositiveProbability)) / Math.pow(
+				Math.log(2), 2)), (int) Math.ceil(Math
+				.log(1. / falsePositiveProbability) / Math.log(2.)));
+	}
+
+	/**
+	 * Maps an existing filter file for reading and writing.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be opened or isn't a filter file.
+	 * @param file
+	 *            filter file.
+	 */
+	public MappedBloomFilter(File file) throws IOException {
+		this(file, false);
+	}
+
+	/**
+	 * Maps an existing filter file.
+	 * <p>
+	 * A filter mapped as read only can be queried, but adding an item throws a
+	 * {@code ReadOnlyBufferException}.
+	 * </p>
+	 * 
+	 * @throws IOException
+	 *             if the file could not be opened or isn't a filter file.
+	 * @param file
+	 *            filter file.
+	 * @param readOnly
+	 *            {@code true} if the filter won't be modified.
+	 */
+	public MappedBloomFilter(File file, boolean readOnly) throws IOException {
+		if (file == null) {
+			throw new NullPointerException("Invalid filter file: " + file);
+		}
+		setHashFunctions(HashFunctionFactory.getBloomFilterHashes());
+		if (readOnly) {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} else {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+		}
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+					ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header, header.position()) < 0) {
+					throw new IOException("Invalid filter file: " + file);
+				}
+			}
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Invalid filter file: " + file);
+			}
+			long m = header.getLong();
+			setK(header.getInt());
+			if (channel.size() < HEADER_SIZE + (BitStore.wordCount(m) << 3)) {
+				throw new IOException("Truncated filter file: " + file);
+			}
+			setArray(new MappedBitStore(channel, readOnly ? MapMode.READ_ONLY
+					: MapMode.READ_WRITE, HEADER_SIZE, m));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a copy of the filter on the heap. The copy isn't backed by the
+	 * file, so it doesn't share the channel of this filter.
+	 */
+	@Override
+	protected BloomFilter<T> copy() {
+		BloomFilter<T> copy = new BloomFilter<T>();
+		copy.setHashFunctions(hashFunctions);
+		copy.setIndexStrategy(indexStrategy);
+		copy.setK(k);
+		copy.setArray(array.copy());
+		return copy;
+	}
+
+	/**
+	 * The bits are chosen like in the {@link BloomFilter}, only the array is
+	 * stored differently.
+	 */
+	@Override
+	protected Class<?> getLayoutClass() {
+		return BloomFilter.class;
+	}
+
+	/**
+	 * Writes the changes of the filter to the file.
+	 */
+	public void force() {
+		((MappedBitStore) array).force();
+	}
+
+	/**
+	 * Writes the changes of the filter to the file and closes it.<br>
+	 * The mapping stays valid until the filter is garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+}
@@ -0,0 +1,417 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import hr.fer.bioinformatika.projekt.hash.NtHash;
+
+/**
+ * Classifier of reads against many references, which keeps one k-mer Bloom
+ * Filter per reference in a bit-sliced layout.
+ * <p>
+ * All filters have the same geometry: <em>m</em> bit positions and
+ * <em>k</em> hash functions. Instead of storing the filters one after
+ * another, the bits of all references at the same position are stored next
+ * to each other: the position <em>p</em> holds one 64-bit word per 64
+ * references, and bit <em>r</em> of the word is set if the reference
+ * <em>r</em> contains an item with <em>p</em> among its positions.
+ * </p>
+ * <p>
+ * A k-mer is hashed once with a rolling {@link NtHash}. The words at its
+ * <em>k</em> positions are AND-ed, and the bits that remain set are the
+ * references which probably contain the k-mer. One word fetch per position
+ * answers the query for 64 references, so the cost of a lookup barely grows
+ * with the number of references.
+ * </p>
+ * 
+ * <pre>
+ * MultiReferenceClassifier classifier = new MultiReferenceClassifier(
+ * 		references, kmers, 0.01, 31);
+ * classifier.addKmers(0, firstReference);
+ * ...
+ * int[] hits = new int[references];
+ * classifier.classify(read, hits);
+ * </pre>
+ * 
+ * @see BloomFilter#addKmers(byte[], int, int, int, boolean)
+ * 
+ */
+public class MultiReferenceClassifier {
+	/** bit-sliced array, <em>m</em> positions of {@link #words} words */
+	protected BitStore array;
+
+	/** number of references */
+	protected int references;
+
+	/** number of 64-bit words per position */
+	protected int words;
+
+	/** number of positions (<em>m</em>) */
+	protected long m;
+
+	/** number of hash functions */
+	protected int k;
+
+	/** length of the k-mers */
+	protected int kmerLength;
+
+	/** {@code true} if a k-mer and its reverse complement are the same item */
+	protected boolean canonical;
+
+	/** maps the hashes to positions */
+	protected IndexStrategy indexStrategy;
+
+	/** word offsets of the positions of a k-mer, reused by each thread */
+	private final ThreadLocal<long[]> offsets = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[k];
+		}
+	};
+
+	/**
+	 * Constructs a {@code MultiReferenceClassifier} with canonical k-mers and
+	 * the default index strategy.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if one of the parameters is less or equal zero.
+	 * @param references
+	 *            number of references.
+	 * @param m
+	 *            number of bit positions of every reference.
+	 * @param k
+	 *            number of hash functions.
+	 * @param kmerLength
+	 *            length of the k-mers.
+	 */
+	public MultiReferenceClassifier(int references, long m, int k,
+			int kmerLength) {
+		this(references, m, k, kmerLength, true, IndexStrategy.MODULO);
+	}
+
+	/**
+	 * Constructs a {@code MultiReferenceClassifier} with canonical k-mers
+	 * where the number of positions and hash functions are determined by the
+	 * estimated number of k-mers of the largest reference and the acceptable
+	 * false positive probability.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if one of the parameters is invalid.
+	 * @param references
+	 *            number of references.
+	 * @param estimatedNumOfKmers
+	 *            estimated number of k-mers of the largest reference.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability per reference.
+	 * @param kmerLength
+	 *            length of the k-mers.
+	 */
+	public MultiReferenceClassifier(int references, long estimatedNumOfKmers,
+			double falsePositiveProbability, int kmerLength) {
+		this(references, Math.max(1, (long) (estimatedNumOfKmers
+				* Math.abs(Math.log(falsePositiveProbability)) / Math.pow(
+				Math.log(2), 2))), (int) Math.ceil(Math
+				.log(1. / falsePositiveProbability) / Math.log(2.)),
+				kmerLength);
+	}
+
+	/**
+	 * Constructs a {@code MultiReferenceClassifier}.
+	 * 
+	 * @throws NullPointerException
+	 *             if the index strategy is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if one of the numeric parameters is less or equal zero.
+	 * @param references
+	 *            number of references.
+	 * @param m
+	 *            number of bit positions of every reference.
+	 * @param k
+	 *            number of hash functions.
+	 * @param kmerLength
+	 *            length of the k-mers.
+	 * @param canonical
+	 *            {@code true} if a k-mer and its reverse complement are the
+	 *            same item.
+	 * @param indexStrategy
+	 *            maps the hashes to positions.
+	 */
+	public MultiReferenceClassifier(int references, long m, int k,
+			int kmerLength, boolean canonical, IndexStrategy indexStrategy) {
+		if (references <= 0) {
+			throw new IllegalArgumentException("Invalid number of references: "
+					+ references);
+		}
+		if (m <= 0) {
+			throw new IllegalArgumentException("Invalid array size: " + m);
+		}
+		if (k <= 0) {
+			throw new IllegalArgumentException("Invalid k: " + k);
+		}
+		if (kmerLength <= 0) {
+			throw new IllegalArgumentException("Invalid k-mer length: "
+					+ kmerLength);
+		}
+		if (indexStrategy == null) {
+			throw new NullPointerException("Invalid index strategy: "
+					+ indexStrategy);
+		}
+		this.references = references;
+		this.words = (references + BitStore.WORD_SIZE - 1) >>> BitStore.ADDRESS_BITS;
+		this.m = indexStrategy.size(m);
+		this.k = k;
+		this.kmerLength = kmerLength;
+		this.canonical = canonical;
+		this.indexStrategy = indexStrategy;
+		long size = this.m * words * BitStore.WORD_SIZE;
+		if (size / BitStore.WORD_SIZE / words != this.m) {
+			throw new IllegalArgumentException("Array too large: " + m
+					+ " positions of " + references + " references");
+		}
+		this.array = size > BloomFilter.MAX_UNPAGED_SIZE ? new PagedBitStore(
+				size) : new LongArrayBitStore(size);
+	}
+
+	/**
+	 * Adds every k-mer of the sequence to the filter of a reference.
+	 * 
+	 * @throws NullPointerException
+	 *             if the sequence is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the reference is not valid.
+	 * @param reference
+	 *            index of the reference.
+	 * @param sequence
+	 *            nucleotide sequence.
+	 * @return number of added k-mers.
+	 */
+	public long addKmers(int reference, byte[] sequence) {
+		if (sequence == null) {
+			throw new NullPointerException("Invalid sequence: " + sequence);
+		}
+		return addKmers(reference, sequence, 0, sequence.length);
+	}
+
+	/**
+	 * Adds every k-mer of {@code len} bytes of the sequence starting at
+	 * {@code offset} to the filter of a reference. The k-mers which contain a
+	 * byte other than A, C, G or T are skipped.
+	 * 
+	 * @throws NullPointerException
+	 *             if the sequence is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the sequence.
+	 * @throws IllegalArgumentException
+	 *             if the reference is not valid.
+	 * @param reference
+	 *            index of the reference.
+	 * @param sequence
+	 *            nucleotide sequence.
+	 * @param offset
+	 *            index of the first nucleotide.
+	 * @param len
+	 *            number of nucleotides.
+	 * @return number of added k-mers.
+	 */
+	public long addKmers(int reference, byte[] sequence, int offset, int len) {
+		checkReference(reference);
+		NtHash ntHash = new NtHash(kmerLength, canonical);
+		ntHash.reset(sequence, offset, len);
+		long count = 0;
+		while (ntHash.next()) {
+			long h1 = ntHash.getHash();
+			long h2 = NtHash.secondHash(h1, kmerLength);
+			for (int i = 0; i < k; i++) {
+				// bit r of the words of a position belongs to the reference r
+				array.set(indexStrategy.index(h1, h2, i, m) * words
+						* BitStore.WORD_SIZE + reference);
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Classifies a read: {@code hits[r]} is set to the number of k-mers of the
+	 * read which are probably in the reference <em>r</em>.
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arrays is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the output array is shorter than the number of
+	 *             references.
+	 * @param read
+	 *            nucleotide sequence of the read.
+	 * @param hits
+	 *            output array with a tally per reference.
+	 * @return number of queried k-mers.
+	 * @see #classify(NtHash, byte[], int, int, int[])
+	 */
+	public int classify(byte[] read, int[] hits) {
+		if (read == null) {
+			throw new NullPointerException("Invalid read: " + read);
+		}
+		return classify(new NtHash(kmerLength, canonical), read, 0,
+				read.length, hits);
+	}
+
+	/**
+	 * Classifies {@code len} bytes of a read starting at {@code offset}:
+	 * {@code hits[r]} is set to the number of k-mers of the read which are
+	 * probably in the reference <em>r</em>.
+	 * <p>
+	 * Every k-mer is hashed once and the offsets of its <em>k</em> positions
+	 * are computed once, then the words of the positions are AND-ed for every
+	 * group of 64 references. The probing of a word stops as soon as no
+	 * reference is left. The
+	 * rolling hash is provided by the caller, which makes the classification
+	 * free of allocations; it must not be shared between threads.
+	 * </p>
+	 * 
+	 * @throws NullPointerException
+	 *             if the rolling hash or one of the arrays is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the read.
+	 * @throws IllegalArgumentException
+	 *             if the rolling hash has a different k-mer length or strand
+	 *             mode, or if the output array is shorter than the number of
+	 *             references.
+	 * @param ntHash
+	 *            reusable rolling hash.
+	 * @param read
+	 *            nucleotide sequence of the read.
+	 * @param offset
+	 *            index of the first nucleotide.
+	 * @param len
+	 *            number of nucleotides.
+	 * @param hits
+	 *            output array with a tally per reference.
+	 * @return number of queried k-mers.
+	 */
+	public int classify(NtHash ntHash, byte[] read, int offset, int len,
+			int[] hits) {
+		if (ntHash == null || hits == null) {
+			throw new NullPointerException("Invalid rolling hash or output array.");
+		}
+		if (ntHash.getK() != kmerLength || ntHash.isCanonical() != canonical) {
+			throw new IllegalArgumentException("Invalid rolling hash: k="
+					+ ntHash.getK() + ", canonical=" + ntHash.isCanonical());
+		}
+		if (hits.length < references) {
+			throw new IllegalArgumentException("Invalid output array length: "
+					+ hits.length);
+		}
+		ntHash.reset(read, offset, len);
+		for (int r = 0; r < references; r++) {
+			hits[r] = 0;
+		}
+		long[] positions = offsets.get();
+		int kmers = 0;
+		while (ntHash.next()) {
+			long h1 = ntHash.getHash();
+			long h2 = NtHash.secondHash(h1, kmerLength);
+			for (int i = 0; i < k; i++) {
+				positions[i] = indexStrategy.index(h1, h2, i, m) * words;
+			}
+			for (int w = 0; w < words; w++) {
+				long candidates = lastWordMask(w);
+				for (int i = 0; i < k && candidates != 0; i++) {
+					candidates &= array.getWord(positions[i] + w);
+				}
+				int base = w << BitStore.ADDRESS_BITS;
+				while (candidates != 0) {
+					hits[base + Long.numberOfTrailingZeros(candidates)]++;
+					candidates &= candidates - 1;
+				}
+			}
+			kmers++;
+		}
+		return kmers;
+	}
+
+	/**
+	 * Returns the reference with the most hits, or -1 if no reference has
+	 * any.
+	 * 
+	 * @throws NullPointerException
+	 *             if the array is {@code null}.
+	 * @param hits
+	 *            tally per reference filled by {@code classify}.
+	 * @return index of the best reference, -1 if there are no hits.
+	 */
+	public int best(int[] hits) {
+		if (hits == null) {
+			throw new NullPointerException("Invalid hit array: " + hits);
+		}
+		int best = -1;
+		int max = 0;
+		for (int r = 0; r < references && r < hits.length; r++) {
+			if (hits[r] > max) {
+				max = hits[r];
+				best = r;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the number of references.
+	 * 
+	 * @return number of references.
+	 */
+	public int getReferences() {
+		return references;
+	}
+
+	/**
+	 * Returns the length of the k-mers.
+	 * 
+	 * @return length of the k-mers.
+	 */
+	public int getKmerLength() {
+		return kmerLength;
+	}
+
+	/**
+	 * Returns the bit-sliced array.
+	 * 
+	 * @return bit-sliced array.
+	 */
+	protected BitStore getArray() {
+		return array;
+	}
+
+	/**
+	 * Returns the number of bit positions of every reference.
+	 * 
+	 * @return number of positions.
+	 */
+	protected long getM() {
+		return m;
+	}
+
+	/**
+	 * Returns the number of hash functions.
+	 * 
+	 * @return number of hash functions.
+	 */
+	protected int getK() {
+		return k;
+	}
+
+	/**
+	 * Returns the mask of the references stored in the word <em>w</em> of a
+	 * position.
+	 */
+	private long lastWordMask(int w) {
+		int used = references - (w << BitStore.ADDRESS_BITS);
+		return used >= BitStore.WORD_SIZE ? -1L : (1L << used) - 1;
+	}
+
+	/**
+	 * Checks if the index of the reference is valid.
+	 */
+	private void checkReference(int reference) {
+		if (reference < 0 || reference >= references) {
+			throw new IllegalArgumentException("Invalid reference: "
+					+ reference);
+		}
+	}
+}
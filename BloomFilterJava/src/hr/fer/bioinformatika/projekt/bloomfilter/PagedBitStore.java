@@ -0,0 +1,188 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import java.nio.LongBuffer;
+
+/**
+ * {@code BitStore} backed by fixed-size {@code long} array pages on the heap.
+ * <p>
+ * A single Java array can hold at most 2^31 elements and allocating one
+ * huge array needs a contiguous block of the heap. The pages lift both
+ * limits, so the store can hold tens of billions of bits. Finding a word
+ * costs one additional load from the (small, cache resident) page table.
+ * </p>
+ * 
+ * @see BitStore
+ * @see LongArrayBitStore
+ * 
+ */
+public class PagedBitStore extends BitStore {
+	/** default number of bits used to address a word inside of a page */
+	public static final int DEFAULT_PAGE_BITS = 24;
+
+	/** number of bits used to address a word inside of a page */
+	protected int pageBits;
+
+	/** mask for the word index inside of a page */
+	protected long pageMask;
+
+	/** pages holding the packed bits */
+	protected long[][] pages;
+
+	/**
+	 * Constructs a {@code PagedBitStore} with the specified number of bits and
+	 * pages of 2^24 words (128MB). All bits are cleared.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the size is less or equal zero.
+	 * @param size
+	 *            number of bits.
+	 */
+	public PagedBitStore(long size) {
+		this(size, DEFAULT_PAGE_BITS);
+	}
+
+	/**
+	 * Constructs a {@code PagedBitStore} with the specified number of bits and
+	 * pages of 2^pageBits words. All bits are cleared.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the size is less or equal zero or if the page size isn't
+	 *             between 2^0 and 2^30 words.
+	 * @param size
+	 *            number of bits.
+	 * @param pageBits
+	 *            number of bits used to address a word inside of a page.
+	 */
+	public PagedBitStore(long size, int pageBits) {
+		super(size);
+		if (pageBits < 0 || pageBits > 30) {
+			throw new IllegalArgumentException("Invalid page size: 2^"
+					+ pageBits);
+		}
+		this.pageBits = pageBits;
+		this.pageMask = (1L << pageBits) - 1;
+		long words = wordCount(size);
+		long pageCount = (words + pageMask) >>> pageBits;
+		if (pageCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid bit store size: "
+					+ size);
+		}
+		pages = new long[(int) pageCount][];
+		for (int i = 0; i < pages.length; i++) {
+			long pageWords = Math.min(words - ((long) i << pageBits),
+					1L << pageBits);
+			pages[i] = new long[(int) pageWords];
+		}
+	}
+
+	@Override
+	public boolean get(long index) {
+		long wordIndex = index >>> ADDRESS_BITS;
+		return (pages[(int) (wordIndex >>> pageBits)][(int) (wordIndex & pageMask)] & (1L << index)) != 0;
+	}
+
+	@Override
+	public void set(long index) {
+		long wordIndex = index >>> ADDRESS_BITS;
+		pages[(int) (wordIndex >>> pageBits)][(int) (wordIndex & pageMask)] |= 1L << index;
+	}
+
+	@Override
+	public long getWord(long wordIndex) {
+		return pages[(int) (wordIndex >>> pageBits)][(int) (wordIndex & pageMask)];
+	}
+
+	@Override
+	public void setWord(long wordIndex, long word) {
+		pages[(int) (wordIndex >>> pageBits)][(int) (wordIndex & pageMask)] = word;
+	}
+
+	@Override
+	public long cardinality() {
+		long count = 0;
+		for (long[] page : pages) {
+			for (int i = 0; i < page.length; i++) {
+				count += Long.bitCount(page[i]);
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public void or(BitStore other) {
+		if (!(other instanceof PagedBitStore)
+				|| ((PagedBitStore) other).pageBits != pageBits) {
+			super.or(other);
+			return;
+		}
+		checkSize(other);
+		long[][] otherPages = ((PagedBitStore) other).pages;
+		for (int p = 0; p < pages.length; p++) {
+			long[] page = pages[p];
+			long[] otherPage = otherPages[p];
+			for (int i = 0; i < page.length; i++) {
+				page[i] |= otherPage[i];
+			}
+		}
+	}
+
+	@Override
+	public void and(BitStore other) {
+		if (!(other instanceof PagedBitStore)
+				|| ((PagedBitStore) other).pageBits != pageBits) {
+			super.and(other);
+			return;
+		}
+		checkSize(other);
+		long[][] otherPages = ((PagedBitStore) other).pages;
+		for (int p = 0; p < pages.length; p++) {
+			long[] page = pages[p];
+			long[] otherPage = otherPages[p];
+			for (int i = 0; i < page.length; i++) {
+				page[i] &= otherPage[i];
+			}
+		}
+	}
+
+	@Override
+	public void readWords(long wordIndex, LongBuffer source) {
+		checkWordRange(wordIndex, source.remaining());
+		while (source.hasRemaining()) {
+			long[] page = pages[(int) (wordIndex >>> pageBits)];
+			int offset = (int) (wordIndex & pageMask);
+			int count = Math.min(source.remaining(), page.length - offset);
+			source.get(page, offset, count);
+			wordIndex += count;
+		}
+	}
+
+	@Override
+	public void writeWords(long wordIndex, LongBuffer target) {
+		checkWordRange(wordIndex, target.remaining());
+		while (target.hasRemaining()) {
+			long[] page = pages[(int) (wordIndex >>> pageBits)];
+			int offset = (int) (wordIndex & pageMask);
+			int count = Math.min(target.remaining(), page.length - offset);
+			target.put(page, offset, count);
+			wordIndex += count;
+		}
+	}
+
+	@Override
+	public BitStore copy() {
+		PagedBitStore copy = new PagedBitStore(size, pageBits);
+		for (int p = 0; p < pages.length; p++) {
+			System.arraycopy(pages[p], 0, copy.pages[p], 0, pages[p].length);
+		}
+		return copy;
+	}
+
+	@Override
+	public void clear() {
+		for (long[] page : pages) {
+			for (int i = 0; i < page.length; i++) {
+				page[i] = 0L;
+			}
+		}
+	}
+}
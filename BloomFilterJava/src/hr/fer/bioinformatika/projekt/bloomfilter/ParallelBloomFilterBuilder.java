@@ -0,0 +1,290 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Builds a Bloom Filter from a large input on several threads.
+ * <p>
+ * The input is split into ranges which are processed by the tasks of a
+ * {@code ForkJoinPool}. Every worker thread adds its ranges to a filter of
+ * its own, created by the factory, so the workers never share a bit array
+ * and adding an item needs no synchronization. When all ranges are processed
+ * the filters of the workers are merged with a word-wise OR of their arrays,
+ * which gives exactly the bits a single filter would have after adding the
+ * whole input.
+ * </p>
+ * <p>
+ * The factory must return empty filters of identical geometry (type, array
+ * size, number of hash functions, hash family and index strategy). Filters
+ * which don't own a bit array, like the {@link ScalableBloomFilter}, can't be
+ * merged and are rejected.
+ * </p>
+ * <p>
+ * A {@link Collector} for parallel streams is available too, see
+ * {@link #toBloomFilter(Supplier)}. A stream creates a filter for every
+ * split of its input, so {@link #build(Collection)} needs less memory for
+ * large filters.
+ * </p>
+ * 
+ * @see BloomFilter
+ * @see BloomFilter#orInto(BloomFilter)
+ * 
+ */
+public class ParallelBloomFilterBuilder<T, F extends BloomFilter<T>> {
+	/** default number of items processed by a single task */
+	public static final int DEFAULT_RANGE_SIZE = 1 << 14;
+
+	/** creates the filters of the workers */
+	protected Supplier<? extends F> factory;
+
+	/** pool that runs the tasks */
+	protected ForkJoinPool pool;
+
+	/** number of items processed by a single task */
+	protected int rangeSize;
+
+	/**
+	 * Constructs a {@code ParallelBloomFilterBuilder} which runs on the common
+	 * {@code ForkJoinPool}.
+	 * 
+	 * @throws NullPointerException
+	 *             if the factory is {@code null}.
+	 * @param factory
+	 *            creates empty filters of identical geometry.
+	 */
+	public ParallelBloomFilterBuilder(Supplier<? extends F> factory) {
+		this(factory, ForkJoinPool.commonPool(), DEFAULT_RANGE_SIZE);
+	}
+
+	/**
+	 * Constructs a {@code ParallelBloomFilterBuilder} which runs on the
+	 * specified pool.
+	 * 
+	 * @throws NullPointerException
+	 *             if the factory or the pool is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the range size is less or equal zero.
+	 * @param factory
+	 *            creates empty filters of identical geometry.
+	 * @param pool
+	 *            pool that runs the tasks.
+	 * @param rangeSize
+	 *            number of items processed by a single task.
+	 */
+	public ParallelBloomFilterBuilder(Supplier<? extends F> factory,
+			ForkJoinPool pool, int rangeSize) {
+		if (factory == null || pool == null) {
+			throw new NullPointerException("Invalid factory or pool.");
+		}
+		if (rangeSize <= 0) {
+			throw new IllegalArgumentException("Invalid range size: "
+					+ rangeSize);
+		}
+		this.factory = factory;
+		this.pool = pool;
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Returns a filter which contains all items of the input collection.
+	 * 
+	 * @throws NullPointerException
+	 *             if the collection or one of its items is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the filters of the factory can't be merged.
+	 * @param items
+	 *            input items.
+	 * @return filter with all items.
+	 */
+	public F build(Collection<? extends T> items) {
+		if (items == null) {
+			throw new NullPointerException("Invalid input collection: "
+					+ items);
+		}
+		List<? extends T> list;
+		if (items instanceof List && items instanceof RandomAccess) {
+			list = (List<? extends T>) items;
+		} else {
+			list = new ArrayList<T>(items);
+		}
+		ConcurrentHashMap<Thread, F> filters = new ConcurrentHashMap<Thread, F>();
+		pool.invoke(new BuildTask(list, 0, list.size(), filters));
+		return mergeAll(filters.values());
+	}
+
+	/**
+	 * Returns a filter which contains all items of the input array.
+	 * 
+	 * @throws NullPointerException
+	 *             if the array or one of its items is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the filters of the factory can't be merged.
+	 * @param items
+	 *            input items.
+	 * @return filter with all items.
+	 */
+	public F build(T[] items) {
+		if (items == null) {
+			throw new NullPointerException("Invalid input array: " + items);
+		}
+		return build(Arrays.asList(items));
+	}
+
+	/**
+	 * Merges the filters of the workers into the first one.
+	 */
+	private F mergeAll(Collection<F> filters) {
+		Iterator<F> iterator = filters.iterator();
+		if (!iterator.hasNext()) {
+			// empty input, no task has added an item
+			return newFilter();
+		}
+		F result = iterator.next();
+		while (iterator.hasNext()) {
+			merge(result, iterator.next());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new filter created by the factory.
+	 * 
+	 * @throws NullPointerException
+	 *             if the factory returns {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the filter can't be merged.
+	 * @return new filter.
+	 */
+	protected F newFilter() {
+		F filter = factory.get();
+		if (filter == null) {
+			throw new NullPointerException("Invalid filter: " + filter);
+		}
+		if (filter.getArray() == null) {
+			throw new IllegalArgumentException(
+					"Filters without an array can't be merged: "
+							+ filter.getClass().getSimpleName());
+		}
+		return filter;
+	}
+
+	/**
+	 * Sets the bits of the source filter in the target filter.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the geometry of the filters differs.
+	 * @param target
+	 *            filter that receives the bits.
+	 * @param source
+	 *            filter whose bits are added.
+	 * @return target filter.
+	 */
+	protected static <T, F extends BloomFilter<T>> F merge(F target, F source) {
+		source.orInto(target);
+		return target;
+	}
+
+	/**
+	 * Returns a {@code Collector} which adds the items of a stream to a
+	 * filter. A parallel stream fills a filter for every split of its input
+	 * and merges them with a word-wise OR.
+	 * 
+	 * @throws NullPointerException
+	 *             if the factory is {@code null}.
+	 * @param factory
+	 *            creates empty filters of identical geometry.
+	 * @return collector.
+	 */
+	public static <T, F extends BloomFilter<T>> Collector<T, ?, F> toBloomFilter(
+			Supplier<F> factory) {
+		if (factory == null) {
+			throw new NullPointerException("Invalid factory: " + factory);
+		}
+		final ParallelBloomFilterBuilder<T, F> builder = new ParallelBloomFilterBuilder<T, F>(
+				factory);
+		return Collector.of(new Supplier<F>() {
+			@Override
+			public F get() {
+				return builder.newFilter();
+			}
+		}, new BiConsumer<F, T>() {
+			@Override
+			public void accept(F filter, T item) {
+				filter.add(item);
+			}
+		}, new BinaryOperator<F>() {
+			@Override
+			public F apply(F left, F right) {
+				return merge(left, right);
+			}
+		}, Collector.Characteristics.UNORDERED,
+				Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	/**
+	 * Task that adds a range of the input to the filter of the current
+	 * worker, or splits the range in two.
+	 */
+	private class BuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** input items */
+		private final List<? extends T> items;
+
+		/** index of the first item of the range */
+		private final int from;
+
+		/** index after the last item of the range */
+		private final int to;
+
+		/** filters of the workers */
+		private final ConcurrentHashMap<Thread, F> filters;
+
+		BuildTask(List<? extends T> items, int from, int to,
+				ConcurrentHashMap<Thread, F> filters) {
+			this.items = items;
+			this.from = from;
+			this.to = to;
+			this.filters = filters;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= rangeSize) {
+				if (from < to) {
+					filterOfCurrentThread().addAll(items.subList(from, to));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BuildTask(items, from, middle, filters),
+					new BuildTask(items, middle, to, filters));
+		}
+
+		/**
+		 * Returns the filter of the current thread, it is created when the
+		 * thread runs its first task.
+		 */
+		private F filterOfCurrentThread() {
+			Thread thread = Thread.currentThread();
+			F filter = filters.get(thread);
+			if (filter == null) {
+				filter = newFilter();
+				filters.put(thread, filter);
+			}
+			return filter;
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package hr.fer.bioinformatika.projekt.bloomfilter;
 
+import hr.fer.bioinformatika.projekt.hash.HashFunction;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+
 /**
  * A Partitioned Bloom Filter is a variant of the original Bloom Filter.
  * <p>
@@ -20,7 +23,7 @@ package hr.fer.bioinformatika.projekt.bloomfilter;
  */
 public class PartitionedBloomFilter<T> extends BloomFilter<T> {
 	/** Array for storing upper bounds of the array splices */
-	protected int[] partitionIndexes;
+	protected long[] partitionIndexes;
 
 	/**
 	 * Constructs a {@code PartitionedBloomFilter} object with the specified
@@ -32,10 +35,41 @@ public class PartitionedBloomFilter<T> extends BloomFilter<T> {
 	 *            number of hash functions.
 	 */
 	public PartitionedBloomFilter(int m, int k) {
+		this((long) m, k);
+	}
+
+	/**
+	 * Constructs a {@code PartitionedBloomFilter} object with the specified
+	 * array size and number of hash functions used.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 */
+	public PartitionedBloomFilter(long m, int k) {
 		super(m, k);
 		setPartitionIndexes(createPartitionIndexes(m, k));
 	}
 
+	/**
+	 * Constructs a {@code PartitionedBloomFilter} object with the specified
+	 * array size, number of hash functions used and the hash functions that
+	 * produce the two hashes of an item.
+	 * 
+	 * @see BloomFilter#BloomFilter(long, int, HashFunction[])
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 * @param hashFunctions
+	 *            hash functions.
+	 */
+	public PartitionedBloomFilter(long m, int k, HashFunction[] hashFunctions) {
+		super(m, k, hashFunctions);
+		setPartitionIndexes(createPartitionIndexes(m, k));
+	}
+
 	/**
 	 * Constructs a {@code PartitionedBloomFilter} where the array size and
 	 * number of hash functions are determined by the estimated number of items
@@ -47,10 +81,10 @@ public class PartitionedBloomFilter<T> extends BloomFilter<T> {
 	 * @param falsePositiveProbability
 	 *            acceptable false positive probability.
 	 */
-	public PartitionedBloomFilter(int estimatedNumOfItems,
+	public PartitionedBloomFilter(long estimatedNumOfItems,
 			double falsePositiveProbability) {
 		super(estimatedNumOfItems, falsePositiveProbability);
-		setPartitionIndexes(createPartitionIndexes(array.length, k));
+		setPartitionIndexes(createPartitionIndexes(array.size(), k));
 	}
 
 	/**
@@ -63,75 +97,93 @@ public class PartitionedBloomFilter<T> extends BloomFilter<T> {
 	 * @param m
 	 *            array size.
 	 */
-	public PartitionedBloomFilter(double falsePositiveProbability, int m) {
+	public PartitionedBloomFilter(double falsePositiveProbability, long m) {
 		super(falsePositiveProbability, m);
-		setPartitionIndexes(createPartitionIndexes(array.length, k));
+		setPartitionIndexes(createPartitionIndexes(array.size(), k));
 	}
 
+	/**
+	 * Constructs a {@code PartitionedBloomFilter} object with the specified
+	 * array size, number of hash functions used and the strategy which maps
+	 * the hashes to the indexes of a slice. The strategy may enlarge the
+	 * slices.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 * @param indexStrategy
+	 *            index strategy.
+	 */
+	public PartitionedBloomFilter(long m, int k, IndexStrategy indexStrategy) {
+		this(m, k, HashFunctionFactory.getBloomFilterHashes(), indexStrategy);
+	}
+
+	/**
+	 * Constructs a {@code PartitionedBloomFilter} object with the specified
+	 * array size, number of hash functions used, the hash functions that
+	 * produce the two hashes of an item and the strategy which maps the hashes
+	 * to the indexes of a slice. The strategy may enlarge the slices.
+	 * 
+	 * @param m
+	 *            array size.
+	 * @param k
+	 *            number of hash functions.
+	 * @param hashFunctions
+	 *            hash functions.
+	 * @param indexStrategy
+	 *            index strategy.
+	 */
+	public PartitionedBloomFilter(long m, int k, HashFunction[] hashFunctions,
+			IndexStrategy indexStrategy) {
+		super(m, k, hashFunctions, indexStrategy);
+		setPartitionIndexes(createPartitionIndexes(array.size(), k));
+	}
+
+	/**
+	 * Returns the size of the array for the requested size, every slice is
+	 * adjusted to the needs of the index strategy.
+	 */
 	@Override
-	public void add(T item) {
-		if (item == null) {
-			throw new NullPointerException("Invalid input item: " + item);
-		}
-		byte[] itemBytes = getBytes(item);
-		long h1 = hashFunctions[0].getHash(itemBytes);
-		long h2 = hashFunctions[1].getHash(itemBytes);
-
-		// calculate the first two indexes and set their array values to true
-		int partitionLength = partitionIndexes[1] - partitionIndexes[0];
-		int h1Index = (int) (h1 % partitionIndexes[0]);
-		int h2Index = (int) (h2 % partitionLength) + partitionIndexes[0];
-		array[h1Index] = true;
-		array[h2Index] = true;
-
-		// calculate the remaining indexes and set their array values to true
-		for (int i = 2; i < k; i++) {
-			partitionLength = partitionIndexes[i] - partitionIndexes[i - 1];
-			int index = (int) ((h1 + i * h2) % partitionLength);
-			// if the previous statement caused an overflow the index will be <0
-			if (index < 0) {
-				index += partitionLength;
-			}
-
-			index += partitionIndexes[i - 1];
-			array[index] = true;
+	protected long arraySize(long m) {
+		long length = (m + k - 1) / k;
+		long adjusted = indexStrategy.size(length);
+		if (adjusted == length) {
+			return m;
 		}
+		return adjusted * k;
 	}
 
 	@Override
-	public boolean query(T item) {
-		if (item == null) {
-			throw new NullPointerException("Invalid input item: " + item);
-		}
-		byte[] itemBytes = getBytes(item);
-		long h1 = hashFunctions[0].getHash(itemBytes);
-		long h2 = hashFunctions[1].getHash(itemBytes);
-
-		// calculate indexes of the first two hashes and query the array
-		int partitionLength = partitionIndexes[1] - partitionIndexes[0];
-		int h1Index = (int) (h1 % partitionIndexes[0]);
-		int h2Index = (int) (h2 % partitionLength) + partitionIndexes[0];
-		if (!array[h1Index] || !array[h2Index]) {
-			return false;
-		}
+	protected boolean requiresWideHashes() {
+		return hash128 == null
+				&& indexStrategy.requiresWideHashes(partitionIndexes[0]);
+	}
+
+	/**
+	 * Returns the index of the <em>i</em>-th bit of an item, which is always
+	 * in the <em>i</em>-th slice.
+	 */
+	@Override
+	protected long index(long h1, long h2, int i) {
+		long partitionStart = i == 0 ? 0 : partitionIndexes[i - 1];
+		return indexStrategy.index(h1, h2, i, partitionIndexes[i]
+				- partitionStart)
+				+ partitionStart;
+	}
 
-		// calculate the remaining indexes and query the array
-		boolean isInFilter = true;
-		for (int i = 2; i < k; i++) {
-			partitionLength = partitionIndexes[i] - partitionIndexes[i - 1];
-			int index = (int) ((h1 + i * h2) % partitionLength);
-			// if the previous statement caused an overflow the index will be <0
-			if (index < 0) {
-				index += partitionLength;
-			}
-			index += partitionIndexes[i - 1];
-
-			if (!array[index]) {
-				isInFilter = false;
-				break;
-			}
+	/**
+	 * Returns the estimated number of distinct items in a filter with the
+	 * specified number of set bits. Every item sets one bit in each
+	 * partition: <code>n = ln(1 - X/m) / ln(1 - k/m)</code>.
+	 */
+	@Override
+	protected double estimateSize(long setBits) {
+		long m = array.size();
+		if (setBits >= m) {
+			return Double.POSITIVE_INFINITY;
 		}
-		return isInFilter;
+		return Math.log1p(-(double) setBits / m) / Math.log1p(-(double) k / m);
 	}
 
 	/**
@@ -143,11 +195,11 @@ public class PartitionedBloomFilter<T> extends BloomFilter<T> {
 	 *            number of splices/partitions.
 	 * @return array with the upper bounds.
 	 */
-	public int[] createPartitionIndexes(int m, int k) {
-		int[] indexes = new int[k];
-		int bitsPerFunction = m / k;
-		int remainder = m % k;
-		int lastIndex = 0;
+	public long[] createPartitionIndexes(long m, int k) {
+		long[] indexes = new long[k];
+		long bitsPerFunction = m / k;
+		long remainder = m % k;
+		long lastIndex = 0;
 		for (int i = 0; i < k; i++) {
 			int additionalBit = (remainder > 0) ? 1 : 0;
 			remainder--;
@@ -162,7 +214,7 @@ public class PartitionedBloomFilter<T> extends BloomFilter<T> {
 	 * 
 	 * @return array with the upper bounds of the <em>m-bit</em> array splices.
 	 */
-	protected int[] getPartitionIndexes() {
+	protected long[] getPartitionIndexes() {
 		return partitionIndexes;
 	}
 
@@ -172,7 +224,7 @@ public class PartitionedBloomFilter<T> extends BloomFilter<T> {
 	 * @param partitionIndexes
 	 *            array containing the upper bounds.
 	 */
-	protected void setPartitionIndexes(int[] partitionIndexes) {
+	protected void setPartitionIndexes(long[] partitionIndexes) {
 		if (partitionIndexes == null) {
 			throw new NullPointerException();
 		}
@@ -1,5 +1,7 @@
 package hr.fer.bioinformatika.projekt.bloomfilter;
 
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,6 +18,14 @@ import java.util.List;
  * "Each successive bloom filter is created with a tighter maximum error probability on a geometric progression."
  * </li>
  * </p>
+ * <p>
+ * The capacity of every filter is <em>s</em> times the capacity of the
+ * previous one, where <em>s</em> is the growth factor. With <em>s</em> &gt; 1
+ * the number of filters, and so the cost of a query, grows logarithmically
+ * with the number of items; the paper suggests <em>s</em>=2 (or 4 for fast
+ * growing sets). The default growth factor is 1, every filter then holds
+ * {@code fillRatioLimit} items.
+ * </p>
  * 
  * @see BloomFilter
  * @see <a href="http://gsd.di.uminho.pt/members/cbm/ps/dbloom.pdf">Paper about
@@ -27,18 +37,43 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 
 	/***/
 	protected double falsePositiveProbability;
-	/** maximum number of items that can be added to a filter */
+	/** maximum number of items that can be added to the first filter */
 	protected int fillRatioLimit;
 
 	/** bloom filter list */
 	protected List<BloomFilter<T>> filters;
 
 	/** number of items in the current bloom filter */
-	protected int itemsInCurrent;
+	protected long itemsInCurrent;
+
+	/** maximum number of items that can be added to the current filter */
+	protected long currentCapacity;
 
 	/** tighening ratio */
 	protected double r;
 
+	/** growth factor */
+	protected double s;
+
+	/**
+	 * 
+	 * @param fillRatioLimit
+	 *            maximum number of items that can be added to the first
+	 *            filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param r
+	 *            tightening ratio
+	 * @param s
+	 *            growth factor, the capacity of a new filter is {@code s}
+	 *            times the capacity of the previous one.
+	 */
+	public ScalableBloomFilter(int fillRatioLimit,
+			double falsePositiveProbability, double r, double s) {
+		this(fillRatioLimit, falsePositiveProbability, r);
+		setS(s);
+	}
+
 	/**
 	 * 
 	 * @param fillRatioLimit
@@ -64,33 +99,90 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 	public ScalableBloomFilter(int fillRatioLimit,
 			double falsePositiveProbability) {
 		setFilters(new ArrayList<BloomFilter<T>>());
+		// the filters use the same hash functions, so an item is hashed once
+		// by the batch methods and the hashes are passed to the filters
+		setHashFunctions(HashFunctionFactory.getBloomFilterHashes());
 		setFillRatioLimit(fillRatioLimit);
 		setFalsePositiveProbability(falsePositiveProbability);
 		setItemsInCurrent(0);
 		setR(0.9);
+		setS(1);
+		currentCapacity = fillRatioLimit;
 		filters.add(new PartitionedBloomFilter<T>(fillRatioLimit,
 				falsePositiveProbability));
 	}
+
+	/**
+	 * Adds the item whose hashes are {@code h1} and {@code h2} to the last
+	 * filter. The items are hashed once by the inherited {@code add} methods,
+	 * the filters use the same hash functions.
+	 */
 	@Override
-	public void add(T item) {
-		BloomFilter<T> currentFilter = filters.get(filters.size() - 1);
-		currentFilter.add(item);
-		itemsInCurrent++;
-		if (itemsInCurrent >= fillRatioLimit) {
-			addNewFilter();
+	protected void addHashes(long h1, long h2) {
+		filters.get(filters.size() - 1).addHashes(h1, h2);
+		itemAdded();
+	}
+
+	/**
+	 * Probes the filters with the hashes of an item, the newest filter
+	 * first.<br>
+	 * The item is hashed once by the inherited {@code query} methods and the
+	 * hashes are passed to every filter, so a query doesn't encode and hash
+	 * the item again for each filter. The newest filters are the largest and
+	 * hold the most recently added items, so they are the most likely to
+	 * contain a queried item.
+	 */
+	@Override
+	protected boolean queryHashes(long h1, long h2) {
+		for (int i = filters.size() - 1; i >= 0; i--) {
+			if (filters.get(i).queryHashes(h1, h2)) {
+				return true;
+			}
 		}
+		return false;
 	}
 
+	/**
+	 * Adds the items one by one, so every item is counted and a new filter is
+	 * added as soon as the current one is full.
+	 */
 	@Override
-	public boolean query(T item) {
-		boolean isInFilter = false;
-		for (int i = 0; i < filters.size(); i++) {
-			isInFilter = queryFilter(i, item);
-			if (isInFilter) {
-				break;
+	protected void addHashes(long[] hashes, int offset, int count) {
+		addHashesEach(hashes, offset, count);
+	}
+
+	/**
+	 * Queries the whole batch in every filter, the newest filter first, and
+	 * stops when every item of the batch has been found.
+	 */
+	@Override
+	protected void queryHashes(long[] hashes, int offset, int count,
+			boolean[] out, int outOffset) {
+		boolean[] found = new boolean[count];
+		for (int j = 0; j < count; j++) {
+			out[outOffset + j] = false;
+		}
+		int missing = count;
+		for (int i = filters.size() - 1; i >= 0 && missing > 0; i--) {
+			filters.get(i).queryHashes(hashes, offset, count, found, 0);
+			for (int j = 0; j < count; j++) {
+				if (found[j] && !out[outOffset + j]) {
+					out[outOffset + j] = true;
+					missing--;
+				}
 			}
 		}
-		return isInFilter;
+	}
+
+	/**
+	 * Counts an item added to the last filter and adds a new filter if the
+	 * last one is full.
+	 */
+	protected void itemAdded() {
+		itemsInCurrent++;
+		if (itemsInCurrent >= currentCapacity) {
+			addNewFilter();
+		}
 	}
 
 	/**
@@ -107,6 +199,21 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 		return filters.get(index).query(item);
 	}
 
+	/**
+	 * Returns the estimated number of distinct items in the filter, the sum of
+	 * the estimates of all filters in the list.
+	 * 
+	 * @return estimated number of items.
+	 */
+	@Override
+	public double estimateSize() {
+		double size = 0;
+		for (BloomFilter<T> filter : filters) {
+			size += filter.estimateSize();
+		}
+		return size;
+	}
+
 	/**
 	 * Adds a new {@code PartitionedBloomFilter} to the list.
 	 * <p>
@@ -116,17 +223,46 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 	 * The number of hash functions in the new filter is:
 	 * <code>k(i)=k(0)+i</code>
 	 * <p>
+	 * The capacity of the new filter is:
+	 * <code>c(i)=&lceil;c(i-1)*s&rceil;</code>, <code>c(0)=fillRatioLimit</code>
+	 * </p>
+	 * <p>
 	 * The <em>m</em>-bit array size of the new filter is:
-	 * <code>fillRatioLimit*|ln(p(i))|/(ln2)^2</code>
+	 * <code>c(i)*|ln(p(i))|/(ln2)^2</code>
 	 * </p>
 	 */
 	protected void addNewFilter() {
 		falsePositiveProbability *= r;
 		itemsInCurrent = 0;
-		filters.add(new PartitionedBloomFilter<T>(fillRatioLimit,
+		currentCapacity = nextCapacity(currentCapacity);
+		filters.add(new PartitionedBloomFilter<T>(currentCapacity,
 				falsePositiveProbability));
 	}
 
+	/**
+	 * Returns the maximum number of items that can be added to the filter
+	 * with the specified index.
+	 * 
+	 * @param index
+	 *            filter index.
+	 * @return capacity of the filter.
+	 */
+	protected long getCapacity(int index) {
+		long capacity = fillRatioLimit;
+		for (int i = 0; i < index; i++) {
+			capacity = nextCapacity(capacity);
+		}
+		return capacity;
+	}
+
+	/**
+	 * Returns the capacity of the filter which follows a filter with the
+	 * specified capacity, saturated at {@code Long.MAX_VALUE}.
+	 */
+	private long nextCapacity(long capacity) {
+		return (long) Math.ceil(capacity * s);
+	}
+
 	/**
 	 * Returns the current false positive probability.
 	 * 
@@ -153,9 +289,10 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 	}
 
 	/**
-	 * Returns the maximum number of items that can be stored in a filter.
+	 * Returns the maximum number of items that can be stored in the first
+	 * filter.
 	 * 
-	 * @return maximum number of items that can be stored in a filter.
+	 * @return maximum number of items that can be stored in the first filter.
 	 */
 	protected int getFillRatioLimit() {
 		return fillRatioLimit;
@@ -198,6 +335,9 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 					"The filters array must not be null!");
 		}
 		this.filters = filters;
+		if (!filters.isEmpty()) {
+			currentCapacity = getCapacity(filters.size() - 1);
+		}
 	}
 
 	/**
@@ -205,7 +345,7 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 	 * 
 	 * @return number of items in the last filter.
 	 */
-	protected int getItemsInCurrent() {
+	protected long getItemsInCurrent() {
 		return itemsInCurrent;
 	}
 
@@ -216,7 +356,7 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 	 * @param itemsInCurrent
 	 *            number of items in the last added filter.
 	 */
-	protected void setItemsInCurrent(int itemsInCurrent) {
+	protected void setItemsInCurrent(long itemsInCurrent) {
 		this.itemsInCurrent = itemsInCurrent;
 	}
 
@@ -244,4 +384,29 @@ public class ScalableBloomFilter<T> extends BloomFilter<T> {
 		}
 		this.r = r;
 	}
+
+	/**
+	 * Returns the growth factor.
+	 * 
+	 * @return growth factor.
+	 */
+	protected double getS() {
+		return s;
+	}
+
+	/**
+	 * Sets the growth factor to the specified value.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the specified value is less than 1.
+	 * @param s
+	 *            growth factor.
+	 */
+	protected void setS(double s) {
+		if (!(s >= 1)) {
+			throw new IllegalArgumentException(
+					"The growth factor must be at least 1");
+		}
+		this.s = s;
+	}
 }
@@ -0,0 +1,159 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+/**
+ * Scalable Bloom Filter specialized for {@code long} keys.
+ * <p>
+ * The key is hashed once, the same way as in the {@link LongBloomFilter}, and
+ * the hashes are passed to the slices. Adding or querying a {@code long}
+ * doesn't allocate (except for the new slice when the current one is full).
+ * </p>
+ * 
+ * @see ScalableBloomFilter
+ * @see LongBloomFilter
+ * 
+ */
+public class ScalableLongBloomFilter extends ScalableBloomFilter<Long> {
+
+	/**
+	 * 
+	 * @param fillRatioLimit
+	 *            maximum number of items that can be added to the first
+	 *            filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param r
+	 *            tightening ratio
+	 * @param s
+	 *            growth factor
+	 */
+	public ScalableLongBloomFilter(int fillRatioLimit,
+			double falsePositiveProbability, double r, double s) {
+		super(fillRatioLimit, falsePositiveProbability, r, s);
+	}
+
+	/**
+	 * 
+	 * @param fillRatioLimit
+	 *            maximum number of items that can be added to a filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 * @param r
+	 *            tightening ratio
+	 */
+	public ScalableLongBloomFilter(int fillRatioLimit,
+			double falsePositiveProbability, double r) {
+		super(fillRatioLimit, falsePositiveProbability, r);
+	}
+
+	/**
+	 * 
+	 * @param fillRatioLimit
+	 *            maximum number of items that can be added to a filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public ScalableLongBloomFilter(int fillRatioLimit,
+			double falsePositiveProbability) {
+		super(fillRatioLimit, falsePositiveProbability);
+	}
+
+	/**
+	 * Adds a key to the filter.
+	 * 
+	 * @param key
+	 *            key to add.
+	 */
+	public void add(long key) {
+		long hash = LongBloomFilter.hash(key);
+		addHashes(hash & 0xffffffffL, hash >>> 32);
+	}
+
+	/**
+	 * Adds all keys of the input array to the filter. The keys are hashed in
+	 * batches and the bits of a batch are set together.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input array is {@code null}.
+	 * @param keys
+	 *            keys to add.
+	 */
+	public void addAll(final long[] keys) {
+		if (keys == null) {
+			throw new NullPointerException("Invalid key array: " + keys);
+		}
+		addBatches(keys.length, new HashFill() {
+			@Override
+			public void fill(int index, long[] hashes, int offset) {
+				LongBloomFilter.hash(keys[index], hashes, offset);
+			}
+		});
+	}
+
+	/**
+	 * Returns {@code true} if the specified key is in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @param key
+	 *            input key.
+	 * @return {@code true}if the key is probably in the set, {@code false}
+	 *         otherwise.
+	 */
+	public boolean query(long key) {
+		long hash = LongBloomFilter.hash(key);
+		return queryHashes(hash & 0xffffffffL, hash >>> 32);
+	}
+
+	/**
+	 * Queries all keys of the input array. {@code out[i]} is set to
+	 * {@code true} if {@code keys[i]} is probably in the filter,
+	 * {@code false} otherwise.
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arrays is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the output array is shorter than the input array.
+	 * @param keys
+	 *            input keys.
+	 * @param out
+	 *            output array.
+	 */
+	public void queryAll(final long[] keys, boolean[] out) {
+		if (keys == null || out == null) {
+			throw new NullPointerException("Invalid key or output array.");
+		}
+		if (out.length < keys.length) {
+			throw new IllegalArgumentException("Invalid output array length: "
+					+ out.length);
+		}
+		queryBatches(keys.length, new HashFill() {
+			@Override
+			public void fill(int index, long[] hashes, int offset) {
+				LongBloomFilter.hash(keys[index], hashes, offset);
+			}
+		}, out);
+	}
+
+	@Override
+	public void add(Long item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		add(item.longValue());
+	}
+
+	@Override
+	public boolean query(Long item) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		return query(item.longValue());
+	}
+
+	@Override
+	protected void hash(Long item, long[] hashes, int offset) {
+		if (item == null) {
+			throw new NullPointerException("Invalid input item: " + item);
+		}
+		LongBloomFilter.hash(item.longValue(), hashes, offset);
+	}
+}
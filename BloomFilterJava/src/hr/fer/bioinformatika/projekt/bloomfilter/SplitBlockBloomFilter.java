@@ -0,0 +1,217 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+/**
+ * Split Block Bloom Filter implementation (the layout used by Parquet and
+ * Impala).
+ * <p>
+ * The <em>m</em>-bit array is divided into blocks of 256 bits and every block
+ * is split into eight 32-bit words. The first hash of an item selects a block
+ * and the second hash sets exactly one bit in each of the eight words, so
+ * <em>k</em> is always 8. The bit of word <em>i</em> is
+ * <code>(h2 * SALT[i]) &gt;&gt;&gt; 27</code>.
+ * </p>
+ * <p>
+ * The eight masks are built without branches and applied to the four
+ * 64-bit words of the block, so adding or querying an item takes a few
+ * multiplications and four word accesses in a single cache line.
+ * </p>
+ * 
+ * @see BlockedBloomFilter
+ * @see <a
+ *      href="https://github.com/apache/parquet-format/blob/master/BloomFilter.md"
+ *      >Parquet Bloom Filter specification</a>
+ * 
+ */
+public class SplitBlockBloomFilter<T> extends BloomFilter<T> {
+	/** number of bits used to address a bit inside of a block */
+	public static final int BLOCK_ADDRESS_BITS = 8;
+
+	/** number of bits in a block */
+	public static final int BLOCK_SIZE = 1 << BLOCK_ADDRESS_BITS;
+
+	/** mask for the bit index inside of a block */
+	protected static final long BLOCK_MASK = BLOCK_SIZE - 1;
+
+	/** number of bits an item sets, one per 32-bit word of a block */
+	public static final int K = 8;
+
+	/** odd constants used to derive the bit of every word of a block */
+	protected static final int[] SALT = { 0x47b6137b, 0x44974d91, 0x8824ad5b,
+			0xa2b7289d, 0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31 };
+
+	/** number of blocks */
+	protected long blocks;
+
+	/**
+	 * Returns a {@code SplitBlockBloomFilter} object with the specified array
+	 * size. The array size is rounded up to a multiple of the block size.
+	 * 
+	 * @param m
+	 *            array size.
+	 */
+	public SplitBlockBloomFilter(long m) {
+		super(m, K);
+		blocks = array.size() >>> BLOCK_ADDRESS_BITS;
+	}
+
+	/**
+	 * Constructs a {@code SplitBlockBloomFilter} where the array size is
+	 * determined by the estimated number of items that will be added to the
+	 * filter and the acceptable false positive probability.
+	 * 
+	 * @param estimatedNumOfItems
+	 *            estimated number of items that will be added to the filter.
+	 * @param falsePositiveProbability
+	 *            acceptable false positive probability.
+	 */
+	public SplitBlockBloomFilter(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		this(optimalSize(estimatedNumOfItems, falsePositiveProbability));
+	}
+
+	@Override
+	protected void addHashes(long h1, long h2) {
+		long word = blockIndex(h1) << 2;
+		int key = (int) h2;
+		array.setWord(word, array.getWord(word) | mask(key, 0));
+		array.setWord(word + 1, array.getWord(word + 1) | mask(key, 2));
+		array.setWord(word + 2, array.getWord(word + 2) | mask(key, 4));
+		array.setWord(word + 3, array.getWord(word + 3) | mask(key, 6));
+	}
+
+	@Override
+	protected boolean queryHashes(long h1, long h2) {
+		long word = blockIndex(h1) << 2;
+		int key = (int) h2;
+		long mask0 = mask(key, 0);
+		long mask1 = mask(key, 2);
+		long mask2 = mask(key, 4);
+		long mask3 = mask(key, 6);
+		// no early exit, the four words are in the same cache line
+		return ((array.getWord(word) & mask0) ^ mask0
+				| (array.getWord(word + 1) & mask1) ^ mask1
+				| (array.getWord(word + 2) & mask2) ^ mask2
+				| (array.getWord(word + 3) & mask3) ^ mask3) == 0;
+	}
+
+	@Override
+	protected void addHashes(long[] hashes, int offset, int count) {
+		addHashesEach(hashes, offset, count);
+	}
+
+	@Override
+	protected void queryHashes(long[] hashes, int offset, int count,
+			boolean[] out, int outOffset) {
+		// every item touches a single block, the accesses of different items
+		// are independent and overlap without probing in rounds
+		queryHashesEach(hashes, offset, count, out, outOffset);
+	}
+
+	/**
+	 * Returns the mask of a 64-bit word that holds the 32-bit words
+	 * {@code lane} and {@code lane + 1} of a block.
+	 * 
+	 * @param key
+	 *            second hash of the item.
+	 * @param lane
+	 *            index of the lower 32-bit word.
+	 * @return mask with one bit set in each half.
+	 */
+	private static long mask(int key, int lane) {
+		return (1L << ((key * SALT[lane]) >>> 27))
+				| (1L << (32 + ((key * SALT[lane + 1]) >>> 27)));
+	}
+
+	/**
+	 * Returns the index of the block selected by the first hash.
+	 * <p>
+	 * The 32-bit hash (the high half of a 64-bit hash) is mapped to the
+	 * blocks with a multiplication and a shift instead of a modulo.
+	 * </p>
+	 * 
+	 * @param h1
+	 *            first hash of the item.
+	 * @return index of the block.
+	 */
+	protected long blockIndex(long h1) {
+		long hash = hash128 == null ? h1 & 0xffffffffL : h1 >>> 32;
+		return (hash * blocks) >>> 32;
+	}
+
+	/**
+	 * Creates the <em>m</em>-bit array rounded up to a multiple of the block
+	 * size.
+	 */
+	@Override
+	protected BitStore createArray(long m) {
+		long blockCount = (m + BLOCK_MASK) >>> BLOCK_ADDRESS_BITS;
+		if (blockCount > HASH_RANGE) {
+			throw new IllegalArgumentException("Invalid filter array size: "
+					+ m);
+		}
+		return super.createArray(blockCount << BLOCK_ADDRESS_BITS);
+	}
+
+	/**
+	 * Returns the false positive probability of a split block filter with the
+	 * specified array size and number of items.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the array size is less or equal zero or if the number of
+	 *             items is negative.
+	 * @param m
+	 *            array size.
+	 * @param n
+	 *            number of items in the filter.
+	 * @return false positive probability.
+	 */
+	public static double estimateFalsePositiveProbability(long m, long n) {
+		if (m <= 0 || n < 0) {
+			throw new IllegalArgumentException("Invalid filter parameters: m="
+					+ m + ", n=" + n);
+		}
+		double lambda = (double) n * BLOCK_SIZE
+				/ ((m + BLOCK_MASK) & ~BLOCK_MASK);
+		return BlockedBloomFilter.estimateFalsePositiveProbability(lambda, 32,
+				1, K);
+	}
+
+	/**
+	 * Returns the smallest array size (a multiple of the block size) for
+	 * which the filter reaches the acceptable false positive probability.
+	 */
+	private static long optimalSize(long estimatedNumOfItems,
+			double falsePositiveProbability) {
+		if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+			throw new IllegalArgumentException(
+					"False-positive probability must be between 0 and 1.");
+		}
+		long m = BLOCK_SIZE;
+		if (estimatedNumOfItems <= 0) {
+			return m;
+		}
+		// double the size, then narrow it down with a binary search
+		while (estimateFalsePositiveProbability(m, estimatedNumOfItems) > falsePositiveProbability) {
+			m <<= 1;
+		}
+		long low = m >>> 1;
+		while (m - low > BLOCK_SIZE) {
+			long middle = ((low + m) >>> 1) & ~BLOCK_MASK;
+			if (estimateFalsePositiveProbability(middle, estimatedNumOfItems) > falsePositiveProbability) {
+				low = middle;
+			} else {
+				m = middle;
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Returns the number of blocks.
+	 * 
+	 * @return number of blocks.
+	 */
+	protected long getBlocks() {
+		return blocks;
+	}
+}
@@ -1,6 +1,6 @@
 package hr.fer.bioinformatika.projekt.hash;
 
-
+import java.nio.ByteBuffer;
 
 /**
  * Implementation of the Fowler–Noll–Vo-1a hash algorithm.
@@ -25,7 +25,33 @@ public class FNV1HashFunction implements HashFunction {
 		}
 		return calculateHash(input, 0, input.length, seed);
 	}
-	
+
+	@Override
+	public long getHash(byte[] input, int offset, int len) {
+		if (input == null) {
+			throw new NullPointerException("Input array must not be null!");
+		}
+		if (offset < 0 || len < 0 || offset > input.length - len) {
+			throw new IndexOutOfBoundsException("Invalid input range: "
+					+ offset + ", " + len);
+		}
+		return calculateHash(input, offset, len, seed);
+	}
+
+	@Override
+	public long getHash(ByteBuffer input) {
+		if (input == null) {
+			throw new NullPointerException("Input buffer must not be null!");
+		}
+		if (input.hasArray()) {
+			return calculateHash(input.array(),
+					input.arrayOffset() + input.position(), input.remaining(),
+					seed);
+		}
+		return calculateHash(null, input, input.position(),
+				input.remaining(), seed);
+	}
+
 	/**
 	 * Calculates the hash value of the input array of bytes starting at
 	 * {@code offset}.<br>
@@ -42,12 +68,30 @@ public class FNV1HashFunction implements HashFunction {
 	 * @return hash value of the input data represented as a 32bit value.
 	 */
 	protected long calculateHash(byte[] data, int offset, int len, long seed) {
+		return calculateHash(data, null, offset, len, seed);
+	}
+
+	/**
+	 * Calculates the hash value of {@code len} bytes of the input array or,
+	 * if the array is {@code null}, of the input buffer starting at the
+	 * absolute position {@code offset}.
+	 */
+	private static long calculateHash(byte[] array, ByteBuffer buffer,
+			int offset, int len, long seed) {
 		long hash = seed;
 		for (int i = offset; i < offset + len; i++) {
 			hash += (hash << 1) + (hash << 4) + (hash << 7) + (hash << 8)
 					+ (hash << 24);
-			hash ^= data[i];
+			hash ^= byteAt(array, buffer, i);
 		}
 		return hash & 0x00000000ffffffffL;
 	}
+
+	/**
+	 * Returns a byte of the input array or, if the array is {@code null}, of
+	 * the input buffer.
+	 */
+	private static byte byteAt(byte[] array, ByteBuffer buffer, int index) {
+		return array != null ? array[index] : buffer.get(index);
+	}
 }
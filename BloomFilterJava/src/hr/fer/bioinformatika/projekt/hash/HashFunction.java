@@ -1,8 +1,15 @@
 package hr.fer.bioinformatika.projekt.hash;
 
+import java.nio.ByteBuffer;
+
 /**
  * The {@code HashFunction} interface provides the {@code getHash} method to
  * create a hash code of the input array of bytes.
+ * <p>
+ * The input can also be a part of a larger array or the remaining bytes of a
+ * {@code ByteBuffer}, so keys stored inside of a larger buffer (a sequence, a
+ * mapped file...) can be hashed in place without copying them.
+ * </p>
  * 
  * @author Ivan Kraljević
  * 
@@ -17,4 +24,30 @@ public interface HashFunction {
 	 * @return hash value of the input represented as a 32bit value.
 	 */
 	public long getHash(byte[] input);
+
+	/**
+	 * Returns a hash code of {@code len} bytes of the input array starting at
+	 * {@code offset}.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param input
+	 *            the input array of bytes. Must not be {@code null}.
+	 * @param offset
+	 *            the offset to start from in the array of bytes.
+	 * @param len
+	 *            the number of bytes to use, starting at offset.
+	 * @return hash value of the input represented as a 32bit value.
+	 */
+	public long getHash(byte[] input, int offset, int len);
+
+	/**
+	 * Returns a hash code of the remaining bytes of the input buffer.<br>
+	 * The position of the buffer is not changed.
+	 * 
+	 * @param input
+	 *            the input buffer (heap or direct). Must not be {@code null}.
+	 * @return hash value of the input represented as a 32bit value.
+	 */
+	public long getHash(ByteBuffer input);
 }
@@ -9,6 +9,7 @@ package hr.fer.bioinformatika.projekt.hash;
  * @see MurmurHash
  * @see FNV1HashFunction
  * @see FNV1aHashFunction
+ * @see MurmurHash128
  * @author Ivan Kraljević
  * 
  */
@@ -21,7 +22,7 @@ public class HashFunctionFactory {
 	 */
 	public static HashFunction[] getAll() {
 		HashFunction[] functions = new HashFunction[] { new FNV1HashFunction(),
-				new FNV1aHashFunction(), new MurmurHash() };
+				new FNV1aHashFunction(), new MurmurHash(), new MurmurHash128() };
 		return functions;
 	}
 
@@ -36,6 +37,18 @@ public class HashFunctionFactory {
 				new FNV1aHashFunction(), new MurmurHash() };
 		return functions;
 	}
+
+	/**
+	 * Returns the 128-bit MurmurHash3 implementation. A Bloom Filter that uses
+	 * it takes both hashes of an item from a single pass over the item.
+	 * 
+	 * @return array which contains the MurmurHash3_x64_128 implementation.
+	 */
+	public static HashFunction[] getSinglePassBloomFilterHashes() {
+		HashFunction[] functions = new HashFunction[] { new MurmurHash128() };
+		return functions;
+	}
+
 	/**
 	 * Returns the specified hash function.
 	 * 
@@ -47,7 +60,9 @@ public class HashFunctionFactory {
 	public static HashFunction get(String functionName) {
 		functionName = functionName.trim().toLowerCase();
 		HashFunction function = null;
-		if (functionName.startsWith("murmur")) {
+		if (functionName.startsWith("murmur128")) {
+			function = new MurmurHash128();
+		} else if (functionName.startsWith("murmur")) {
 			function = new MurmurHash();
 		} else if (functionName.startsWith("fnv1a")) {
 			function = new FNV1aHashFunction();
@@ -1,5 +1,7 @@
 package hr.fer.bioinformatika.projekt.hash;
 
+import java.nio.ByteBuffer;
+
 /**
  * Implementation of the MurmurHash3 algorithm.
  * 
@@ -50,6 +52,15 @@ public class MurmurHash implements HashFunction {
 		this.seed = seed;
 	}
 
+	/**
+	 * Returns the initial seed.
+	 * 
+	 * @return initial seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
 	@Override
 	public long getHash(byte[] input) {
 		if (input == null) {
@@ -58,6 +69,32 @@ public class MurmurHash implements HashFunction {
 		return calculateHash(input, 0, input.length, seed);
 	}
 
+	@Override
+	public long getHash(byte[] input, int offset, int len) {
+		if (input == null) {
+			throw new NullPointerException("Input array must not be null!");
+		}
+		if (offset < 0 || len < 0 || offset > input.length - len) {
+			throw new IndexOutOfBoundsException("Invalid input range: "
+					+ offset + ", " + len);
+		}
+		return calculateHash(input, offset, len, seed);
+	}
+
+	@Override
+	public long getHash(ByteBuffer input) {
+		if (input == null) {
+			throw new NullPointerException("Input buffer must not be null!");
+		}
+		if (input.hasArray()) {
+			return calculateHash(input.array(),
+					input.arrayOffset() + input.position(), input.remaining(),
+					seed);
+		}
+		return calculateHash(null, input, input.position(),
+				input.remaining(), seed);
+	}
+
 	/**
 	 * Calculates the hash value of the input array of bytes starting at
 	 * {@code offset}.<br>
@@ -74,13 +111,22 @@ public class MurmurHash implements HashFunction {
 	 * @return hash value of the input data represented as a 32bit value.
 	 */
 	public long calculateHash(byte[] data, int offset, int len, long seed) {
+		return calculateHash(data, null, offset, len, seed);
+	}
+
+	/**
+	 * Calculates the hash value of {@code len} bytes of the input array or,
+	 * if the array is {@code null}, of the input buffer starting at the
+	 * absolute position {@code offset}.
+	 */
+	@SuppressWarnings("fallthrough")
+	private static long calculateHash(byte[] array, ByteBuffer buffer,
+			int offset, int len, long seed) {
 		long hash = seed;
 		int roundedLen = offset + (len & 0xfffffffc);
 
 		for (int i = offset; i < roundedLen; i += 4) {
-			// little endian order
-			int k = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8)
-					| ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+			int k = intAt(array, buffer, i);
 			k *= c1;
 			k = (k << r1) | (k >>> (32 - r1));
 			k *= c2;
@@ -93,11 +139,11 @@ public class MurmurHash implements HashFunction {
 		int k = 0;
 		switch (len & 0x03) {
 		case 3:
-			k = (data[roundedLen + 2] & 0xff) << 16;
+			k = (byteAt(array, buffer, roundedLen + 2) & 0xff) << 16;
 		case 2:
-			k |= (data[roundedLen + 1] & 0xff) << 8;
+			k |= (byteAt(array, buffer, roundedLen + 1) & 0xff) << 8;
 		case 1:
-			k |= (data[roundedLen] & 0xff);
+			k |= (byteAt(array, buffer, roundedLen) & 0xff);
 		}
 		k *= c1;
 		k = (k << 15) | (k >>> 17);
@@ -114,4 +160,44 @@ public class MurmurHash implements HashFunction {
 		return hash & 0x00000000ffffffffL;
 	}
 
+	/**
+	 * Returns the four bytes of the input array or, if the array is
+	 * {@code null}, of the input buffer starting at {@code index} in little
+	 * endian order.
+	 */
+	private static int intAt(byte[] array, ByteBuffer buffer, int index) {
+		if (array != null) {
+			return (array[index] & 0xff) | ((array[index + 1] & 0xff) << 8)
+					| ((array[index + 2] & 0xff) << 16) | (array[index + 3] << 24);
+		}
+		return (buffer.get(index) & 0xff) | ((buffer.get(index + 1) & 0xff) << 8)
+				| ((buffer.get(index + 2) & 0xff) << 16)
+				| (buffer.get(index + 3) << 24);
+	}
+
+	/**
+	 * Returns a byte of the input array or, if the array is {@code null}, of
+	 * the input buffer.
+	 */
+	private static byte byteAt(byte[] array, ByteBuffer buffer, int index) {
+		return array != null ? array[index] : buffer.get(index);
+	}
+
+	/**
+	 * The 64-bit finalizer of the MurmurHash3 algorithm.<br>
+	 * Mixes the bits of the input so that every input bit affects every
+	 * output bit. Different inputs always produce different outputs.
+	 * 
+	 * @param k
+	 *            input value.
+	 * @return mixed value.
+	 */
+	public static long fmix64(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
 }
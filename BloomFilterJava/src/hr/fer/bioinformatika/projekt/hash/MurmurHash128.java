@@ -0,0 +1,399 @@
+package hr.fer.bioinformatika.projekt.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation of the 128-bit MurmurHash3 algorithm (MurmurHash3_x64_128).
+ * <p>
+ * The input is processed in 16 byte blocks and the result consists of two
+ * 64-bit halves. A Bloom Filter can use the halves as the two hashes of an
+ * item, so the item is read only once.
+ * </p>
+ * <p>
+ * {@code getHash} returns the high 32 bits of the first half, like the other
+ * {@link HashFunction}s, so the function can be combined with them. Use the
+ * methods that take an output array to get both 64-bit halves. The array returned by {@link #scratch()}
+ * can be reused as the output array, so hashing an item doesn't allocate.
+ * </p>
+ * 
+ * @see HashFunction
+ * @see MurmurHash
+ * @see <a href="https://github.com/aappleby/smhasher">SMHasher project</a>
+ * 
+ */
+public class MurmurHash128 implements HashFunction {
+	/** MurmurHash constant used for bit mixing */
+	protected static final long c1 = 0x87c37b91114253d5L;
+
+	/** MurmurHash constant used for bit mixing */
+	protected static final long c2 = 0x4cf5ad432745937fL;
+
+	/** Initial seed */
+	protected long seed = 0;
+
+	/** output array reused by each thread */
+	private static final ThreadLocal<long[]> SCRATCH = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[2];
+		}
+	};
+
+	/**
+	 * Constructs a new {@code MurmurHash128} where the initial seed is set to
+	 * zero.
+	 */
+	public MurmurHash128() {
+	}
+
+	/**
+	 * Constructs a new {@code MurmurHash128} with the specified initial seed.
+	 * 
+	 * @param seed
+	 *            initial seed.
+	 */
+	public MurmurHash128(int seed) {
+		this.seed = seed & 0xffffffffL;
+	}
+
+	/**
+	 * Returns the initial seed.
+	 * 
+	 * @return initial seed, an unsigned 32-bit value.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns an output array of length 2 owned by the calling thread. The
+	 * array is overwritten by the next call of any {@code getHash} method on
+	 * the same thread, so the halves should be read right after the hash is
+	 * calculated.
+	 * 
+	 * @return reusable output array of the calling thread.
+	 */
+	public static long[] scratch() {
+		return SCRATCH.get();
+	}
+
+	@Override
+	public long getHash(byte[] input) {
+		if (input == null) {
+			throw new NullPointerException("Input array must not be null!");
+		}
+		long[] out = scratch();
+		calculateHash(input, 0, input.length, seed, out, 0);
+		return out[0] >>> 32;
+	}
+
+	@Override
+	public long getHash(byte[] input, int offset, int len) {
+		long[] out = scratch();
+		getHash(input, offset, len, out);
+		return out[0] >>> 32;
+	}
+
+	@Override
+	public long getHash(ByteBuffer input) {
+		long[] out = scratch();
+		getHash(input, out);
+		return out[0] >>> 32;
+	}
+
+	/**
+	 * Calculates the 128-bit hash of {@code len} bytes of the input array
+	 * starting at {@code offset}. The first half is stored to {@code out[0]}
+	 * and the second half to {@code out[1]}.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input or the output array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array or if the output
+	 *             array is shorter than 2.
+	 * @param input
+	 *            the input array of bytes.
+	 * @param offset
+	 *            the offset to start from in the array of bytes.
+	 * @param len
+	 *            the number of bytes to use, starting at offset.
+	 * @param out
+	 *            output array.
+	 */
+	public void getHash(byte[] input, int offset, int len, long[] out) {
+		getHash(input, offset, len, out, 0);
+	}
+
+	/**
+	 * Calculates the 128-bit hash of {@code len} bytes of the input array
+	 * starting at {@code offset}. The halves are stored to
+	 * {@code out[outOffset]} and {@code out[outOffset + 1]}, so the hashes of
+	 * many items can be collected in a single array.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input or the output array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array or if the output
+	 *             array is too short.
+	 * @param input
+	 *            the input array of bytes.
+	 * @param offset
+	 *            the offset to start from in the array of bytes.
+	 * @param len
+	 *            the number of bytes to use, starting at offset.
+	 * @param out
+	 *            output array.
+	 * @param outOffset
+	 *            index of the first half in the output array.
+	 */
+	public void getHash(byte[] input, int offset, int len, long[] out,
+			int outOffset) {
+		if (input == null) {
+			throw new NullPointerException("Input array must not be null!");
+		}
+		if (offset < 0 || len < 0 || offset > input.length - len) {
+			throw new IndexOutOfBoundsException("Invalid input range: "
+					+ offset + ", " + len);
+		}
+		calculateHash(input, offset, len, seed, out, outOffset);
+	}
+
+	/**
+	 * Calculates the 128-bit hash of the remaining bytes of the input buffer.
+	 * The first half is stored to {@code out[0]} and the second half to
+	 * {@code out[1]}. The position of the buffer is not changed.
+	 * 
+	 * @throws NullPointerException
+	 *             if the input buffer or the output array is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the output array is shorter than 2.
+	 * @param input
+	 *            input buffer (heap or direct).
+	 * @param out
+	 *            output array.
+	 */
+	public void getHash(ByteBuffer input, long[] out) {
+		if (input == null) {
+			throw new NullPointerException("Input buffer must not be null!");
+		}
+		if (input.hasArray()) {
+			calculateHash(input.array(),
+					input.arrayOffset() + input.position(), input.remaining(),
+					seed, out, 0);
+		} else {
+			calculateHash(input, input.position(), input.remaining(), seed,
+					out, 0);
+		}
+	}
+
+	/**
+	 * Calculates the hash value of the input array of bytes starting at
+	 * {@code offset}.<br>
+	 * Uses the MurmurHash3_x64_128 algorithm.
+	 * 
+	 * @param data
+	 *            the array of bytes.
+	 * @param offset
+	 *            the offset to start from in the array of bytes.
+	 * @param len
+	 *            the number of bytes to use, starting at offset.
+	 * @param seed
+	 *            starting seed.
+	 * @param out
+	 *            output array for the two 64-bit halves of the hash value.
+	 * @param outOffset
+	 *            index of the first half in the output array.
+	 */
+	@SuppressWarnings("fallthrough")
+	public void calculateHash(byte[] data, int offset, int len, long seed,
+			long[] out, int outOffset) {
+		long h1 = seed;
+		long h2 = seed;
+		int roundedLen = offset + (len & 0xfffffff0);
+
+		for (int i = offset; i < roundedLen; i += 16) {
+			h1 ^= mixK1(getLong(data, i));
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+
+			h2 ^= mixK2(getLong(data, i + 8));
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+
+		// remaining bytes
+		long k1 = 0;
+		long k2 = 0;
+		switch (len & 0x0f) {
+		case 15:
+			k2 ^= (long) (data[roundedLen + 14] & 0xff) << 48;
+		case 14:
+			k2 ^= (long) (data[roundedLen + 13] & 0xff) << 40;
+		case 13:
+			k2 ^= (long) (data[roundedLen + 12] & 0xff) << 32;
+		case 12:
+			k2 ^= (long) (data[roundedLen + 11] & 0xff) << 24;
+		case 11:
+			k2 ^= (long) (data[roundedLen + 10] & 0xff) << 16;
+		case 10:
+			k2 ^= (long) (data[roundedLen + 9] & 0xff) << 8;
+		case 9:
+			k2 ^= (long) (data[roundedLen + 8] & 0xff);
+			h2 ^= mixK2(k2);
+		case 8:
+			k1 ^= (long) (data[roundedLen + 7] & 0xff) << 56;
+		case 7:
+			k1 ^= (long) (data[roundedLen + 6] & 0xff) << 48;
+		case 6:
+			k1 ^= (long) (data[roundedLen + 5] & 0xff) << 40;
+		case 5:
+			k1 ^= (long) (data[roundedLen + 4] & 0xff) << 32;
+		case 4:
+			k1 ^= (long) (data[roundedLen + 3] & 0xff) << 24;
+		case 3:
+			k1 ^= (long) (data[roundedLen + 2] & 0xff) << 16;
+		case 2:
+			k1 ^= (long) (data[roundedLen + 1] & 0xff) << 8;
+		case 1:
+			k1 ^= (long) (data[roundedLen] & 0xff);
+			h1 ^= mixK1(k1);
+		}
+
+		finish(h1, h2, len, out, outOffset);
+	}
+
+	/**
+	 * Calculates the hash value of {@code len} bytes of the input buffer
+	 * starting at the absolute position {@code offset}.<br>
+	 * Uses the MurmurHash3_x64_128 algorithm.
+	 * 
+	 * @param data
+	 *            the buffer.
+	 * @param offset
+	 *            the absolute position to start from in the buffer.
+	 * @param len
+	 *            the number of bytes to use, starting at offset.
+	 * @param seed
+	 *            starting seed.
+	 * @param out
+	 *            output array for the two 64-bit halves of the hash value.
+	 * @param outOffset
+	 *            index of the first half in the output array.
+	 */
+	@SuppressWarnings("fallthrough")
+	public void calculateHash(ByteBuffer data, int offset, int len,
+			long seed, long[] out, int outOffset) {
+		long h1 = seed;
+		long h2 = seed;
+		int roundedLen = offset + (len & 0xfffffff0);
+
+		for (int i = offset; i < roundedLen; i += 16) {
+			h1 ^= mixK1(getLong(data, i));
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+
+			h2 ^= mixK2(getLong(data, i + 8));
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+
+		// remaining bytes
+		long k1 = 0;
+		long k2 = 0;
+		switch (len & 0x0f) {
+		case 15:
+			k2 ^= (long) (data.get(roundedLen + 14) & 0xff) << 48;
+		case 14:
+			k2 ^= (long) (data.get(roundedLen + 13) & 0xff) << 40;
+		case 13:
+			k2 ^= (long) (data.get(roundedLen + 12) & 0xff) << 32;
+		case 12:
+			k2 ^= (long) (data.get(roundedLen + 11) & 0xff) << 24;
+		case 11:
+			k2 ^= (long) (data.get(roundedLen + 10) & 0xff) << 16;
+		case 10:
+			k2 ^= (long) (data.get(roundedLen + 9) & 0xff) << 8;
+		case 9:
+			k2 ^= (long) (data.get(roundedLen + 8) & 0xff);
+			h2 ^= mixK2(k2);
+		case 8:
+			k1 ^= (long) (data.get(roundedLen + 7) & 0xff) << 56;
+		case 7:
+			k1 ^= (long) (data.get(roundedLen + 6) & 0xff) << 48;
+		case 6:
+			k1 ^= (long) (data.get(roundedLen + 5) & 0xff) << 40;
+		case 5:
+			k1 ^= (long) (data.get(roundedLen + 4) & 0xff) << 32;
+		case 4:
+			k1 ^= (long) (data.get(roundedLen + 3) & 0xff) << 24;
+		case 3:
+			k1 ^= (long) (data.get(roundedLen + 2) & 0xff) << 16;
+		case 2:
+			k1 ^= (long) (data.get(roundedLen + 1) & 0xff) << 8;
+		case 1:
+			k1 ^= (long) (data.get(roundedLen) & 0xff);
+			h1 ^= mixK1(k1);
+		}
+
+		finish(h1, h2, len, out, outOffset);
+	}
+
+	/**
+	 * Final mixing of the two halves.
+	 */
+	private static void finish(long h1, long h2, int len, long[] out,
+			int outOffset) {
+		h1 ^= len;
+		h2 ^= len;
+		h1 += h2;
+		h2 += h1;
+		h1 = MurmurHash.fmix64(h1);
+		h2 = MurmurHash.fmix64(h2);
+		h1 += h2;
+		h2 += h1;
+		out[outOffset] = h1;
+		out[outOffset + 1] = h2;
+	}
+
+	private static long mixK1(long k1) {
+		k1 *= c1;
+		k1 = Long.rotateLeft(k1, 31);
+		k1 *= c2;
+		return k1;
+	}
+
+	private static long mixK2(long k2) {
+		k2 *= c2;
+		k2 = Long.rotateLeft(k2, 33);
+		k2 *= c1;
+		return k2;
+	}
+
+	/**
+	 * Reads a little endian {@code long} from the array.
+	 */
+	private static long getLong(byte[] data, int i) {
+		return (data[i] & 0xffL) | ((data[i + 1] & 0xffL) << 8)
+				| ((data[i + 2] & 0xffL) << 16) | ((data[i + 3] & 0xffL) << 24)
+				| ((data[i + 4] & 0xffL) << 32) | ((data[i + 5] & 0xffL) << 40)
+				| ((data[i + 6] & 0xffL) << 48) | ((long) data[i + 7] << 56);
+	}
+
+	/**
+	 * Reads a little endian {@code long} from the buffer, the byte order of
+	 * the buffer is ignored.
+	 */
+	private static long getLong(ByteBuffer data, int i) {
+		return (data.get(i) & 0xffL) | ((data.get(i + 1) & 0xffL) << 8)
+				| ((data.get(i + 2) & 0xffL) << 16)
+				| ((data.get(i + 3) & 0xffL) << 24)
+				| ((data.get(i + 4) & 0xffL) << 32)
+				| ((data.get(i + 5) & 0xffL) << 40)
+				| ((data.get(i + 6) & 0xffL) << 48)
+				| ((long) data.get(i + 7) << 56);
+	}
+}
@@ -0,0 +1,333 @@
+package hr.fer.bioinformatika.projekt.hash;
+
+/**
+ * ntHash, a rolling hash function for the k-mers of DNA sequences.
+ * <p>
+ * Every nucleotide has a random 64-bit seed. The hash of a k-mer is the
+ * exclusive or of the seeds, where the seed of the <em>j</em>-th nucleotide
+ * is rotated left by <em>k-1-j</em> bits. When the window moves one position
+ * to the right the hash is updated with two rotations and two exclusive or
+ * operations, regardless of <em>k</em>:<br>
+ * f(i+1) = rol(f(i), 1) ^ rol(h(s[i]), k) ^ h(s[i+k])
+ * </p>
+ * <p>
+ * The hash of the reverse complement is rolled at the same time, so a
+ * canonical (strand-neutral) hash, the sum of both hashes, costs a few more
+ * operations per position. A k-mer and its reverse complement have the same
+ * canonical hash.
+ * </p>
+ * <p>
+ * Lower case nucleotides are equal to upper case ones. Any other byte (N,
+ * IUPAC codes...) is not a nucleotide, the k-mers which contain it are
+ * skipped.
+ * </p>
+ * 
+ * @see <a href="https://doi.org/10.1093/bioinformatics/btw397">ntHash:
+ *      recursive nucleotide hashing</a>
+ * 
+ */
+public class NtHash {
+	/** seed of the nucleotide A */
+	protected static final long SEED_A = 0x3c8bfbb395c60474L;
+
+	/** seed of the nucleotide C */
+	protected static final long SEED_C = 0x3193c18562a02b4cL;
+
+	/** seed of the nucleotide G */
+	protected static final long SEED_G = 0x20323ed082572324L;
+
+	/** seed of the nucleotide T */
+	protected static final long SEED_T = 0x295549f54be24456L;
+
+	/** multiplier used to derive the second hash of a k-mer */
+	protected static final long MULTI_SEED = 0x90b45d39fb6da1faL;
+
+	/** shift used to derive the second hash of a k-mer */
+	protected static final int MULTI_SHIFT = 27;
+
+	/** seeds of the nucleotides indexed by byte, zero for other bytes */
+	protected static final long[] SEEDS = new long[256];
+
+	/** seeds of the complements indexed by byte, zero for other bytes */
+	protected static final long[] COMPLEMENT_SEEDS = new long[256];
+
+	static {
+		setSeeds('A', SEED_A, SEED_T);
+		setSeeds('C', SEED_C, SEED_G);
+		setSeeds('G', SEED_G, SEED_C);
+		setSeeds('T', SEED_T, SEED_A);
+	}
+
+	/** length of the k-mers */
+	protected int k;
+
+	/** {@code true} if the canonical hash is returned */
+	protected boolean canonical;
+
+	/** hashed sequence */
+	protected byte[] sequence;
+
+	/** index after the last nucleotide of the hashed range */
+	protected int end;
+
+	/** index of the first nucleotide of the current k-mer */
+	protected int position;
+
+	/** {@code true} if {@link #position} points to a hashed k-mer */
+	protected boolean hasKmer;
+
+	/** hash of the current k-mer */
+	protected long forward;
+
+	/** hash of the reverse complement of the current k-mer */
+	protected long reverse;
+
+	/**
+	 * Constructs a rolling {@code NtHash} for k-mers of the specified length.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <em>k</em> is less or equal zero.
+	 * @param k
+	 *            length of the k-mers.
+	 * @param canonical
+	 *            {@code true} if a k-mer and its reverse complement must have
+	 *            the same hash.
+	 */
+	public NtHash(int k, boolean canonical) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("Invalid k-mer length: " + k);
+		}
+		this.k = k;
+		this.canonical = canonical;
+	}
+
+	/**
+	 * Starts hashing the k-mers of a range of the sequence. The first k-mer
+	 * is hashed by {@link #next()}.
+	 * 
+	 * @throws NullPointerException
+	 *             if the sequence is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the sequence.
+	 * @param sequence
+	 *            nucleotide sequence.
+	 * @param offset
+	 *            index of the first nucleotide of the range.
+	 * @param len
+	 *            length of the range.
+	 */
+	public void reset(byte[] sequence, int offset, int len) {
+		if (sequence == null) {
+			throw new NullPointerException("Invalid sequence: " + sequence);
+		}
+		if (offset < 0 || len < 0 || offset + len > sequence.length) {
+			throw new IndexOutOfBoundsException("Invalid range: offset="
+					+ offset + ", length=" + len);
+		}
+		this.sequence = sequence;
+		this.end = offset + len;
+		this.position = offset;
+		this.hasKmer = false;
+	}
+
+	/**
+	 * Moves to the next k-mer which contains only nucleotides and updates its
+	 * hashes.
+	 * 
+	 * @return {@code true} if there is a next k-mer, {@code false} at the end
+	 *         of the range.
+	 */
+	public boolean next() {
+		int start;
+		if (hasKmer) {
+			int in = position + k;
+			if (in >= end) {
+				hasKmer = false;
+				position = end;
+				return false;
+			}
+			int inBase = sequence[in] & 0xff;
+			if (SEEDS[inBase] != 0) {
+				int outBase = sequence[position] & 0xff;
+				forward = Long.rotateLeft(forward, 1)
+						^ Long.rotateLeft(SEEDS[outBase], k) ^ SEEDS[inBase];
+				reverse = Long.rotateRight(reverse, 1)
+						^ Long.rotateRight(COMPLEMENT_SEEDS[outBase], 1)
+						^ Long.rotateLeft(COMPLEMENT_SEEDS[inBase], k - 1);
+				position++;
+				return true;
+			}
+			// the window can't contain the invalid byte
+			start = in + 1;
+		} else {
+			start = position;
+		}
+		int run = 0;
+		int i = start;
+		while (i < end && run < k) {
+			run = SEEDS[sequence[i] & 0xff] != 0 ? run + 1 : 0;
+			i++;
+		}
+		if (run < k) {
+			hasKmer = false;
+			position = end;
+			return false;
+		}
+		position = i - k;
+		forward = forwardHash(sequence, position, k);
+		reverse = reverseHash(sequence, position, k);
+		hasKmer = true;
+		return true;
+	}
+
+	/**
+	 * Returns the first hash of the current k-mer, canonical if the
+	 * {@code NtHash} was constructed so.
+	 * 
+	 * @return first hash.
+	 */
+	public long getHash() {
+		return canonical ? forward + reverse : forward;
+	}
+
+	/**
+	 * Returns the second hash of the current k-mer, derived from the first
+	 * one.
+	 * 
+	 * @return second hash.
+	 */
+	public long getSecondHash() {
+		return secondHash(getHash(), k);
+	}
+
+	/**
+	 * Returns the index of the first nucleotide of the current k-mer.
+	 * 
+	 * @return position of the current k-mer.
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the length of the k-mers.
+	 * 
+	 * @return length of the k-mers.
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Returns {@code true} if the canonical hash is returned.
+	 * 
+	 * @return {@code true} if a k-mer and its reverse complement have the same
+	 *         hash.
+	 */
+	public boolean isCanonical() {
+		return canonical;
+	}
+
+	/**
+	 * Returns the hash of a single k-mer, equal to the rolling hash of the
+	 * same k-mer.
+	 * 
+	 * @throws NullPointerException
+	 *             if the sequence is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if the k-mer is not inside of the sequence.
+	 * @throws IllegalArgumentException
+	 *             if <em>k</em> is less or equal zero or if the k-mer contains
+	 *             a byte which is not a nucleotide.
+	 * @param sequence
+	 *            nucleotide sequence.
+	 * @param offset
+	 *            index of the first nucleotide of the k-mer.
+	 * @param k
+	 *            length of the k-mer.
+	 * @param canonical
+	 *            {@code true} if the canonical hash is returned.
+	 * @return hash of the k-mer.
+	 */
+	public static long hash(byte[] sequence, int offset, int k,
+			boolean canonical) {
+		if (sequence == null) {
+			throw new NullPointerException("Invalid sequence: " + sequence);
+		}
+		if (k <= 0) {
+			throw new IllegalArgumentException("Invalid k-mer length: " + k);
+		}
+		if (offset < 0 || offset + k > sequence.length) {
+			throw new IndexOutOfBoundsException("Invalid k-mer: offset="
+					+ offset + ", k=" + k);
+		}
+		for (int i = offset; i < offset + k; i++) {
+			if (SEEDS[sequence[i] & 0xff] == 0) {
+				throw new IllegalArgumentException("Invalid nucleotide: "
+						+ (char) sequence[i]);
+			}
+		}
+		long forward = forwardHash(sequence, offset, k);
+		return canonical ? forward + reverseHash(sequence, offset, k)
+				: forward;
+	}
+
+	/**
+	 * Returns the second hash of a k-mer with the specified first hash.
+	 * 
+	 * @param hash
+	 *            first hash of the k-mer.
+	 * @param k
+	 *            length of the k-mer.
+	 * @return second hash.
+	 */
+	public static long secondHash(long hash, int k) {
+		long h = hash * (1 ^ k * MULTI_SEED);
+		return h ^ (h >>> MULTI_SHIFT);
+	}
+
+	/**
+	 * Returns {@code true} if the byte is a nucleotide (A, C, G or T in any
+	 * case).
+	 * 
+	 * @param b
+	 *            input byte.
+	 * @return {@code true} if the byte is a nucleotide.
+	 */
+	public static boolean isNucleotide(byte b) {
+		return SEEDS[b & 0xff] != 0;
+	}
+
+	/**
+	 * Calculates the hash of a k-mer from scratch.
+	 */
+	private static long forwardHash(byte[] sequence, int offset, int k) {
+		long hash = 0;
+		for (int i = offset; i < offset + k; i++) {
+			hash = Long.rotateLeft(hash, 1) ^ SEEDS[sequence[i] & 0xff];
+		}
+		return hash;
+	}
+
+	/**
+	 * Calculates the hash of the reverse complement of a k-mer from scratch.
+	 */
+	private static long reverseHash(byte[] sequence, int offset, int k) {
+		long hash = 0;
+		for (int i = offset + k - 1; i >= offset; i--) {
+			hash = Long.rotateLeft(hash, 1) ^ COMPLEMENT_SEEDS[sequence[i] & 0xff];
+		}
+		return hash;
+	}
+
+	/**
+	 * Sets the seeds of a nucleotide in both cases.
+	 */
+	private static void setSeeds(char nucleotide, long seed,
+			long complementSeed) {
+		SEEDS[nucleotide] = seed;
+		SEEDS[Character.toLowerCase(nucleotide)] = seed;
+		COMPLEMENT_SEEDS[nucleotide] = complementSeed;
+		COMPLEMENT_SEEDS[Character.toLowerCase(nucleotide)] = complementSeed;
+	}
+}
@@ -0,0 +1,377 @@
+package hr.fer.bioinformatika.projekt.util;
+
+import hr.fer.bioinformatika.projekt.bloomfilter.BloomFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming reader of files in FASTA format.
+ * <p>
+ * The file is read through a fixed-size buffer and the records are visited
+ * one by one with {@link #next()}. The sequence of the current record can be
+ * read in chunks with {@link #read(byte[], int, int)}, which needs constant
+ * memory regardless of the length of the sequence, or at once with
+ * {@link #readSequence()}, which copies it into a reusable array that only
+ * grows to the length of the longest sequence.
+ * </p>
+ * <p>
+ * Line breaks, carriage returns, spaces and tabs are not part of a sequence.
+ * Anything before the first description line is skipped.
+ * </p>
+ * 
+ * <pre>
+ * try (FastaReader reader = new FastaReader(file)) {
+ * 	while (reader.next()) {
+ * 		int length = reader.readSequence();
+ * 		filter.add(reader.getSequence(), 0, length);
+ * 	}
+ * }
+ * </pre>
+ * 
+ * @see Utilities#loadFasta(String)
+ * 
+ */
+public class FastaReader implements Closeable {
+	/** default size of the read buffer in bytes */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	/** initial size of the sequence array in bytes */
+	protected static final int INITIAL_SEQUENCE_SIZE = 1 << 12;
+
+	/** input channel */
+	protected ReadableByteChannel channel;
+
+	/** read buffer */
+	protected byte[] buffer;
+
+	/** index of the next unread byte in the buffer */
+	protected int position;
+
+	/** number of valid bytes in the buffer */
+	protected int limit;
+
+	/** {@code true} if the next byte is the first byte of a line */
+	protected boolean lineStart = true;
+
+	/** {@code true} if the sequence of the current record isn't fully read */
+	protected boolean inSequence;
+
+	/** description line of the current record */
+	protected String description;
+
+	/** reusable array with the sequence of the current record */
+	protected byte[] sequence = new byte[INITIAL_SEQUENCE_SIZE];
+
+	/**
+	 * Opens a {@code FastaReader} for the specified file.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be opened.
+	 * @param file
+	 *            input file.
+	 */
+	public FastaReader(File file) throws IOException {
+		this(FileChannel.open(file.toPath(), StandardOpenOption.READ),
+				DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructs a {@code FastaReader} which reads the specified channel.
+	 * 
+	 * @throws NullPointerException
+	 *             if the channel is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the buffer size is less or equal zero.
+	 * @param channel
+	 *            input channel.
+	 * @param bufferSize
+	 *            size of the read buffer in bytes.
+	 */
+	public FastaReader(ReadableByteChannel channel, int bufferSize) {
+		if (channel == null) {
+			throw new NullPointerException("Invalid input channel: " + channel);
+		}
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Invalid buffer size: "
+					+ bufferSize);
+		}
+		this.channel = channel;
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Moves to the next record. The unread part of the sequence of the
+	 * current record is skipped.
+	 * 
+	 * @throws IOException
+	 *             if the input could not be read.
+	 * @return {@code true} if there is a next record, {@code false} at the end
+	 *         of the input.
+	 */
+	public boolean next() throws IOException {
+		description = null;
+		// skip the rest of the current record (or the text before the first
+		// record) up to the next description line
+		while (fill()) {
+			byte c = buffer[position];
+			if (lineStart && c == '>') {
+				position++;
+				description = readLine();
+				lineStart = true;
+				inSequence = true;
+				return true;
+			}
+			position++;
+			if (c == '\n') {
+				lineStart = true;
+			} else if (c != '\r' && c != ' ' && c != '\t') {
+				lineStart = false;
+			}
+		}
+		inSequence = false;
+		return false;
+	}
+
+	/**
+	 * Reads up to {@code len} bytes of the sequence of the current record.
+	 * 
+	 * @throws IOException
+	 *             if the input could not be read.
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not inside of the array.
+	 * @param b
+	 *            output array.
+	 * @param off
+	 *            index of the first byte in the output array.
+	 * @param len
+	 *            maximum number of bytes to read.
+	 * @return number of read bytes, or -1 if the whole sequence has been read.
+	 */
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException("Invalid range: offset=" + off
+					+ ", length=" + len);
+		}
+		if (!inSequence) {
+			return -1;
+		}
+		int count = 0;
+		while (count < len && fill()) {
+			byte[] buf = buffer;
+			int pos = position;
+			int end = limit;
+			boolean start = lineStart;
+			while (pos < end && count < len) {
+				byte c = buf[pos];
+				if (c == '\n') {
+					start = true;
+				} else if (c == '>' && start) {
+					break;
+				} else if (c != '\r' && c != ' ' && c != '\t') {
+					b[off + count++] = c;
+					start = false;
+				}
+				pos++;
+			}
+			position = pos;
+			lineStart = start;
+			if (pos < end && count < len) {
+				// the next record starts here
+				inSequence = false;
+				break;
+			}
+		}
+		if (position >= limit && !fill()) {
+			inSequence = false;
+		}
+		return count == 0 && !inSequence ? -1 : count;
+	}
+
+	/**
+	 * Reads the rest of the sequence of the current record into the array
+	 * returned by {@link #getSequence()}.
+	 * 
+	 * @throws IOException
+	 *             if the input could not be read.
+	 * @return length of the sequence.
+	 */
+	public int readSequence() throws IOException {
+		int length = 0;
+		int n;
+		while ((n = read(sequence, length, sequence.length - length)) >= 0) {
+			length += n;
+			if (length == sequence.length) {
+				byte[] larger = new byte[sequence.length << 1];
+				System.arraycopy(sequence, 0, larger, 0, length);
+				sequence = larger;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Reads the rest of the sequence of the current record as a string.
+	 * 
+	 * @throws IOException
+	 *             if the input could not be read.
+	 * @return sequence.
+	 */
+	public String readSequenceString() throws IOException {
+		int length = readSequence();
+		return new String(sequence, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Adds the sequence of every remaining record to the filter, the sequences
+	 * are passed to the filter as bytes without creating strings.
+	 * 
+	 * @throws IOException
+	 *             if the input could not be read.
+	 * @throws NullPointerException
+	 *             if the filter is {@code null}.
+	 * @param filter
+	 *            filter that receives the sequences.
+	 * @return number of added sequences.
+	 */
+	public long addTo(BloomFilter<?> filter) throws IOException {
+		if (filter == null) {
+			throw new NullPointerException("Invalid filter: " + filter);
+		}
+		long count = 0;
+		while (next()) {
+			int length = readSequence();
+			filter.add(sequence, 0, length);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Adds every k-mer of every remaining record to the filter. The sequences
+	 * are read in chunks which overlap by <em>k-1</em> nucleotides, so the
+	 * memory doesn't depend on the length of the sequences.
+	 * 
+	 * @throws IOException
+	 *             if the input could not be read.
+	 * @throws NullPointerException
+	 *             if the filter is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if <em>k</em> is less or equal zero.
+	 * @param filter
+	 *            filter that receives the k-mers.
+	 * @param k
+	 *            length of the k-mers.
+	 * @param canonical
+	 *            {@code true} if a k-mer and its reverse complement are the
+	 *            same item.
+	 * @return number of added k-mers.
+	 * @see BloomFilter#addKmers(byte[], int, int, int, boolean)
+	 */
+	public long addKmersTo(BloomFilter<?> filter, int k, boolean canonical)
+			throws IOException {
+		if (filter == null) {
+			throw new NullPointerException("Invalid filter: " + filter);
+		}
+		if (k <= 0) {
+			throw new IllegalArgumentException("Invalid k-mer length: " + k);
+		}
+		if (sequence.length < 2 * k) {
+			sequence = new byte[2 * k];
+		}
+		long count = 0;
+		while (next()) {
+			int kept = 0;
+			int n;
+			while ((n = read(sequence, kept, sequence.length - kept)) >= 0) {
+				int length = kept + n;
+				if (length >= k) {
+					count += filter.addKmers(sequence, 0, length, k, canonical);
+				}
+				// the last k-1 nucleotides start the k-mers of the next chunk
+				kept = Math.min(length, k - 1);
+				System.arraycopy(sequence, length - kept, sequence, 0, kept);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the description line of the current record, without the
+	 * leading '&gt;'.
+	 * 
+	 * @return description line, {@code null} if there is no current record.
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Returns the array filled by {@link #readSequence()}. The array is reused
+	 * for the next records, only the bytes up to the returned length are
+	 * valid.
+	 * 
+	 * @return sequence array.
+	 */
+	public byte[] getSequence() {
+		return sequence;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Reads the rest of the current line, the line break isn't included.
+	 */
+	private String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		while (fill()) {
+			int start = position;
+			int end = limit;
+			int pos = start;
+			while (pos < end && buffer[pos] != '\n') {
+				pos++;
+			}
+			line.write(buffer, start, pos - start);
+			if (pos < end) {
+				position = pos + 1;
+				break;
+			}
+			position = pos;
+		}
+		byte[] bytes = line.toByteArray();
+		int length = bytes.length;
+		if (length > 0 && bytes[length - 1] == '\r') {
+			length--;
+		}
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Makes sure that the buffer holds at least one unread byte.
+	 * 
+	 * @return {@code false} at the end of the input.
+	 */
+	private boolean fill() throws IOException {
+		if (position < limit) {
+			return true;
+		}
+		ByteBuffer target = ByteBuffer.wrap(buffer);
+		int n;
+		do {
+			n = channel.read(target);
+		} while (n == 0);
+		position = 0;
+		limit = Math.max(n, 0);
+		return n > 0;
+	}
+}
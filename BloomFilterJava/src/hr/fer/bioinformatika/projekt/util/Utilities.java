@@ -60,27 +60,23 @@ public class Utilities {
 	 * from the sequence data by a greater-than (">") symbol in the first
 	 * column.
 	 * </p>
+	 * <p>
+	 * All sequences are kept in memory, use a {@link FastaReader} to process
+	 * large files record by record.
+	 * </p>
 	 * 
 	 * @param path
-	 * @return
+	 *            path of the input FASTA file.
+	 * @return {@code Collection} containing the sequences of the input file.
 	 */
 	public static Collection<String> loadFasta(String path) {
 		List<String> words = new ArrayList<String>();
-		BufferedReader r = null;
+		FastaReader r = null;
 		try {
-			r = new BufferedReader(new FileReader(new File(path)));
-			String l = null;
-			String currentString = "";
-			while ((l = r.readLine()) != null) {
-				if (l.trim().startsWith(">")) {
-					words.add(currentString);
-					currentString = "";
-				} else {
-					currentString += l;
-				}
+			r = new FastaReader(new File(path));
+			while (r.next()) {
+				words.add(r.readSequenceString());
 			}
-			words.add(currentString);
-			words.remove(0);
 		} catch (IOException e) {
 			e.printStackTrace();
 		} finally {
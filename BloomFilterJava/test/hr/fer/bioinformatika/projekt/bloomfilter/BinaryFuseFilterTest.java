@@ -0,0 +1,142 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BinaryFuseFilterTest {
+
+	private static List<String> items(int count) {
+		List<String> items = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			items.add("item" + i);
+		}
+		return items;
+	}
+
+	@Test
+	public void testNoFalseNegatives() {
+		for (int count : new int[] { 2, 10, 1000, 100000 }) {
+			BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(
+					items(count));
+			assertEquals("Every item must be counted", count, filter.size());
+			for (int i = 0; i < count; i++) {
+				assertTrue("Added item MUST be in a filter",
+						filter.query("item" + i));
+			}
+		}
+	}
+
+	@Test
+	public void testFalsePositiveProbability() {
+		BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(
+				items(100000));
+		assertTrue("The filter must use less than 10 bits per item: "
+				+ filter.getBitsPerItem(), filter.getBitsPerItem() < 10);
+		int falsePositives = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (filter.query("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("Too many false positives: " + falsePositives,
+				falsePositives < 600);
+	}
+
+	@Test
+	public void testSixteenBitFingerprints() {
+		BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(
+				items(50000), 16);
+		assertEquals("The fingerprints must have 16 bits", 16,
+				filter.getFingerprintBits());
+		for (int i = 0; i < 50000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (filter.query("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("Too many false positives: " + falsePositives,
+				falsePositives < 10);
+	}
+
+	@Test
+	public void testDuplicates() {
+		List<String> items = items(1000);
+		items.addAll(items(500));
+		BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(items);
+		assertEquals("Duplicates must be counted once", 1000, filter.size());
+		for (int i = 0; i < 1000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+	}
+
+	@Test
+	public void testEmptyAndSingleItem() {
+		BinaryFuseFilter<String> empty = new BinaryFuseFilter<String>(
+				Collections.<String> emptyList());
+		assertEquals("The filter must be empty", 0, empty.size());
+		assertEquals("An empty filter has no bits per item", 0,
+				empty.getBitsPerItem(), 0);
+		BinaryFuseFilter<String> single = new BinaryFuseFilter<String>(
+				Collections.singletonList("item"));
+		assertTrue("Added item MUST be in a filter", single.query("item"));
+	}
+
+	@Test
+	public void testIterable() {
+		// a stream or any other source that can be iterated only once
+		BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(items(
+				3000).stream()::iterator);
+		assertEquals("Every item must be counted", 3000, filter.size());
+		byte[] item = "item2999".getBytes(StandardCharsets.UTF_8);
+		assertTrue("The item must be found by its bytes",
+				filter.query(item, 0, item.length));
+	}
+
+	@Test
+	public void testSinglePassHashes() {
+		BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(
+				items(10000), 8,
+				HashFunctionFactory.getSinglePassBloomFilterHashes());
+		for (int i = 0; i < 10000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+	}
+
+	@Test
+	public void testQueryAll() {
+		BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(
+				Arrays.asList("a", "b", "c"));
+		boolean[] out = new boolean[3];
+		filter.queryAll(new String[] { "a", "c", "b" }, out);
+		assertTrue("Added items MUST be in a filter", out[0] && out[1]
+				&& out[2]);
+		filter.queryAll(new String[] { "d" }, out);
+		assertFalse("The item was not added", out[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFingerprintBits() {
+		new BinaryFuseFilter<String>(items(10), 12);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullItem() {
+		new BinaryFuseFilter<String>(Arrays.asList("a", null));
+	}
+}
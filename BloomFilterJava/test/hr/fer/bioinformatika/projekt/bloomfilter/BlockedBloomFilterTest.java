@@ -0,0 +1,116 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BlockedBloomFilterTest {
+
+	@Test
+	public void testBlockedBloomFilterIntInt() {
+		BlockedBloomFilter<String> filter = new BlockedBloomFilter<String>(
+				1000, 4);
+		assertEquals("The array size must be rounded up to whole blocks",
+				1024, filter.array.size());
+		assertEquals("The filter must have 2 blocks", 2, filter.blocks);
+		assertEquals(
+				"The number of used hash functions (parameter k) must be 4", 4,
+				filter.k);
+	}
+
+	@Test
+	public void testBlockedBloomFilterLongDouble() {
+		double falsePositiveProbability = 0.01;
+		long estimatedNumOfItems = 100000;
+		BlockedBloomFilter<String> filter = new BlockedBloomFilter<String>(
+				estimatedNumOfItems, falsePositiveProbability);
+		long regularSize = (long) (estimatedNumOfItems
+				* Math.abs(Math.log(falsePositiveProbability)) / Math.pow(
+				Math.log(2), 2));
+		assertTrue("The blocked array must be larger than a regular one",
+				filter.array.size() > regularSize);
+		assertTrue("The corrected probability must be reached",
+				BlockedBloomFilter.estimateFalsePositiveProbability(
+						filter.array.size(), estimatedNumOfItems, filter.k) <= falsePositiveProbability);
+	}
+
+	@Test
+	public void testAddSingleBlock() {
+		BlockedBloomFilter<String> filter = new BlockedBloomFilter<String>(
+				1 << 16, 7);
+		filter.add("testItem");
+		assertEquals("The k bits of an item must be distinct", 7,
+				filter.array.cardinality());
+		long first = 0;
+		while (!filter.array.get(first)) {
+			first++;
+		}
+		long block = first & ~(BlockedBloomFilter.BLOCK_SIZE - 1L);
+		assertEquals("All bits of an item must be in a single block", 7,
+				filter.array.cardinality(block, block
+						+ BlockedBloomFilter.BLOCK_SIZE));
+	}
+
+	@Test
+	public void testQuery() {
+		BlockedBloomFilter<String> filter = new BlockedBloomFilter<String>(
+				10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filter.add("item" + i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (filter.query("randomItem" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("False positive rate must be close to 0.01: "
+				+ falsePositives, falsePositives < 1500);
+		assertFalse("Random item must not be in this filter",
+				filter.query("randomItem"));
+	}
+
+	@Test
+	public void testEstimateFalsePositiveProbability() {
+		long m = 1 << 20;
+		int k = 7;
+		long n = m / 10;
+		double regular = Math.pow(1 - Math.exp(-(double) k * n / m), k);
+		double blocked = BlockedBloomFilter.estimateFalsePositiveProbability(
+				m, n, k);
+		assertTrue("Blocking must increase the false positive probability",
+				blocked > regular);
+		assertTrue("The increase must be moderate", blocked < 2 * regular);
+		assertEquals("An empty filter has no false positives", 0,
+				BlockedBloomFilter.estimateFalsePositiveProbability(m, 0, k),
+				0);
+	}
+
+	@Test
+	public void testQueryAll() {
+		BlockedBloomFilter<String> filter = new BlockedBloomFilter<String>(
+				300, 0.01);
+		String[] items = new String[600];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+		}
+		for (int i = 0; i < 300; i++) {
+			filter.add(items[i]);
+		}
+		boolean[] found = new boolean[items.length];
+		filter.queryAll(items, found);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals("Batch and single queries must agree",
+					filter.query(items[i]), found[i]);
+		}
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Added item MUST be in a filter", found[i]);
+		}
+	}
+}
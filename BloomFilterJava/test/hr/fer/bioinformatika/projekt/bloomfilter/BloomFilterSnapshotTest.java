@@ -0,0 +1,282 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+public class BloomFilterSnapshotTest {
+
+	private static byte[] write(BloomFilter<?> filter) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BloomFilterSnapshot.write(filter, Channels.newChannel(out));
+		return out.toByteArray();
+	}
+
+	private static <T> BloomFilter<T> read(byte[] snapshot) throws IOException {
+		return BloomFilterSnapshot.read(Channels
+				.newChannel(new ByteArrayInputStream(snapshot)));
+	}
+
+	private static void assertSameFilter(BloomFilter<?> expected,
+			BloomFilter<?> actual) {
+		assertEquals("The filter type must be restored", expected.getClass(),
+				actual.getClass());
+		assertEquals("k must be restored", expected.getK(), actual.getK());
+		assertEquals("The index strategy must be restored",
+				expected.getIndexStrategy(), actual.getIndexStrategy());
+		assertEquals("m must be restored", expected.getArray().size(), actual
+				.getArray().size());
+		for (long i = 0; i < expected.getArray().wordCount(); i++) {
+			assertEquals("Word " + i + " must be restored", expected
+					.getArray().getWord(i), actual.getArray().getWord(i));
+		}
+	}
+
+	@Test
+	public void testBloomFilter() throws IOException {
+		BloomFilter<String> filter = new BloomFilter<String>(100000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filter.add("item" + i);
+		}
+		BloomFilter<String> restored = read(write(filter));
+		assertSameFilter(filter, restored);
+		for (int i = 0; i < 10000; i++) {
+			assertTrue("Added item MUST be in the restored filter",
+					restored.query("item" + i));
+		}
+	}
+
+	@Test
+	public void testSinglePassHashes() throws IOException {
+		BloomFilter<String> filter = new BloomFilter<String>(5000, 5,
+				HashFunctionFactory.getSinglePassBloomFilterHashes(),
+				IndexStrategy.POWER_OF_TWO);
+		filter.add("item");
+		BloomFilter<String> restored = read(write(filter));
+		assertSameFilter(filter, restored);
+		assertTrue("The 128-bit hash function must be restored",
+				restored.hash128 != null);
+		assertTrue("Added item MUST be in the restored filter",
+				restored.query("item"));
+	}
+
+	@Test
+	public void testPartitionedBloomFilter() throws IOException {
+		BloomFilter<String> filter = new PartitionedBloomFilter<String>(1000,
+				0.01);
+		for (int i = 0; i < 1000; i++) {
+			filter.add("item" + i);
+		}
+		BloomFilter<String> restored = read(write(filter));
+		assertSameFilter(filter, restored);
+		for (int i = 0; i < 1000; i++) {
+			assertTrue("Added item MUST be in the restored filter",
+					restored.query("item" + i));
+		}
+	}
+
+	@Test
+	public void testScalableBloomFilter() throws IOException {
+		ScalableBloomFilter<String> filter = new ScalableBloomFilter<String>(
+				100, 0.01);
+		for (int i = 0; i < 350; i++) {
+			filter.add("item" + i);
+		}
+		ScalableBloomFilter<String> restored = (ScalableBloomFilter<String>) BloomFilterSnapshot
+				.<String> read(Channels.newChannel(new ByteArrayInputStream(
+						write(filter))));
+		assertEquals("All slices must be restored", filter.getFilters()
+				.size(), restored.getFilters().size());
+		for (int i = 0; i < filter.getFilters().size(); i++) {
+			assertSameFilter(filter.getFilters().get(i), restored.getFilters()
+					.get(i));
+		}
+		assertEquals("The fill of the last slice must be restored",
+				filter.getItemsInCurrent(), restored.getItemsInCurrent());
+		assertEquals("The false positive probability must be restored",
+				filter.getFalsePositiveProbability(),
+				restored.getFalsePositiveProbability(), 0);
+		for (int i = 350; i < 400; i++) {
+			filter.add("item" + i);
+			restored.add("item" + i);
+		}
+		assertEquals("The restored filter must grow like the original",
+				filter.getFilters().size(), restored.getFilters().size());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		File file = File.createTempFile("filter", ".bfs");
+		file.deleteOnExit();
+		BloomFilter<String> filter = new BloomFilter<String>(1000, 4);
+		filter.add("item");
+		BloomFilterSnapshot.save(filter, file);
+		BloomFilter<String> restored = BloomFilterSnapshot.load(file);
+		assertSameFilter(filter, restored);
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorruptedSnapshot() throws IOException {
+		BloomFilter<String> filter = new BloomFilter<String>(1000, 4);
+		filter.add("item");
+		byte[] snapshot = write(filter);
+		snapshot[snapshot.length - 20] ^= 1;
+		read(snapshot);
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncatedSnapshot() throws IOException {
+		byte[] snapshot = write(new BloomFilter<String>(1000, 4));
+		read(Arrays.copyOf(snapshot, snapshot.length - 9));
+	}
+
+	@Test
+	public void testArraySizeOverSnapshot() throws IOException {
+		byte[] snapshot = write(new BloomFilter<String>(1000, 4));
+		// magic, version, type, hash family, seed, index strategy, k
+		ByteBuffer.wrap(snapshot).order(ByteOrder.LITTLE_ENDIAN)
+				.putLong(23, 1L << 40);
+		File file = File.createTempFile("filter", ".bfs");
+		file.deleteOnExit();
+		Files.write(file.toPath(), snapshot);
+		try {
+			BloomFilterSnapshot.load(file);
+			fail("An array larger than the snapshot must not be read");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(),
+					e.getMessage().contains("exceeds the snapshot size"));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidMagic() throws IOException {
+		read(new byte[64]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedType() throws IOException {
+		write(new BlockedBloomFilter<String>(1000, 4));
+	}
+
+	@Test
+	public void testBinaryFuseFilter() throws IOException {
+		List<String> items = new ArrayList<String>();
+		for (int i = 0; i < 10000; i++) {
+			items.add("item" + i);
+		}
+		for (int bits : new int[] { 8, 16 }) {
+			BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(
+					items, bits);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			BloomFilterSnapshot.write(filter, Channels.newChannel(out));
+			BinaryFuseFilter<String> restored = BloomFilterSnapshot
+					.readBinaryFuse(Channels.newChannel(new ByteArrayInputStream(
+							out.toByteArray())));
+			assertEquals("The size must be restored", filter.size(),
+					restored.size());
+			assertEquals("The fingerprint size must be restored", bits,
+					restored.getFingerprintBits());
+			for (int i = 0; i < filter.getArrayLength(); i++) {
+				assertEquals("Fingerprint " + i + " must be restored",
+						filter.getFingerprint(i), restored.getFingerprint(i));
+			}
+			for (String item : items) {
+				assertTrue("Added item MUST be in the restored filter",
+						restored.query(item));
+			}
+		}
+	}
+
+	@Test
+	public void testSaveAndLoadBinaryFuse() throws IOException {
+		File file = File.createTempFile("filter", ".bfs");
+		file.deleteOnExit();
+		BinaryFuseFilter<String> filter = new BinaryFuseFilter<String>(
+				Arrays.asList("a", "b", "c"), 8,
+				HashFunctionFactory.getSinglePassBloomFilterHashes());
+		BloomFilterSnapshot.save(filter, file);
+		BinaryFuseFilter<String> restored = BloomFilterSnapshot
+				.loadBinaryFuse(file);
+		assertTrue("Added item MUST be in the restored filter",
+				restored.query("b"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testBloomFilterAsBinaryFuse() throws IOException {
+		BloomFilterSnapshot.readBinaryFuse(Channels
+				.newChannel(new ByteArrayInputStream(write(new BloomFilter<String>(
+						1000, 4)))));
+	}
+
+	@Test
+	public void testScalableGrowthFactor() throws IOException {
+		ScalableBloomFilter<String> filter = new ScalableBloomFilter<String>(
+				10, 0.01, 0.9, 2);
+		for (int i = 0; i < 100; i++) {
+			filter.add("item" + i);
+		}
+		ScalableBloomFilter<String> restored = (ScalableBloomFilter<String>) BloomFilterSnapshot
+				.<String> read(Channels.newChannel(new ByteArrayInputStream(
+						write(filter))));
+		assertEquals("The growth factor must be restored", 2,
+				restored.getS(), 0);
+		assertEquals("The fill of the last slice must be restored",
+				filter.getItemsInCurrent(), restored.getItemsInCurrent());
+		for (int i = 100; i < 1000; i++) {
+			filter.add("item" + i);
+			restored.add("item" + i);
+		}
+		assertEquals("The restored filter must grow like the original",
+				filter.getFilters().size(), restored.getFilters().size());
+	}
+
+	@Test
+	public void testReadVersion1() throws IOException {
+		ScalableBloomFilter<String> filter = new ScalableBloomFilter<String>(
+				10, 0.01);
+		for (int i = 0; i < 25; i++) {
+			filter.add("item" + i);
+		}
+		byte[] snapshot = write(filter);
+		// version 1: no growth factor and an int number of items
+		ByteBuffer header = ByteBuffer.wrap(snapshot).order(
+				ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer old = ByteBuffer.allocate(snapshot.length - 12).order(
+				ByteOrder.LITTLE_ENDIAN);
+		old.put(snapshot, 0, 38);
+		old.putInt(4, 1);
+		old.putInt((int) header.getLong(46));
+		old.put(snapshot, 54, snapshot.length - 62);
+		CRC32 crc = new CRC32();
+		crc.update(old.array(), 0, old.position());
+		old.putLong(crc.getValue());
+		ScalableBloomFilter<String> restored = (ScalableBloomFilter<String>) BloomFilterSnapshot
+				.<String> read(Channels.newChannel(new ByteArrayInputStream(
+						old.array())));
+		assertEquals("A version 1 filter has a growth factor of 1", 1,
+				restored.getS(), 0);
+		assertEquals("The fill of the last slice must be restored", 5,
+				restored.getItemsInCurrent());
+		for (int i = 0; i < 25; i++) {
+			assertTrue("Added item MUST be in the restored filter",
+					restored.query("item" + i));
+		}
+	}
+}
@@ -2,12 +2,21 @@ package hr.fer.bioinformatika.projekt.bloomfilter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import hr.fer.bioinformatika.projekt.hash.HashFunction;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+import hr.fer.bioinformatika.projekt.hash.MurmurHash;
+import hr.fer.bioinformatika.projekt.hash.NtHash;
+
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -27,11 +36,9 @@ public class BloomFilterTest {
 	@Test
 	public void testBloomFilterIntInt() {
 		BloomFilter<String> filter = new BloomFilter<String>(20, 4);
-		boolean[] testArray = new boolean[20];
-		Arrays.fill(testArray, false);
-		assertEquals("The m-bit array size must be 20", 20, filter.array.length);
-		assertTrue("All of the values in the m-bit array must be false",
-				Arrays.equals(testArray, filter.array));
+		assertEquals("The m-bit array size must be 20", 20, filter.array.size());
+		assertEquals("All of the values in the m-bit array must be false", 0,
+				filter.array.cardinality());
 		assertEquals("The hash functions array length must be 2", 2,
 				filter.hashFunctions.length);
 		assertEquals(
@@ -50,7 +57,7 @@ public class BloomFilterTest {
 				Math.log(2), 2));
 		int expectedK = (int) Math.ceil(Math.log(1. / falsePositiveProbability)
 				/ Math.log(2.));
-		assertEquals(expectedArraySize, filter.array.length);
+		assertEquals(expectedArraySize, filter.array.size());
 		assertEquals(expectedK, filter.k);
 	}
 
@@ -63,7 +70,7 @@ public class BloomFilterTest {
 		int expectedK = (int) Math.ceil(Math.log(1. / falsePositiveProbability)
 				/ Math.log(2.));
 		assertEquals("Array sizes must be equal", arraySize,
-				filter.array.length);
+				filter.array.size());
 		assertEquals(expectedK, filter.k);
 	}
 
@@ -93,4 +100,286 @@ public class BloomFilterTest {
 		assertFalse("Random item must not be in this filter",
 				filter.query("randomItem"));
 	}
+
+	@Test
+	public void testAddBytes() {
+		byte[] data = "xxtestItemyy".getBytes();
+		BloomFilter<String> filter = new BloomFilter<String>(100, 4);
+		filter.add(data, 2, 8);
+		assertTrue("Item added from a range MUST be in a filter",
+				filter.query("testItem"));
+		assertTrue("Item added from a range MUST be in a filter",
+				filter.query(data, 2, 8));
+		assertFalse("Random item must not be in this filter",
+				filter.query(data, 0, 8));
+	}
+
+	@Test
+	public void testQueryByteBuffer() {
+		byte[] data = "testItem".getBytes();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data).flip();
+		BloomFilter<String> filter = new BloomFilter<String>(100, 4);
+		filter.add("testItem");
+		assertTrue("Added item MUST be in a filter", filter.query(buffer));
+		filter = new BloomFilter<String>(100, 4);
+		filter.add(buffer);
+		assertTrue("Item added from a buffer MUST be in a filter",
+				filter.query("testItem"));
+		assertEquals("The buffer position must not change", 0,
+				buffer.position());
+	}
+
+	@Test
+	public void testSinglePassHashes() {
+		BloomFilter<String> filter = new BloomFilter<String>(1000, 7,
+				HashFunctionFactory.getSinglePassBloomFilterHashes());
+		assertNotNull("The 128-bit hash function must be used",
+				filter.hash128);
+		for (int i = 0; i < 100; i++) {
+			filter.add("item" + i);
+		}
+		for (int i = 0; i < 100; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		assertFalse("Random item must not be in this filter",
+				filter.query("randomItem"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetHashFunctionsSingle() {
+		BloomFilter<String> filter = new BloomFilter<String>(100, 4);
+		filter.setHashFunctions(new HashFunction[] { new MurmurHash() });
+	}
+
+	@Test
+	public void testQueryAll() {
+		String[] items = new String[600];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+		}
+		for (IndexStrategy strategy : IndexStrategy.values()) {
+			List<BloomFilter<String>> filters = Arrays.asList(
+					new BloomFilter<String>(3000, 7, strategy),
+					new BloomFilter<String>(3000, 7,
+							HashFunctionFactory.getSinglePassBloomFilterHashes(),
+							strategy));
+			for (BloomFilter<String> filter : filters) {
+				filter.addAll(Arrays.copyOf(items, 300));
+				boolean[] found = new boolean[items.length];
+				filter.queryAll(items, found);
+				for (int i = 0; i < items.length; i++) {
+					assertEquals("Batch and single queries must agree",
+							filter.query(items[i]), found[i]);
+				}
+				for (int i = 0; i < 300; i++) {
+					assertTrue("Added item MUST be in a filter", found[i]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testAddAllHashes() {
+		BloomFilter<String> filter = new BloomFilter<String>(1000, 7);
+		long[] hashes = new long[200];
+		for (int i = 0; i < hashes.length; i += 2) {
+			filter.hash("item" + i, hashes, i);
+		}
+		filter.addAllHashes(hashes);
+		boolean[] found = new boolean[hashes.length / 2];
+		filter.queryAllHashes(hashes, found);
+		for (int i = 0; i < hashes.length; i += 2) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+			assertTrue("Added item MUST be in a filter", found[i / 2]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testQueryAllShortOutput() {
+		new BloomFilter<String>(100, 4).queryAll(new String[] { "a", "b" },
+				new boolean[1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddAllHashesOddLength() {
+		new BloomFilter<String>(100, 4).addAllHashes(new long[3]);
+	}
+
+	@Test
+	public void testUnion() {
+		BloomFilter<String> a = new BloomFilter<String>(1000, 5);
+		BloomFilter<String> b = new BloomFilter<String>(1000, 5);
+		a.add("a");
+		b.add("b");
+		BloomFilter<String> union = a.union(b);
+		assertTrue("Item of the first filter MUST be in the union",
+				union.query("a"));
+		assertTrue("Item of the second filter MUST be in the union",
+				union.query("b"));
+		assertFalse("The first filter must not change", a.query("b"));
+		assertFalse("The second filter must not change", b.query("a"));
+	}
+
+	@Test
+	public void testIntersect() {
+		BloomFilter<String> a = new BloomFilter<String>(1000, 5);
+		BloomFilter<String> b = new BloomFilter<String>(1000, 5);
+		a.add("common");
+		a.add("a");
+		b.add("common");
+		b.add("b");
+		BloomFilter<String> intersection = a.intersect(b);
+		assertTrue("Common item MUST be in the intersection",
+				intersection.query("common"));
+		assertFalse("Item of one filter must not be in the intersection",
+				intersection.query("a"));
+		assertTrue("The first filter must not change", a.query("a"));
+	}
+
+	@Test
+	public void testOrIntoAndInto() {
+		BloomFilter<String> a = new BloomFilter<String>(1000, 5);
+		BloomFilter<String> b = new BloomFilter<String>(1000, 5);
+		a.add("a");
+		b.add("b");
+		a.orInto(b);
+		assertTrue("Item of the source MUST be in the target", b.query("a"));
+		assertTrue("Item of the target MUST stay in the target",
+				b.query("b"));
+		a.andInto(b);
+		assertTrue("Common item MUST stay in the target", b.query("a"));
+		assertFalse("Item only in the target must be removed", b.query("b"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnionIncompatible() {
+		new BloomFilter<String>(1000, 5).union(new BloomFilter<String>(1000,
+				5, IndexStrategy.POWER_OF_TWO));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnionDifferentHashes() {
+		new BloomFilter<String>(1000, 5).union(new BloomFilter<String>(1000,
+				5, HashFunctionFactory.getSinglePassBloomFilterHashes()));
+	}
+
+	@Test
+	public void testSimilarityEstimates() {
+		BloomFilter<String> a = new BloomFilter<String>(3000, 0.01);
+		BloomFilter<String> b = new BloomFilter<String>(3000, 0.01);
+		for (int i = 0; i < 2000; i++) {
+			a.add("item" + i);
+		}
+		for (int i = 1000; i < 3000; i++) {
+			b.add("item" + i);
+		}
+		assertEquals("Size of the first filter", 2000, a.estimateSize(), 60);
+		assertEquals("Size of the union", 3000, a.estimateUnionSize(b), 90);
+		assertEquals("Size of the intersection", 1000,
+				a.estimateIntersectionSize(b), 90);
+		assertEquals("Jaccard similarity", 1. / 3,
+				a.estimateJaccardSimilarity(b), 0.03);
+		assertEquals("Empty filters have no similarity", 0,
+				new BloomFilter<String>(100, 3)
+						.estimateJaccardSimilarity(new BloomFilter<String>(
+								100, 3)), 0);
+	}
+
+	@Test
+	public void testAddKmers() {
+		Random random = new Random(7);
+		byte[] sequence = new byte[5000];
+		for (int i = 0; i < sequence.length; i++) {
+			sequence[i] = (byte) "ACGT".charAt(random.nextInt(4));
+		}
+		BloomFilter<?>[] filters = {
+				new BloomFilter<String>(10000, 0.001),
+				new BloomFilter<String>(50000, 7, IndexStrategy.MULTIPLY_SHIFT),
+				new BloomFilter<String>(50000, 7,
+						HashFunctionFactory.getSinglePassBloomFilterHashes(),
+						IndexStrategy.POWER_OF_TWO) };
+		for (BloomFilter<?> filter : filters) {
+			assertEquals("Every k-mer must be added", sequence.length - 31 + 1,
+					filter.addKmers(sequence, 31));
+			for (int i = 0; i + 31 <= sequence.length; i++) {
+				assertTrue("Added k-mer MUST be in a filter",
+						filter.queryKmer(sequence, i, 31));
+			}
+			int falsePositives = 0;
+			byte[] other = new byte[31];
+			for (int i = 0; i < 1000; i++) {
+				for (int j = 0; j < other.length; j++) {
+					other[j] = (byte) "ACGT".charAt(random.nextInt(4));
+				}
+				if (filter.queryKmer(other, 0, 31)) {
+					falsePositives++;
+				}
+			}
+			assertTrue("Too many false positives: " + falsePositives,
+					falsePositives < 20);
+		}
+	}
+
+	@Test
+	public void testAddKmersCanonical() {
+		byte[] sequence = "ACGGTCANTTGACCGTA".getBytes();
+		byte[] complement = "TACGGTCAANTGACCGT".getBytes();
+		BloomFilter<String> canonical = new BloomFilter<String>(1000, 5);
+		BloomFilter<String> forward = new BloomFilter<String>(1000, 5);
+		assertEquals("The k-mers with N must be skipped", 2 + 4,
+				canonical.addKmers(sequence, 6));
+		forward.addKmers(sequence, 0, sequence.length, 6, false);
+		assertTrue("The reverse complement MUST be in a canonical filter",
+				canonical.queryKmer(complement, 0, 6));
+		assertTrue("The k-mer MUST be in a forward filter",
+				forward.queryKmer(sequence, 0, 6, false));
+		assertFalse("The reverse complement must not be in a forward filter",
+				forward.queryKmer(complement, 0, 6, false));
+	}
+
+	@Test
+	public void testScreen() {
+		Random random = new Random(11);
+		byte[] read = new byte[100];
+		for (int i = 0; i < read.length; i++) {
+			read[i] = (byte) "ACGT".charAt(random.nextInt(4));
+		}
+		final int[] queries = new int[1];
+		BloomFilter<String> filter = new BloomFilter<String>(100000, 0.0001) {
+			@Override
+			protected boolean queryHashes(long h1, long h2) {
+				queries[0]++;
+				return super.queryHashes(h1, h2);
+			}
+		};
+		// the first 40 of 80 k-mers
+		filter.addKmers(read, 0, 60, 21, true);
+		NtHash ntHash = new NtHash(21, true);
+		assertEquals("All k-mers must be counted", 40,
+				filter.countKmers(ntHash, read, 0, read.length));
+		assertEquals("Every k-mer must be queried", 80, queries[0]);
+
+		queries[0] = 0;
+		assertEquals("The screen must stop at the threshold", 30,
+				filter.screen(ntHash, read, 0, read.length, 30));
+		assertEquals("The screen must stop at the threshold", 30, queries[0]);
+
+		queries[0] = 0;
+		assertEquals("The read must not pass", 40,
+				filter.screen(ntHash, read, 0, read.length, 50));
+		assertEquals("The screen must stop when the threshold is unreachable",
+				71, queries[0]);
+
+		queries[0] = 0;
+		assertEquals("The threshold can't be reached by a short read", 0,
+				filter.screen(read, 21, 81));
+		assertEquals("A short read must not be queried", 0, queries[0]);
+		assertEquals("A zero threshold is always reached", 0,
+				filter.screen(read, 21, 0));
+		assertTrue("A read of the reference must pass",
+				filter.screen(ntHash, read, 0, 60, 40) >= 40);
+	}
 }
@@ -0,0 +1,106 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ConcurrentBloomFilterTest {
+
+	@Test
+	public void testConcurrentBloomFilterIntInt() {
+		ConcurrentBloomFilter<String> filter = new ConcurrentBloomFilter<String>(
+				20, 4);
+		assertTrue("The m-bit array must be atomic",
+				filter.array instanceof AtomicBitStore);
+		assertEquals("The m-bit array size must be 20", 20, filter.array.size());
+		assertEquals(
+				"The number of used hash functions (parameter k) must be 4", 4,
+				filter.k);
+	}
+
+	@Test
+	public void testQuery() {
+		String testItem = "testItem";
+		BloomFilter<String> filter = new ConcurrentBloomFilter<String>(100,
+				0.001);
+		filter.add(testItem);
+		assertTrue("Added item MUST be in a filter", filter.query(testItem));
+		assertFalse("Random item must not be in this filter",
+				filter.query("randomItem"));
+	}
+
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		final int threads = 8;
+		final int itemsPerThread = 20000;
+		final BloomFilter<String> filter = new ConcurrentBloomFilter<String>(
+				1 << 20, 4);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					start.await();
+					for (int i = 0; i < itemsPerThread; i++) {
+						filter.add("item" + thread + "_" + i);
+					}
+					return null;
+				}
+			}));
+		}
+		start.countDown();
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		BloomFilter<String> expected = new BloomFilter<String>(1 << 20, 4);
+		for (int t = 0; t < threads; t++) {
+			for (int i = 0; i < itemsPerThread; i++) {
+				String item = "item" + t + "_" + i;
+				assertTrue("Added item MUST be in a filter: " + item,
+						filter.query(item));
+				expected.add(item);
+			}
+		}
+		assertEquals("No bit may be lost by concurrent writers",
+				expected.array.cardinality(), filter.array.cardinality());
+	}
+
+	@Test
+	public void testConcurrentAddAll() throws Exception {
+		final BloomFilter<Integer> filter = new ConcurrentBloomFilter<Integer>(
+				10000, 0.01);
+		final Collection<Integer> even = new ArrayList<Integer>();
+		final Collection<Integer> odd = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			(i % 2 == 0 ? even : odd).add(i);
+		}
+		Thread evenWriter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				filter.addAll(even);
+			}
+		});
+		evenWriter.start();
+		filter.addAll(odd);
+		evenWriter.join();
+		for (int i = 0; i < 10000; i++) {
+			assertTrue("Added item MUST be in a filter", filter.query(i));
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ConcurrentCountingBloomFilterTest {
+
+	@Test
+	public void testConcurrentCountingBloomFilter() {
+		ConcurrentCountingBloomFilter<String> filter = new ConcurrentCountingBloomFilter<String>(
+				20, 4);
+		assertTrue("The counters must be atomic",
+				filter.array instanceof AtomicBitStore);
+		assertEquals("There must be 20 counters", 20, filter.getM());
+	}
+
+	@Test
+	public void testConcurrentAddRemove() throws Exception {
+		final int threads = 8;
+		final int itemsPerThread = 5000;
+		final CountingBloomFilter<String> filter = new ConcurrentCountingBloomFilter<String>(
+				1 << 16, 4);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					start.await();
+					// every thread adds and removes the same items
+					for (int i = 0; i < itemsPerThread; i++) {
+						filter.add("item" + i);
+					}
+					for (int i = 0; i < itemsPerThread; i++) {
+						filter.remove("item" + i);
+					}
+					return null;
+				}
+			}));
+		}
+		start.countDown();
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		CountingBloomFilter<String> expected = new CountingBloomFilter<String>(
+				1 << 16, 4);
+		for (int t = 0; t < threads; t++) {
+			for (int i = 0; i < itemsPerThread; i++) {
+				expected.add("item" + i);
+			}
+		}
+		for (long i = 0; i < filter.array.wordCount(); i++) {
+			long word = expected.array.getWord(i);
+			for (int c = 0; c < 16; c++) {
+				long value = (word >>> (4 * c)) & CountingBloomFilter.MAX_COUNT;
+				if (value < CountingBloomFilter.MAX_COUNT) {
+					assertEquals("No update may be lost by concurrent writers",
+							0, filter.getCounter(16 * i + c));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ConcurrentScalableBloomFilterTest {
+
+	@Test
+	public void testConcurrentScalableBloomFilterIntDouble() {
+		double delta = 1e-8;
+		ConcurrentScalableBloomFilter<String> filter = new ConcurrentScalableBloomFilter<String>(
+				100, 0.01);
+		assertEquals(100, filter.fillRatioLimit);
+		assertEquals(0.01, filter.falsePositiveProbability, delta);
+		assertEquals("The default tightening ratio must be 0.9", 0.9,
+				filter.r, delta);
+		assertEquals("The starting number of slices must be 1", 1,
+				filter.getSlices().length);
+	}
+
+	@Test
+	public void testQuery() {
+		String testItem = "testItem";
+		BloomFilter<String> filter = new ConcurrentScalableBloomFilter<String>(
+				100, 0.01);
+		filter.add(testItem);
+		assertTrue("Added item MUST be in a filter", filter.query(testItem));
+		assertFalse("Random item must not be in this filter",
+				filter.query("randomItem"));
+	}
+
+	@Test
+	public void testAddNewSlice() {
+		double delta = 1e-12;
+		ConcurrentScalableBloomFilter<Integer> filter = new ConcurrentScalableBloomFilter<Integer>(
+				100, 0.01, 0.5);
+		for (int i = 0; i < 1000; i++) {
+			filter.add(i);
+		}
+		ConcurrentScalableBloomFilter.Slice<Integer>[] slices = filter
+				.getSlices();
+		assertEquals("Every 100 items a new slice must be added", 11,
+				slices.length);
+		for (int i = 0; i < 10; i++) {
+			assertEquals("Full slices must hold 100 items", 100,
+					slices[i].items.sum());
+			assertEquals(0.01 * Math.pow(0.5, i),
+					slices[i].falsePositiveProbability, delta);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertTrue("Added item MUST be in a filter", filter.query(i));
+		}
+	}
+
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		final int threads = 8;
+		final int itemsPerThread = 5000;
+		final int fillRatioLimit = 1000;
+		final ConcurrentScalableBloomFilter<String> filter = new ConcurrentScalableBloomFilter<String>(
+				fillRatioLimit, 0.001);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					start.await();
+					for (int i = 0; i < itemsPerThread; i++) {
+						filter.add("item" + thread + "_" + i);
+					}
+					return null;
+				}
+			}));
+		}
+		start.countDown();
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		for (int t = 0; t < threads; t++) {
+			for (int i = 0; i < itemsPerThread; i++) {
+				assertTrue("Added item MUST be in a filter",
+						filter.query("item" + t + "_" + i));
+			}
+		}
+		long items = 0;
+		ConcurrentScalableBloomFilter.Slice<String>[] slices = filter
+				.getSlices();
+		for (int i = 0; i < slices.length; i++) {
+			// a slice is overfilled while the next one is being built, by an
+			// amount that depends on the scheduling of the writers
+			long sliceItems = slices[i].items.sum();
+			if (i < slices.length - 1) {
+				assertTrue("Only full slices may be followed by a new one",
+						sliceItems >= fillRatioLimit);
+			}
+			items += sliceItems;
+		}
+		assertEquals("Every item must be counted exactly once", threads
+				* itemsPerThread, items);
+	}
+
+	@Test
+	public void testFailedInstallIsRetried() {
+		ConcurrentScalableBloomFilter<Integer> filter = new ConcurrentScalableBloomFilter<Integer>(
+				100, 0.01) {
+			private boolean failed;
+
+			@Override
+			protected Slice<Integer> createSlice(long capacity,
+					double falsePositiveProbability) {
+				if (!failed) {
+					failed = true;
+					throw new OutOfMemoryError();
+				}
+				return super.createSlice(capacity, falsePositiveProbability);
+			}
+		};
+		for (int i = 0; i < 99; i++) {
+			filter.add(i);
+		}
+		try {
+			filter.add(99);
+		} catch (OutOfMemoryError e) {
+			// the next add must install the slice instead
+		}
+		assertEquals("The failed install must not publish a slice", 1,
+				filter.getSlices().length);
+		filter.add(100);
+		assertEquals("The next writer must install the slice", 2,
+				filter.getSlices().length);
+		for (int i = 0; i < 101; i++) {
+			assertTrue("Added item MUST be in a filter", filter.query(i));
+		}
+	}
+
+	@Test
+	public void testSingleSliceConstruction() throws Exception {
+		final int threads = 8;
+		final int itemsPerThread = 20000;
+		final AtomicInteger constructions = new AtomicInteger();
+		final ConcurrentScalableBloomFilter<String> filter = new ConcurrentScalableBloomFilter<String>(
+				1000, 0.001, 0.9, 2) {
+			@Override
+			protected Slice<String> createSlice(long capacity,
+					double falsePositiveProbability) {
+				constructions.incrementAndGet();
+				try {
+					// widen the window in which other writers see a full slice
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.createSlice(capacity, falsePositiveProbability);
+			}
+		};
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					start.await();
+					for (int i = 0; i < itemsPerThread; i++) {
+						filter.add("item" + thread + "_" + i);
+					}
+					return null;
+				}
+			}));
+		}
+		start.countDown();
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		int slices = filter.getSlices().length;
+		assertTrue("The filter must have grown", slices > 1);
+		assertEquals("Only one writer may build each new slice", slices - 1,
+				constructions.get());
+	}
+
+	@Test
+	public void testAddAllQueryAll() {
+		ConcurrentScalableBloomFilter<String> filter = new ConcurrentScalableBloomFilter<String>(
+				50, 0.01);
+		String[] items = new String[600];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+		}
+		filter.addAll(Arrays.copyOf(items, 300));
+		boolean[] found = new boolean[items.length];
+		filter.queryAll(items, found);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals("Batch and single queries must agree",
+					filter.query(items[i]), found[i]);
+		}
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Added item MUST be in a filter", found[i]);
+		}
+	}
+
+	@Test
+	public void testGrowthFactor() {
+		ConcurrentScalableBloomFilter<Integer> filter = new ConcurrentScalableBloomFilter<Integer>(
+				100, 0.01, 0.9, 4);
+		for (int i = 0; i < 10000; i++) {
+			filter.add(i);
+		}
+		ConcurrentScalableBloomFilter.Slice<Integer>[] slices = filter
+				.getSlices();
+		// 100 + 400 + 1600 + 6400 = 8500 items in the full slices
+		assertEquals("The number of slices must grow logarithmically", 5,
+				slices.length);
+		for (int i = 0; i < slices.length; i++) {
+			assertEquals("Every slice must be four times as large",
+					100L << (2 * i), slices[i].capacity);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertTrue("Added item MUST be in a filter", filter.query(i));
+		}
+	}
+
+	@Test
+	public void testEstimateSize() {
+		BloomFilter<Integer> filter = new ConcurrentScalableBloomFilter<Integer>(100, 0.01);
+		for (int i = 0; i < 5000; i++) {
+			filter.add(i);
+		}
+		double estimate = filter.estimateSize();
+		assertTrue("The estimate must be close to the real size: " + estimate,
+				Math.abs(estimate - 5000) < 250);
+	}
+}
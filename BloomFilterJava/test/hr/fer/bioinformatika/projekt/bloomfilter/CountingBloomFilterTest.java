@@ -0,0 +1,141 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CountingBloomFilterTest {
+
+	@Test
+	public void testCountingBloomFilter() {
+		CountingBloomFilter<String> filter = new CountingBloomFilter<String>(
+				100, 4);
+		assertEquals("There must be 100 counters", 100, filter.getM());
+		assertEquals("Every counter must take 4 bits", 400, filter.array.size());
+		assertEquals(
+				"The number of used hash functions (parameter k) must be 4", 4,
+				filter.k);
+	}
+
+	@Test
+	public void testAddRemove() {
+		CountingBloomFilter<String> filter = new CountingBloomFilter<String>(
+				2000, 0.001);
+		for (int i = 0; i < 2000; i++) {
+			filter.add("item" + i);
+		}
+		for (int i = 0; i < 2000; i += 2) {
+			assertTrue("Added item must be removed", filter.remove("item" + i));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 2000; i++) {
+			if (i % 2 == 1) {
+				assertTrue("Item that wasn't removed MUST be in a filter",
+						filter.query("item" + i));
+			} else if (filter.query("item" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("Too many removed items in the filter: " + falsePositives,
+				falsePositives < 10);
+		assertFalse("Random item must not be removed",
+				filter.remove("randomItem"));
+	}
+
+	@Test
+	public void testCount() {
+		CountingBloomFilter<String> filter = new CountingBloomFilter<String>(
+				1000, 5);
+		assertEquals("Random item must have no count", 0,
+				filter.count("item"));
+		for (int i = 1; i <= 20; i++) {
+			filter.add("item");
+			assertEquals("The count must follow the additions",
+					Math.min(i, CountingBloomFilter.MAX_COUNT),
+					filter.count("item"));
+		}
+		filter.remove("item");
+		assertEquals("A saturated counter must not be decremented",
+				CountingBloomFilter.MAX_COUNT, filter.count("item"));
+	}
+
+	@Test
+	public void testCountersArePacked() {
+		CountingBloomFilter<String> filter = new CountingBloomFilter<String>(
+				32, 1);
+		for (int i = 0; i < 3; i++) {
+			filter.increment(17);
+		}
+		filter.increment(18);
+		assertEquals("The counter 17 must be 3", 3, filter.getCounter(17));
+		assertEquals("The neighbour must not change", 1, filter.getCounter(18));
+		assertEquals("The counters must be in the second word", 0x130L,
+				filter.array.getWord(1));
+		filter.decrement(17);
+		filter.decrement(16);
+		assertEquals("The counter 17 must be 2", 2, filter.getCounter(17));
+		assertEquals("A zero counter must stay zero", 0, filter.getCounter(16));
+	}
+
+	@Test
+	public void testAddAllQueryAll() {
+		CountingBloomFilter<String> filter = new CountingBloomFilter<String>(
+				1000, 0.01);
+		String[] items = new String[600];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+		}
+		filter.addAll(items);
+		boolean[] found = new boolean[items.length];
+		filter.queryAll(items, found);
+		for (int i = 0; i < items.length; i++) {
+			assertTrue("Added item MUST be in a filter", found[i]);
+			assertEquals("Every item must be counted once", 1,
+					filter.count(items[i]), 1);
+		}
+	}
+
+	@Test
+	public void testUnionIntersect() {
+		CountingBloomFilter<String> a = new CountingBloomFilter<String>(5000,
+				5);
+		CountingBloomFilter<String> b = new CountingBloomFilter<String>(5000,
+				5);
+		for (int i = 0; i < 200; i++) {
+			a.add("item" + i);
+		}
+		for (int i = 100; i < 300; i++) {
+			b.add("item" + i);
+		}
+		CountingBloomFilter<String> union = (CountingBloomFilter<String>) a
+				.union(b);
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Item MUST be in the union", union.query("item" + i));
+		}
+		for (int i = 0; i < 200; i++) {
+			assertTrue("Item of a must be removed from the union",
+					union.remove("item" + i));
+		}
+		for (int i = 200; i < 300; i++) {
+			assertTrue("Item of b MUST stay in the union",
+					union.query("item" + i));
+		}
+		BloomFilter<String> intersection = a.intersect(b);
+		for (int i = 100; i < 200; i++) {
+			assertTrue("Common item MUST be in the intersection",
+					intersection.query("item" + i));
+		}
+		assertEquals("The size of a must be estimated from the counters",
+				200, a.estimateSize(), 10);
+		assertEquals("The union must be estimated from the counters", 300,
+				a.estimateUnionSize(b), 15);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnionIncompatible() {
+		new CountingBloomFilter<String>(1000, 3)
+				.union(new BloomFilter<String>(4000, 3));
+	}
+}
@@ -0,0 +1,190 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CuckooFilterTest {
+
+	@Test
+	public void testCuckooFilter() {
+		CuckooFilter<String> filter = new CuckooFilter<String>(1000, 12);
+		assertEquals("The number of buckets must be a power of two", 2048,
+				filter.getCapacity());
+		assertEquals("The fingerprints must have 12 bits", 12,
+				filter.getFingerprintBits());
+		assertEquals("The filter must be empty", 0, filter.size());
+	}
+
+	@Test
+	public void testPackedBuckets() {
+		for (int bits : new int[] { 8, 12, 16 }) {
+			CuckooFilter<String> filter = new CuckooFilter<String>(100000,
+					bits);
+			assertEquals("The capacity must not depend on the fingerprint size",
+					131072, filter.getCapacity());
+			assertEquals("Every slot must take " + bits + " bits",
+					filter.getCapacity() * bits, filter.getBitSize());
+			// fill the filter so fingerprints cross the word boundaries
+			int added = 0;
+			while (filter.add("item" + added)) {
+				added++;
+			}
+			for (int i = 0; i < added; i++) {
+				assertTrue("Added item MUST be in a filter",
+						filter.query("item" + i));
+			}
+			for (int i = 0; i < added; i++) {
+				assertTrue("Added item must be removed",
+						filter.remove("item" + i));
+			}
+			assertEquals("The filter must be empty", 0, filter.size());
+			for (long word : filter.buckets) {
+				assertEquals("Removed fingerprints must clear their bits", 0,
+						word);
+			}
+		}
+	}
+
+	@Test
+	public void testFingerprintBitsFromProbability() {
+		assertEquals("0.1% needs 16-bit fingerprints", 16,
+				new CuckooFilter<String>(100, 0.001).getFingerprintBits());
+		assertEquals("1% needs 12-bit fingerprints", 12,
+				new CuckooFilter<String>(100, 0.01).getFingerprintBits());
+		assertEquals("5% needs 8-bit fingerprints", 8,
+				new CuckooFilter<String>(100, 0.05).getFingerprintBits());
+	}
+
+	@Test
+	public void testAddQuery() {
+		for (int bits : new int[] { 8, 12, 16 }) {
+			CuckooFilter<String> filter = new CuckooFilter<String>(10000, bits);
+			for (int i = 0; i < 10000; i++) {
+				assertTrue("The item must fit in the filter",
+						filter.add("item" + i));
+			}
+			assertEquals("Every item must be counted", 10000, filter.size());
+			for (int i = 0; i < 10000; i++) {
+				assertTrue("Added item MUST be in a filter",
+						filter.query("item" + i));
+			}
+			int falsePositives = 0;
+			for (int i = 0; i < 100000; i++) {
+				if (filter.query("other" + i)) {
+					falsePositives++;
+				}
+			}
+			double expected = 2. * CuckooFilter.SLOTS / (1 << bits);
+			assertTrue("Too many false positives with " + bits + " bits: "
+					+ falsePositives, falsePositives < 100000 * expected * 1.5);
+		}
+	}
+
+	@Test
+	public void testRemove() {
+		CuckooFilter<String> filter = new CuckooFilter<String>(2000, 16);
+		for (int i = 0; i < 2000; i++) {
+			filter.add("item" + i);
+		}
+		for (int i = 0; i < 2000; i += 2) {
+			assertTrue("Added item must be removed", filter.remove("item" + i));
+		}
+		assertEquals("Half of the items must be left", 1000, filter.size());
+		for (int i = 1; i < 2000; i += 2) {
+			assertTrue("Item that wasn't removed MUST be in a filter",
+					filter.query("item" + i));
+		}
+		int left = 0;
+		for (int i = 0; i < 2000; i += 2) {
+			if (filter.query("item" + i)) {
+				left++;
+			}
+		}
+		assertTrue("Too many removed items in the filter: " + left, left < 5);
+		assertFalse("Random item must not be removed",
+				filter.remove("randomItem"));
+	}
+
+	@Test
+	public void testDuplicates() {
+		CuckooFilter<String> filter = new CuckooFilter<String>(100, 16);
+		filter.add("item");
+		filter.add("item");
+		assertTrue(filter.remove("item"));
+		assertTrue("The second copy MUST stay in the filter",
+				filter.query("item"));
+		assertTrue(filter.remove("item"));
+		assertFalse("Both copies must be removed", filter.query("item"));
+	}
+
+	@Test
+	public void testFull() {
+		CuckooFilter<String> filter = new CuckooFilter<String>(100, 16);
+		List<String> added = new ArrayList<String>();
+		int i = 0;
+		while (filter.add("item" + i)) {
+			added.add("item" + i);
+			i++;
+		}
+		assertTrue("The table must be filled to at least 90%: "
+				+ filter.getLoadFactor(), filter.getLoadFactor() > 0.9);
+		for (String item : added) {
+			assertTrue("No added item may be lost: " + item,
+					filter.query(item));
+		}
+		assertTrue(filter.remove(added.get(0)));
+		assertTrue("A removal must make room for an item",
+				filter.add("another"));
+		for (String item : added.subList(1, added.size())) {
+			assertTrue("No added item may be lost: " + item,
+					filter.query(item));
+		}
+	}
+
+	@Test
+	public void testBytesAndBuffers() {
+		CuckooFilter<String> filter = new CuckooFilter<String>(100, 12,
+				HashFunctionFactory.getSinglePassBloomFilterHashes());
+		byte[] data = "xxitemxx".getBytes(StandardCharsets.UTF_8);
+		filter.add(data, 2, 4);
+		assertTrue("Added item MUST be in a filter", filter.query("item"));
+		assertTrue("Added item MUST be in a filter",
+				filter.query(ByteBuffer.wrap(data, 2, 4)));
+		filter.add(ByteBuffer.wrap("other".getBytes(StandardCharsets.UTF_8)));
+		assertTrue("Added item MUST be in a filter", filter.query("other"));
+	}
+
+	@Test
+	public void testAddAllQueryAll() {
+		CuckooFilter<String> filter = new CuckooFilter<String>(1000, 12);
+		String[] items = new String[500];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+		}
+		assertTrue("All items must be added", filter.addAll(items));
+		boolean[] found = new boolean[items.length];
+		filter.queryAll(items, found);
+		for (boolean f : found) {
+			assertTrue("Added item MUST be in a filter", f);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFingerprintBits() {
+		new CuckooFilter<String>(100, 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidProbability() {
+		new CuckooFilter<String>(100, 0.00001);
+	}
+}
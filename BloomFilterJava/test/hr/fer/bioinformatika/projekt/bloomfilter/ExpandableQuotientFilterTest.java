@@ -0,0 +1,304 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hr.fer.bioinformatika.projekt.hash.HashFunctionFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ExpandableQuotientFilterTest {
+
+	@Test
+	public void testGrow() {
+		ExpandableQuotientFilter<String> filter = new ExpandableQuotientFilter<String>(
+				100, 0.001);
+		assertEquals("The filter must be sized for the capacity", 8,
+				filter.getQuotientBits());
+		for (int i = 0; i < 200000; i++) {
+			filter.add("item" + i);
+		}
+		assertEquals("Every item must be counted", 200000, filter.size());
+		assertTrue("The filter must have grown", filter.getQuotientBits() > 8);
+		assertTrue("New remainders must be longer",
+				filter.getFingerprintBits() > 11);
+		assertTrue("The load must stay under the limit",
+				filter.size() <= filter.getCapacity());
+		for (int i = 0; i < 200000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 200000; i++) {
+			if (filter.query("other" + i)) {
+				falsePositives++;
+			}
+		}
+		// 200 expected at the target probability
+		assertTrue("Too many false positives: " + falsePositives,
+				falsePositives < 300);
+	}
+
+	@Test
+	public void testBitsPerItem() {
+		ExpandableQuotientFilter<String> filter = new ExpandableQuotientFilter<String>(
+				100, 0.001);
+		for (int i = 0; i < 190000; i++) {
+			filter.add("item" + i);
+		}
+		// a 32-bit fingerprint per slot would take over 43 bits per item
+		double bitsPerItem = (double) filter.getBitSize() / filter.size();
+		assertTrue("Only the remainders must be stored: " + bitsPerItem,
+				bitsPerItem < 30);
+	}
+
+	@Test
+	public void testGrowPastTarget() {
+		// 1e-6 * 2^32 items were the limit of 32-bit fingerprints
+		ExpandableQuotientFilter<String> filter = new ExpandableQuotientFilter<String>(
+				10, 1e-6);
+		for (int i = 0; i < 20000; i++) {
+			filter.add("item" + i);
+		}
+		assertEquals("Every item must be counted", 20000, filter.size());
+		for (int i = 0; i < 20000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 1000000; i++) {
+			if (filter.query("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("Too many false positives: " + falsePositives,
+				falsePositives < 5);
+	}
+
+	@Test
+	public void testShortRemainders() {
+		// 2 remainder bits are used up after a few expansions
+		ExpandableQuotientFilter<String> filter = new ExpandableQuotientFilter<String>(
+				10, 0.5);
+		for (int i = 0; i < 50000; i++) {
+			filter.add("item" + i);
+		}
+		for (int i = 0; i < 50000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 50000; i++) {
+			if (filter.query("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("Too many false positives: " + falsePositives,
+				falsePositives < 25000);
+		for (int i = 0; i < 50000; i += 2) {
+			assertTrue("Added item must be removed", filter.remove("item" + i));
+		}
+		assertEquals("Removed items must not be counted", 25000, filter.size());
+	}
+
+	@Test
+	public void testRuns() {
+		ExpandableQuotientFilter<String> filter = new ExpandableQuotientFilter<String>(
+				10000, 0.001);
+		for (int i = 0; i < 7000; i++) {
+			filter.add("item" + i);
+		}
+		int home = -1;
+		int count = 0;
+		boolean runEnd = true;
+		for (int p = 0; p < filter.slotCount; p++) {
+			long bit = (long) p * filter.slotBits;
+			long value = filter.slots[(int) (bit >>> 6)] >>> bit;
+			if ((bit & 63) + filter.slotBits > 64) {
+				value |= filter.slots[(int) (bit >>> 6) + 1] << -bit;
+			}
+			value &= (1L << filter.slotBits) - 1;
+			if (value == 0) {
+				assertTrue("A run must end before an empty slot", runEnd);
+				continue;
+			}
+			if (runEnd) {
+				home++;
+				while ((filter.occupied[home >>> 6] & (1L << home)) == 0) {
+					home++;
+				}
+			}
+			assertTrue("A remainder must not precede its home slot",
+					home <= p);
+			runEnd = (filter.runEnds[p >>> 6] & (1L << p)) != 0;
+			count++;
+		}
+		assertEquals("Every remainder must be stored", 7000, count);
+	}
+
+	@Test
+	public void testRemove() {
+		ExpandableQuotientFilter<String> filter = new ExpandableQuotientFilter<String>(
+				100, 1e-6);
+		for (int i = 0; i < 5000; i++) {
+			filter.add("item" + i);
+		}
+		filter.add("item0");
+		for (int i = 0; i < 5000; i += 2) {
+			assertTrue("Added item must be removed", filter.remove("item" + i));
+		}
+		assertEquals("Removed items must not be counted", 2501, filter.size());
+		assertTrue("The second copy must stay in the filter",
+				filter.query("item0"));
+		for (int i = 2; i < 5000; i += 2) {
+			assertFalse("Removed item must not be in the filter",
+					filter.query("item" + i));
+		}
+		for (int i = 1; i < 5000; i += 2) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		assertFalse("An item that wasn't added must not be removed",
+				filter.remove("other"));
+		byte[] item = "item1".getBytes(StandardCharsets.UTF_8);
+		assertTrue("The item must be removed by its bytes",
+				filter.remove(item, 0, item.length));
+		assertFalse("Removed item must not be in the filter",
+				filter.query("item1"));
+	}
+
+	@Test
+	public void testMerge() {
+		ExpandableQuotientFilter<String> first = new ExpandableQuotientFilter<String>(
+				100, 0.001);
+		ExpandableQuotientFilter<String> second = new ExpandableQuotientFilter<String>(
+				10000, 0.001);
+		for (int i = 0; i < 3000; i++) {
+			first.add("first" + i);
+			second.add("second" + i);
+		}
+		first.merge(second);
+		assertEquals("Both filters must be counted", 6000, first.size());
+		assertEquals("The other filter must not change", 3000, second.size());
+		for (int i = 0; i < 3000; i++) {
+			assertTrue("Item of this filter MUST be in the merged filter",
+					first.query("first" + i));
+			assertTrue("Item of the other filter MUST be in the merged filter",
+					first.query("second" + i));
+			assertTrue("Item of the other filter MUST stay in it",
+					second.query("second" + i));
+		}
+		for (int i = 3000; i < 10000; i++) {
+			first.add("first" + i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertTrue("Added item MUST be in the merged filter",
+					first.query("first" + i));
+		}
+	}
+
+	@Test
+	public void testUnion() {
+		BloomFilter<String> first = new ExpandableQuotientFilter<String>(100,
+				0.001);
+		BloomFilter<String> second = new ExpandableQuotientFilter<String>(100,
+				0.001);
+		for (int i = 0; i < 1000; i++) {
+			first.add("first" + i);
+			second.add("second" + i);
+		}
+		BloomFilter<String> union = first.union(second);
+		assertEquals("The union must hold both filters", 2000,
+				union.estimateSize(), 0);
+		assertEquals("The filter must not change", 1000,
+				first.estimateSize(), 0);
+		for (int i = 0; i < 1000; i++) {
+			assertTrue("Item of this filter MUST be in the union",
+					union.query("first" + i));
+			assertTrue("Item of the other filter MUST be in the union",
+					union.query("second" + i));
+		}
+		first.orInto(second);
+		assertEquals("The target must receive the items", 2000,
+				second.estimateSize(), 0);
+		assertTrue("Item of this filter MUST be in the target",
+				second.query("first0"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnionWithBloomFilter() {
+		new ExpandableQuotientFilter<String>(100, 0.001)
+				.union(new BloomFilter<String>(1000, 0.001));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testIntersect() {
+		new ExpandableQuotientFilter<String>(100, 0.001)
+				.intersect(new ExpandableQuotientFilter<String>(100, 0.001));
+	}
+
+	@Test
+	public void testAsBloomFilter() {
+		BloomFilter<String> filter = new ExpandableQuotientFilter<String>(10,
+				0.001);
+		String[] items = new String[1000];
+		List<String> more = new ArrayList<String>();
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+			more.add("more" + i);
+		}
+		filter.addAll(items);
+		filter.addAll(more);
+		boolean[] out = new boolean[items.length];
+		filter.queryAll(items, out);
+		for (int i = 0; i < items.length; i++) {
+			assertTrue("Added item MUST be in a filter", out[i]);
+			assertTrue("Added item MUST be in a filter",
+					filter.query(more.get(i)));
+		}
+		assertEquals("The size is known exactly", 2000,
+				filter.estimateSize(), 0);
+		byte[] item = "item3".getBytes(StandardCharsets.UTF_8);
+		assertTrue("Added item must be found by its bytes",
+				filter.query(ByteBuffer.wrap(item)));
+		byte[] sequence = "ACGTTGCAAGGCTTACGATCGATCGGATCCA"
+				.getBytes(StandardCharsets.US_ASCII);
+		long kmers = filter.addKmers(sequence, 11);
+		for (int i = 0; i < kmers; i++) {
+			assertTrue("Added k-mer MUST be in a filter",
+					filter.queryKmer(sequence, i, 11));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeDifferentHashes() {
+		new ExpandableQuotientFilter<String>(10, 0.001)
+				.merge(new ExpandableQuotientFilter<String>(10, 0.001,
+						HashFunctionFactory.getSinglePassBloomFilterHashes()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new ExpandableQuotientFilter<String>(-1, 0.001);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCapacityTooLarge() {
+		new ExpandableQuotientFilter<String>(1L << 31, 0.001);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFalsePositiveProbability() {
+		new ExpandableQuotientFilter<String>(10, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFalsePositiveProbabilityTooSmall() {
+		new ExpandableQuotientFilter<String>(10, 1e-12);
+	}
+}
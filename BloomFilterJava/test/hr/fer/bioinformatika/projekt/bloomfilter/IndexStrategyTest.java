@@ -0,0 +1,105 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IndexStrategyTest {
+
+	@Test
+	public void testSize() {
+		assertEquals(1000, IndexStrategy.MODULO.size(1000));
+		assertEquals("The size must be rounded up to a power of two", 1024,
+				IndexStrategy.POWER_OF_TWO.size(1000));
+		assertEquals("A power of two must not be changed", 1024,
+				IndexStrategy.POWER_OF_TWO.size(1024));
+		assertEquals(1000, IndexStrategy.MULTIPLY_SHIFT.size(1000));
+		assertEquals(1000, IndexStrategy.ENHANCED_DOUBLE_HASHING.size(1000));
+	}
+
+	@Test
+	public void testModuloIndex() {
+		long h1 = 123456789L;
+		long h2 = 987654321L;
+		long m = 1000;
+		assertEquals("The first probe must use h1", h1 % m,
+				IndexStrategy.MODULO.index(h1, h2, 0, m));
+		assertEquals("The second probe must use h2", h2 % m,
+				IndexStrategy.MODULO.index(h1, h2, 1, m));
+		assertEquals((h1 + 5 * h2) % m,
+				IndexStrategy.MODULO.index(h1, h2, 5, m));
+	}
+
+	@Test
+	public void testIndexRange() {
+		Random random = new Random(42);
+		long[] lengths = { 1, 7, 1000, 1L << 32, (1L << 32) + 1, 3L << 40 };
+		for (IndexStrategy strategy : IndexStrategy.values()) {
+			for (long length : lengths) {
+				long size = strategy.size(length);
+				for (int j = 0; j < 1000; j++) {
+					long index = strategy.index(random.nextLong(),
+							random.nextLong(), j % 16, size);
+					assertTrue(strategy + " must map to [0, " + size + "): "
+							+ index, index >= 0 && index < size);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMultiplyHighUnsigned() {
+		Random random = new Random(42);
+		BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+		for (int i = 0; i < 1000; i++) {
+			long x = random.nextLong();
+			long y = random.nextLong();
+			BigInteger product = BigInteger.valueOf(x).and(mask)
+					.multiply(BigInteger.valueOf(y).and(mask));
+			assertEquals(product.shiftRight(64).longValue(),
+					IndexStrategy.multiplyHighUnsigned(x, y));
+		}
+	}
+
+	@Test
+	public void testQueryStrategies() {
+		for (IndexStrategy strategy : IndexStrategy.values()) {
+			BloomFilter<String> filter = new BloomFilter<String>(10000, 7,
+					strategy);
+			PartitionedBloomFilter<String> partitioned = new PartitionedBloomFilter<String>(
+					10000, 7, strategy);
+			for (int i = 0; i < 1000; i++) {
+				filter.add("item" + i);
+				partitioned.add("item" + i);
+			}
+			int falsePositives = 0;
+			for (int i = 0; i < 1000; i++) {
+				assertTrue("Added item MUST be in a filter",
+						filter.query("item" + i));
+				assertTrue("Added item MUST be in a filter",
+						partitioned.query("item" + i));
+				if (filter.query("randomItem" + i)) {
+					falsePositives++;
+				}
+				if (partitioned.query("randomItem" + i)) {
+					falsePositives++;
+				}
+			}
+			assertTrue(strategy + " false positive rate must be close to 0.01",
+					falsePositives < 60);
+		}
+	}
+
+	@Test
+	public void testPartitionedPowerOfTwo() {
+		PartitionedBloomFilter<String> filter = new PartitionedBloomFilter<String>(
+				1000, 3, IndexStrategy.POWER_OF_TWO);
+		assertEquals("Every slice must be rounded up to a power of two",
+				3 * 512, filter.array.size());
+		assertEquals(512, filter.partitionIndexes[0]);
+	}
+}
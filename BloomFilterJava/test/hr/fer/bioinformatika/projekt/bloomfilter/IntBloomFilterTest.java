@@ -0,0 +1,72 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class IntBloomFilterTest {
+
+	@Test
+	public void testQuery() {
+		IntBloomFilter filter = new IntBloomFilter(1000, 0.01);
+		for (int i = 0; i < 1000; i++) {
+			filter.add(i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertTrue("Added key MUST be in a filter", filter.query(i));
+		}
+		int falsePositives = 0;
+		for (int i = 1000; i < 11000; i++) {
+			if (filter.query(i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("False positive rate must be close to 0.01",
+				falsePositives < 300);
+	}
+
+	@Test
+	public void testQueryBoxed() {
+		IntBloomFilter filter = new IntBloomFilter(1000, 0.01);
+		filter.add(Integer.valueOf(-7));
+		assertTrue("Boxed and primitive keys must use the same hashes",
+				filter.query(-7));
+	}
+
+	@Test
+	public void testAddAll() {
+		int[] keys = { 1, 2, 3, Integer.MIN_VALUE };
+		IntBloomFilter filter = new IntBloomFilter(100, 0.01);
+		filter.addAll(keys);
+		for (int key : keys) {
+			assertTrue("Added key MUST be in a filter", filter.query(key));
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testQueryNull() {
+		new IntBloomFilter(100, 4).query((Integer) null);
+	}
+
+	@Test
+	public void testQueryAll() {
+		IntBloomFilter filter = new IntBloomFilter(300, 0.01);
+		int[] keys = new int[600];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = i * 31;
+		}
+		filter.addAll(Arrays.copyOf(keys, 300));
+		boolean[] found = new boolean[keys.length];
+		filter.queryAll(keys, found);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals("Batch and single queries must agree",
+					filter.query(keys[i]), found[i]);
+		}
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Added key MUST be in a filter", found[i]);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.LongBuffer;
+
+import org.junit.Test;
+
+public class LongArrayBitStoreTest {
+
+	@Test
+	public void testLongArrayBitStore() {
+		BitStore store = new LongArrayBitStore(130);
+		assertEquals("The store size must be 130", 130, store.size());
+		assertEquals("130 bits must be packed in 3 words", 3,
+				store.wordCount());
+		assertEquals("All bits must be cleared", 0, store.cardinality());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLongArrayBitStoreZeroSize() {
+		new LongArrayBitStore(0);
+	}
+
+	@Test
+	public void testSetAndGet() {
+		BitStore store = new LongArrayBitStore(130);
+		store.set(0);
+		store.set(63);
+		store.set(64);
+		store.set(129);
+		assertTrue("Bit 0 must be set", store.get(0));
+		assertTrue("Bit 63 must be set", store.get(63));
+		assertTrue("Bit 64 must be set", store.get(64));
+		assertTrue("Bit 129 must be set", store.get(129));
+		assertFalse("Bit 1 must not be set", store.get(1));
+		assertFalse("Bit 128 must not be set", store.get(128));
+		assertEquals("The first word must contain bits 0 and 63",
+				0x8000000000000001L, store.getWord(0));
+		assertEquals("The second word must contain bit 64", 1L,
+				store.getWord(1));
+	}
+
+	@Test
+	public void testCardinality() {
+		BitStore store = new LongArrayBitStore(200);
+		for (int i = 0; i < 200; i += 3) {
+			store.set(i);
+		}
+		assertEquals(67, store.cardinality());
+		assertEquals(67, store.cardinality(0, 200));
+		assertEquals(0, store.cardinality(1, 3));
+		assertEquals(1, store.cardinality(3, 4));
+		assertEquals(22, store.cardinality(60, 126));
+		assertEquals(0, store.cardinality(50, 50));
+	}
+
+	@Test
+	public void testClear() {
+		BitStore store = new LongArrayBitStore(100);
+		store.set(5);
+		store.set(99);
+		store.clear();
+		assertEquals("All bits must be cleared", 0, store.cardinality());
+	}
+
+	@Test
+	public void testOr() {
+		BitStore store = new LongArrayBitStore(130);
+		BitStore other = new LongArrayBitStore(130);
+		store.set(1);
+		other.set(1);
+		other.set(129);
+		store.or(other);
+		assertTrue("Bit 1 must be set", store.get(1));
+		assertTrue("Bit 129 must be set", store.get(129));
+		assertEquals("Only two bits must be set", 2, store.cardinality());
+		assertEquals("The other store must not change", 2,
+				other.cardinality());
+		store.or(new PagedBitStore(130, 0));
+		assertEquals("Only two bits must be set", 2, store.cardinality());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOrDifferentSize() {
+		new LongArrayBitStore(130).or(new LongArrayBitStore(129));
+	}
+
+	@Test
+	public void testAndAndCardinalities() {
+		BitStore store = new LongArrayBitStore(130);
+		BitStore other = new LongArrayBitStore(130);
+		store.set(1);
+		store.set(70);
+		other.set(70);
+		other.set(129);
+		assertEquals("The union must have 3 bits", 3,
+				store.orCardinality(other));
+		assertEquals("The intersection must have 1 bit", 1,
+				store.andCardinality(other));
+		store.and(other);
+		assertTrue("Bit 70 must be set", store.get(70));
+		assertEquals("Only one bit must be set", 1, store.cardinality());
+	}
+
+	@Test
+	public void testCopy() {
+		BitStore store = new LongArrayBitStore(130);
+		store.set(5);
+		BitStore copy = store.copy();
+		copy.set(6);
+		assertTrue("The copy must contain the bits", copy.get(5));
+		assertFalse("The store must not change", store.get(6));
+	}
+
+	@Test
+	public void testReadAndWriteWords() {
+		BitStore store = new LongArrayBitStore(256);
+		store.readWords(1, LongBuffer.wrap(new long[] { 5L, 7L }));
+		assertEquals("Word 1 must be read", 5L, store.getWord(1));
+		assertEquals("Word 2 must be read", 7L, store.getWord(2));
+		long[] words = new long[3];
+		store.writeWords(0, LongBuffer.wrap(words));
+		assertEquals("Word 2 must be written", 7L, words[2]);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testReadWordsOutOfRange() {
+		new LongArrayBitStore(128).readWords(1,
+				LongBuffer.wrap(new long[] { 1L, 2L }));
+	}
+
+	@Test
+	public void testCompareAndSetWord() {
+		for (BitStore store : new BitStore[] { new LongArrayBitStore(128),
+				new AtomicBitStore(128) }) {
+			assertFalse("A different word must not be replaced",
+					store.compareAndSetWord(1, 3L, 5L));
+			assertEquals("The word must not change", 0L, store.getWord(1));
+			assertTrue("The expected word must be replaced",
+					store.compareAndSetWord(1, 0L, 5L));
+			assertEquals("The word must be replaced", 5L, store.getWord(1));
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class LongBloomFilterTest {
+
+	@Test
+	public void testQuery() {
+		LongBloomFilter filter = new LongBloomFilter(1000, 0.01);
+		for (long i = 0; i < 1000; i++) {
+			filter.add(i * 31);
+		}
+		for (long i = 0; i < 1000; i++) {
+			assertTrue("Added key MUST be in a filter", filter.query(i * 31));
+		}
+		int falsePositives = 0;
+		for (long i = 0; i < 10000; i++) {
+			if (filter.query(-1 - i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("False positive rate must be close to 0.01",
+				falsePositives < 300);
+	}
+
+	@Test
+	public void testAddZero() {
+		LongBloomFilter filter = new LongBloomFilter(1000, 4);
+		filter.add(0L);
+		assertEquals("Key 0 must set more than one bit", 4,
+				filter.array.cardinality());
+	}
+
+	@Test
+	public void testQueryBoxed() {
+		LongBloomFilter filter = new LongBloomFilter(1000, 0.01);
+		filter.add(Long.valueOf(42));
+		assertTrue("Boxed and primitive keys must use the same hashes",
+				filter.query(42L));
+		filter.add(Long.MIN_VALUE);
+		assertTrue("Boxed and primitive keys must use the same hashes",
+				filter.query(Long.valueOf(Long.MIN_VALUE)));
+	}
+
+	@Test
+	public void testAddAll() {
+		long[] keys = { 1, 2, 3, Long.MAX_VALUE };
+		LongBloomFilter filter = new LongBloomFilter(100, 0.01);
+		filter.addAll(keys);
+		for (long key : keys) {
+			assertTrue("Added key MUST be in a filter", filter.query(key));
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testAddNull() {
+		new LongBloomFilter(100, 4).add((Long) null);
+	}
+
+	@Test
+	public void testQueryAll() {
+		LongBloomFilter filter = new LongBloomFilter(300, 0.01);
+		long[] keys = new long[600];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = (long) i * 31;
+		}
+		filter.addAll(Arrays.copyOf(keys, 300));
+		boolean[] found = new boolean[keys.length];
+		filter.queryAll(keys, found);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals("Batch and single queries must agree",
+					filter.query(keys[i]), found[i]);
+		}
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Added key MUST be in a filter", found[i]);
+		}
+	}
+}
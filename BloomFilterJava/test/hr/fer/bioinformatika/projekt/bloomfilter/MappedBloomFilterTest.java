@@ -0,0 +1,153 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+
+import org.junit.Test;
+
+public class MappedBloomFilterTest {
+
+	private File createTempFile() throws IOException {
+		File file = File.createTempFile("filter", ".bf");
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testMappedBloomFilterFileIntInt() throws IOException {
+		File file = createTempFile();
+		MappedBloomFilter<String> filter = new MappedBloomFilter<String>(file,
+				1000, 4);
+		assertEquals("The m-bit array size must be 1000", 1000,
+				filter.array.size());
+		assertEquals("All of the values in the m-bit array must be false", 0,
+				filter.array.cardinality());
+		assertEquals(
+				"The number of used hash functions (parameter k) must be 4", 4,
+				filter.k);
+		filter.close();
+		assertEquals("The file must contain the header and 16 words",
+				MappedBloomFilter.HEADER_SIZE + 16 * 8, file.length());
+	}
+
+	@Test
+	public void testQuery() throws IOException {
+		String testItem = "testItem";
+		MappedBloomFilter<String> filter = new MappedBloomFilter<String>(
+				createTempFile(), 100, 0.001);
+		filter.add(testItem);
+		assertTrue("Added item MUST be in a filter", filter.query(testItem));
+		assertFalse("Random item must not be in this filter",
+				filter.query("randomItem"));
+		filter.close();
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		File file = createTempFile();
+		MappedBloomFilter<String> filter = new MappedBloomFilter<String>(file,
+				100, 0.001);
+		for (int i = 0; i < 100; i++) {
+			filter.add("item" + i);
+		}
+		long setBits = filter.array.cardinality();
+		filter.close();
+
+		MappedBloomFilter<String> reopened = new MappedBloomFilter<String>(
+				file, true);
+		assertEquals("The array size must survive reopening",
+				filter.array.size(), reopened.array.size());
+		assertEquals("The number of hash functions must survive reopening",
+				filter.k, reopened.k);
+		assertEquals("The set bits must survive reopening", setBits,
+				reopened.array.cardinality());
+		for (int i = 0; i < 100; i++) {
+			assertTrue("Added item MUST be in a reopened filter",
+					reopened.query("item" + i));
+		}
+		reopened.close();
+	}
+
+	@Test
+	public void testLargeFilter() throws IOException {
+		long m = 3L << 32;
+		MappedBloomFilter<String> filter = new MappedBloomFilter<String>(
+				createTempFile(), m, 4);
+		for (int i = 0; i < 100; i++) {
+			filter.add("item" + i);
+		}
+		for (int i = 0; i < 100; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		assertTrue("Bits beyond 2^32 must be used",
+				filter.array.cardinality(1L << 32, m) > 0);
+		filter.close();
+	}
+
+	@Test(expected = ReadOnlyBufferException.class)
+	public void testAddReadOnly() throws IOException {
+		File file = createTempFile();
+		new MappedBloomFilter<String>(file, 100, 4).close();
+		MappedBloomFilter<String> filter = new MappedBloomFilter<String>(file,
+				true);
+		try {
+			filter.add("testItem");
+		} finally {
+			filter.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMappedBloomFilterInvalidFile() throws IOException {
+		File file = createTempFile();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[MappedBloomFilter.HEADER_SIZE]);
+		out.close();
+		new MappedBloomFilter<String>(file);
+	}
+
+	@Test
+	public void testUnion() throws IOException {
+		MappedBloomFilter<String> a = new MappedBloomFilter<String>(
+				createTempFile(), 1000, 4);
+		MappedBloomFilter<String> b = new MappedBloomFilter<String>(
+				createTempFile(), 1000, 4);
+		a.add("a");
+		b.add("b");
+		BloomFilter<String> union = a.union(b);
+		assertFalse("The union must be stored on the heap",
+				union instanceof MappedBloomFilter);
+		assertTrue("Item MUST be in the union", union.query("a"));
+		assertTrue("Item MUST be in the union", union.query("b"));
+		a.close();
+		b.close();
+	}
+
+	@Test
+	public void testCombineWithHeapFilter() throws IOException {
+		MappedBloomFilter<String> a = new MappedBloomFilter<String>(
+				createTempFile(), 1000, 4);
+		MappedBloomFilter<String> b = new MappedBloomFilter<String>(
+				createTempFile(), 1000, 4);
+		a.add("a");
+		b.add("b");
+		BloomFilter<String> union = a.union(b);
+		union.add("c");
+		BloomFilter<String> intersection = union.intersect(a);
+		assertTrue("Item MUST be in the intersection",
+				intersection.query("a"));
+		assertEquals("The union of a heap and a mapped filter must work",
+				union.estimateSize(), a.estimateUnionSize(union), 1e-9);
+		union.orInto(a);
+		assertTrue("Item MUST be added to the mapped filter", a.query("c"));
+		a.close();
+		b.close();
+	}
+}
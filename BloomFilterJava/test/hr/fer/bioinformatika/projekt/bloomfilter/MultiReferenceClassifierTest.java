@@ -0,0 +1,106 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hr.fer.bioinformatika.projekt.hash.NtHash;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MultiReferenceClassifierTest {
+
+	private static byte[] randomSequence(Random random, int length) {
+		byte[] sequence = new byte[length];
+		for (int i = 0; i < length; i++) {
+			sequence[i] = (byte) "ACGT".charAt(random.nextInt(4));
+		}
+		return sequence;
+	}
+
+	@Test
+	public void testClassify() {
+		Random random = new Random(5);
+		int references = 100;
+		byte[][] sequences = new byte[references][];
+		MultiReferenceClassifier classifier = new MultiReferenceClassifier(
+				references, 2000, 0.001, 21);
+		for (int r = 0; r < references; r++) {
+			sequences[r] = randomSequence(random, 2000);
+			assertEquals("Every k-mer must be added", 2000 - 21 + 1,
+					classifier.addKmers(r, sequences[r]));
+		}
+		int[] hits = new int[references];
+		NtHash ntHash = new NtHash(21, true);
+		for (int r = 0; r < references; r++) {
+			assertEquals("Every k-mer of the read must be queried", 150 - 21 + 1,
+					classifier.classify(ntHash, sequences[r], 500, 150, hits));
+			assertEquals("Every k-mer must hit its reference", 150 - 21 + 1,
+					hits[r]);
+			assertEquals("The read must be classified to its reference", r,
+					classifier.best(hits));
+			for (int other = 0; other < references; other++) {
+				if (other != r) {
+					assertTrue("Too many hits in another reference: "
+							+ hits[other], hits[other] < 5);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameAsSeparateFilters() {
+		Random random = new Random(6);
+		int references = 70;
+		MultiReferenceClassifier classifier = new MultiReferenceClassifier(
+				references, 997, 3, 11);
+		byte[][] sequences = new byte[references][];
+		for (int r = 0; r < references; r++) {
+			sequences[r] = randomSequence(random, 300);
+			classifier.addKmers(r, sequences[r]);
+		}
+		byte[] read = randomSequence(random, 400);
+		int[] hits = new int[references];
+		classifier.classify(read, hits);
+		// a single reference behaves like a filter of the same geometry
+		for (int r = 0; r < references; r++) {
+			MultiReferenceClassifier single = new MultiReferenceClassifier(1,
+					997, 3, 11);
+			single.addKmers(0, sequences[r]);
+			int[] singleHits = new int[1];
+			single.classify(read, singleHits);
+			assertEquals("The tally of reference " + r
+					+ " must not depend on the other references",
+					singleHits[0], hits[r]);
+		}
+	}
+
+	@Test
+	public void testNoHits() {
+		MultiReferenceClassifier classifier = new MultiReferenceClassifier(3,
+				1000, 4, 5);
+		int[] hits = new int[] { 7, 7, 7 };
+		assertEquals("The read has 2 k-mers", 2,
+				classifier.classify("ACGTAC".getBytes(), hits));
+		assertEquals("The tally must be reset", 0, hits[0] + hits[1] + hits[2]);
+		assertEquals("There is no best reference", -1, classifier.best(hits));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidReference() {
+		new MultiReferenceClassifier(3, 1000, 4, 5).addKmers(3,
+				"ACGTAC".getBytes());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortOutput() {
+		new MultiReferenceClassifier(3, 1000, 4, 5).classify(
+				"ACGTAC".getBytes(), new int[2]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentKmerLength() {
+		new MultiReferenceClassifier(3, 1000, 4, 5).classify(new NtHash(6,
+				true), "ACGTAC".getBytes(), 0, 6, new int[3]);
+	}
+}
@@ -0,0 +1,107 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.LongBuffer;
+
+import org.junit.Test;
+
+public class PagedBitStoreTest {
+
+	@Test
+	public void testPagedBitStore() {
+		PagedBitStore store = new PagedBitStore(300, 1);
+		assertEquals("The store size must be 300", 300, store.size());
+		assertEquals("300 bits must be packed in 5 words", 5,
+				store.wordCount());
+		assertEquals("5 words must be stored in 3 pages of 2 words", 3,
+				store.pages.length);
+		assertEquals("The last page must hold a single word", 1,
+				store.pages[2].length);
+		assertEquals("All bits must be cleared", 0, store.cardinality());
+	}
+
+	@Test
+	public void testSetAndGet() {
+		BitStore store = new PagedBitStore(300, 1);
+		for (int i = 0; i < 300; i += 7) {
+			store.set(i);
+		}
+		for (int i = 0; i < 300; i++) {
+			if (i % 7 == 0) {
+				assertTrue("Bit " + i + " must be set", store.get(i));
+			} else {
+				assertFalse("Bit " + i + " must not be set", store.get(i));
+			}
+		}
+		assertEquals(43, store.cardinality());
+		assertEquals(10, store.cardinality(100, 170));
+		store.setWord(4, 0L);
+		assertEquals("The last word must be cleared", 0,
+				store.cardinality(256, 300));
+		store.clear();
+		assertEquals("All bits must be cleared", 0, store.cardinality());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPagedBitStoreInvalidPageSize() {
+		new PagedBitStore(100, 31);
+	}
+
+	@Test
+	public void testOr() {
+		BitStore store = new PagedBitStore(1000, 2);
+		BitStore other = new PagedBitStore(1000, 2);
+		BitStore array = new LongArrayBitStore(1000);
+		for (int i = 0; i < 1000; i += 7) {
+			other.set(i);
+			array.set(i + 1);
+		}
+		store.or(other);
+		store.or(array);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("Bit " + i + " must be the union of both stores",
+					i % 7 == 0 || (i - 1) % 7 == 0, store.get(i));
+		}
+	}
+
+	@Test
+	public void testAndAndCopy() {
+		BitStore store = new PagedBitStore(1000, 2);
+		BitStore other = new PagedBitStore(1000, 2);
+		for (int i = 0; i < 1000; i += 2) {
+			store.set(i);
+		}
+		for (int i = 0; i < 1000; i += 3) {
+			other.set(i);
+		}
+		BitStore copy = store.copy();
+		store.and(other);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("Bit " + i + " must be the intersection",
+					i % 6 == 0, store.get(i));
+			assertEquals("Bit " + i + " of the copy must not change",
+					i % 2 == 0, copy.get(i));
+		}
+	}
+
+	@Test
+	public void testReadAndWriteWords() {
+		BitStore store = new PagedBitStore(64 * 10, 2);
+		long[] words = new long[10];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = i + 1;
+		}
+		store.readWords(0, LongBuffer.wrap(words));
+		for (int i = 0; i < words.length; i++) {
+			assertEquals("Word " + i + " must be read", i + 1,
+					store.getWord(i));
+		}
+		long[] copy = new long[7];
+		store.writeWords(3, LongBuffer.wrap(copy));
+		assertEquals("Word 3 must be written", 4L, copy[0]);
+		assertEquals("Word 9 must be written", 10L, copy[6]);
+	}
+}
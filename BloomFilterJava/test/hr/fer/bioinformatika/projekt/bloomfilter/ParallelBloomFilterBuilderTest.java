@@ -0,0 +1,110 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class ParallelBloomFilterBuilderTest {
+
+	private static Supplier<BloomFilter<String>> factory(final long m,
+			final int k) {
+		return new Supplier<BloomFilter<String>>() {
+			@Override
+			public BloomFilter<String> get() {
+				return new BloomFilter<String>(m, k);
+			}
+		};
+	}
+
+	private static List<String> items(int count) {
+		List<String> items = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			items.add("item" + i);
+		}
+		return items;
+	}
+
+	private static void assertSameBits(BloomFilter<?> expected,
+			BloomFilter<?> actual) {
+		BitStore expectedArray = expected.getArray();
+		BitStore actualArray = actual.getArray();
+		assertEquals("The arrays must be of the same size",
+				expectedArray.size(), actualArray.size());
+		for (long i = 0; i < expectedArray.wordCount(); i++) {
+			assertEquals("Word " + i + " must be the same",
+					expectedArray.getWord(i), actualArray.getWord(i));
+		}
+	}
+
+	@Test
+	public void testBuild() {
+		List<String> items = items(10000);
+		BloomFilter<String> expected = new BloomFilter<String>(50000, 5);
+		expected.addAll(items);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			BloomFilter<String> filter = new ParallelBloomFilterBuilder<String, BloomFilter<String>>(
+					factory(50000, 5), pool, 100).build(items);
+			assertSameBits(expected, filter);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testBuildArray() {
+		List<String> items = items(5000);
+		BloomFilter<String> filter = new ParallelBloomFilterBuilder<String, BloomFilter<String>>(
+				factory(30000, 5)).build(items.toArray(new String[0]));
+		for (String item : items) {
+			assertTrue("Added item MUST be in a filter", filter.query(item));
+		}
+	}
+
+	@Test
+	public void testBuildEmpty() {
+		BloomFilter<String> filter = new ParallelBloomFilterBuilder<String, BloomFilter<String>>(
+				factory(1000, 3)).build(new ArrayList<String>());
+		assertEquals("The filter must be empty", 0, filter.getArray()
+				.cardinality());
+	}
+
+	@Test
+	public void testCollector() {
+		List<String> items = items(10000);
+		BloomFilter<String> expected = new BloomFilter<String>(50000, 5);
+		expected.addAll(items);
+		BloomFilter<String> filter = items.parallelStream().collect(
+				ParallelBloomFilterBuilder.toBloomFilter(factory(50000, 5)));
+		assertSameBits(expected, filter);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuildScalable() {
+		new ParallelBloomFilterBuilder<String, ScalableBloomFilter<String>>(
+				new Supplier<ScalableBloomFilter<String>>() {
+					@Override
+					public ScalableBloomFilter<String> get() {
+						return new ScalableBloomFilter<String>(100, 0.01);
+					}
+				}).build(items(10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeIncompatible() {
+		ParallelBloomFilterBuilder.merge(new BloomFilter<String>(1000, 3),
+				new BloomFilter<String>(1000, 4));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRangeSize() {
+		new ParallelBloomFilterBuilder<String, BloomFilter<String>>(factory(
+				1000, 3), ForkJoinPool.commonPool(), 0);
+	}
+}
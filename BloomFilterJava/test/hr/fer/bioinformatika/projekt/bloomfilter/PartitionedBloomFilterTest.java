@@ -6,7 +6,6 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 
 import org.junit.Test;
@@ -44,12 +43,10 @@ public class PartitionedBloomFilterTest {
 	public void testPartitionedBloomFilterIntInt() {
 		PartitionedBloomFilter<String> filter = new PartitionedBloomFilter<String>(
 				20, 4);
-		boolean[] testArray = new boolean[20];
-		Arrays.fill(testArray, false);
-		int[] partitionIndexes = new int[] { 5, 10, 15, 20 };
-		assertEquals("The m-bit array size must be 20", 20, filter.array.length);
-		assertTrue("All of the values in the m-bit array must be false",
-				Arrays.equals(testArray, filter.array));
+		long[] partitionIndexes = new long[] { 5, 10, 15, 20 };
+		assertEquals("The m-bit array size must be 20", 20, filter.array.size());
+		assertEquals("All of the values in the m-bit array must be false", 0,
+				filter.array.cardinality());
 		assertEquals("The hash functions array length must be 2", 2,
 				filter.hashFunctions.length);
 		assertEquals(
@@ -71,7 +68,7 @@ public class PartitionedBloomFilterTest {
 				Math.log(2), 2));
 		int expectedK = (int) Math.ceil(Math.log(1. / falsePositiveProbability)
 				/ Math.log(2.));
-		assertEquals(expectedArraySize, filter.array.length);
+		assertEquals(expectedArraySize, filter.array.size());
 		assertEquals(expectedK, filter.k);
 	}
 
@@ -84,7 +81,7 @@ public class PartitionedBloomFilterTest {
 		int expectedK = (int) Math.ceil(Math.log(1. / falsePositiveProbability)
 				/ Math.log(2.));
 		assertEquals("Array sizes must be equal", arraySize,
-				filter.array.length);
+				filter.array.size());
 		assertEquals(expectedK, filter.k);
 	}
 
@@ -92,10 +89,42 @@ public class PartitionedBloomFilterTest {
 	public void testCreatePartitionIndexes() {
 		PartitionedBloomFilter<String> filter = new PartitionedBloomFilter<String>(
 				20, 4);
-		int[] partitionIndexes = new int[] { 5, 10, 15, 20 };
+		long[] partitionIndexes = new long[] { 5, 10, 15, 20 };
 		assertEquals("The number of slices must be equal to parameter k",
 				filter.k, filter.partitionIndexes.length);
 		assertArrayEquals(partitionIndexes, filter.partitionIndexes);
 	}
 
+	@Test
+	public void testQueryAll() {
+		BloomFilter<String> filter = new PartitionedBloomFilter<String>(300,
+				0.01);
+		String[] items = new String[600];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+		}
+		for (int i = 0; i < 300; i++) {
+			filter.add(items[i]);
+		}
+		boolean[] found = new boolean[items.length];
+		filter.queryAll(items, found);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals("Batch and single queries must agree",
+					filter.query(items[i]), found[i]);
+		}
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Added item MUST be in a filter", found[i]);
+		}
+	}
+
+	@Test
+	public void testEstimateSize() {
+		BloomFilter<String> filter = new PartitionedBloomFilter<String>(2000,
+				0.01);
+		for (int i = 0; i < 2000; i++) {
+			filter.add("item" + i);
+		}
+		assertEquals("Estimated number of items", 2000,
+				filter.estimateSize(), 60);
+	}
 }
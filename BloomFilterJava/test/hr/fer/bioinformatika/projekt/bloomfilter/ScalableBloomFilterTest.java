@@ -6,7 +6,9 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -102,4 +104,128 @@ public class ScalableBloomFilterTest {
 				filter.getFilters().size());
 		filter.addNewFilter();
 	}
+
+	@Test
+	public void testAddBytes() {
+		ScalableBloomFilter<String> filter = new ScalableBloomFilter<String>(
+				10, 0.01);
+		for (int i = 0; i < 100; i++) {
+			byte[] data = ("item" + i).getBytes();
+			filter.add(data, 0, data.length);
+		}
+		assertEquals("Items added as bytes must be counted", 11, filter
+				.getFilters().size());
+		for (int i = 0; i < 100; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+	}
+
+	@Test
+	public void testAddAllQueryAll() {
+		ScalableBloomFilter<String> filter = new ScalableBloomFilter<String>(
+				50, 0.01);
+		String[] items = new String[600];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+		}
+		filter.addAll(Arrays.copyOf(items, 300));
+		assertEquals("Every item must be counted", 300,
+				50 * (filter.getFilters().size() - 1) + filter.getItemsInCurrent());
+		boolean[] found = new boolean[items.length];
+		filter.queryAll(items, found);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals("Batch and single queries must agree",
+					filter.query(items[i]), found[i]);
+		}
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Added item MUST be in a filter", found[i]);
+		}
+	}
+
+	@Test
+	public void testHashOnce() {
+		final int[] encoded = new int[1];
+		ScalableBloomFilter<String> filter = new ScalableBloomFilter<String>(
+				10, 0.01) {
+			@Override
+			protected byte[] getBytes(String item) {
+				encoded[0]++;
+				return super.getBytes(item);
+			}
+		};
+		for (int i = 0; i < 100; i++) {
+			filter.add("item" + i);
+		}
+		assertEquals("The filter must have 11 slices", 11, filter
+				.getFilters().size());
+		encoded[0] = 0;
+		filter.query("randomItem");
+		assertEquals("A query must encode the item once", 1, encoded[0]);
+		for (int i = 0; i < 100; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+	}
+
+	@Test
+	public void testNewestSliceFirst() {
+		final List<Integer> probed = new ArrayList<Integer>();
+		ScalableBloomFilter<String> filter = new ScalableBloomFilter<String>(
+				10, 0.01);
+		List<BloomFilter<String>> slices = new ArrayList<BloomFilter<String>>();
+		for (int i = 0; i < 3; i++) {
+			final int slice = i;
+			slices.add(new PartitionedBloomFilter<String>(10, 0.01) {
+				@Override
+				protected boolean queryHashes(long h1, long h2) {
+					probed.add(slice);
+					return super.queryHashes(h1, h2);
+				}
+			});
+		}
+		filter.setFilters(slices);
+		slices.get(1).add("item");
+		assertTrue("Added item MUST be in a filter", filter.query("item"));
+		assertEquals("The newest slices must be probed first",
+				Arrays.asList(2, 1), probed);
+	}
+
+	@Test
+	public void testGrowthFactor() {
+		ScalableBloomFilter<String> filter = new ScalableBloomFilter<String>(
+				10, 0.01, 0.9, 2);
+		for (int i = 0; i < 1000; i++) {
+			filter.add("item" + i);
+		}
+		// 10 + 20 + 40 + 80 + 160 + 320 = 630 items in the full filters
+		assertEquals("The number of filters must grow logarithmically", 7,
+				filter.getFilters().size());
+		assertEquals("The last filter must hold the remaining items", 370,
+				filter.getItemsInCurrent());
+		for (int i = 0; i < 7; i++) {
+			assertEquals("Every filter must be twice as large", 10L << i,
+					filter.getCapacity(i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidGrowthFactor() {
+		new ScalableBloomFilter<String>(10, 0.01, 0.9, 0.5);
+	}
+
+	@Test
+	public void testEstimateSize() {
+		BloomFilter<Integer> filter = new ScalableBloomFilter<Integer>(100, 0.01);
+		for (int i = 0; i < 5000; i++) {
+			filter.add(i);
+		}
+		double estimate = filter.estimateSize();
+		assertTrue("The estimate must be close to the real size: " + estimate,
+				Math.abs(estimate - 5000) < 250);
+	}
 }
@@ -0,0 +1,53 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ScalableLongBloomFilterTest {
+
+	@Test
+	public void testQuery() {
+		ScalableLongBloomFilter filter = new ScalableLongBloomFilter(100, 0.01);
+		for (long i = 0; i < 1000; i++) {
+			filter.add(i);
+		}
+		assertEquals("Every 100 keys a new filter must be added", 11, filter
+				.getFilters().size());
+		for (long i = 0; i < 1000; i++) {
+			assertTrue("Added key MUST be in a filter", filter.query(i));
+		}
+	}
+
+	@Test
+	public void testQueryBoxed() {
+		ScalableLongBloomFilter filter = new ScalableLongBloomFilter(100, 0.01);
+		filter.add(Long.valueOf(123456789L));
+		assertTrue("Boxed and primitive keys must use the same hashes",
+				filter.query(123456789L));
+		assertEquals("A boxed key must be counted once", 1,
+				filter.getItemsInCurrent());
+	}
+
+	@Test
+	public void testQueryAll() {
+		ScalableLongBloomFilter filter = new ScalableLongBloomFilter(50, 0.01);
+		long[] keys = new long[600];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = (long) i * 31;
+		}
+		filter.addAll(Arrays.copyOf(keys, 300));
+		boolean[] found = new boolean[keys.length];
+		filter.queryAll(keys, found);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals("Batch and single queries must agree",
+					filter.query(keys[i]), found[i]);
+		}
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Added key MUST be in a filter", found[i]);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package hr.fer.bioinformatika.projekt.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SplitBlockBloomFilterTest {
+
+	@Test
+	public void testSplitBlockBloomFilterLong() {
+		SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<String>(
+				1000);
+		assertEquals("The array size must be rounded up to whole blocks",
+				1024, filter.array.size());
+		assertEquals("The filter must have 4 blocks", 4, filter.blocks);
+		assertEquals("The number of used hash functions must be 8", 8,
+				filter.k);
+	}
+
+	@Test
+	public void testSplitBlockBloomFilterLongDouble() {
+		SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<String>(
+				100000, 0.01);
+		assertTrue("The requested probability must be reached",
+				SplitBlockBloomFilter.estimateFalsePositiveProbability(
+						filter.array.size(), 100000) <= 0.01);
+		assertTrue("The array must be the smallest one that reaches it",
+				SplitBlockBloomFilter.estimateFalsePositiveProbability(
+						filter.array.size()
+								- SplitBlockBloomFilter.BLOCK_SIZE, 100000) > 0.01);
+	}
+
+	@Test
+	public void testAddOneBitPerWord() {
+		SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<String>(
+				1 << 16);
+		filter.add("testItem");
+		long first = 0;
+		while (!filter.array.get(first)) {
+			first++;
+		}
+		long block = first & ~(SplitBlockBloomFilter.BLOCK_SIZE - 1L);
+		for (int i = 0; i < 8; i++) {
+			assertEquals("Every 32-bit word of the block must have one bit",
+					1, filter.array.cardinality(block + 32 * i, block + 32
+							* (i + 1)));
+		}
+		assertEquals("All bits of an item must be in a single block", 8,
+				filter.array.cardinality());
+	}
+
+	@Test
+	public void testQuery() {
+		SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<String>(
+				10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filter.add("item" + i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertTrue("Added item MUST be in a filter",
+					filter.query("item" + i));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (filter.query("randomItem" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("False positive rate must be close to 0.01: "
+				+ falsePositives, falsePositives < 1500);
+		assertFalse("Random item must not be in this filter",
+				filter.query("randomItem"));
+	}
+
+	@Test
+	public void testQueryAll() {
+		SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<String>(
+				300, 0.01);
+		String[] items = new String[600];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = "item" + i;
+		}
+		for (int i = 0; i < 300; i++) {
+			filter.add(items[i]);
+		}
+		boolean[] found = new boolean[items.length];
+		filter.queryAll(items, found);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals("Batch and single queries must agree",
+					filter.query(items[i]), found[i]);
+		}
+		for (int i = 0; i < 300; i++) {
+			assertTrue("Added item MUST be in a filter", found[i]);
+		}
+	}
+}
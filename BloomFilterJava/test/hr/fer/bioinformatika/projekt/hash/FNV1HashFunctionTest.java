@@ -2,6 +2,8 @@ package hr.fer.bioinformatika.projekt.hash;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 
 public class FNV1HashFunctionTest {
@@ -14,4 +16,34 @@ public class FNV1HashFunctionTest {
 		assertEquals("The output hash must be 3157003241", 3157003241L,
 				outputHash);
 	}
+
+	@Test
+	public void testGetHashRange() {
+		HashFunction fnv1 = new FNV1HashFunction();
+		byte[] data = "xxtestyyy".getBytes();
+		assertEquals("The hash of a range must equal the hash of its copy",
+				fnv1.getHash("test".getBytes()), fnv1.getHash(data, 2, 4));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetHashInvalidRange() {
+		new FNV1HashFunction().getHash("test".getBytes(), 2, 3);
+	}
+
+	@Test
+	public void testGetHashByteBuffer() {
+		HashFunction fnv1 = new FNV1HashFunction();
+		byte[] data = "xxtestyyy".getBytes();
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data);
+		direct.position(2).limit(6);
+		ByteBuffer heap = ByteBuffer.wrap(data, 2, 4).slice();
+		long expected = fnv1.getHash("test".getBytes());
+		assertEquals("The hash of a direct buffer must equal the hash of its copy",
+				expected, fnv1.getHash(direct));
+		assertEquals("The hash of a heap buffer must equal the hash of its copy",
+				expected, fnv1.getHash(heap));
+		assertEquals("The buffer position must not change", 2,
+				direct.position());
+	}
 }
@@ -0,0 +1,115 @@
+package hr.fer.bioinformatika.projekt.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class MurmurHash128Test {
+
+	@Test
+	public void testMurmurHash128() {
+		MurmurHash128 murmurHash = new MurmurHash128();
+		assertEquals("Seed must be 0", 0, murmurHash.seed);
+	}
+
+	@Test
+	public void testGetHash() {
+		MurmurHash128 murmurHash = new MurmurHash128();
+		long[] out = new long[2];
+		murmurHash.getHash("test".getBytes(), 0, 4, out);
+		assertEquals("The first half must be -6017608668500074083",
+				-6017608668500074083L, out[0]);
+		assertEquals("The second half must be -7344664891132916350",
+				-7344664891132916350L, out[1]);
+		assertEquals("getHash must return 32 bits of the first half",
+				out[0] >>> 32, murmurHash.getHash("test".getBytes()));
+	}
+
+	@Test
+	public void testGetHashEmpty() {
+		long[] out = new long[] { 1, 1 };
+		new MurmurHash128().getHash(new byte[0], 0, 0, out);
+		assertEquals("The hash of an empty input must be 0", 0, out[0]);
+		assertEquals("The hash of an empty input must be 0", 0, out[1]);
+	}
+
+	@Test
+	public void testGetHashLongInput() {
+		MurmurHash128 murmurHash = new MurmurHash128();
+		byte[] data = "The quick brown fox jumps over the lazy dog".getBytes();
+		long[] out = new long[2];
+		murmurHash.getHash(data, 0, data.length, out);
+		assertEquals(0xe34bbc7bbc071b6cL, out[0]);
+		assertEquals(0x7a433ca9c49a9347L, out[1]);
+	}
+
+	@Test
+	public void testGetHashRange() {
+		MurmurHash128 murmurHash = new MurmurHash128();
+		byte[] data = "xxThe quick brown fox jumps over the lazy dogyy"
+				.getBytes();
+		byte[] copy = "The quick brown fox jumps over the lazy dog".getBytes();
+		assertEquals("The hash of a range must equal the hash of its copy",
+				murmurHash.getHash(copy),
+				murmurHash.getHash(data, 2, copy.length));
+	}
+
+	@Test
+	public void testGetHash32Bit() {
+		MurmurHash128 murmurHash = new MurmurHash128();
+		for (int i = 0; i < 1000; i++) {
+			byte[] data = ("item" + i).getBytes();
+			long hash = murmurHash.getHash(data);
+			assertEquals("getHash must return a 32bit value", hash,
+					hash & 0xffffffffL);
+			assertEquals(hash, murmurHash.getHash(data, 0, data.length));
+			assertEquals(hash, murmurHash.getHash(ByteBuffer.wrap(data)));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetHashInvalidRange() {
+		new MurmurHash128().getHash("test".getBytes(), 2, 3);
+	}
+
+	@Test
+	public void testGetHashByteBuffer() {
+		MurmurHash128 murmurHash = new MurmurHash128();
+		byte[] data = "xxThe quick brown fox jumps over the lazy dogyy"
+				.getBytes();
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data);
+		direct.position(2).limit(data.length - 2);
+		ByteBuffer heap = ByteBuffer.wrap(data, 2, data.length - 4).slice();
+		long[] expected = new long[2];
+		murmurHash.getHash(data, 2, data.length - 4, expected);
+		long[] out = new long[2];
+		murmurHash.getHash(direct, out);
+		assertEquals("The hash of a direct buffer must equal the hash of its copy",
+				expected[1], out[1]);
+		murmurHash.getHash(heap, out);
+		assertEquals("The hash of a heap buffer must equal the hash of its copy",
+				expected[1], out[1]);
+		assertEquals("The buffer position must not change", 2,
+				direct.position());
+	}
+
+	@Test
+	public void testScratch() {
+		MurmurHash128 murmurHash = new MurmurHash128();
+		byte[] data = "The quick brown fox jumps over the lazy dog".getBytes();
+		long[] expected = new long[2];
+		murmurHash.getHash(data, 0, data.length, expected);
+		long[] scratch = MurmurHash128.scratch();
+		assertSame("The scratch array must be reused by the thread", scratch,
+				MurmurHash128.scratch());
+		murmurHash.getHash(data, 0, data.length, scratch);
+		assertEquals(expected[0], scratch[0]);
+		assertEquals(expected[1], scratch[1]);
+		assertEquals("The single half must not depend on the scratch array",
+				expected[0] >>> 32, murmurHash.getHash(data));
+	}
+}
@@ -2,6 +2,8 @@ package hr.fer.bioinformatika.projekt.hash;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 
 public class MurmurHashTest {
@@ -27,4 +29,34 @@ public class MurmurHashTest {
 		assertEquals("The output hash must be 2056757994", 2056757994,
 				outputHash);
 	}
+
+	@Test
+	public void testGetHashRange() {
+		HashFunction murmurHash = new MurmurHash();
+		byte[] data = "xxtestyyy".getBytes();
+		assertEquals("The hash of a range must equal the hash of its copy",
+				murmurHash.getHash("test".getBytes()), murmurHash.getHash(data, 2, 4));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetHashInvalidRange() {
+		new MurmurHash().getHash("test".getBytes(), 2, 3);
+	}
+
+	@Test
+	public void testGetHashByteBuffer() {
+		HashFunction murmurHash = new MurmurHash();
+		byte[] data = "xxtestyyy".getBytes();
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data);
+		direct.position(2).limit(6);
+		ByteBuffer heap = ByteBuffer.wrap(data, 2, 4).slice();
+		long expected = murmurHash.getHash("test".getBytes());
+		assertEquals("The hash of a direct buffer must equal the hash of its copy",
+				expected, murmurHash.getHash(direct));
+		assertEquals("The hash of a heap buffer must equal the hash of its copy",
+				expected, murmurHash.getHash(heap));
+		assertEquals("The buffer position must not change", 2,
+				direct.position());
+	}
 }
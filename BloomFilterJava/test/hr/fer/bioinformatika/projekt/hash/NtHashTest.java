@@ -0,0 +1,143 @@
+package hr.fer.bioinformatika.projekt.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NtHashTest {
+
+	private static final byte[] NUCLEOTIDES = "ACGT".getBytes();
+
+	private static byte[] randomSequence(int length, long seed) {
+		Random random = new Random(seed);
+		byte[] sequence = new byte[length];
+		for (int i = 0; i < length; i++) {
+			sequence[i] = NUCLEOTIDES[random.nextInt(4)];
+		}
+		return sequence;
+	}
+
+	private static byte[] reverseComplement(byte[] sequence) {
+		byte[] result = new byte[sequence.length];
+		for (int i = 0; i < sequence.length; i++) {
+			byte b = sequence[sequence.length - 1 - i];
+			result[i] = (byte) (b == 'A' ? 'T' : b == 'C' ? 'G'
+					: b == 'G' ? 'C' : 'A');
+		}
+		return result;
+	}
+
+	@Test
+	public void testRollingEqualsRecomputed() {
+		byte[] sequence = randomSequence(1000, 1);
+		for (int k : new int[] { 1, 5, 31, 64, 65, 100 }) {
+			for (boolean canonical : new boolean[] { false, true }) {
+				NtHash ntHash = new NtHash(k, canonical);
+				ntHash.reset(sequence, 0, sequence.length);
+				int count = 0;
+				while (ntHash.next()) {
+					assertEquals("The k-mer must start at " + count, count,
+							ntHash.getPosition());
+					assertEquals("The rolling hash must equal the recomputed hash",
+							NtHash.hash(sequence, count, k, canonical),
+							ntHash.getHash());
+					count++;
+				}
+				assertEquals("Every k-mer must be hashed",
+						sequence.length - k + 1, count);
+			}
+		}
+	}
+
+	@Test
+	public void testCanonical() {
+		byte[] sequence = randomSequence(200, 2);
+		byte[] complement = reverseComplement(sequence);
+		int k = 21;
+		for (int i = 0; i + k <= sequence.length; i++) {
+			int j = sequence.length - k - i;
+			assertEquals(
+					"A k-mer and its reverse complement must have the same canonical hash",
+					NtHash.hash(sequence, i, k, true),
+					NtHash.hash(complement, j, k, true));
+		}
+		assertFalse("The forward hash must depend on the strand",
+				NtHash.hash(sequence, 0, k, false) == NtHash.hash(complement,
+						sequence.length - k, k, false));
+	}
+
+	@Test
+	public void testLowerCase() {
+		byte[] upper = "ACGTTGCA".getBytes(StandardCharsets.US_ASCII);
+		byte[] lower = "acgtTGca".getBytes(StandardCharsets.US_ASCII);
+		assertEquals("Lower case nucleotides must be equal to upper case ones",
+				NtHash.hash(upper, 0, upper.length, true),
+				NtHash.hash(lower, 0, lower.length, true));
+	}
+
+	@Test
+	public void testInvalidBasesResetWindow() {
+		byte[] sequence = "ACGTNACGTACNGTTT".getBytes();
+		NtHash ntHash = new NtHash(4, true);
+		ntHash.reset(sequence, 0, sequence.length);
+		int[] expected = { 0, 5, 6, 7, 12 };
+		for (int position : expected) {
+			assertTrue("The k-mer at " + position + " must be hashed",
+					ntHash.next());
+			assertEquals("The k-mers with N must be skipped", position,
+					ntHash.getPosition());
+			assertEquals("The hash must be recomputed after N",
+					NtHash.hash(sequence, position, 4, true), ntHash.getHash());
+		}
+		assertFalse("There must be no more k-mers", ntHash.next());
+		assertFalse("The end must be sticky", ntHash.next());
+	}
+
+	@Test
+	public void testRange() {
+		byte[] sequence = randomSequence(50, 3);
+		NtHash ntHash = new NtHash(10, false);
+		ntHash.reset(sequence, 20, 15);
+		int count = 0;
+		while (ntHash.next()) {
+			assertEquals("The k-mer must be inside of the range", 20 + count,
+					ntHash.getPosition());
+			count++;
+		}
+		assertEquals("Only the k-mers of the range must be hashed", 6, count);
+		ntHash.reset(sequence, 0, 9);
+		assertFalse("A range shorter than k has no k-mers", ntHash.next());
+	}
+
+	@Test
+	public void testSecondHash() {
+		byte[] sequence = randomSequence(100, 4);
+		NtHash ntHash = new NtHash(15, true);
+		ntHash.reset(sequence, 0, sequence.length);
+		assertTrue(ntHash.next());
+		assertEquals("The second hash must be derived from the first one",
+				NtHash.secondHash(ntHash.getHash(), 15), ntHash.getSecondHash());
+		assertFalse("The second hash must differ from the first one",
+				ntHash.getHash() == ntHash.getSecondHash());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidK() {
+		new NtHash(0, true);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHashInvalidNucleotide() {
+		NtHash.hash("ACNT".getBytes(), 0, 4, true);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidRange() {
+		new NtHash(3, true).reset(new byte[10], 5, 6);
+	}
+}
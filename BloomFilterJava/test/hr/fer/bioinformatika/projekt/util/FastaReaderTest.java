@@ -0,0 +1,137 @@
+package hr.fer.bioinformatika.projekt.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import hr.fer.bioinformatika.projekt.bloomfilter.BloomFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+
+public class FastaReaderTest {
+
+	private static final String FASTA = "ignored line\n"
+			+ ">seq1 first sequence\nACGT\nTTGA\n" + "  >seq2\r\nGG\r\nCC\r\n"
+			+ ">empty\n" + ">seq4\nAC GT\tA\n";
+
+	private static FastaReader reader(String content, int bufferSize) {
+		return new FastaReader(Channels.newChannel(new ByteArrayInputStream(
+				content.getBytes(StandardCharsets.UTF_8))), bufferSize);
+	}
+
+	private static Collection<String> readAll(FastaReader reader)
+			throws IOException {
+		Collection<String> sequences = new ArrayList<String>();
+		while (reader.next()) {
+			sequences.add(reader.getDescription() + ":"
+					+ reader.readSequenceString());
+		}
+		return sequences;
+	}
+
+	@Test
+	public void testRecords() throws IOException {
+		Collection<String> expected = Arrays.asList(
+				"seq1 first sequence:ACGTTTGA", "seq2:GGCC", "empty:",
+				"seq4:ACGTA");
+		for (int bufferSize = 1; bufferSize <= 64; bufferSize++) {
+			assertEquals("Records must not depend on the buffer size "
+					+ bufferSize, expected, readAll(reader(FASTA, bufferSize)));
+		}
+	}
+
+	@Test
+	public void testReadChunks() throws IOException {
+		FastaReader reader = reader(">a\nACGTACGT\nAC\n>b\nT\n", 4);
+		assertTrue("The first record must be found", reader.next());
+		byte[] chunk = new byte[3];
+		StringBuilder sequence = new StringBuilder();
+		int n;
+		while ((n = reader.read(chunk, 0, chunk.length)) >= 0) {
+			assertTrue("A chunk must not be longer than requested", n <= 3);
+			sequence.append(new String(chunk, 0, n, StandardCharsets.UTF_8));
+		}
+		assertEquals("ACGTACGTAC", sequence.toString());
+		assertTrue("The second record must be found", reader.next());
+		assertEquals("T", reader.readSequenceString());
+		assertFalse("There must be no more records", reader.next());
+		assertNull("There must be no description", reader.getDescription());
+	}
+
+	@Test
+	public void testSkipUnreadSequence() throws IOException {
+		FastaReader reader = reader(">a\nAAAA\nCCCC\n>b\nGG\n", 2);
+		assertTrue(reader.next());
+		reader.read(new byte[3], 0, 3);
+		assertTrue(reader.next());
+		assertEquals("b", reader.getDescription());
+		assertEquals("GG", reader.readSequenceString());
+	}
+
+	@Test
+	public void testLongSequence() throws IOException {
+		StringBuilder content = new StringBuilder(">long\n");
+		StringBuilder sequence = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			content.append("ACGTACGTACGTACGT\n");
+			sequence.append("ACGTACGTACGTACGT");
+		}
+		FastaReader reader = reader(content.toString(), 100);
+		assertTrue(reader.next());
+		assertEquals(sequence.toString(), reader.readSequenceString());
+	}
+
+	@Test
+	public void testAddTo() throws IOException {
+		BloomFilter<String> filter = new BloomFilter<String>(1000, 5);
+		assertEquals("All sequences must be added", 4,
+				reader(FASTA, 16).addTo(filter));
+		assertTrue("Added sequence MUST be in a filter",
+				filter.query("ACGTTTGA"));
+		assertTrue("Added sequence MUST be in a filter", filter.query("GGCC"));
+		assertFalse("Random sequence must not be in this filter",
+				filter.query("ACGTTTG"));
+	}
+
+	@Test
+	public void testAddKmersTo() throws IOException {
+		byte[] first = "ACGTTTGAGGCATTACGA".getBytes(StandardCharsets.US_ASCII);
+		byte[] second = "GGCCATNACGTACCA".getBytes(StandardCharsets.US_ASCII);
+		BloomFilter<String> filter = new BloomFilter<String>(10000, 5);
+		FastaReader reader = reader(
+				">a\nACGTTTGA\nGGCATTACGA\n>b\nGGCC\nATNACGTACCA\n", 5);
+		// small chunks, the k-mers must span them
+		reader.sequence = new byte[14];
+		assertEquals("Every k-mer must be added", 12 + 2,
+				reader.addKmersTo(filter, 7, true));
+		for (byte[] sequence : new byte[][] { first, second }) {
+			for (int i = 0; i + 7 <= sequence.length; i++) {
+				if (sequence == first || i > 6) {
+					assertTrue("Added k-mer MUST be in a filter",
+							filter.queryKmer(sequence, i, 7));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLoadFasta() throws IOException {
+		File file = File.createTempFile("sequences", ".fasta");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(FASTA.getBytes(StandardCharsets.UTF_8));
+		out.close();
+		assertEquals(Arrays.asList("ACGTTTGA", "GGCC", "", "ACGTA"),
+				Utilities.loadFasta(file.getPath()));
+	}
+}